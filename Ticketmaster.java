@@ -15,6 +15,7 @@
  */
 
 import ticketmaster.Database;
+import ticketmaster.HeadlessRunner;
 import ticketmaster.display.Viewer;
 
 /**
@@ -32,10 +33,16 @@ public class Ticketmaster {
    * option to use the system.
    * At the end, it make three ticket summaries and close the program by calling
    * closeProgram().
+   * If any argument is given the program run without windows, see
+   * HeadlessRunner for the arguments.
    * 
    * @param args - Array of strings with what was given when the code got compile.
    */
   public static void main(String[] args) {
+    if (HeadlessRunner.isHeadless(args)) {
+      System.exit(HeadlessRunner.run(args));
+    }
+
     Database.populateDatabase(); // Fill Events, Venues, Customers and Tickets
     Viewer.logUserOrAdmin();
   }
@@ -2,6 +2,8 @@
 
 rm prevNewCustomerList.csv prevNewEventList.csv prevNewTicketList.csv #remove second to last version of records created
 rm NewCustomerList.csv NewEventList.csv NewTicketList.csv #remove last version of records created
+rm Database.snapshot prevDatabase.snapshot #remove last two database snapshots
+rm Database.journal #remove changes made after the last snapshot
 
 rm -r Loggers   #remove all loggers and its folder
 rm -r TicketSummaries   #remove all loggersticket summaries and its folder
@@ -0,0 +1,305 @@
+package ticketmaster;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * BenchmarkData is the data size of a benchmark run and what its setups share:
+ * the sample csv files, bigger copies of them, and the events and customers of
+ * the Database once it is loaded.
+ *
+ * The samples are EventList.csv, CustomerList.csv and AutoPurchase10K.csv of
+ * the folder given by the ticketmaster.data system property, the current folder
+ * by default. Bigger files than the samples are made by repeating their rows
+ * with new IDs, usernames and names in a temporary folder that is deleted at
+ * the end of the trial, where the benchmarks also write their files.
+ *
+ * Purchases, statistics and loads print messages for people, System.out is
+ * muted and logs are off while the trial run.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+  static final String EVENTS = "EventList.csv";
+  static final String CUSTOMERS = "CustomerList.csv";
+  static final String PURCHASES = "AutoPurchase10K.csv";
+  static final long MONEY = 100000000000L; // In cents, enough for any number of purchases
+
+  @Param({ "1000", "10000" })
+  public int size;
+
+  private String directory;
+  private Path scratch;
+  private final HashMap<String, String> scaledFiles = new HashMap<>(); // key = file and size | value = path
+  private PrintStream stdout;
+  private Level level;
+
+  // Database contents found by findEventsAndCustomers()
+  Event[] events;
+  Customer[] customers;
+
+  @Setup
+  public void open() throws IOException {
+    directory = System.getProperty("ticketmaster.data", ".");
+    scratch = Files.createTempDirectory("benchmarks");
+    stdout = System.out;
+    level = Log.getLevel();
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    Log.setLevel(Level.OFF);
+  }
+
+  @TearDown
+  public void close() {
+    forget();
+    System.setOut(stdout);
+    Log.setLevel(level);
+    try (Stream<Path> paths = Files.walk(scratch)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    } catch (IOException e) {
+      System.err.println(e.toString());
+    }
+  }
+
+  // Databases
+  /**
+   * Empty the Database, events and customers csv files can then be read into it.
+   */
+  void emptyDatabase() throws IOException {
+    forget();
+    Database.populateFromCSV(header(EVENTS), header(CUSTOMERS), null);
+  }
+
+  void sampleDatabase() {
+    forget();
+    Database.populateFromCSV(sample(EVENTS), sample(CUSTOMERS), null);
+    findEventsAndCustomers();
+  }
+
+  /**
+   * Load the samples and give every customer enough money for any number of
+   * purchases, so every purchase go all the way.
+   */
+  void richDatabase() {
+    sampleDatabase();
+    for (Customer customer : customers) {
+      customer.setMoneyAvailableInCents(MONEY);
+    }
+  }
+
+  /**
+   * Load the samples like richDatabase() and buy size tickets.
+   *
+   * @return ArrayList with the tickets bought.
+   */
+  ArrayList<Ticket> richDatabaseWithTickets() {
+    richDatabase();
+    return buy(size);
+  }
+
+  /**
+   * Buy n tickets going over every customer, event and seat type.
+   *
+   * @return ArrayList with the tickets bought.
+   */
+  ArrayList<Ticket> buy(int n) {
+    int nSeatTypes = SeatTypes.count();
+    int maxSeats = Ticket.getMaxNumberOfSeats();
+    ArrayList<Ticket> tickets = new ArrayList<>(n);
+
+    for (int i = 0; i < n; i++) {
+      Ticket ticket = customers[i % customers.length].buySeats(events[i % events.length],
+          SeatTypes.nameOf(i % nSeatTypes), 1 + i % maxSeats);
+      if ((ticket != null) && Database.addTicket(ticket)) {
+        tickets.add(ticket);
+      }
+    }
+    return tickets;
+  }
+
+  /**
+   * Read a copy of filename with size rows into an empty Database.
+   */
+  void scaledDatabase(String filename, String whatToPopulate) throws IOException {
+    emptyDatabase();
+    ReadCSV.populateDatabase(scaled(filename), whatToPopulate);
+    findEventsAndCustomers();
+  }
+
+  /**
+   * Drop the Database and what was kept of it, so millions of customers are not
+   * kept alive while the next ones are read.
+   */
+  void forget() {
+    events = null;
+    customers = null;
+    Journal.close();
+    Database.clearDatabase();
+  }
+
+  private void findEventsAndCustomers() {
+    ArrayList<Event> allEvents = new ArrayList<>();
+    ArrayList<Customer> allCustomers = new ArrayList<>();
+
+    for (int id = 1; id <= Database.getLargestEventID(); id++) {
+      Event event = Database.getEvent(id);
+      if (event != null) {
+        allEvents.add(event);
+      }
+    }
+    // Customers are looked up by ID until every customer read was found
+    for (int id = 0; allCustomers.size() < Database.getNumberOfCustomers(); id++) {
+      Customer customer = Database.getCustomer(id);
+      if (customer != null) {
+        allCustomers.add(customer);
+      }
+    }
+    events = allEvents.toArray(new Event[0]);
+    customers = allCustomers.toArray(new Customer[0]);
+  }
+
+  // Files
+  String sample(String filename) {
+    return Paths.get(directory, filename).toString();
+  }
+
+  /**
+   * @return String with the path of name in the temporary folder.
+   */
+  String scratchFile(String name) {
+    return scratch.resolve(name).toString();
+  }
+
+  /**
+   * @return String with a copy of the header of filename and no rows.
+   */
+  String header(String filename) throws IOException {
+    String key = filename + " 0";
+    String path = scaledFiles.get(key);
+
+    if (path == null) {
+      try (CSVTokenizer tokenizer = CSVTokenizer.open(sample(filename))) {
+        path = scratchFile("0-" + filename);
+        Files.writeString(Paths.get(path), toLine(tokenizer.readHeader()));
+      }
+      scaledFiles.put(key, path);
+    }
+    return path;
+  }
+
+  /**
+   * Make, the first time it is asked, a copy of filename with size rows. The rows
+   * of the sample are repeated, and every time they are repeated the IDs are
+   * moved after the last one and the event names, usernames and customer last
+   * names end with the number of the copy, so they are not taken as the same.
+   *
+   * @return String with the path of the copy.
+   */
+  String scaled(String filename) throws IOException {
+    String key = filename + " " + size;
+    String path = scaledFiles.get(key);
+
+    if (path != null) {
+      return path;
+    }
+    ArrayList<String[]> rows = new ArrayList<>();
+    String[] header;
+    try (CSVTokenizer tokenizer = CSVTokenizer.open(sample(filename))) {
+      header = tokenizer.readHeader();
+      CSVRow row = tokenizer.getRow();
+      while (tokenizer.nextRow()) {
+        String[] fields = new String[header.length];
+        for (int i = 0; i < fields.length; i++) {
+          fields[i] = row.get(i);
+        }
+        rows.add(fields);
+      }
+    }
+    if (rows.isEmpty()) {
+      throw new IOException(filename + " don't have any rows to repeat.");
+    }
+
+    List<String> columns = List.of(header);
+    int id = columns.indexOf(filename.equals(EVENTS) ? ReadCSV.EVENTIDHEADER : "ID");
+    int[] renamed = { columns.indexOf("Name"), columns.indexOf("Username"), columns.indexOf("Last Name") };
+    int largestID = 0;
+    if (!filename.equals(PURCHASES)) {
+      for (String[] row : rows) {
+        largestID = Math.max(largestID, Integer.parseInt(row[id]));
+      }
+    }
+
+    // Written as the rows are made, at 10 million rows the whole file don't fit
+    // in memory next to the Database
+    path = scratchFile(size + "-" + filename);
+    try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(path))) {
+      writer.write(toLine(header));
+      for (int i = 0; i < size; i++) {
+        String[] fields = rows.get(i % rows.size()).clone();
+        int copy = i / rows.size();
+        if ((copy > 0) && !filename.equals(PURCHASES)) {
+          fields[id] = Integer.toString(Integer.parseInt(fields[id]) + copy * largestID);
+          for (int column : renamed) {
+            if (column >= 0) {
+              fields[column] = fields[column] + "-" + copy;
+            }
+          }
+        }
+        writer.write(toLine(fields));
+      }
+    }
+    scaledFiles.put(key, path);
+    return path;
+  }
+
+  /**
+   * Make, the first time it is asked, a tickets csv file with size tickets
+   * bought on the samples. The Database is left empty.
+   *
+   * @return String with the path of the file.
+   */
+  String ticketsFile() {
+    String key = "tickets " + size;
+    String path = scaledFiles.get(key);
+
+    if (path == null) {
+      richDatabaseWithTickets();
+      path = scratchFile(size + "-NewTicketList.csv");
+      WriteCSV.writeTicketsList(Database.getTicketStore().getTickets(), path);
+      forget();
+      scaledFiles.put(key, path);
+    }
+    return path;
+  }
+
+  private static String toLine(String[] fields) {
+    StringBuilder line = new StringBuilder();
+
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        line.append(',');
+      }
+      if (fields[i].indexOf(',') >= 0 || fields[i].indexOf('"') >= 0) {
+        line.append('"').append(fields[i].replace("\"", "\"\"")).append('"');
+      } else {
+        line.append(fields[i]);
+      }
+    }
+    return line.append('\n').toString();
+  }
+}
@@ -0,0 +1,87 @@
+package ticketmaster;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LoadBenchmarks time reading a csv file of size rows into the Database, the
+ * score is the time of the whole file. The file is made and the Database
+ * emptied before every iteration, outside of the time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmarks {
+  @State(Scope.Benchmark)
+  public static class EmptyDatabase {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaled(BenchmarkData.EVENTS);
+      data.scaled(BenchmarkData.CUSTOMERS);
+      data.emptyDatabase();
+    }
+  }
+
+  /**
+   * The customers of the auto purchases have enough money for all of them.
+   */
+  @State(Scope.Benchmark)
+  public static class RichDatabase {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaled(BenchmarkData.PURCHASES);
+      data.richDatabase();
+    }
+  }
+
+  /**
+   * The events and customers of the samples, the tickets of the file are
+   * bought for them.
+   */
+  @State(Scope.Benchmark)
+  public static class SampleDatabase {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      data.ticketsFile();
+      data.sampleDatabase();
+    }
+  }
+
+  @Benchmark
+  public int events(BenchmarkData data, EmptyDatabase database) throws IOException {
+    ReadCSV.populateDatabase(data.scaled(BenchmarkData.EVENTS), "Event");
+    return Database.getNumberOfEvents();
+  }
+
+  @Benchmark
+  public int customers(BenchmarkData data, EmptyDatabase database) throws IOException {
+    ReadCSV.populateDatabase(data.scaled(BenchmarkData.CUSTOMERS), "Customer");
+    return Database.getNumberOfCustomers();
+  }
+
+  @Benchmark
+  public int purchases(BenchmarkData data, RichDatabase database) throws IOException {
+    ReadCSV.populateDatabase(data.scaled(BenchmarkData.PURCHASES), "AutoPurchase");
+    return Database.getNumberOfTickets();
+  }
+
+  @Benchmark
+  public int tickets(BenchmarkData data, SampleDatabase database) {
+    MappedTicketReader.populateDatabase(data.ticketsFile());
+    return Database.getNumberOfTickets();
+  }
+}
@@ -0,0 +1,176 @@
+package ticketmaster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MapBenchmarks compare IDMap with the HashMap and ConcurrentHashMap of boxed
+ * IDs it replaced, with entries ticket IDs or entries IDs from 1 like the event
+ * and customer IDs. Every map point to the same value, so only what the map
+ * itself cost is counted.
+ *
+ * The lookups time a get() of an ID in the map. The footprints fill a map and
+ * report the heap it keep per entry as bytesPerEntry, the time of the fill is
+ * not the point of them. bytesPerEntry is added up over the iterations, so the
+ * footprints are measured once.
+ */
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MapBenchmarks {
+  private static final Object VALUE = new Object();
+
+  @Param({ "1000000" })
+  public int entries;
+
+  @Param({ "ticket", "sequential" })
+  public String ids;
+
+  /**
+   * @return long with the i-th ID. Ticket IDs are time ordered like the IDs of
+   *         SnowflakeIDGenerator: a millisecond in the high bits and a sequence
+   *         in the low bits.
+   */
+  long id(int i) {
+    return ids.equals("ticket") ? ((1700000000000L + i / 64) << 22) | (i % 64) : i + 1;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Maps {
+    IDMap<Object> idMap;
+    HashMap<Long, Object> hashMap;
+    ConcurrentHashMap<Long, Object> concurrentMap;
+    long[] queried;
+    int next = 0;
+
+    @Setup
+    public void setup(MapBenchmarks benchmark) {
+      idMap = new IDMap<>();
+      hashMap = new HashMap<>();
+      concurrentMap = new ConcurrentHashMap<>();
+      for (int i = 0; i < benchmark.entries; i++) {
+        long id = benchmark.id(i);
+        idMap.put(id, VALUE);
+        hashMap.put(id, VALUE);
+        concurrentMap.put(id, VALUE);
+      }
+      // Spread over the whole map so the lookups are not all in the cache
+      queried = new long[1 << 16];
+      for (int i = 0; i < queried.length; i++) {
+        queried[i] = benchmark.id((int) ((long) i * 7919 % benchmark.entries));
+      }
+    }
+
+    long nextID() {
+      long id = queried[next];
+      next = (next + 1) & (queried.length - 1);
+      return id;
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Footprint {
+    public long bytesPerEntry;
+    private long before;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      before = usedHeap();
+    }
+
+    void measure(Object map, int entries) {
+      bytesPerEntry = (usedHeap() - before) / entries;
+      if (map == null) {
+        throw new IllegalStateException(); // Keep the map alive until it is measured
+      }
+    }
+
+    private static long usedHeap() {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++) {
+        System.gc();
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+  }
+
+  // Lookups
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Object idMapGet(Maps maps) {
+    return maps.idMap.get(maps.nextID());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Object hashMapGet(Maps maps) {
+    return maps.hashMap.get(maps.nextID());
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Object concurrentMapGet(Maps maps) {
+    return maps.concurrentMap.get(maps.nextID());
+  }
+
+  // Footprints
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 1)
+  public void idMapFootprint(Footprint footprint) {
+    IDMap<Object> map = new IDMap<>();
+
+    for (int i = 0; i < entries; i++) {
+      map.put(id(i), VALUE);
+    }
+    footprint.measure(map, entries);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 1)
+  public void hashMapFootprint(Footprint footprint) {
+    footprint.measure(fill(new HashMap<>()), entries);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 1)
+  public void concurrentMapFootprint(Footprint footprint) {
+    footprint.measure(fill(new ConcurrentHashMap<>()), entries);
+  }
+
+  private Map<Long, Object> fill(Map<Long, Object> map) {
+    for (int i = 0; i < entries; i++) {
+      map.put(id(i), VALUE);
+    }
+    return map;
+  }
+}
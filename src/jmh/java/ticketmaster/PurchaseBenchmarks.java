@@ -0,0 +1,166 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PurchaseBenchmarks time buying, selling, holding and cancelling size tickets
+ * on the samples, the score is the time of all of them. The customers are given
+ * enough money for any number of purchases, so every purchase go all the way.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PurchaseBenchmarks {
+  private static final long HOLDMILLIS = 600000L; // Holds last up to 10 minutes, more than a turn of the wheel
+
+  @State(Scope.Benchmark)
+  public static class RichDatabase {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      data.richDatabase();
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class WithTickets {
+    ArrayList<Ticket> tickets;
+
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      tickets = data.richDatabaseWithTickets();
+    }
+  }
+
+  /**
+   * The holds are made by hold() or by the setup, from a time kept so expire()
+   * always find all of them expired.
+   */
+  @State(Scope.Benchmark)
+  public static class Holds {
+    SeatHolds seatHolds;
+    long holdStart; // Time the holds were made at in milliseconds since 1970
+    long[] holdIDs;
+
+    void setup(BenchmarkData data, int nHolds) {
+      data.richDatabase();
+      seatHolds = new SeatHolds();
+      holdStart = System.currentTimeMillis();
+      holdIDs = hold(data, nHolds);
+    }
+
+    /**
+     * Hold a seat going over every customer, event and seat type n times, that
+     * last from 0 to HOLDMILLIS.
+     *
+     * @return long[] with the IDs of the holds made.
+     */
+    long[] hold(BenchmarkData data, int n) {
+      int nSeatTypes = SeatTypes.count();
+      long[] ids = new long[n];
+      int nHolds = 0;
+
+      for (int i = 0; i < n; i++) {
+        SeatHolds.Hold hold = seatHolds.hold(data.customers[i % data.customers.length],
+            data.events[i % data.events.length], SeatTypes.nameOf(i % nSeatTypes), 1, (i * 7919L) % HOLDMILLIS,
+            holdStart);
+        if (hold != null) {
+          ids[nHolds++] = hold.getHoldID();
+        }
+      }
+      return Arrays.copyOf(ids, nHolds);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class NoHolds extends Holds {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      setup(data, 0);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class SizeHolds extends Holds {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      setup(data, data.size);
+    }
+  }
+
+  /**
+   * Customer.buySeats() and Database.addTicket() of size tickets going over
+   * every customer, event and seat type.
+   */
+  @Benchmark
+  public int buy(BenchmarkData data, RichDatabase database) {
+    return data.buy(data.size).size();
+  }
+
+  @Benchmark
+  public int sell(WithTickets database) {
+    int nSold = 0;
+
+    for (Ticket ticket : database.tickets) {
+      nSold += User.sellAllSeats(ticket) ? 1 : 0;
+    }
+    return nSold;
+  }
+
+  @Benchmark
+  public long[] hold(BenchmarkData data, NoHolds holds) {
+    return holds.hold(data, data.size);
+  }
+
+  @Benchmark
+  public int confirm(SizeHolds holds) {
+    int nConfirmed = 0;
+
+    for (long holdID : holds.holdIDs) {
+      nConfirmed += (holds.seatHolds.confirm(holdID) == null) ? 0 : 1;
+    }
+    return nConfirmed;
+  }
+
+  /**
+   * SeatHolds.expire() of size holds once all of them are over.
+   */
+  @Benchmark
+  public int expire(SizeHolds holds) {
+    return holds.seatHolds.expire(holds.holdStart + HOLDMILLIS + 1000);
+  }
+
+  /**
+   * Cancel every event with size tickets sold on the calling thread, so the time
+   * is not split between threads of the single CPU the benchmarks are usually
+   * run on.
+   */
+  @Benchmark
+  public int cancel(BenchmarkData data, WithTickets database) {
+    int[] eventIDs = new int[data.events.length];
+
+    for (int i = 0; i < eventIDs.length; i++) {
+      eventIDs[i] = data.events[i].getEventID();
+    }
+    CancellationProcessor.Report report = CancellationProcessor.cancel(eventIDs, 1);
+    if (!report.isCommitted()) {
+      throw new IllegalStateException("the cancellation was rolled back");
+    }
+    return report.getTicketsRefunded();
+  }
+}
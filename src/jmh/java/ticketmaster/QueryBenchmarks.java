@@ -0,0 +1,206 @@
+package ticketmaster;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * QueryBenchmarks time a single query of a Database with size events or size
+ * customers. The Database is loaded once per trial and every invocation query
+ * the next one of QUERIES events or customers spread over all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmarks {
+  private static final int QUERIES = 10000;
+  private static final long DAY = 86400000L; // In milliseconds
+
+  @State(Scope.Benchmark)
+  public static class IndexedEvents {
+    Event[] queried;
+    int next = 0;
+
+    @Setup
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaledDatabase(BenchmarkData.EVENTS, "Event");
+      queried = new Event[QUERIES];
+      for (int i = 0; i < QUERIES; i++) {
+        queried[i] = data.events[(int) ((long) i * 7919 % data.events.length)];
+      }
+    }
+
+    Event nextEvent() {
+      Event event = queried[next];
+      next = (next + 1) % QUERIES;
+      return event;
+    }
+  }
+
+  /**
+   * The searches of the queried events: their whole name (0), their name
+   * without the last 2 letters (1), or their name with a letter of their longest
+   * word changed (2).
+   */
+  public static class NamedEvents extends IndexedEvents {
+    private final int kind;
+    String[] searches;
+
+    NamedEvents(int kind) {
+      this.kind = kind;
+    }
+
+    @Setup
+    public void makeSearches() {
+      searches = new String[QUERIES];
+      for (int i = 0; i < QUERIES; i++) {
+        String name = queried[i].getName();
+        if (kind == 0) {
+          searches[i] = name;
+        } else if (kind == 1) {
+          searches[i] = name.substring(0, Math.max(name.length() - 2, 1));
+        } else {
+          searches[i] = withTypo(name);
+        }
+      }
+    }
+
+    String nextSearch() {
+      String search = searches[next];
+      next = (next + 1) % QUERIES;
+      return search;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ExactNames extends NamedEvents {
+    public ExactNames() {
+      super(0);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Prefixes extends NamedEvents {
+    public Prefixes() {
+      super(1);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Typos extends NamedEvents {
+    public Typos() {
+      super(2);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class IndexedCustomers {
+    Customer[] queried;
+    int next = 0;
+
+    @Setup
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaledDatabase(BenchmarkData.CUSTOMERS, "Customer");
+      queried = new Customer[QUERIES];
+      for (int i = 0; i < QUERIES; i++) {
+        queried[i] = data.customers[(int) ((long) i * 7919 % data.customers.length)];
+      }
+    }
+
+    Customer nextCustomer() {
+      Customer customer = queried[next];
+      next = (next + 1) % QUERIES;
+      return customer;
+    }
+  }
+
+  /**
+   * Find the events at the venue and of the type of a queried event in the week
+   * around its date, at most 20 like a page of results.
+   */
+  @Benchmark
+  public List<Event> findEvents(IndexedEvents events) {
+    Event event = events.nextEvent();
+    long date = event.getDateInMillis();
+
+    return Database.findEvents(event.getVenue().getName(), event.getClass().getSimpleName(), date - 3 * DAY,
+        date + 4 * DAY, 20);
+  }
+
+  /**
+   * Move a queried event a day later and back, so the Database is left as it
+   * was.
+   */
+  @Benchmark
+  @OperationsPerInvocation(2)
+  public long moveEvent(IndexedEvents events) {
+    Event event = events.nextEvent();
+
+    event.setDateInMillis(event.getDateInMillis() + DAY);
+    event.setDateInMillis(event.getDateInMillis() - DAY);
+    return event.getDateInMillis();
+  }
+
+  @Benchmark
+  public List<Event> searchExactNames(ExactNames events) {
+    return Database.searchEvents(events.nextSearch(), 10);
+  }
+
+  @Benchmark
+  public List<Event> searchPrefixes(Prefixes events) {
+    return Database.searchEvents(events.nextSearch(), 10);
+  }
+
+  @Benchmark
+  public List<Event> searchTypos(Typos events) {
+    return Database.searchEvents(events.nextSearch(), 10);
+  }
+
+  @Benchmark
+  public Customer customerByUsername(IndexedCustomers customers) {
+    return Database.getCustomer(customers.nextCustomer().getUsername());
+  }
+
+  @Benchmark
+  public Customer customerByName(IndexedCustomers customers) {
+    Customer customer = customers.nextCustomer();
+
+    return Database.getCustomer(customer.getFirstName(), customer.getLastName());
+  }
+
+  /**
+   * @return String with name and the second letter of its longest word changed,
+   *         e.g., "UTEP Fxotball 1".
+   */
+  private static String withTypo(String name) {
+    String[] words = name.split(" ");
+    int start = 0;
+    int longest = 0;
+
+    for (int i = 0, at = 0; i < words.length; at += words[i].length() + 1, i++) {
+      if (words[i].length() > words[longest].length()) {
+        longest = i;
+        start = at;
+      }
+    }
+    if (words[longest].length() < 2) {
+      return name;
+    }
+    char letter = (name.charAt(start + 1) == 'x') ? 'q' : 'x';
+    return name.substring(0, start + 1) + letter + name.substring(start + 2);
+  }
+}
@@ -0,0 +1,177 @@
+package ticketmaster;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SaveBenchmarks time writing the Database to its csv files, the statistics, a
+ * snapshot and the journal, the score is the time of the whole write. Files are
+ * written in the temporary folder of BenchmarkData.
+ *
+ * The setups close the journal before loading the Database, so only the
+ * journal benchmark write it.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveBenchmarks {
+  private static final String SNAPSHOT = "Database.snapshot";
+  private static final String JOURNAL = "Database.journal";
+
+  @State(Scope.Benchmark)
+  public static class ScaledEvents {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaledDatabase(BenchmarkData.EVENTS, "Event");
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class ScaledCustomers {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) throws IOException {
+      data.scaledDatabase(BenchmarkData.CUSTOMERS, "Customer");
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class WithTickets {
+    ArrayList<Ticket> tickets;
+
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      tickets = data.richDatabaseWithTickets();
+    }
+  }
+
+  /**
+   * A snapshot of the samples with size tickets sold, and the Database emptied
+   * so it is read into an empty one.
+   */
+  @State(Scope.Benchmark)
+  public static class SnapshotFile {
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) {
+      data.richDatabaseWithTickets();
+      writeSnapshot(data);
+      Database.clearDatabase();
+    }
+  }
+
+  /**
+   * Size tickets bought before the journal is open, and an empty journal to log
+   * them to.
+   */
+  @State(Scope.Benchmark)
+  public static class OpenJournal {
+    ArrayList<Ticket> tickets;
+
+    @Setup(Level.Iteration)
+    public void setup(BenchmarkData data) throws IOException {
+      Journal.close();
+      Files.deleteIfExists(Paths.get(data.scratchFile(JOURNAL)));
+      tickets = data.richDatabaseWithTickets();
+      Journal.open(data.scratchFile(JOURNAL));
+    }
+  }
+
+  @Benchmark
+  public int events(BenchmarkData data, ScaledEvents database) {
+    WriteCSV.writeEventList(List.of(data.events), data.scratchFile("NewEventList.csv"));
+    return data.events.length;
+  }
+
+  @Benchmark
+  public int customers(BenchmarkData data, ScaledCustomers database) {
+    WriteCSV.writeCustomerList(List.of(data.customers), data.scratchFile("NewCustomerList.csv"));
+    return data.customers.length;
+  }
+
+  @Benchmark
+  public int tickets(BenchmarkData data, WithTickets database) {
+    Collection<Ticket> all = Database.getTicketStore().getTickets();
+
+    WriteCSV.writeTicketsList(all, data.scratchFile("NewTicketList.csv"));
+    return all.size();
+  }
+
+  /**
+   * Statistics.printStatistics() of every event with size tickets sold.
+   */
+  @Benchmark
+  public int printStatistics(BenchmarkData data, WithTickets database) {
+    for (Event event : data.events) {
+      Statistics.printStatistics(event);
+    }
+    return data.events.length;
+  }
+
+  @Benchmark
+  public int writeStatistics(BenchmarkData data, WithTickets database) throws IOException {
+    try (FileWriter writer = new FileWriter(data.scratchFile("Statistics.csv"))) {
+      Statistics.writeCSVHeader(writer);
+      for (Event event : data.events) {
+        Statistics.writeContentToCSV(writer, event);
+      }
+    }
+    return data.events.length;
+  }
+
+  @Benchmark
+  public int writeSnapshot(BenchmarkData data, WithTickets database) {
+    return writeSnapshot(data);
+  }
+
+  @Benchmark
+  public int readSnapshot(BenchmarkData data, SnapshotFile snapshot) {
+    if (!Snapshot.read(data.scratchFile(SNAPSHOT))) {
+      throw new IllegalStateException("the snapshot couldn't be read");
+    }
+    return Database.getNumberOfEvents() + Database.getNumberOfCustomers() + Database.getNumberOfTickets();
+  }
+
+  /**
+   * Journal.logPurchase() of size tickets, the record every purchase write, and
+   * Journal.sync().
+   */
+  @Benchmark
+  public int appendPurchases(OpenJournal journal) {
+    for (Ticket ticket : journal.tickets) {
+      Journal.logPurchase(ticket, ticket.getEvent(), ticket.getCustomer());
+    }
+    Journal.sync();
+    return journal.tickets.size();
+  }
+
+  /**
+   * @return int with the number of events, customers and tickets written.
+   */
+  private static int writeSnapshot(BenchmarkData data) {
+    Collection<Ticket> all = Database.getTicketStore().getTickets();
+
+    if (!Snapshot.write(List.of(data.events), List.of(data.customers), all, data.scratchFile(SNAPSHOT))) {
+      throw new IllegalStateException("the snapshot couldn't be written");
+    }
+    return data.events.length + data.customers.length + all.size();
+  }
+}
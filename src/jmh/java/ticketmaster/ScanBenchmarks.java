@@ -0,0 +1,159 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ScanBenchmarks time the scans of the statistics and fee reports over a
+ * TicketStore of tickets rows, spread over events events. sumFees and sumSeats
+ * read the columns of the store, feesOfTickets add the same fees going over a
+ * list of Ticket objects, like the scans did before the store.
+ *
+ * footprint fill a store and report the heap it keep per row as bytesPerRow,
+ * the index by purchase ID included. bytesPerRow is added up over the
+ * iterations, so it is measured once.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ScanBenchmarks {
+  @Param({ "10000000" })
+  public int tickets;
+
+  @Param({ "1000" })
+  public int events;
+
+  /**
+   * Add to store tickets rows with 1 to 6 seats and made up prices and fees.
+   */
+  void fill(TicketStore store) {
+    int nSeatTypes = SeatTypes.count();
+
+    for (int i = 0; i < tickets; i++) {
+      Ticket ticket = new Ticket();
+      ticket.getChunk().eventIDs[ticket.getRow()] = 1 + i % events;
+      ticket.getChunk().customerIDs[ticket.getRow()] = i;
+      ticket.setPurchaseID(i + 1);
+      ticket.setPurchaseTimeInMillis(1700000000000L + i * 1000L);
+      for (int seat = 0; seat <= i % Ticket.getMaxNumberOfSeats(); seat++) {
+        ticket.addPurchase((i + seat) % nSeatTypes, 5000 + seat * 100, 0);
+      }
+      ticket.setSubtotal(5000 * (1 + i % Ticket.getMaxNumberOfSeats()));
+      ticket.setFees(825, 250, ((i & 1) == 0) ? 100 : Ticket.NOTPAID, 50);
+      store.add(ticket);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class FullStore {
+    TicketStore store;
+    ArrayList<Ticket> views;
+    int next = 0;
+
+    @Setup
+    public void setup(ScanBenchmarks benchmark) {
+      store = new TicketStore();
+      benchmark.fill(store);
+      views = new ArrayList<>(store.getTickets());
+    }
+
+    /**
+     * @return int with the ID of the next event to scan for.
+     */
+    int nextEvent(int events) {
+      next = next % events + 1;
+      return next;
+    }
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Footprint {
+    public long bytesPerRow;
+    private long before;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+      before = usedHeap();
+    }
+
+    void measure(TicketStore store, int rows) {
+      bytesPerRow = (usedHeap() - before) / rows;
+      if (store.size() != rows) {
+        throw new IllegalStateException(store.size() + " rows instead of " + rows);
+      }
+    }
+
+    private static long usedHeap() {
+      Runtime runtime = Runtime.getRuntime();
+      for (int i = 0; i < 3; i++) {
+        System.gc();
+      }
+      return runtime.totalMemory() - runtime.freeMemory();
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long[] sumFees(FullStore full) {
+    return full.store.sumFees(full.nextEvent(events));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long[] sumSeats(FullStore full) {
+    int[] seatsSold = new int[SeatTypes.count()];
+    long[] revenue = new long[SeatTypes.count()];
+
+    full.store.sumSeats(full.nextEvent(events), seatsSold, revenue);
+    return revenue;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public long[] feesOfTickets(FullStore full) {
+    int eventID = full.nextEvent(events);
+    long[] totals = new long[5];
+
+    for (Ticket ticket : full.views) {
+      if (ticket.getEventID() == eventID) {
+        totals[0] += ticket.getTaxesPayInCents();
+        totals[1] += ticket.getServiceFeePayInCents();
+        totals[2] += ticket.isConvenienceFeePaid() ? ticket.getConvenienceFeePayInCents() : 0;
+        totals[3] += ticket.getCharityFeePayInCents();
+        totals[4] += ticket.getSubtotalInCents();
+      }
+    }
+    return totals;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 1)
+  @Measurement(iterations = 1)
+  public void footprint(Footprint footprint) {
+    TicketStore store = new TicketStore();
+
+    fill(store);
+    footprint.measure(store, tickets);
+  }
+}
@@ -0,0 +1,126 @@
+package ticketmaster;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TextBenchmarks time parsing and formatting a date of an event and writing a
+ * log message, per date or message. The log benchmark turn the logs on and
+ * write its loggers in the current folder.
+ *
+ * parseDateWithCalendar and formatDateWithSimpleDateFormat are how dates were
+ * parsed and formatted before Dates, to compare against parseDate and
+ * formatDate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmarks {
+  private static final int DATES = 10000;
+
+  /**
+   * Every hour of the day over about three years, with 2 and 4 digit years.
+   */
+  @State(Scope.Benchmark)
+  public static class EventDates {
+    String[] dates;
+    long[] millis;
+    int next = 0;
+    final SimpleDateFormat format = new SimpleDateFormat("MM/dd/yyyy hh:mm a");
+
+    @Setup
+    public void setup() {
+      dates = new String[DATES];
+      millis = new long[DATES];
+      for (int i = 0; i < DATES; i++) {
+        millis[i] = 1640995200000L + i * 3700000L * 7;
+        String date = Dates.format(millis[i]);
+        dates[i] = ((i % 2) == 0) ? date : date.substring(0, 6) + date.substring(8);
+      }
+    }
+
+    int nextIndex() {
+      int i = next;
+      next = (next + 1) % DATES;
+      return i;
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Logs {
+    Level level;
+    int next = 0;
+
+    @Setup
+    public void setup() {
+      level = Log.getLevel();
+      Log.setLevel(Level.INFO);
+    }
+
+    @TearDown
+    public void tearDown() {
+      Log.setLevel(level);
+    }
+  }
+
+  @Benchmark
+  public long parseDate(EventDates dates) {
+    return Dates.parse(dates.dates[dates.nextIndex()]);
+  }
+
+  /**
+   * Split the date with a regex and make a GregorianCalendar of it, like
+   * Admin.getCalendar() did.
+   */
+  @Benchmark
+  public long parseDateWithCalendar(EventDates dates) {
+    String[] token = dates.dates[dates.nextIndex()].split("[ /:]");
+    int year = Integer.parseInt(token[2]);
+    int hour = Integer.parseInt(token[3]);
+
+    if (year < 100) {
+      year += 2000;
+    }
+    if (token[5].contains("PM")) {
+      hour += 12;
+    }
+    return new GregorianCalendar(year, Integer.parseInt(token[0]) - 1, Integer.parseInt(token[1]), hour,
+        Integer.parseInt(token[4])).getTimeInMillis();
+  }
+
+  @Benchmark
+  public String formatDate(EventDates dates) {
+    return Dates.format(dates.millis[dates.nextIndex()]);
+  }
+
+  /**
+   * Format the date with a SimpleDateFormat, like Event.getDate() did. Every
+   * event had its own, here one is shared.
+   */
+  @Benchmark
+  public String formatDateWithSimpleDateFormat(EventDates dates) {
+    return dates.format.format(new Date(dates.millis[dates.nextIndex()]));
+  }
+
+  @Benchmark
+  public void log(Logs logs) {
+    Log.logWrite(Level.INFO, "Seats reserved: ticket " + logs.next++);
+  }
+}
@@ -0,0 +1,81 @@
+package ticketmaster;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * TotalsBenchmarks time what every purchase add to the Database fee totals and
+ * whole purchases, made by many threads at once. Run them with -t 1, 2, 4...
+ * up to the number of cores to see how they scale.
+ *
+ * lockedFees is the same add behind one lock, like the totals were before they
+ * were LongAdders, to compare against addFees.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotalsBenchmarks {
+  private static final Object lock = new Object();
+  private static final long[] lockedTotals = new long[4];
+
+  @State(Scope.Benchmark)
+  public static class RichDatabase {
+    @Setup
+    public void setup(BenchmarkData data) {
+      data.richDatabase();
+    }
+  }
+
+  /**
+   * Every thread start on its own customer and event, and go over all of them.
+   */
+  @State(Scope.Thread)
+  public static class Buyer {
+    int next;
+
+    @Setup
+    public void setup(ThreadParams params) {
+      next = params.getThreadIndex() * 7919;
+    }
+  }
+
+  @Benchmark
+  public void addFees() {
+    Database.returnFees(-1, -2, -3, -4);
+  }
+
+  @Benchmark
+  public void lockedFees() {
+    synchronized (lock) {
+      lockedTotals[0] += 1;
+      lockedTotals[1] += 2;
+      lockedTotals[2] += 3;
+      lockedTotals[3] += 4;
+    }
+  }
+
+  /**
+   * Buy a seat and sell it back, so the seats never run out.
+   */
+  @Benchmark
+  public boolean buyAndSell(BenchmarkData data, RichDatabase database, Buyer buyer) {
+    int i = buyer.next++ & Integer.MAX_VALUE;
+    Ticket ticket = data.customers[i % data.customers.length].buySeats(data.events[i % data.events.length],
+        SeatTypes.nameOf(i % SeatTypes.count()), 1);
+
+    return (ticket != null) && Database.addTicket(ticket) && User.sellAllSeats(ticket);
+  }
+}
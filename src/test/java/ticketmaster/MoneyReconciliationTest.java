@@ -0,0 +1,200 @@
+package ticketmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * MoneyReconciliationTest load EventList.csv and CustomerList.csv, run
+ * AutoPurchase10K.csv many rounds, sell back some tickets after every round
+ * and check to the cent that no money was made or lost on the way:
+ * - Every event fee total is the sum of the fees of its tickets.
+ * - Every event seat revenue is the sum of the subtotals of its tickets.
+ * - Every Database fee total is the sum of the event totals.
+ * - Every customer spent, from its starting money, what its tickets cost. The
+ * fees of the tickets sold back are not given back, so they are still counted.
+ * - No customer money is negative.
+ *
+ * Float sums only drifted after a few thousand purchases, so the auto purchase
+ * is run several rounds on several threads.
+ */
+public class MoneyReconciliationTest {
+  private static final int NFEES = 4; // Taxes, service, convenience and charity fee
+  private static final String PURCHASES = "AutoPurchase10K.csv";
+  private static final int ROUNDS = 5;
+  private static final int THREADS = 4;
+  private static final long SEED = 1;
+
+  private final HashMap<Integer, Long> startingMoney = new HashMap<>(); // In cents, key = customerID
+  private final HashMap<Integer, long[]> soldFees = new HashMap<>(); // Fees of tickets sold back, key = eventID
+  private final HashMap<Integer, Long> feesNotReturned = new HashMap<>(); // In cents, key = customerID
+  private final List<String> mismatches = new ArrayList<>();
+  private PrintStream stdout;
+  private Level level;
+
+  @BeforeEach
+  public void load() {
+    // Purchases print messages for people, they are not part of the check
+    stdout = System.out;
+    level = Log.getLevel();
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    Log.setLevel(Level.OFF);
+
+    Database.populateFromCSV("EventList.csv", "CustomerList.csv", null);
+    for (Customer customer : customers()) {
+      startingMoney.put(customer.getCustomerID(), customer.getMoneyAvailableInCents());
+    }
+  }
+
+  @AfterEach
+  public void clear() {
+    Database.clearDatabase();
+    System.setOut(stdout);
+    Log.setLevel(level);
+  }
+
+  @Test
+  public void moneyReconcilesToTheCent() {
+    Random random = new Random(SEED);
+
+    for (int round = 1; round <= ROUNDS; round++) {
+      assertNotNull(AutoPurchaseProcessor.process(PURCHASES, THREADS), PURCHASES + " couldn't be read.");
+      checkCustomers("round " + round + " after purchases");
+      sellSomeTickets(random);
+      checkCustomers("round " + round + " after sells");
+    }
+
+    assertTrue(checkEvents() > 0, "no seat was sold");
+    assertEquals(List.of(), mismatches);
+  }
+
+  /**
+   * Sell back one in four of the tickets so seats free up for the next round.
+   */
+  private void sellSomeTickets(Random random) {
+    for (Ticket ticket : Database.getTicketsPurchased(Long.MIN_VALUE, Long.MAX_VALUE)) {
+      if (random.nextInt(4) != 0) {
+        continue;
+      }
+      int eventID = ticket.getEventID();
+      int customerID = ticket.getCustomer().getCustomerID();
+      long[] ticketFees = feesOf(ticket);
+      long feeNotReturned = ticket.getTotalCostInCents() - ticket.getSubtotalInCents();
+      if (!User.sellAllSeats(ticket)) {
+        continue;
+      }
+      long[] fees = soldFees.computeIfAbsent(eventID, id -> new long[NFEES]);
+      for (int i = 0; i < NFEES; i++) {
+        fees[i] += ticketFees[i];
+      }
+      feesNotReturned.merge(customerID, feeNotReturned, Long::sum);
+    }
+  }
+
+  /**
+   * Check that every customer spent what its tickets cost.
+   */
+  private void checkCustomers(String when) {
+    HashMap<Integer, Long> spent = new HashMap<>(feesNotReturned);
+
+    for (Ticket ticket : Database.getTicketsPurchased(Long.MIN_VALUE, Long.MAX_VALUE)) {
+      spent.merge(ticket.getCustomer().getCustomerID(), ticket.getTotalCostInCents(), Long::sum);
+    }
+    for (Customer customer : customers()) {
+      long money = customer.getMoneyAvailableInCents();
+      long difference = startingMoney.get(customer.getCustomerID()) - money
+          - spent.getOrDefault(customer.getCustomerID(), 0L);
+      if ((difference != 0) || (money < 0)) {
+        mismatches.add(when + ": customer " + customer.getUsername() + " has $" + Money.toString(money)
+            + ", off by $" + Money.toString(difference));
+      }
+    }
+  }
+
+  /**
+   * Check the event and Database totals against the tickets left.
+   *
+   * @return long with the seat revenue of every event in cents.
+   */
+  private long checkEvents() {
+    long[] eventTotals = new long[NFEES];
+    long seatRevenue = 0;
+
+    for (int id = 1; id <= Database.getLargestEventID(); id++) {
+      Event event = Database.getEvent(id);
+      if (event == null) {
+        continue;
+      }
+      long[] fees = soldFees.getOrDefault(id, new long[NFEES]).clone();
+      long subtotal = 0;
+      for (Ticket ticket : event.getTickets()) {
+        long[] ticketFees = feesOf(ticket);
+        for (int i = 0; i < NFEES; i++) {
+          fees[i] += ticketFees[i];
+        }
+        subtotal += ticket.getSubtotalInCents();
+      }
+      long revenue = 0;
+      for (String type : Database.getSeatTypes()) {
+        revenue += event.getSeatRevenueInCents(type);
+      }
+
+      long[] totals = { event.getTaxesInCents(), event.getServiceFeeInCents(), event.getConvenienceFeeInCents(),
+          event.getCharityFeeInCents() };
+      for (int i = 0; i < NFEES; i++) {
+        if (totals[i] != fees[i]) {
+          mismatches.add("event " + id + " fee " + i + " total is $" + Money.toString(totals[i])
+              + " but its tickets paid $" + Money.toString(fees[i]));
+        }
+        eventTotals[i] += totals[i];
+      }
+      if (revenue != subtotal) {
+        mismatches.add("event " + id + " seat revenue is $" + Money.toString(revenue)
+            + " but its tickets subtotal is $" + Money.toString(subtotal));
+      }
+      seatRevenue += revenue;
+    }
+
+    long[] totals = Database.getTotalsInCents();
+    for (int i = 0; i < NFEES; i++) {
+      if (totals[i] != eventTotals[i]) {
+        mismatches.add("Database fee " + i + " total is $" + Money.toString(totals[i]) + " but the events have $"
+            + Money.toString(eventTotals[i]));
+      }
+    }
+    return seatRevenue;
+  }
+
+  private static long[] feesOf(Ticket ticket) {
+    return new long[] { ticket.getTaxesPayInCents(), ticket.getServiceFeePayInCents(),
+        ticket.isConvenienceFeePaid() ? ticket.getConvenienceFeePayInCents() : 0, ticket.getCharityFeePayInCents() };
+  }
+
+  /**
+   * @return ArrayList with every customer, looked up by ID until every customer
+   *         read was found.
+   */
+  private static ArrayList<Customer> customers() {
+    ArrayList<Customer> all = new ArrayList<>();
+
+    for (int id = 0; all.size() < Database.getNumberOfCustomers(); id++) {
+      Customer customer = Database.getCustomer(id);
+      if (customer != null) {
+        all.add(customer);
+      }
+    }
+    return all;
+  }
+}
@@ -0,0 +1,220 @@
+package ticketmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PurchaseStressTest load EventList.csv and CustomerList.csv, leave only a few
+ * seats of every type on every event and start many buyers at the same time,
+ * so many of them fight for the last seats and for the money of the same
+ * customers. Once they are done it check that:
+ * - No seat was sold twice: for every event and seat type, the seats available
+ * plus the seats on its tickets are the seats there were before.
+ * - No customer money is negative, and every customer spent what its tickets
+ * cost.
+ * - Purchases of 0 or a negative number of seats were declined without
+ * changing any seat or money.
+ * - Every ticket got its own ID.
+ */
+public class PurchaseStressTest {
+  private static final int THREADS = 64; // Buyers started at the same time
+  private static final int PURCHASES = 200; // Purchases made by every buyer
+  private static final int SEATS = 20; // Seats left of every seat type on every event
+  private static final long SEED = 1;
+
+  private Event[] events;
+  private Customer[] customers;
+  private final AtomicInteger nMade = new AtomicInteger();
+  private final AtomicInteger nInvalidMade = new AtomicInteger(); // Purchases of less than 1 seat made
+  private final List<String> mismatches = new ArrayList<>();
+  private PrintStream stdout;
+  private Level level;
+
+  @BeforeEach
+  public void load() {
+    // Purchases print messages for people, they are not part of the test
+    stdout = System.out;
+    level = Log.getLevel();
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    Log.setLevel(Level.OFF);
+
+    Database.populateFromCSV("EventList.csv", "CustomerList.csv", null);
+    findEventsAndCustomers();
+  }
+
+  @AfterEach
+  public void clear() {
+    Database.clearDatabase();
+    System.setOut(stdout);
+    Log.setLevel(level);
+  }
+
+  @Test
+  public void buyersNeverOversellOrOvercharge() {
+    HashMap<Integer, Long> startingMoney = new HashMap<>(); // In cents, key = customerID
+    String[] seatTypes = Database.getSeatTypes();
+    int[][] startingSeats = new int[events.length][seatTypes.length];
+
+    assertTrue((events.length > 0) && (customers.length > 0), "There are no events or customers to buy for.");
+    for (int i = 0; i < events.length; i++) {
+      for (int type = 0; type < seatTypes.length; type++) {
+        if (events[i].getNumberOfSeatsAvailable(seatTypes[type]) >= 0) {
+          events[i].setNumSeats(seatTypes[type], SEATS);
+        }
+        startingSeats[i][type] = events[i].getNumberOfSeatsAvailable(seatTypes[type]);
+      }
+    }
+    for (Customer customer : customers) {
+      startingMoney.put(customer.getCustomerID(), customer.getMoneyAvailableInCents());
+    }
+
+    buy();
+
+    checkSeats(seatTypes, startingSeats);
+    checkMoney(startingMoney);
+    assertEquals(0, nInvalidMade.get(), "purchases of less than 1 seat were made");
+    assertEquals(nMade.get(), Database.getNumberOfTickets(), "tickets with the same ID");
+    assertTrue(nMade.get() > 0, "no ticket was sold");
+    assertEquals(List.of(), mismatches);
+  }
+
+  /**
+   * Start every buyer at once and wait for them.
+   */
+  private void buy() {
+    CountDownLatch ready = new CountDownLatch(THREADS);
+    CountDownLatch go = new CountDownLatch(1);
+    Thread[] buyers = new Thread[THREADS];
+
+    for (int n = 0; n < THREADS; n++) {
+      SplittableRandom random = new SplittableRandom(SEED + n);
+      buyers[n] = new Thread(() -> {
+        ready.countDown();
+        try {
+          go.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < PURCHASES; i++) {
+          buyOnce(random);
+        }
+      }, "Buyer-" + n);
+      buyers[n].start();
+    }
+
+    try {
+      ready.await();
+      go.countDown();
+      for (Thread buyer : buyers) {
+        buyer.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Make one purchase, one in a hundred is for 0 or a negative number of seats.
+   */
+  private void buyOnce(SplittableRandom random) {
+    Event event = events[random.nextInt(events.length)];
+    Customer customer = customers[random.nextInt(customers.length)];
+    String seatType = SeatTypes.nameOf(random.nextInt(SeatTypes.count()));
+    boolean invalid = random.nextInt(100) == 0;
+    int quantity = invalid ? -random.nextInt(Ticket.getMaxNumberOfSeats() + 1)
+        : 1 + random.nextInt(Ticket.getMaxNumberOfSeats());
+    Ticket ticket = customer.buySeats(event, seatType, quantity);
+
+    if (ticket == null) {
+      return;
+    }
+    if (invalid) {
+      nInvalidMade.incrementAndGet();
+    }
+    if (Database.addTicket(ticket)) {
+      nMade.incrementAndGet();
+    }
+  }
+
+  /**
+   * Check that every seat available or sold was there before the purchases.
+   */
+  private void checkSeats(String[] seatTypes, int[][] startingSeats) {
+    for (int i = 0; i < events.length; i++) {
+      int[] sold = new int[seatTypes.length];
+      for (Ticket ticket : events[i].getTickets()) {
+        for (Seat seat : ticket.getSeatsPurchased()) {
+          sold[seat.getSeatTypeOrdinal()]++;
+        }
+      }
+      for (int type = 0; type < seatTypes.length; type++) {
+        int available = events[i].getNumberOfSeatsAvailable(seatTypes[type]);
+        if (startingSeats[i][type] < 0) {
+          continue; // The event doesn't have the seat type
+        }
+        if ((available < 0) || (available + sold[type] != startingSeats[i][type])) {
+          mismatches.add("event " + events[i].getEventID() + " " + seatTypes[type] + ": " + available
+              + " available and " + sold[type] + " sold of " + startingSeats[i][type]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Check that every customer spent what its tickets cost and none is below 0.
+   */
+  private void checkMoney(HashMap<Integer, Long> startingMoney) {
+    HashMap<Integer, Long> spent = new HashMap<>();
+
+    for (Ticket ticket : Database.getTicketsPurchased(Long.MIN_VALUE, Long.MAX_VALUE)) {
+      spent.merge(ticket.getCustomer().getCustomerID(), ticket.getTotalCostInCents(), Long::sum);
+    }
+    for (Customer customer : customers) {
+      long money = customer.getMoneyAvailableInCents();
+      long difference = startingMoney.get(customer.getCustomerID()) - money
+          - spent.getOrDefault(customer.getCustomerID(), 0L);
+      if ((money < 0) || (difference != 0)) {
+        mismatches.add("customer " + customer.getUsername() + " has $" + Money.toString(money) + ", off by $"
+            + Money.toString(difference));
+      }
+    }
+  }
+
+  /**
+   * Look up every event and customer read.
+   */
+  private void findEventsAndCustomers() {
+    ArrayList<Event> allEvents = new ArrayList<>();
+    ArrayList<Customer> allCustomers = new ArrayList<>();
+
+    for (int id = 1; id <= Database.getLargestEventID(); id++) {
+      Event event = Database.getEvent(id);
+      if (event != null) {
+        allEvents.add(event);
+      }
+    }
+    // Customers are looked up by ID until every customer read was found
+    for (int id = 0; allCustomers.size() < Database.getNumberOfCustomers(); id++) {
+      Customer customer = Database.getCustomer(id);
+      if (customer != null) {
+        allCustomers.add(customer);
+      }
+    }
+    events = allEvents.toArray(new Event[0]);
+    customers = allCustomers.toArray(new Customer[0]);
+  }
+}
@@ -0,0 +1,146 @@
+package ticketmaster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.logging.Level;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * SnapshotRoundTripTest check that a snapshot keep the Database the same as
+ * the csv files do.
+ *
+ * The Database is loaded from EventList.csv and CustomerList.csv and
+ * AutoPurchase10K.csv is made. It is then exported to csv files (the expected
+ * files) and:
+ * - Snapshot: it is written into a snapshot, the Database is emptied and the
+ * snapshot read back. Exporting it again must give the expected files.
+ * - CSV: the Database is populated from the expected files, tickets included.
+ * Exporting it must give the expected customers and tickets files, the events
+ * file has totals the csv reader doesn't read back. A snapshot of it read back
+ * must give the files it exported.
+ */
+public class SnapshotRoundTripTest {
+  private static final String EVENTS = "NewEventList.csv";
+  private static final String CUSTOMERS = "NewCustomerList.csv";
+  private static final String TICKETS = "NewTicketList.csv";
+  private static final String SNAPSHOT = "Database.snapshot";
+
+  @TempDir
+  Path dir;
+  private PrintStream stdout;
+  private Level level;
+
+  @BeforeEach
+  public void load() {
+    // Purchases and readers print messages for people, they are not part of the
+    // checks
+    stdout = System.out;
+    level = Log.getLevel();
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    Log.setLevel(Level.OFF);
+
+    Database.populateFromCSV("EventList.csv", "CustomerList.csv", null);
+    assertNotNull(AutoPurchaseProcessor.process("AutoPurchase10K.csv", 1), "AutoPurchase10K.csv couldn't be read.");
+    assertTrue(Database.getNumberOfTickets() > 0, "no ticket was sold");
+    export("expected");
+  }
+
+  @AfterEach
+  public void clear() {
+    Database.clearDatabase();
+    System.setOut(stdout);
+    Log.setLevel(level);
+  }
+
+  @Test
+  public void snapshotGiveTheSameFiles() throws IOException {
+    checkSnapshot("snapshot", "expected");
+  }
+
+  @Test
+  public void csvAndItsSnapshotGiveTheSameFiles() throws IOException {
+    Database.populateFromCSV(file("expected", EVENTS), file("expected", CUSTOMERS), file("expected", TICKETS));
+    export("csv");
+    check("csv", "expected", CUSTOMERS, TICKETS);
+    checkSnapshot("csv-snapshot", "csv");
+  }
+
+  /**
+   * Write the Database into a snapshot, read it back into an empty Database and
+   * check that its csv files are the same as the ones in expected.
+   */
+  private void checkSnapshot(String name, String expected) throws IOException {
+    assertTrue(Snapshot.write(events(), customers(), tickets(), file("", SNAPSHOT)),
+        name + ": snapshot couldn't be written.");
+    Database.clearDatabase();
+    assertTrue(Snapshot.read(file("", SNAPSHOT)), name + ": snapshot couldn't be read.");
+    export(name);
+    check(name, expected, EVENTS, CUSTOMERS, TICKETS);
+  }
+
+  private void check(String name, String expected, String... filenames) throws IOException {
+    for (String filename : filenames) {
+      assertEquals(-1, Files.mismatch(Paths.get(file(name, filename)), Paths.get(file(expected, filename))),
+          name + ": " + filename + " differ from " + expected + " at byte");
+    }
+  }
+
+  /**
+   * Export the Database into the 3 csv files with name before their names.
+   */
+  private void export(String name) {
+    WriteCSV.writeEventList(events(), file(name, EVENTS));
+    WriteCSV.writeCustomerList(customers(), file(name, CUSTOMERS));
+    WriteCSV.writeTicketsList(tickets(), file(name, TICKETS));
+  }
+
+  private String file(String name, String filename) {
+    return dir.resolve(name + filename).toString();
+  }
+
+  private static Collection<Event> events() {
+    ArrayList<Event> all = new ArrayList<>();
+
+    for (int id = 1; id <= Database.getLargestEventID(); id++) {
+      Event event = Database.getEvent(id);
+      if (event != null) {
+        all.add(event);
+      }
+    }
+    return all;
+  }
+
+  /**
+   * @return Collection with every customer, looked up by ID until every
+   *         customer read was found.
+   */
+  private static Collection<Customer> customers() {
+    ArrayList<Customer> all = new ArrayList<>();
+
+    for (int id = 0; all.size() < Database.getNumberOfCustomers(); id++) {
+      Customer customer = Database.getCustomer(id);
+      if (customer != null) {
+        all.add(customer);
+      }
+    }
+    return all;
+  }
+
+  private static Collection<Ticket> tickets() {
+    return Database.getTicketsPurchased(Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+}
@@ -3,9 +3,9 @@ package ticketmaster;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -55,6 +55,7 @@ public class Admin {
     System.out.println("6. Print amount of money gained by TicketMiner company for all events.");
     System.out.println("7. Print amount of money gained by TicketMiner company for a events.");
     System.out.println("8. Cancel an event.");
+    System.out.println("9. Export events, customers, and tickets to csv files.");
     System.out.println("Anything else to log out.");
   }
 
@@ -65,6 +66,10 @@ public class Admin {
    * 3. Create an event from scratch.
    * 4. Run automatic purchases.
    * 5. Write electronic ticket summary for a customer.
+   * 6. Print fees collected by TicketMiner for all events.
+   * 7. Print fees collected by TicketMiner for an event.
+   * 8. Cancel an event.
+   * 9. Export the database to csv files.
    * 
    * @return int with the number of option run, if no option was run we return 0.
    */
@@ -96,6 +101,9 @@ public class Admin {
       case (8):
         cancelEvent();
         break;
+      case (9):
+        Database.exportDatabase();
+        break;
       default:
         System.out.println("Thank you for keeping our system up to day, hope to see you back soon:)");
         option = 0;
@@ -107,10 +115,12 @@ public class Admin {
    * Print all fees collected from TicketMiner.
    */
   private static void printTicketMinerFeesCollected() {
+    long[] totals = Database.getTotalsInCents();
+
     System.out.println("TicketMiner fees collected:");
-    System.out.println("\tService fees: " + Database.getServiceFee());
-    System.out.println("\tConvenience fees: " + Database.getConvenienceFee());
-    System.out.println("\tCharity fees: " + Database.getCharityFee());
+    System.out.println("\tService fees: " + Money.toString(totals[1]));
+    System.out.println("\tConvenience fees: " + Money.toString(totals[2]));
+    System.out.println("\tCharity fees: " + Money.toString(totals[3]));
   }
 
   /**
@@ -127,9 +137,9 @@ public class Admin {
       if (event != null) {
         Log.logWrite(Level.FINE, "Event ID enter " + inputID + ", proceed to print fees.");
         System.out.println(event.getName() + " fees collected:");
-        System.out.println("\tService fees: " + event.getServiceFee());
-        System.out.println("\tConvenience fees: " + event.getConvenienceFee());
-        System.out.println("\tCharity fees: " + event.getCharityFee());
+        System.out.println("\tService fees: " + Money.toString(event.getServiceFeeInCents()));
+        System.out.println("\tConvenience fees: " + Money.toString(event.getConvenienceFeeInCents()));
+        System.out.println("\tCharity fees: " + Money.toString(event.getCharityFeeInCents()));
       }
     } while (inputID != -1);
   }
@@ -138,43 +148,25 @@ public class Admin {
    * Remove an event from the database. Doing that it would return taxes, fees,
    * and seat cost after discount return to every customer that
    * had a seat reserved for the event. The TicketMiners profits are adjusted as
-   * needed.
+   * needed. See CancellationProcessor.
    */
   private static void cancelEvent() {
     int inputID;
-    Event event;
-    Customer customer;
+    CancellationProcessor.Report report;
 
     do {
       inputID = scnr.askForEvent("to cancel the event");
-      event = Database.getEvent(inputID);
 
-      if (event != null) {
+      if (Database.getEvent(inputID) != null) {
         Log.logWrite(Level.FINE, "Event ID enter " + inputID + ", proceed to cancel the event.");
-        for (Ticket ticket : event.getTickets()) {
-          // Return tax, fees, and subtotal to customer
-          customer = ticket.getCustomer();
-          customer.setMoneyAvailable(customer.getMoneyAvailable() + ticket.getTotalCost());
-
-          // Update TicketMiner total fees colleted
-          Database.returnTaxes(ticket.getTaxesPay());
-          Database.returnServiceFee(ticket.getServiceFeePay());
-          Database.returnConvenienceFee(ticket.getConvenienceFeePay());
-          Database.returnCharityFee(ticket.getCharityFeePay());
-
-          // Update customer saving from membership
-          if (customer.hasTicketMinerMembership()) {
-            float discount = ticket.getSubtotal() / ((float) 9.0);
-            // Update total customer saving
-            customer.setTotalSave(customer.getTotalSave() - discount);
-          }
-
-          // Remove the ticket from database and customer list
-          Database.removeTicket(ticket, new String[] { Customer.class.getSimpleName() });
+        report = CancellationProcessor.cancel(new int[] { inputID }, Runtime.getRuntime().availableProcessors());
+        if (report.isCommitted()) {
+          System.out.println("Event cancelled: " + report.getTicketsRefunded() + " tickets refunded to "
+              + report.getCustomersRefunded() + " customers, " + Money.toString(report.getRefundedInCents())
+              + " returned.");
+        } else {
+          System.out.println("The event couldn't be cancelled, nothing was changed: " + report.getFailure());
         }
-
-        // Remove event from database
-        Database.removeEvent(event);
       }
     } while (inputID != -1);
   }
@@ -196,16 +188,33 @@ public class Admin {
    * summary for all tickets.
    */
   private static void ticketSummary() {
-    String names;
-    Customer customer;
+    String firstName;
+    String lastName;
+    List<Customer> customers;
+    Customer customer = null;
 
     System.out.print("What is the customer first name? ");
-    names = scnr.nextLine();
+    firstName = scnr.nextLine();
 
     System.out.print("What is the customer last name? ");
-    names = names.concat(scnr.nextLine());
+    lastName = scnr.nextLine();
+
+    customers = Database.getCustomers(firstName, lastName);
+    if (customers.size() == 1) {
+      customer = customers.get(0);
+    } else if (customers.size() > 1) {
+      // More than one customer have that name, the username tell them apart
+      System.out.println("There are " + customers.size() + " customers with that name:");
+      for (Customer other : customers) {
+        System.out.println("\tUsername: " + other.getUsername());
+      }
+      System.out.print("What is the customer username? ");
+      customer = Database.getCustomer(scnr.nextLine());
+      if (!customers.contains(customer)) {
+        customer = null;
+      }
+    }
 
-    customer = Database.getCustomer(names);
     if (customer != null) {
       customer.writeTicketSummary();
       ticketSummaryFiles.add(customer.getTicketSummaryFilename());
@@ -255,6 +264,7 @@ public class Admin {
 
           // Update event
           modify.updateEvent();
+          Journal.logEvent(modify.getEvent());
 
           // Record change
           Log.logWrite(Level.INFO, modify.getRecord());
@@ -354,8 +364,15 @@ public class Admin {
         ? Integer.parseInt(entries.get(FIREWORKSCOSTHEADER))
         : 0);
     String nameHeader = "Name";
+    long date;
 
-    GregorianCalendar date = getCalendar(entries.get("Date") + " " + entries.get("Time"));
+    try {
+      date = Dates.parse(entries.get("Date") + " " + entries.get("Time"));
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, "event with id: " + eventID + " could not be created. " + e.toString() + "\n");
+      return null;
+    }
 
     switch (entries.get("Event Type")) {
       case ("Sport"):
@@ -374,47 +391,6 @@ public class Admin {
     return event;
   }
 
-  /**
-   * Input string must have the following format: "MM/dd/yyyy hh:mm a" following
-   * the GregorianCalendar definitions for each character.
-   * 
-   * @param input - String with the format "MM/dd/yyyy hh:mm a" use to make a
-   *              GregorianCalendar object to be return.
-   * @return GregorianCalendar with the information provided in input
-   */
-  public static GregorianCalendar getCalendar(String input) {
-    String[] token;
-    int day;
-    int month;
-    int year;
-    int hour;
-    int minute;
-
-    token = input.split("[ /:]");
-
-    try {
-      month = Integer.parseInt(token[0]) - 1; // GregorianCalendar starts with January at 0
-      day = Integer.parseInt(token[1]);
-      year = Integer.parseInt(token[2]);
-      hour = Integer.parseInt(token[3]);
-      minute = Integer.parseInt(token[4]);
-    } catch (Exception e) {
-      e.printStackTrace();
-      return null;
-    }
-
-    // The original csv files have year as YY so we make it YYYY
-    if (year < 100) {
-      year += 2000;
-    }
-
-    if (token[5].contains("PM")) {
-      hour += 12;
-    }
-
-    return new GregorianCalendar(year, month, day, hour, minute);
-  }
-
   /**
    * Print all the options, read the user answer, if it selected a valid options
    * store it in entries using header as the key.
@@ -595,7 +571,11 @@ public class Admin {
    */
   private static void autoPurchase() {
     String filename = FileChooser.chooseFile("to populate events");
-    ReadCSV.populateDatabase(filename, "AutoPurchase");
+    AutoPurchaseProcessor.Report report = AutoPurchaseProcessor.process(filename,
+        Runtime.getRuntime().availableProcessors());
+    if (report != null) {
+      System.out.println(report);
+    }
   }
 
   /**
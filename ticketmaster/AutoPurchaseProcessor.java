@@ -0,0 +1,323 @@
+package ticketmaster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+
+/**
+ * AutoPurchaseProcessor read an auto purchase csv file once and make all its
+ * purchases on a ForkJoinPool.
+ *
+ * Rows are partition by Event ID and the rows of each event are made in file
+ * order. A customer can buy for many events, so a row also waits for the
+ * previous row of the same customer. Every purchase only changes its event and
+ * its customer, so the seats, tickets, fees and money of each event and
+ * customer end up exactly as if the file was read on a single thread, no matter
+ * how the partitions are schedule.
+ */
+public class AutoPurchaseProcessor {
+  private static final String[] HEADERS = { "First", "Last", ReadCSV.EVENTIDHEADER, "Ticket Quantity",
+      "Ticket Type" };
+
+  // One entry per valid row in file order
+  private final ArrayList<Customer> customers = new ArrayList<>();
+  private final ArrayList<Event> events = new ArrayList<>();
+  private final ArrayList<String> seatTypes = new ArrayList<>();
+  private int[] nSeats = new int[1024];
+  private int nRowsRead = 0;
+  private int nInvalidRows = 0;
+  private final AtomicInteger nPurchases = new AtomicInteger();
+  private final AtomicInteger nDeclined = new AtomicInteger();
+
+  // Rows that must wait for a row, -1 if none
+  private int[] nextOfEvent;
+  private int[] nextOfCustomer;
+  // Number of rows that must be done before a row can start
+  private AtomicIntegerArray waitingFor;
+  private CountDownLatch done;
+  private ForkJoinPool pool;
+
+  private AutoPurchaseProcessor() {
+  }
+
+  /**
+   * Make all the purchases in filename using parallelism threads.
+   *
+   * @param filename    - String with the auto purchase csv file.
+   * @param parallelism - int with the number of threads to use, 1 make the
+   *                    purchases on the calling thread in file order.
+   * @return Report with the number of rows read, purchases made and rows
+   *         rejected, or null if the file couldn't be read.
+   */
+  public static Report process(String filename, int parallelism) {
+    AutoPurchaseProcessor processor = new AutoPurchaseProcessor();
+    long start = System.nanoTime();
+
+    if (!processor.readRows(filename)) {
+      return null;
+    }
+    processor.linkRows();
+    processor.makePurchases(parallelism);
+
+    Report report = new Report(processor.nRowsRead, processor.nPurchases.get(), processor.nInvalidRows,
+        processor.nDeclined.get(), System.nanoTime() - start);
+    Log.logWrite(Level.INFO, "Auto purchase of " + filename + ": " + report);
+    return report;
+  }
+
+  /**
+   * Parse every row of filename looking up its customer and event only once.
+   * Rows with an unknown customer or event, or with a bad ticket quantity are
+   * counted as invalid and skipped.
+   *
+   * @param filename - String with the auto purchase csv file.
+   * @return true if the file was read.
+   */
+  private boolean readRows(String filename) {
+    try (CSVTokenizer tokenizer = CSVTokenizer.open(filename)) {
+      if (tokenizer.readHeader() == null) {
+        return false;
+      }
+      CSVRow row = tokenizer.getRow();
+      int[] idx = new int[HEADERS.length];
+      for (int i = 0; i < HEADERS.length; i++) {
+        idx[i] = row.getColumnIndex(HEADERS[i]);
+        if (idx[i] < 0) {
+          System.err.println(filename + " don't have the column " + HEADERS[i] + " needed to auto purchase.");
+          return false;
+        }
+      }
+
+      while (tokenizer.nextRow()) {
+        nRowsRead++;
+        addRow(row, idx);
+      }
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
+      return false;
+    }
+    return true;
+  }
+
+  private void addRow(CSVRow row, int[] idx) {
+    // The name is looked up from the characters of the row, no String is made
+    Customer customer = Database.getCustomer(row.getChars(idx[0]), row.getChars(idx[1]));
+    Event event;
+    int quantity;
+
+    try {
+      event = Database.getEvent(row.getInt(idx[2]));
+      quantity = row.getInt(idx[3]);
+    } catch (NumberFormatException e) {
+      event = null;
+      quantity = 0;
+    }
+
+    if ((customer == null) || (event == null) || (quantity < 1)) {
+      nInvalidRows++;
+      Log.logWrite(Level.FINE, () -> "Auto purchase row " + nRowsRead + " rejected: " + row.get(idx[0]) + " "
+          + row.get(idx[1]) + ", event " + row.get(idx[2]) + ", quantity " + row.get(idx[3]));
+      return;
+    }
+
+    // Use the Strings from SeatTypes so a String isn't kept per row
+    String seatType = row.get(idx[4]);
+    int typeIdx = SeatTypes.ordinalOf(seatType);
+    if (typeIdx >= 0) {
+      seatType = SeatTypes.nameOf(typeIdx);
+    }
+
+    if (customers.size() == nSeats.length) {
+      int[] temp = new int[nSeats.length * 2];
+      System.arraycopy(nSeats, 0, temp, 0, nSeats.length);
+      nSeats = temp;
+    }
+    nSeats[customers.size()] = quantity;
+    customers.add(customer);
+    events.add(event);
+    seatTypes.add(seatType);
+  }
+
+  /**
+   * Link every row to the next row of the same event and of the same customer.
+   */
+  private void linkRows() {
+    int nRows = customers.size();
+    HashMap<Event, Integer> lastOfEvent = new HashMap<>();
+    IdentityHashMap<Customer, Integer> lastOfCustomer = new IdentityHashMap<>();
+    Integer previous;
+
+    nextOfEvent = new int[nRows];
+    nextOfCustomer = new int[nRows];
+    waitingFor = new AtomicIntegerArray(nRows);
+    for (int i = 0; i < nRows; i++) {
+      nextOfEvent[i] = -1;
+      nextOfCustomer[i] = -1;
+
+      previous = lastOfEvent.put(events.get(i), i);
+      if (previous != null) {
+        nextOfEvent[previous] = i;
+        waitingFor.incrementAndGet(i);
+      }
+      previous = lastOfCustomer.put(customers.get(i), i);
+      if (previous != null) {
+        nextOfCustomer[previous] = i;
+        waitingFor.incrementAndGet(i);
+      }
+    }
+  }
+
+  /**
+   * Start every row that don't wait for another one and wait until all rows are
+   * done.
+   *
+   * @param parallelism - int with the number of threads to use.
+   */
+  private void makePurchases(int parallelism) {
+    int nRows = customers.size();
+
+    if (parallelism <= 1) {
+      for (int i = 0; i < nRows; i++) {
+        purchase(i);
+      }
+      return;
+    }
+
+    // Find the first rows before starting any, once a row starts it can release
+    // other rows
+    ArrayList<Integer> firstRows = new ArrayList<>();
+    for (int i = 0; i < nRows; i++) {
+      if (waitingFor.get(i) == 0) {
+        firstRows.add(i);
+      }
+    }
+
+    done = new CountDownLatch(nRows);
+    pool = new ForkJoinPool(parallelism);
+    try {
+      for (int row : firstRows) {
+        pool.execute(() -> runFrom(row));
+      }
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Make the purchase of row and keep going with the rows that were waiting for
+   * it. One of them is made on this thread and the other one is given to the
+   * pool.
+   *
+   * @param row - int with a row that is not waiting for any other row.
+   */
+  private void runFrom(int row) {
+    int next = row;
+
+    while (next >= 0) {
+      purchase(next);
+      done.countDown();
+
+      int afterEvent = release(nextOfEvent[next]);
+      int afterCustomer = release(nextOfCustomer[next]);
+      if ((afterEvent >= 0) && (afterCustomer >= 0)) {
+        final int other = afterCustomer;
+        pool.execute(() -> runFrom(other));
+        next = afterEvent;
+      } else {
+        next = Math.max(afterEvent, afterCustomer);
+      }
+    }
+  }
+
+  /**
+   * @param row - int with a row that was waiting, or -1.
+   * @return row if it isn't waiting for any other row anymore, -1 otherwise.
+   */
+  private int release(int row) {
+    return ((row >= 0) && (waitingFor.decrementAndGet(row) == 0)) ? row : -1;
+  }
+
+  private void purchase(int row) {
+    Ticket ticket;
+
+    try {
+      ticket = customers.get(row).buySeats(events.get(row), seatTypes.get(row), nSeats[row]);
+    } catch (RuntimeException e) {
+      // Keep going so the rows waiting for this one are still made
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
+      ticket = null;
+    }
+
+    if ((ticket == null) || !Database.addTicket(ticket)) {
+      nDeclined.incrementAndGet();
+      return;
+    }
+    nPurchases.incrementAndGet();
+  }
+
+  /**
+   * Report is the summary of an auto purchase.
+   */
+  public static class Report {
+    private final int nRowsRead;
+    private final int nPurchases;
+    private final int nInvalidRows;
+    private final int nDeclined;
+    private final long elapsedNanos;
+
+    private Report(int nRowsRead, int nPurchases, int nInvalidRows, int nDeclined, long elapsedNanos) {
+      this.nRowsRead = nRowsRead;
+      this.nPurchases = nPurchases;
+      this.nInvalidRows = nInvalidRows;
+      this.nDeclined = nDeclined;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    // Getters
+    public int getRowsRead() {
+      return nRowsRead;
+    }
+
+    public int getPurchases() {
+      return nPurchases;
+    }
+
+    public int getInvalidRows() {
+      return nInvalidRows;
+    }
+
+    public int getDeclinedPurchases() {
+      return nDeclined;
+    }
+
+    public int getRejectedRows() {
+      return nInvalidRows + nDeclined;
+    }
+
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    public double getPurchasesPerSecond() {
+      return elapsedNanos == 0 ? 0.0 : nPurchases * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d rows read, %d purchases made, %d rows rejected (%d invalid, %d declined) in %.1f ms,"
+          + " %.0f purchases/sec", nRowsRead, nPurchases, getRejectedRows(), nInvalidRows, nDeclined,
+          elapsedNanos / 1e6, getPurchasesPerSecond());
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package ticketmaster;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * CSVRow is a reusable view over the last record read by a CSVTokenizer. The
+ * header names are resolved to column indexes once, when the row is created,
+ * and every record read afterwards only overwrites the characters and field
+ * offsets stored in the row. Fields can be read by column index or, since the
+ * class is a Map, by header name so it can be given to any method that used to
+ * receive a Map with the header as key and the cell as value.
+ *
+ * Fields that are missing at the end of a record are read as empty strings.
+ */
+public class CSVRow extends AbstractMap<String, String> {
+  private final String[] header;
+  private final HashMap<String, Integer> columns; // key = header name | value = column index
+  private char[] chars;
+  private int[] starts;
+  private int[] ends;
+  private String[] values; // Strings already made for the current record
+  private int nFields;
+  private int length;
+  private final Field[] fields; // Views of the field of every column
+
+  /**
+   * Constructor that map every header name to its column index. If a header name
+   * is repeated, the last column with that name is the one used.
+   *
+   * @param header - String[] with the column names in the order they were read.
+   */
+  public CSVRow(String[] header) {
+    this.header = header;
+    this.columns = new HashMap<>();
+    for (int i = 0; i < header.length; i++) {
+      columns.put(header[i], i);
+    }
+    this.chars = new char[256];
+    this.starts = new int[Math.max(header.length, 1)];
+    this.ends = new int[Math.max(header.length, 1)];
+    this.values = new String[Math.max(header.length, 1)];
+    this.fields = new Field[header.length];
+    for (int i = 0; i < header.length; i++) {
+      fields[i] = new Field(i);
+    }
+  }
+
+  /**
+   * Field is a view of the characters of a column in the current record, so the
+   * field can be compared or hashed without making a String.
+   */
+  private final class Field implements CharSequence {
+    private final int idx;
+
+    private Field(int idx) {
+      this.idx = idx;
+    }
+
+    @Override
+    public int length() {
+      return isFieldEmpty(idx) ? 0 : ends[idx] - starts[idx];
+    }
+
+    @Override
+    public char charAt(int index) {
+      if ((index < 0) || (index >= length())) {
+        throw new IndexOutOfBoundsException(index);
+      }
+      return chars[starts[idx] + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return get(idx);
+    }
+  }
+
+  // Getters
+  public String[] getHeader() {
+    return header;
+  }
+
+  public int getNumberOfColumns() {
+    return header.length;
+  }
+
+  public int getNumberOfFields() {
+    return nFields;
+  }
+
+  /**
+   * @param columnName - String with the header name of the column.
+   * @return int with the column index of columnName or -1 if it doesn't exist.
+   */
+  public int getColumnIndex(String columnName) {
+    Integer idx = columns.get(columnName);
+    return idx == null ? -1 : idx;
+  }
+
+  /**
+   * Return the field at the column index given. The String is only made the
+   * first time the field is asked for in the current record.
+   *
+   * @param idx - int with the column index.
+   * @return String with the field value or an empty string if the record don't
+   *         have that column.
+   */
+  public String get(int idx) {
+    if ((idx < 0) || (idx >= nFields)) {
+      return "";
+    }
+    if (values[idx] == null) {
+      values[idx] = new String(chars, starts[idx], ends[idx] - starts[idx]);
+    }
+    return values[idx];
+  }
+
+  /**
+   * Return the characters of the field at the column index given without making
+   * a String. The CharSequence read the current record, so it change when the
+   * next record is read.
+   *
+   * @param idx - int with the column index.
+   * @return CharSequence with the field value or an empty one if the record
+   *         don't have that column.
+   */
+  public CharSequence getChars(int idx) {
+    if ((idx < 0) || (idx >= fields.length)) {
+      return get(idx);
+    }
+    return fields[idx];
+  }
+
+  /**
+   * @param idx - int with the column index.
+   * @return true if the field at idx is empty or missing.
+   */
+  public boolean isFieldEmpty(int idx) {
+    return (idx < 0) || (idx >= nFields) || (starts[idx] == ends[idx]);
+  }
+
+  /**
+   * Parse the field at idx as a base 10 int without making a String.
+   *
+   * @param idx - int with the column index.
+   * @return int value of the field.
+   * @throws NumberFormatException if the field is not an integer.
+   */
+  public int getInt(int idx) {
+    if (isFieldEmpty(idx)) {
+      throw new NumberFormatException("Empty field at column " + idx);
+    }
+    int i = starts[idx];
+    int end = ends[idx];
+    boolean negative = chars[i] == '-';
+    int num = 0;
+
+    if (negative || chars[i] == '+') {
+      i++;
+    }
+    if (i == end) {
+      throw new NumberFormatException("For input string: \"" + get(idx) + "\"");
+    }
+    for (; i < end; i++) {
+      int digit = chars[i] - '0';
+      if ((digit < 0) || (digit > 9)) {
+        throw new NumberFormatException("For input string: \"" + get(idx) + "\"");
+      }
+      num = num * 10 + digit;
+    }
+    return negative ? -num : num;
+  }
+
+  /**
+   * @param idx - int with the column index.
+   * @return float value of the field.
+   * @throws NumberFormatException if the field is not a number.
+   */
+  public float getFloat(int idx) {
+    return Float.parseFloat(get(idx));
+  }
+
+  // Map methods
+  @Override
+  public String get(Object columnName) {
+    Integer idx = columns.get(columnName);
+    return idx == null ? null : get(idx.intValue());
+  }
+
+  @Override
+  public boolean containsKey(Object columnName) {
+    return columns.containsKey(columnName);
+  }
+
+  @Override
+  public int size() {
+    return columns.size();
+  }
+
+  @Override
+  public String put(String columnName, String value) {
+    throw new UnsupportedOperationException("CSVRow is a read only view of a csv record.");
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    return new AbstractSet<Map.Entry<String, String>>() {
+      @Override
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return new Iterator<Map.Entry<String, String>>() {
+          private int i = 0;
+
+          @Override
+          public boolean hasNext() {
+            return i < header.length;
+          }
+
+          @Override
+          public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            String key = header[i];
+            return new SimpleImmutableEntry<>(key, get(i++));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return header.length;
+      }
+    };
+  }
+
+  // Methods used by CSVTokenizer to fill the row
+  /**
+   * Forget the previous record so a new one can be written into the row.
+   */
+  void reset() {
+    for (int i = 0; i < nFields; i++) {
+      values[i] = null;
+    }
+    nFields = 0;
+    length = 0;
+  }
+
+  /**
+   * Append a character to the field that is currently being read.
+   *
+   * @param c - char read from the file.
+   */
+  void append(char c) {
+    if (length == chars.length) {
+      char[] temp = new char[chars.length * 2];
+      System.arraycopy(chars, 0, temp, 0, length);
+      chars = temp;
+    }
+    chars[length++] = c;
+  }
+
+  /**
+   * Mark where a new field starts.
+   */
+  void startField() {
+    if (nFields == starts.length) {
+      int newSize = starts.length * 2;
+      int[] tempStarts = new int[newSize];
+      int[] tempEnds = new int[newSize];
+      String[] tempValues = new String[newSize];
+      System.arraycopy(starts, 0, tempStarts, 0, nFields);
+      System.arraycopy(ends, 0, tempEnds, 0, nFields);
+      System.arraycopy(values, 0, tempValues, 0, nFields);
+      starts = tempStarts;
+      ends = tempEnds;
+      values = tempValues;
+    }
+    starts[nFields] = length;
+  }
+
+  /**
+   * Mark where the field that is currently being read ends.
+   */
+  void endField() {
+    ends[nFields++] = length;
+  }
+}
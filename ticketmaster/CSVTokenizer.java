@@ -0,0 +1,179 @@
+package ticketmaster;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSVTokenizer read a csv file through its own char buffer and split every
+ * record into fields without regular expressions nor a String per line. It
+ * support quoted fields (commas, new lines and "" escaped quotes inside
+ * quotes), LF and CRLF line endings, and it skip blank lines.
+ *
+ * The first record is read as the header by readHeader(), after that every
+ * call to nextRow() overwrite the same CSVRow returned by getRow().
+ */
+public class CSVTokenizer implements Closeable {
+  private static final int BUFFERSIZE = 1 << 16;
+
+  private final Reader reader;
+  private final char[] buffer;
+  private int pos;
+  private int limit;
+  private CSVRow row;
+
+  /**
+   * Constructor that wrap the reader given. The reader is read in blocks of
+   * BUFFERSIZE characters so it doesn't need to be buffered.
+   *
+   * @param reader - Reader with the csv content.
+   */
+  public CSVTokenizer(Reader reader) {
+    this.reader = reader;
+    this.buffer = new char[BUFFERSIZE];
+    this.pos = 0;
+    this.limit = 0;
+  }
+
+  /**
+   * Open filename as an UTF-8 file to be tokenized.
+   *
+   * @param filename - String with the csv file name.
+   * @return CSVTokenizer ready to read the header of the file.
+   * @throws IOException if the file couldn't be open.
+   */
+  public static CSVTokenizer open(String filename) throws IOException {
+    return new CSVTokenizer(new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8));
+  }
+
+  // Getters
+  public CSVRow getRow() {
+    return row;
+  }
+
+  // Methods
+  /**
+   * Read the first record of the file and use it as header of the row.
+   *
+   * @return String[] with the column names or null if the file is empty.
+   * @throws IOException if the file couldn't be read.
+   */
+  public String[] readHeader() throws IOException {
+    CSVRow headerRow = new CSVRow(new String[0]);
+
+    // Skip byte order mark if the file have one
+    if (fill() && (buffer[pos] == '\uFEFF')) {
+      pos++;
+    }
+
+    if (!readRecord(headerRow)) {
+      return null;
+    }
+
+    String[] header = new String[headerRow.getNumberOfFields()];
+    for (int i = 0; i < header.length; i++) {
+      header[i] = headerRow.get(i);
+    }
+    row = new CSVRow(header);
+    return header;
+  }
+
+  /**
+   * Read the next record of the file into the row.
+   *
+   * @return true if a record was read, false if the end of the file was reach.
+   * @throws IOException if the file couldn't be read.
+   */
+  public boolean nextRow() throws IOException {
+    if (row == null) {
+      throw new IllegalStateException("readHeader() must be call before nextRow().");
+    }
+    return readRecord(row);
+  }
+
+  /**
+   * Read one record into target skipping blank lines.
+   *
+   * @param target - CSVRow to be overwritten with the record read.
+   * @return true if a record was read, false if the end of the file was reach.
+   * @throws IOException if the file couldn't be read.
+   */
+  private boolean readRecord(CSVRow target) throws IOException {
+    boolean inQuotes;
+    boolean blankLine;
+    char c;
+
+    do {
+      target.reset();
+      if (!fill()) {
+        return false;
+      }
+
+      inQuotes = false;
+      blankLine = true;
+      target.startField();
+
+      while ((pos < limit) || fill()) {
+        c = buffer[pos++];
+        if (inQuotes) {
+          if (c != '"') {
+            target.append(c);
+          } else if (((pos < limit) || fill()) && (buffer[pos] == '"')) { // "" is an escaped quote
+            target.append('"');
+            pos++;
+          } else {
+            inQuotes = false;
+          }
+        } else if (c == ',') {
+          blankLine = false;
+          target.endField();
+          target.startField();
+        } else if (c == '\n') {
+          break;
+        } else if (c == '\r') {
+          // Consume the \n of a CRLF line ending
+          if (((pos < limit) || fill()) && (buffer[pos] == '\n')) {
+            pos++;
+          }
+          break;
+        } else {
+          blankLine = false;
+          if (c == '"') {
+            inQuotes = true;
+          } else {
+            target.append(c);
+          }
+        }
+      }
+      target.endField();
+    } while (blankLine);
+
+    return true;
+  }
+
+  /**
+   * Make sure there is at least one character to read in buffer.
+   *
+   * @return true if there is something to read, false at the end of the file.
+   * @throws IOException if the file couldn't be read.
+   */
+  private boolean fill() throws IOException {
+    if (pos < limit) {
+      return true;
+    }
+    pos = 0;
+    limit = reader.read(buffer, 0, buffer.length);
+    if (limit < 0) {
+      limit = 0;
+    }
+    return limit > 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,425 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * CancellationProcessor cancel one or more events at once, e.g., every event of
+ * a rained out weekend, and give every customer back the money of its tickets.
+ *
+ * The events are first taken out of the Database so no one can find them or
+ * buy seats for them anymore. Their tickets are then grouped per customer, so
+ * each customer get a single refund with the total cost of all its tickets, and
+ * the membership savings of those tickets are taken back. The customers are
+ * refunded in batches on a ForkJoinPool, a customer is only in one batch so
+ * batches never touch the same customer, and the TicketMiner totals are updated
+ * once per batch with the fees of all its tickets.
+ *
+ * The cancellation is all or nothing: if any refund fail, every batch that was
+ * applied is undone, the tickets are given back to their customers and the
+ * events are put back in the Database. The journal is only written once every
+ * refund was made. Refunds don't write the journal, but a purchase made by a
+ * refunded customer on another event does, so the rollback write again every
+ * customer it undid a refund for.
+ *
+ * The sales of the events are closed before they are taken out, which wait
+ * for the purchases being saved, so those are refunded too. Purchases that
+ * found an event before and are saved after are given back by
+ * Database.addTicket().
+ */
+public class CancellationProcessor {
+  private static final int BATCHSIZE = 256; // Customers per batch
+
+  private final ArrayList<Event> events = new ArrayList<>();
+  private final ArrayList<Refund> refunds = new ArrayList<>();
+  private final ArrayList<Batch> batches = new ArrayList<>();
+  private final AtomicBoolean failed = new AtomicBoolean();
+  private int nTickets = 0;
+  private long refundedInCents = 0;
+  private String failure = null;
+
+  private CancellationProcessor() {
+  }
+
+  /**
+   * Refund is everything a customer get back from the cancellation.
+   */
+  private static final class Refund {
+    private final Customer customer;
+    private final ArrayList<Ticket> tickets = new ArrayList<>();
+    private long amount = 0; // Total cost of the tickets in cents
+    private long save = 0; // Membership savings of the tickets in cents
+    private int nApplied = 0; // Tickets taken from the customer so far
+    private boolean refunded = false;
+
+    private Refund(Customer customer) {
+      this.customer = customer;
+    }
+  }
+
+  /**
+   * Batch is a group of refunds applied on one thread with the sum of the taxes
+   * and fees of their tickets.
+   */
+  private static final class Batch {
+    private final List<Refund> refunds;
+    private long taxes = 0;
+    private long serviceFee = 0;
+    private long convenienceFee = 0;
+    private long charityFee = 0;
+    private int nApplied = 0; // Refunds of the batch applied so far
+    private boolean feesReturned = false;
+
+    private Batch(List<Refund> refunds) {
+      this.refunds = refunds;
+    }
+  }
+
+  /**
+   * Cancel every event in eventIDs and refund all their tickets, or none of them
+   * if any refund fail.
+   *
+   * @param eventIDs    - int[] with the IDs of the events to be cancelled.
+   * @param parallelism - int with the number of threads to use, 1 make the
+   *                    refunds on the calling thread.
+   * @return Report with the events, tickets and customers refunded, and the time
+   *         every step took.
+   */
+  public static Report cancel(int[] eventIDs, int parallelism) {
+    CancellationProcessor processor = new CancellationProcessor();
+    long start = System.nanoTime();
+    long planNanos;
+    long refundNanos = 0;
+    long endNanos = 0;
+    boolean committed = false;
+
+    if (processor.unlistEvents(eventIDs) && processor.plan()) {
+      planNanos = System.nanoTime() - start;
+      processor.applyRefunds(parallelism);
+      refundNanos = System.nanoTime() - start - planNanos;
+      if (processor.failed.get()) {
+        processor.rollback();
+      } else {
+        processor.commit();
+        committed = true;
+      }
+      endNanos = System.nanoTime() - start - planNanos - refundNanos;
+    } else {
+      planNanos = System.nanoTime() - start;
+    }
+
+    Report report = new Report(committed ? processor.events.size() : 0, processor.nTickets,
+        processor.refunds.size(), processor.batches.size(), committed ? processor.refundedInCents : 0, committed,
+        processor.failure, planNanos, refundNanos, endNanos);
+    Log.logWrite(committed ? Level.INFO : Level.WARNING, "Cancellation of events: " + report);
+    return report;
+  }
+
+  /**
+   * Take the events out of the Database. If any of them is not in the Database
+   * the ones that were taken out are put back.
+   *
+   * @return true if every event was taken out.
+   */
+  private boolean unlistEvents(int[] eventIDs) {
+    LinkedHashMap<Integer, Event> found = new LinkedHashMap<>();
+
+    for (int id : eventIDs) {
+      Event event = Database.getEvent(id);
+      if (event == null) {
+        failure = "Event " + id + " don't exist.";
+        return false;
+      }
+      found.put(id, event);
+    }
+    for (Event event : found.values()) {
+      // Wait for the purchases being saved, so they are refunded too, and don't
+      // let any other one in
+      event.closeSales();
+      Database.unlistEvent(event);
+      events.add(event);
+    }
+    return true;
+  }
+
+  /**
+   * Take the tickets of the events out of the TicketStore, group them per
+   * customer and split the customers in batches. A ticket that was already
+   * taken out, e.g., sold back, is not refunded. If a ticket don't have its
+   * customer the tickets and the events are put back.
+   *
+   * @return true if every ticket can be refunded.
+   */
+  private boolean plan() {
+    IDMap<Refund> byCustomer = new IDMap<>();
+    TicketStore store = Database.getTicketStore();
+
+    for (Event event : events) {
+      for (Ticket ticket : event.getTickets()) {
+        // Only the one that take the ticket out give its money back
+        if (!store.remove(ticket)) {
+          continue;
+        }
+        int customerID = ticket.getCustomerID();
+        Refund refund = byCustomer.get(customerID);
+        if (refund == null) {
+          Customer customer = Database.getCustomer(customerID);
+          if (customer == null) {
+            failure = "Customer " + customerID + " of ticket " + ticket.getPurchaseID() + " don't exist.";
+            store.add(ticket);
+            putBackTickets();
+            relistEvents();
+            return false;
+          }
+          refund = new Refund(customer);
+          byCustomer.put(customerID, refund);
+          refunds.add(refund);
+        }
+        refund.tickets.add(ticket);
+        refund.amount += ticket.getTotalCostInCents();
+        refund.save += ticket.getDiscountInCents(); // What the member discount saved on its seats
+        nTickets++;
+      }
+    }
+
+    for (int i = 0; i < refunds.size(); i += BATCHSIZE) {
+      Batch batch = new Batch(refunds.subList(i, Math.min(i + BATCHSIZE, refunds.size())));
+      for (Refund refund : batch.refunds) {
+        for (Ticket ticket : refund.tickets) {
+          batch.taxes += ticket.getTaxesPayInCents();
+          batch.serviceFee += ticket.getServiceFeePayInCents();
+          batch.convenienceFee += ticket.isConvenienceFeePaid() ? ticket.getConvenienceFeePayInCents() : 0;
+          batch.charityFee += ticket.getCharityFeePayInCents();
+        }
+        refundedInCents += refund.amount;
+      }
+      batches.add(batch);
+    }
+    return true;
+  }
+
+  /**
+   * Apply every batch and wait until all are done or one failed.
+   *
+   * @param parallelism - int with the number of threads to use.
+   */
+  private void applyRefunds(int parallelism) {
+    if ((parallelism <= 1) || (batches.size() <= 1)) {
+      for (Batch batch : batches) {
+        apply(batch);
+      }
+      return;
+    }
+
+    ArrayList<Callable<Void>> tasks = new ArrayList<>();
+    for (Batch batch : batches) {
+      tasks.add(() -> {
+        apply(batch);
+        return null;
+      });
+    }
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      fail(e);
+    } catch (ExecutionException e) {
+      fail(e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Take the tickets from the customers of batch, refund them and return the
+   * fees of the batch. Stop as soon as any batch failed.
+   */
+  private void apply(Batch batch) {
+    try {
+      for (Refund refund : batch.refunds) {
+        if (failed.get()) {
+          return;
+        }
+        batch.nApplied++;
+        for (Ticket ticket : refund.tickets) {
+          refund.nApplied++;
+          refund.customer.removeTicket(ticket.getPurchaseID());
+        }
+        refund.customer.refund(refund.amount, refund.save);
+        refund.refunded = true;
+      }
+      Database.returnFees(batch.taxes, batch.serviceFee, batch.convenienceFee, batch.charityFee);
+      batch.feesReturned = true;
+    } catch (RuntimeException e) {
+      fail(e);
+    }
+  }
+
+  private void fail(Throwable e) {
+    synchronized (failed) {
+      if (failure == null) {
+        failure = e.toString();
+      }
+    }
+    failed.set(true);
+    System.err.println(e.toString());
+    Log.logWrite(Level.WARNING, e.toString());
+  }
+
+  /**
+   * Undo every batch, last first, and put the events back in the Database. The
+   * customers whose refund is undone are written to the journal in case another
+   * change logged them with the refund.
+   */
+  private void rollback() {
+    for (int b = batches.size() - 1; b >= 0; b--) {
+      Batch batch = batches.get(b);
+      if (batch.feesReturned) {
+        Database.returnFees(-batch.taxes, -batch.serviceFee, -batch.convenienceFee, -batch.charityFee);
+      }
+      for (int r = batch.nApplied - 1; r >= 0; r--) {
+        Refund refund = batch.refunds.get(r);
+        if (refund.refunded) {
+          refund.customer.refund(-refund.amount, -refund.save);
+          Journal.logCustomer(refund.customer);
+        }
+        for (int t = refund.nApplied - 1; t >= 0; t--) {
+          refund.customer.addTicketPurchased(refund.tickets.get(t));
+        }
+      }
+    }
+    putBackTickets();
+    relistEvents();
+    Journal.sync();
+  }
+
+  /**
+   * Put every ticket taken out by plan() back in the TicketStore.
+   */
+  private void putBackTickets() {
+    TicketStore store = Database.getTicketStore();
+
+    for (Refund refund : refunds) {
+      for (Ticket ticket : refund.tickets) {
+        store.add(ticket);
+      }
+    }
+  }
+
+  private void relistEvents() {
+    for (Event event : events) {
+      Database.listEvent(event);
+      event.reopenSales();
+    }
+  }
+
+  /**
+   * Write the cancellation to the journal: the customers refunded, the tickets
+   * removed and then the events, so the tickets still find their event when the
+   * journal is replayed.
+   */
+  private void commit() {
+    for (Refund refund : refunds) {
+      Journal.logCustomer(refund.customer);
+    }
+    for (Refund refund : refunds) {
+      for (Ticket ticket : refund.tickets) {
+        Journal.logRemoveTicket(ticket.getPurchaseID());
+      }
+    }
+    for (Event event : events) {
+      Database.removeEvent(event);
+    }
+    Journal.sync();
+  }
+
+  /**
+   * Report is the summary of a cancellation.
+   */
+  public static class Report {
+    private final int nEvents;
+    private final int nTickets;
+    private final int nCustomers;
+    private final int nBatches;
+    private final long refundedInCents;
+    private final boolean committed;
+    private final String failure;
+    private final long planNanos;
+    private final long refundNanos;
+    private final long endNanos; // Commit or rollback
+
+    private Report(int nEvents, int nTickets, int nCustomers, int nBatches, long refundedInCents, boolean committed,
+        String failure, long planNanos, long refundNanos, long endNanos) {
+      this.nEvents = nEvents;
+      this.nTickets = nTickets;
+      this.nCustomers = nCustomers;
+      this.nBatches = nBatches;
+      this.refundedInCents = refundedInCents;
+      this.committed = committed;
+      this.failure = failure;
+      this.planNanos = planNanos;
+      this.refundNanos = refundNanos;
+      this.endNanos = endNanos;
+    }
+
+    // Getters
+    public int getEventsCancelled() {
+      return nEvents;
+    }
+
+    public int getTicketsRefunded() {
+      return committed ? nTickets : 0;
+    }
+
+    public int getCustomersRefunded() {
+      return committed ? nCustomers : 0;
+    }
+
+    public int getBatches() {
+      return nBatches;
+    }
+
+    public long getRefundedInCents() {
+      return refundedInCents;
+    }
+
+    public boolean isCommitted() {
+      return committed;
+    }
+
+    /**
+     * @return String with why the cancellation was rolled back, null if it was
+     *         committed.
+     */
+    public String getFailure() {
+      return failure;
+    }
+
+    public long getElapsedNanos() {
+      return planNanos + refundNanos + endNanos;
+    }
+
+    @Override
+    public String toString() {
+      if (!committed) {
+        return String.format("cancellation rolled back (%s), %d tickets of %d customers planned in %d batches,"
+            + " plan %.1f ms, refunds %.1f ms, rollback %.1f ms", failure, nTickets, nCustomers, nBatches,
+            planNanos / 1e6, refundNanos / 1e6, endNanos / 1e6);
+      }
+      return String.format("%d events cancelled, %d tickets of %d customers refunded in %d batches, %s returned,"
+          + " plan %.1f ms, refunds %.1f ms, commit %.1f ms, total %.1f ms", nEvents, nTickets, nCustomers,
+          nBatches, Money.toString(refundedInCents), planNanos / 1e6, refundNanos / 1e6, endNanos / 1e6,
+          getElapsedNanos() / 1e6);
+    }
+  }
+}
@@ -1,7 +1,5 @@
 package ticketmaster;
 
-import java.util.GregorianCalendar;
-
 /**
  * Concert is a class that extends the Event class containing, event id, name,
  * date, time, prices, seats, availability, venue and tickets sold.
@@ -15,9 +13,9 @@ public class Concert extends Event {
    * 
    * @param eventID
    * @param name    - String for event name
-   * @param date    - GregorianCalendar for event date and time
+   * @param date    - long with event date and time in milliseconds since 1970
    */
-  public Concert(int eventID, String name, GregorianCalendar date, boolean fireworksPlanned, int fireworksCost) {
+  public Concert(int eventID, String name, long date, boolean fireworksPlanned, int fireworksCost) {
     super(eventID, name, date, fireworksPlanned, fireworksCost);
   }
 
@@ -2,7 +2,6 @@ package ticketmaster;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
 
 /**
  * This class module a user that can buy tickets with seats for different
@@ -19,12 +18,12 @@ public class Customer {
   private int customerID;
   private String firstName;
   private String lastName;
-  private float moneyAvailable;
-  private HashMap<Integer, Ticket> ticketsPurchased;
+  private volatile long moneyAvailable; // In cents
+  private IDMap<Ticket> ticketsPurchased; // key = ticketID | value = Ticket that match the id
   private boolean ticketMinerMembership;
   private String username;
   private String password;
-  private float totalSave;
+  private volatile long totalSave; // In cents
   private String ticketSummaryFilename;
 
   /**
@@ -42,22 +41,41 @@ public class Customer {
    */
   public Customer(int customerID, String firstName, String lastName, float moneyAvailable,
       boolean ticketMinerMembership, String username, String password) {
+    this(customerID, firstName, lastName, Money.toCents(moneyAvailable), ticketMinerMembership, username, password);
+  }
+
+  /**
+   * Same as the constructor above but the money available is given in cents.
+   * Used by the readers, which parse the money straight into cents.
+   * 
+   * @param customerID            - int for customer id
+   * @param firstName             - String for customer first name
+   * @param lastName              - String for customer last name
+   * @param moneyAvailableInCents - long representing amount of money left in
+   *                              cents
+   * @param ticketMinerMembership - boolean with true value if customer has a
+   *                              ticket miner membership
+   * @param username              - String for customer username
+   * @param password              - String for customer password
+   */
+  Customer(int customerID, String firstName, String lastName, long moneyAvailableInCents,
+      boolean ticketMinerMembership, String username, String password) {
     this.customerID = customerID;
     this.firstName = firstName;
     this.lastName = lastName;
-    this.moneyAvailable = moneyAvailable;
-    this.ticketsPurchased = new HashMap<>();
+    this.moneyAvailable = moneyAvailableInCents;
+    this.ticketsPurchased = new IDMap<>();
     this.ticketMinerMembership = ticketMinerMembership;
     this.username = username;
     this.password = password;
-    totalSave = (float) 0.0;
+    totalSave = 0;
   }
 
   /**
    * Constructor without parameters. Only instantiate ticketsPurchased.
    */
   public Customer() {
-    ticketsPurchased = new HashMap<>();
+    ticketsPurchased = new IDMap<>();
   }
 
   // Getters
@@ -74,6 +92,10 @@ public class Customer {
   }
 
   public float getMoneyAvailable() {
+    return Money.toDollars(moneyAvailable);
+  }
+
+  public long getMoneyAvailableInCents() {
     return moneyAvailable;
   }
 
@@ -90,6 +112,10 @@ public class Customer {
   }
 
   public float getTotalSave() {
+    return Money.toDollars(totalSave);
+  }
+
+  public long getTotalSaveInCents() {
     return totalSave;
   }
 
@@ -111,7 +137,12 @@ public class Customer {
   }
 
   public void setMoneyAvailable(float moneyAvailable) {
+    setMoneyAvailableInCents(Money.toCents(moneyAvailable));
+  }
+
+  public synchronized void setMoneyAvailableInCents(long moneyAvailable) {
     this.moneyAvailable = moneyAvailable;
+    Journal.logCustomer(this);
   }
 
   public void setTicketMinerMembership(boolean ticketMinerMembership) {
@@ -127,7 +158,12 @@ public class Customer {
   }
 
   public void setTotalSave(float totalSave) {
+    setTotalSaveInCents(Money.toCents(totalSave));
+  }
+
+  public synchronized void setTotalSaveInCents(long totalSave) {
     this.totalSave = totalSave;
+    Journal.logCustomer(this);
   }
 
   private void setTicketSummaryFilename(String filename) {
@@ -135,6 +171,66 @@ public class Customer {
   }
 
   // Methods
+  /**
+   * Take amount from the money available only if the customer can afford it. The
+   * check and the update are made atomically so the customer money can't become
+   * negative when many purchases are made at once. Negative amounts are not
+   * taken, they would give money to the customer. The journal is not written,
+   * money is only taken for a purchase, which Database.addTicket() write with
+   * the customer, or is given back with depositMoney().
+   *
+   * @param amount - long with the money to be charged in cents.
+   * @return true if the customer was charged.
+   */
+  public synchronized boolean withdrawMoney(long amount) {
+    if ((amount < 0) || (moneyAvailable < amount)) {
+      return false;
+    }
+    moneyAvailable -= amount;
+    return true;
+  }
+
+  /**
+   * Give back amount to the money available. Negative amounts are not given,
+   * they would take money from the customer without checking it has it.
+   *
+   * @param amount - long with the money to be returned in cents.
+   * @return true if the money was given back.
+   */
+  public synchronized boolean depositMoney(long amount) {
+    if (amount < 0) {
+      return false;
+    }
+    setMoneyAvailableInCents(moneyAvailable + amount);
+    return true;
+  }
+
+  public synchronized void addTotalSave(long save) {
+    setTotalSaveInCents(totalSave + save);
+  }
+
+  /**
+   * Same as addTotalSave() without writing the journal, for the savings of a
+   * purchase that Database.addTicket() write with the customer.
+   */
+  private synchronized void addPurchaseSave(long save) {
+    totalSave += save;
+  }
+
+  /**
+   * Give back amount to the money available and take save out of the total
+   * saved with the membership in a single change. Unlike depositMoney() the
+   * journal is not written, the caller write the customer once all its refunds
+   * are made. Negative amounts undo the refund.
+   *
+   * @param amount - long with the money to be returned in cents.
+   * @param save   - long with the membership savings to be taken back in cents.
+   */
+  synchronized void refund(long amount, long save) {
+    moneyAvailable += amount;
+    totalSave -= save;
+  }
+
   /**
    * Given a string we check if it is the same as the customer password
    * 
@@ -161,7 +257,7 @@ public class Customer {
     ticketsPurchased.put(ticket.getPurchaseID(), ticket);
   }
 
-  public void removeTicket(int ticketID) {
+  public void removeTicket(long ticketID) {
     ticketsPurchased.remove(ticketID);
   }
 
@@ -180,8 +276,8 @@ public class Customer {
       ticket.setPurchaseID();
     } else {
       // Return convenience fee to the customer if it was payed
-      if (ticket.getConvenienceFeePay() > 0) {
-        setMoneyAvailable(getMoneyAvailable() + ticket.getConvenienceFeePay());
+      if (ticket.isConvenienceFeePaid()) {
+        depositMoney(ticket.getConvenienceFeePayInCents());
       }
       ticket = null;
     }
@@ -203,8 +299,8 @@ public class Customer {
       ticket.setPurchaseID();
     } else {
       // Return convenience fee to the customer if it was payed
-      if (ticket.getConvenienceFeePay() > 0) {
-        setMoneyAvailable(getMoneyAvailable() + ticket.getConvenienceFeePay());
+      if (ticket.isConvenienceFeePaid()) {
+        depositMoney(ticket.getConvenienceFeePayInCents());
       }
       ticket = null;
     }
@@ -246,6 +342,40 @@ public class Customer {
     }
   }
 
+  /**
+   * Buy nSeats that were already reserved for the customer, e.g., by a SeatHolds
+   * hold. Unlike buySeats() the seats are not given back if the customer can't
+   * pay for them, the caller decide what to do with them.
+   * 
+   * @param event    - Event the seats were reserved from.
+   * @param seatType - int with the SeatTypes ordinal of the seats.
+   * @param nSeats   - int with the number of seats reserved.
+   * @return Ticket with the seats purchase made, or null if the customer
+   *         couldn't pay for them.
+   */
+  Ticket buyReservedSeats(Event event, int seatType, int nSeats) {
+    Ticket ticket = new Ticket(event, event.getVenue(), this);
+
+    if ((nSeats < 1) || (nSeats > Ticket.getMaxNumberOfSeats())) {
+      return null;
+    }
+    if (!withdrawMoney(Fees.getConvenienceFeeInCents())) {
+      System.out.println("Customer: " + getLastName() + ", " + getFirstName() + " couldn't pay the convenience fee.");
+      return null;
+    }
+    ticket.setConvenienceFee(Fees.getConvenienceFeeInCents());
+
+    if (!payForSeats(ticket, event, seatType, nSeats)) {
+      depositMoney(Fees.getConvenienceFeeInCents());
+      System.out.println("Customer " + getLastName() + ", " + getFirstName() + " don't have enough money to purchase "
+          + nSeats + " " + SeatTypes.nameOf(seatType) + " seats.");
+      return null;
+    }
+    ticket.setPurchaseTime();
+    ticket.setPurchaseID();
+    return ticket;
+  }
+
   /**
    * Check event to see if it have equal or more amount of seats of the type
    * given. If it does and the customer can afford it, we process the purchases.
@@ -259,66 +389,36 @@ public class Customer {
    */
   private void buyNSeats(Ticket ticket, String seatType, int nSeats) {
     Event event = ticket.getEvent();
-    int nAvailableSeats;
-    float seatCost = event.getSeatPrice(seatType);
-    final float originalPrice = seatCost * nSeats; // Calculate base price
-    // Calculate discount if any
-    final float discount = hasTicketMinerMembership() ? originalPrice / ((float) 10.0) : ((float) 0.0);
+    final int type = SeatTypes.ordinalOf(seatType); // Look for the seat type only once
+
+    // A negative number of seats would sell seats back at the purchase price
+    if (nSeats < 1) {
+      System.out.println("I'm sorry but at least 1 seat must be purchase per transaction.");
+      return;
+    }
+
+    // A ticket only have room for getMaxNumberOfSeats() seats
+    if (ticket.getNumberOfSeatsPurchases() + nSeats > Ticket.getMaxNumberOfSeats()) {
+      System.out.println("I'm sorry but the maximum number of purchases allow per transaction are "
+          + Ticket.getMaxNumberOfSeats() + ".");
+      return;
+    }
 
     // Charge convenience fee if it hasn't been payed
-    if (ticket.getConvenienceFeePay() < 0) {
-      if ((getMoneyAvailable() >= Fees.getConvenienceFee())) {
-        setMoneyAvailable(getMoneyAvailable() - Fees.getConvenienceFee()); // Update customer available money
-        ticket.setConvenienceFee(Fees.getConvenienceFee()); // Set services pay for the ticket
+    if (!ticket.isConvenienceFeePaid()) {
+      if (withdrawMoney(Fees.getConvenienceFeeInCents())) { // Update customer available money
+        ticket.setConvenienceFee(Fees.getConvenienceFeeInCents()); // Set services pay for the ticket
       } else {
         System.out.println("Customer: " + getLastName() + ", " + getFirstName() + " couldn't pay the convenience fee.");
         return;
       }
     }
 
-    nAvailableSeats = event.getNumberOfSeatsAvailable(seatType);
-
-    // Check that there are enough seats to purchase
-    if (nAvailableSeats >= nSeats) {
-      // Calculate tax and fees
-      float tax = originalPrice * Tax.getTaxPercentage(event) / ((float) 100.0); // Get taxes base on event location
-      ticket.addTaxesCollected(tax);
-      float serviceFee = originalPrice * Fees.getServiceFee(); // Service fee is of 0.5%
-      ticket.addServiceFee(serviceFee);
-      float charityFee = originalPrice * Fees.getCharityFee(); // Service fee is of 0.75%
-      ticket.addCharityFee(charityFee);
-
-      // Calculate subtotal
-      ticket.addToSubtotal(originalPrice - discount);
-
-      // Get total cost
-      float total = ticket.getTotalCost();
-
-      // Check that user have enough money to purchase nSeats
-      if (getMoneyAvailable() >= total) {
-        // Update number of seats
-        event.setNumSeats(seatType, nAvailableSeats - nSeats);
-
-        // Save the 10% discount from the original price if customer is ticket miner
-        // member
-        if (hasTicketMinerMembership()) {
-          // Update how much your customer had save
-          setTotalSave(getTotalSave() + originalPrice / ((float) 10.0));
-          // Update how much the event had lost from discounts
-          event.setTotalDiscounted(event.getTotalDiscounted() + originalPrice / ((float) 10.0));
-        }
-
-        // Create seats and add them to the ticket
-        Seat seat;
-        do {
-          seat = new Seat(seatType, seatCost - discount);
-          // Add purchase to ticket
-          ticket.addPurchase(seat);
-        } while (--nSeats > 0);
-
-        // Update customer available money
-        setMoneyAvailable(getMoneyAvailable() - total);
-      } else {
+    // Reserve the seats before charging the customer so the same seats can't be
+    // sold twice. They are given back if the customer can't pay for them.
+    if (event.reserveSeats(type, nSeats)) {
+      if (!payForSeats(ticket, event, type, nSeats)) {
+        event.releaseSeats(type, nSeats);
         System.out.println("Customer " + getLastName() + ", " + getFirstName() + " don't have enough money to purchase "
             + nSeats + " " + seatType + " seats.");
       }
@@ -328,6 +428,57 @@ public class Customer {
     }
   }
 
+  /**
+   * Charge the customer for nSeats that were reserved from event and add them
+   * to ticket.
+   * 
+   * @param ticket - Ticket the seats are added to.
+   * @param event  - Event of the ticket.
+   * @param type   - int with the SeatTypes ordinal of the seats.
+   * @param nSeats - int with the number of seats reserved.
+   * @return true if the customer had enough money to pay for the seats.
+   */
+  private boolean payForSeats(Ticket ticket, Event event, int type, int nSeats) {
+    final long seatCost = event.getSeatPriceInCents(type);
+    final long originalPrice = seatCost * nSeats; // Calculate base price
+    // Calculate discount if any, 10% of every seat
+    final long seatDiscount = hasTicketMinerMembership() ? Money.divide(seatCost, 10) : 0;
+    final long discount = seatDiscount * nSeats;
+    // Calculate tax and fees
+    long tax = Money.applyRate(originalPrice, Tax.getTaxInBasisPoints(event)); // Get taxes base on event location
+    long serviceFee = Money.applyRate(originalPrice, Fees.getServiceFeeInBasisPoints()); // Service fee is of 0.5%
+    long charityFee = Money.applyRate(originalPrice, Fees.getCharityFeeInBasisPoints()); // Charity fee is of 0.75%
+    // Calculate subtotal
+    long subtotal = originalPrice - discount;
+
+    // Charge the customer only if they have enough money to purchase nSeats, only
+    // what is added to the ticket is charged since the convenience fee was charged
+    // before
+    if (!withdrawMoney(tax + serviceFee + charityFee + subtotal)) {
+      return false;
+    }
+    ticket.addTaxesCollected(tax);
+    ticket.addServiceFee(serviceFee);
+    ticket.addCharityFee(charityFee);
+    ticket.addToSubtotal(subtotal);
+
+    // Save the 10% discount from the original price if customer is ticket miner
+    // member
+    if (hasTicketMinerMembership()) {
+      // Update how much your customer had save
+      addPurchaseSave(discount);
+      // Update how much the event had lost from discounts
+      event.addTotalDiscounted(discount);
+    }
+
+    // Add the seats to the ticket with their discount, so selling or refunding a
+    // seat give back exactly what was saved on it
+    for (int i = 0; i < nSeats; i++) {
+      ticket.addPurchase(type, seatCost - seatDiscount, seatDiscount);
+    }
+    return true;
+  }
+
   /**
    * Write the header for all the necessary information to replicate the customer
    * only by reading the file.
@@ -355,7 +506,7 @@ public class Customer {
       writer.append(getCustomerID() + ",");
       writer.append(getFirstName() + ",");
       writer.append(getLastName() + ",");
-      writer.append(getMoneyAvailable() + ",");
+      writer.append(Money.toString(getMoneyAvailableInCents()) + ",");
       writer.append(ticketsPurchased.size() + ",");
       writer.append(hasTicketMinerMembership() + ",");
       writer.append(getUsername() + ",");
@@ -0,0 +1,306 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CustomerIndex find customers by username and by first and last name. Case
+ * and the white space around them don't matter, so " Arim", "MARTINDELCAMPO"
+ * find the same customer as "arim", "MartinDelCampo".
+ *
+ * The username and the name of every customer are turned into a 64 bit hash
+ * once, when the customer is added, and the hashes are the keys of two IDMaps.
+ * A lookup hash the characters given the same way and compare them to the
+ * fields of the customers found, so it never make a String or lower case a
+ * copy of the input, and two names with the same hash are never taken as the
+ * same name.
+ *
+ * Many customers can have the same name, so a name can map to more than one
+ * customer. getCustomers() return all of them, while getCustomer() only
+ * return a customer if the name is not ambiguous: the only customer with that
+ * name, or the one whose username is the name together (e.g., arimmartindelcampo)
+ * as the purchase files expect.
+ *
+ * Names and usernames must not change while the customer is indexed.
+ */
+public class CustomerIndex {
+  private static final long FNVOFFSET = 0xcbf29ce484222325L;
+  private static final long FNVPRIME = 0x100000001b3L;
+  private static final char SEPARATOR = ' '; // Hashed between first and last name, never part of a name
+  private static final char[] LOWERCASE = makeLowerCase(); // Lower case of the first 128 characters
+
+  // key = hash of the username | value = Customer, or Customers if the hashes
+  // collide
+  private final IDMap<Object> byUsername = new IDMap<>(Runtime.getRuntime().availableProcessors());
+  // key = hash of the first and last name | value = Customer, or Customers with
+  // that name
+  private final IDMap<Object> byName = new IDMap<>(Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Customers keep the customers of a key when there are more than one. It is
+   * never changed once made, a change make a new one.
+   */
+  private static final class Customers {
+    private final Customer[] customers;
+
+    private Customers(Customer[] customers) {
+      this.customers = customers;
+    }
+  }
+
+  // Getters
+  /**
+   * @param username - CharSequence with the username, case and the white space
+   *                 around it don't matter.
+   * @return Customer with that username or null if there is none.
+   */
+  public Customer getCustomer(CharSequence username) {
+    Object found = byUsername.get(hash(FNVOFFSET, username));
+
+    if (found instanceof Customer) {
+      return isUsername((Customer) found, username) ? (Customer) found : null;
+    }
+    if (found != null) {
+      for (Customer customer : ((Customers) found).customers) {
+        if (isUsername(customer, username)) {
+          return customer;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param firstName - CharSequence with the first name, case and the white
+   *                  space around it don't matter.
+   * @param lastName  - CharSequence with the last name.
+   * @return Customer with that name if it is the only one, otherwise the one
+   *         with the name together as username, null if there is none or more
+   *         than one have the name and none of them have that username.
+   */
+  public Customer getCustomer(CharSequence firstName, CharSequence lastName) {
+    // Most customers have the name together as username, so it is tried first
+    Customer customer = getCustomerByNameTogether(firstName, lastName);
+    Object found;
+
+    if (customer != null) {
+      return customer;
+    }
+    found = byName.get(hashName(firstName, lastName));
+    if (found instanceof Customer) {
+      return isName((Customer) found, firstName, lastName) ? (Customer) found : null;
+    }
+    if (found != null) {
+      for (Customer other : ((Customers) found).customers) {
+        if (isName(other, firstName, lastName)) {
+          if (customer != null) {
+            return null; // More than one have the name, none with it as username
+          }
+          customer = other;
+        }
+      }
+    }
+    return customer;
+  }
+
+  /**
+   * @return List with every customer with that name, empty if there is none.
+   */
+  public List<Customer> getCustomers(CharSequence firstName, CharSequence lastName) {
+    Object found = byName.get(hashName(firstName, lastName));
+    ArrayList<Customer> customers = new ArrayList<>();
+
+    if (found instanceof Customer) {
+      if (isName((Customer) found, firstName, lastName)) {
+        customers.add((Customer) found);
+      }
+    } else if (found != null) {
+      for (Customer customer : ((Customers) found).customers) {
+        if (isName(customer, firstName, lastName)) {
+          customers.add(customer);
+        }
+      }
+    }
+    return customers;
+  }
+
+  /**
+   * @return Customer with firstName and lastName together as username and that
+   *         name, null if there is none.
+   */
+  private Customer getCustomerByNameTogether(CharSequence firstName, CharSequence lastName) {
+    Object found = byUsername.get(hash(hash(FNVOFFSET, firstName), lastName));
+
+    if (found instanceof Customer) {
+      return isNameTogether((Customer) found, firstName, lastName) ? (Customer) found : null;
+    }
+    if (found != null) {
+      for (Customer customer : ((Customers) found).customers) {
+        if (isNameTogether(customer, firstName, lastName)) {
+          return customer;
+        }
+      }
+    }
+    return null;
+  }
+
+  // Methods
+  /**
+   * @param customer - Customer to be indexed by username and name.
+   */
+  public synchronized void add(Customer customer) {
+    add(byUsername, hash(FNVOFFSET, customer.getUsername()), customer);
+    add(byName, hashName(customer.getFirstName(), customer.getLastName()), customer);
+  }
+
+  /**
+   * @param customer - Customer to take out of the index, it must have the same
+   *                 name and username it was added with.
+   */
+  public synchronized void remove(Customer customer) {
+    remove(byUsername, hash(FNVOFFSET, customer.getUsername()), customer);
+    remove(byName, hashName(customer.getFirstName(), customer.getLastName()), customer);
+  }
+
+  private static void add(IDMap<Object> map, long key, Customer customer) {
+    Object found = map.get(key);
+
+    if (found == null) {
+      map.put(key, customer);
+    } else if (found instanceof Customer) {
+      if (found != customer) {
+        map.put(key, new Customers(new Customer[] { (Customer) found, customer }));
+      }
+    } else {
+      Customer[] customers = ((Customers) found).customers;
+      if (!Arrays.asList(customers).contains(customer)) {
+        customers = Arrays.copyOf(customers, customers.length + 1);
+        customers[customers.length - 1] = customer;
+        map.put(key, new Customers(customers));
+      }
+    }
+  }
+
+  private static void remove(IDMap<Object> map, long key, Customer customer) {
+    Object found = map.get(key);
+
+    if (found == customer) {
+      map.remove(key);
+    } else if (found instanceof Customers) {
+      Customer[] customers = ((Customers) found).customers;
+      int idx = Arrays.asList(customers).indexOf(customer);
+      if (idx < 0) {
+        return;
+      }
+      if (customers.length == 2) {
+        map.put(key, customers[1 - idx]);
+      } else {
+        Customer[] left = new Customer[customers.length - 1];
+        System.arraycopy(customers, 0, left, 0, idx);
+        System.arraycopy(customers, idx + 1, left, idx, left.length - idx);
+        map.put(key, new Customers(left));
+      }
+    }
+  }
+
+  private static long hashName(CharSequence firstName, CharSequence lastName) {
+    long hash = hash(FNVOFFSET, firstName);
+    hash = (hash ^ SEPARATOR) * FNVPRIME;
+    return hash(hash, lastName);
+  }
+
+  /**
+   * Continue hash (FNV-1a) with the lower case characters of chars without the
+   * white space around them, null is taken as empty.
+   */
+  private static long hash(long hash, CharSequence chars) {
+    if (chars == null) {
+      return hash;
+    }
+    for (int i = start(chars), end = end(chars); i < end; i++) {
+      hash = (hash ^ toLowerCase(chars.charAt(i))) * FNVPRIME;
+    }
+    return hash;
+  }
+
+  private static boolean isName(Customer customer, CharSequence firstName, CharSequence lastName) {
+    return matches(customer.getFirstName(), firstName, "") && matches(customer.getLastName(), lastName, "");
+  }
+
+  private static boolean isUsername(Customer customer, CharSequence username) {
+    return matches(customer.getUsername(), username, "");
+  }
+
+  private static boolean isNameTogether(Customer customer, CharSequence firstName, CharSequence lastName) {
+    return matches(customer.getUsername(), firstName, lastName) && isName(customer, firstName, lastName);
+  }
+
+  /**
+   * @return true if field have the same characters as first followed by second,
+   *         not counting case and the white space around each of them.
+   */
+  private static boolean matches(String field, CharSequence first, CharSequence second) {
+    int i;
+    int firstStart = start(first);
+    int firstEnd = end(first);
+    int secondStart = start(second);
+    int secondEnd = end(second);
+
+    if (field == null) {
+      return false;
+    }
+    i = start(field);
+    if (end(field) - i != (firstEnd - firstStart) + (secondEnd - secondStart)) {
+      return false;
+    }
+    for (int j = firstStart; j < firstEnd; j++, i++) {
+      if (toLowerCase(field.charAt(i)) != toLowerCase(first.charAt(j))) {
+        return false;
+      }
+    }
+    for (int j = secondStart; j < secondEnd; j++, i++) {
+      if (toLowerCase(field.charAt(i)) != toLowerCase(second.charAt(j))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return int with the index of the first character of chars that is not white
+   *         space, as String.trim().
+   */
+  private static int start(CharSequence chars) {
+    int i = 0;
+    while ((i < chars.length()) && (chars.charAt(i) <= ' ')) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * @return int with the index after the last character of chars that is not
+   *         white space.
+   */
+  private static int end(CharSequence chars) {
+    int i = chars.length();
+    while ((i > 0) && (chars.charAt(i - 1) <= ' ')) {
+      i--;
+    }
+    return i;
+  }
+
+  private static char toLowerCase(char c) {
+    return (c < LOWERCASE.length) ? LOWERCASE[c] : Character.toLowerCase(c);
+  }
+
+  private static char[] makeLowerCase() {
+    char[] lowerCase = new char[128];
+
+    for (char c = 0; c < lowerCase.length; c++) {
+      lowerCase[c] = Character.toLowerCase(c);
+    }
+    return lowerCase;
+  }
+}
@@ -3,7 +3,11 @@ package ticketmaster;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 import ticketmaster.display.FileChooser;
@@ -18,21 +22,29 @@ import ticketmaster.display.FileChooser;
  * @date September 18th, 2022
  */
 public class Database {
-  private static HashMap<Integer, Event> events;
-  private static HashMap<Integer, Customer> customers;
-  private static HashMap<Integer, Ticket> ticketsPurchased;
-  private static HashMap<String, Integer> mapNameToEventID; // event.getName() as the key
-  private static HashMap<String, Integer> mapNamesToCustomerID; // customer.getFirstName() + customer.getLastName() as
-                                                                // the key
+  private static IDMap<Event> events;
+  private static IDMap<Customer> customers;
+  private static TicketStore ticketsPurchased; // Columns with every ticket, also found by purchase ID
+  private static ConcurrentHashMap<String, Integer> mapNameToEventID; // event.getName() as the key
+  private static EventIndex eventIndex; // Events by date, venue and type
+  private static EventNameIndex eventNameIndex; // Events by part of their name
+  private static CustomerIndex customerIndex; // Customers by username and by name
+  private static SeatHolds seatHolds = new SeatHolds(); // Seats kept for customers that are paying
   // seatTypes MUST BE ORDER IN DESCENDING IMPORTANCE!!!
   private static final String[] seatTypes = new String[] { "VIP", "Gold", "Silver", "Bronze", "General Admission" };
   private static final String NEWEVENTFILENAME = "NewEventList.csv";
   private static final String NEWCUSTOMERFILENAME = "NewCustomerList.csv";
   private static final String TICKETFILENAME = "NewTicketList.csv";
+  private static final String SNAPSHOTFILENAME = "Database.snapshot";
+  private static final String JOURNALFILENAME = "Database.journal";
+  private static final Object saveLock = new Object(); // Only one snapshot is written at a time
   private static boolean hasBeenPopulate = false;
   private static int largestEventID;
-  // 0: taxes, 1: service, 2: convenience, 3: charity
-  private static float[] salesTotals = new float[] { (float) 0.0, (float) 0.0, (float) 0.0, (float) 0.0 };
+  // All in cents, 0: taxes, 1: service, 2: convenience, 3: charity. Every
+  // purchase add to them, so they are striped LongAdders instead of a locked
+  // array to keep purchases on different threads from waiting on each other.
+  private static final LongAdder[] salesTotals = { new LongAdder(), new LongAdder(), new LongAdder(),
+      new LongAdder() };
 
   /**
    * Constructor with no parameters. It initiate events, customer, and tickets
@@ -47,37 +59,131 @@ public class Database {
   }
 
   public static Event getEvent(int eventID) {
-    if (events.containsKey(eventID))
-      return events.get(eventID);
-    return null;
+    return events.get(eventID);
   }
 
   public static Event getEvent(String eventName) {
-    if (mapNameToEventID.containsKey(eventName))
-      return getEvent(mapNameToEventID.get(eventName));
-    return null;
+    // A single get() is used so the lookup is safe while other threads change
+    // the maps
+    Integer eventID = (eventName == null) ? null : mapNameToEventID.get(eventName);
+    return eventID == null ? null : getEvent(eventID);
+  }
+
+  /**
+   * Find the events from a date to another in date order, optionally only the
+   * ones at a venue or of a type. See EventIndex.find().
+   *
+   * @param venueName - String with the name of the venue or null for every
+   *                  venue.
+   * @param eventType - String with the type of event (Sport, Concert or
+   *                  Special) or null for every type.
+   * @param from      - long with the first date wanted in milliseconds since
+   *                  1970.
+   * @param to        - long with the date after the last one wanted in
+   *                  milliseconds since 1970.
+   * @param limit     - int with the maximum number of events returned.
+   * @return List with the events found in date order.
+   */
+  public static List<Event> findEvents(String venueName, String eventType, long from, long to, int limit) {
+    return eventIndex.find(venueName, eventType, from, to, limit);
+  }
+
+  /**
+   * Find the events whose name best match text, e.g., "UTEP Foot" or "utep
+   * footbal 1". See EventNameIndex.find().
+   *
+   * @param text  - String with part of the name of an event.
+   * @param limit - int with the maximum number of events returned.
+   * @return List with the events found, best match first.
+   */
+  public static List<Event> searchEvents(String text, int limit) {
+    ArrayList<Event> found = new ArrayList<>();
+    Event event;
+
+    for (int eventID : eventNameIndex.find(text, limit)) {
+      event = getEvent(eventID);
+      if (event != null) {
+        found.add(event);
+      }
+    }
+    return found;
   }
 
   public static Customer getCustomer(int customerID) {
-    if (customers.containsKey(customerID))
-      return customers.get(customerID);
-    return null;
+    return customers.get(customerID);
+  }
+
+  /**
+   * @param username - CharSequence with the username, case and the white
+   *                 space around it don't matter.
+   * @return Customer with that username or null if there is none.
+   */
+  public static Customer getCustomer(CharSequence username) {
+    return (username == null) ? null : customerIndex.getCustomer(username);
+  }
+
+  /**
+   * Find the customer of a purchase by name. See CustomerIndex.getCustomer().
+   *
+   * @param firstName - CharSequence with the first name, case and the white
+   *                  space around it don't matter.
+   * @param lastName  - CharSequence with the last name.
+   * @return Customer with that name, if more than one have it the one with the
+   *         name together as username, null if there is none.
+   */
+  public static Customer getCustomer(CharSequence firstName, CharSequence lastName) {
+    return customerIndex.getCustomer(firstName, lastName);
+  }
+
+  /**
+   * @return List with every customer with that name, empty if there is none.
+   */
+  public static List<Customer> getCustomers(CharSequence firstName, CharSequence lastName) {
+    return customerIndex.getCustomers(firstName, lastName);
+  }
+
+  public static Ticket getTicketPurchased(long ticketID) {
+    return ticketsPurchased.get(ticketID);
+  }
+
+  /**
+   * @param fromID - long with the lowest purchase ID wanted.
+   * @param toID   - long with the purchase ID after the last one wanted.
+   * @return Collection with a copy of the tickets with fromID <= purchase ID <
+   *         toID in ID order.
+   */
+  public static Collection<Ticket> getTicketsPurchased(long fromID, long toID) {
+    return ticketsPurchased.getTickets(fromID, toID);
+  }
+
+  /**
+   * @return TicketStore with all the tickets purchased, used to scan them
+   *         without going through every Ticket.
+   */
+  public static TicketStore getTicketStore() {
+    return ticketsPurchased;
+  }
+
+  /**
+   * @return SeatHolds with the seats kept for customers before they buy them.
+   */
+  public static SeatHolds getSeatHolds() {
+    return seatHolds;
+  }
+
+  public static int getNumberOfEvents() {
+    return events.size();
   }
 
-  public static Customer getCustomer(String username) {
-    username = username.toLowerCase();
-    if (mapNamesToCustomerID.containsKey(username))
-      return getCustomer(mapNamesToCustomerID.get(username));
-    return null;
+  public static int getNumberOfCustomers() {
+    return customers.size();
   }
 
-  public static Ticket getTicketPurchased(int ticketID) {
-    if (ticketsPurchased.containsKey(ticketID))
-      return ticketsPurchased.get(ticketID);
-    return null;
+  public static int getNumberOfTickets() {
+    return ticketsPurchased.size();
   }
 
-  public static int getNewEventID() {
+  public static synchronized int getNewEventID() {
     // Update largestEventID by 1, save the new value on itself, and return the new
     // value
     return ++Database.largestEventID;
@@ -88,57 +194,113 @@ public class Database {
   }
 
   public static float getTaxes() {
-    return salesTotals[0];
+    return Money.toDollars(getTaxesInCents());
   }
 
   public static float getServiceFee() {
-    return salesTotals[1];
+    return Money.toDollars(getServiceFeeInCents());
   }
 
   public static float getConvenienceFee() {
-    return salesTotals[2];
+    return Money.toDollars(getConvenienceFeeInCents());
   }
 
   public static float getCharityFee() {
-    return salesTotals[3];
+    return Money.toDollars(getCharityFeeInCents());
   }
 
-  // Setters
-  public static void setLargestEventID(int largestEventID) {
-    Database.largestEventID = largestEventID;
+  public static long getTaxesInCents() {
+    return salesTotals[0].sum();
   }
 
-  // Methods
-  public static void addTaxesCollected(float taxes) {
-    salesTotals[0] += taxes;
+  public static long getServiceFeeInCents() {
+    return salesTotals[1].sum();
   }
 
-  public static void addServiceFee(float serviceFee) {
-    salesTotals[1] += serviceFee;
+  public static long getConvenienceFeeInCents() {
+    return salesTotals[2].sum();
   }
 
-  public static void addConvenienceFee(float convenienceFee) {
-    salesTotals[2] += convenienceFee;
+  public static long getCharityFeeInCents() {
+    return salesTotals[3].sum();
   }
 
-  public static void addCharityFee(float charityFee) {
-    salesTotals[3] += charityFee;
+  /**
+   * Read all the totals at once. Purchases made while they are read may be
+   * partly counted, so the totals are only exact once purchases stop.
+   *
+   * @return long[] with the taxes, service, convenience and charity fees
+   *         collected in cents.
+   */
+  public static long[] getTotalsInCents() {
+    long[] totals = new long[salesTotals.length];
+    for (int i = 0; i < salesTotals.length; i++) {
+      totals[i] = salesTotals[i].sum();
+    }
+    return totals;
   }
 
-  public static void returnTaxes(float taxes) {
-    salesTotals[0] -= taxes;
+  // Setters
+  public static void setLargestEventID(int largestEventID) {
+    Database.largestEventID = largestEventID;
   }
 
-  public static void returnServiceFee(float serviceFee) {
-    salesTotals[1] -= serviceFee;
+  /**
+   * Overwrite the taxes and fees collected in cents, used when restoring them
+   * from a snapshot or a journal.
+   */
+  public static void setTotals(long taxes, long serviceFee, long convenienceFee, long charityFee) {
+    long[] totals = { taxes, serviceFee, convenienceFee, charityFee };
+    for (int i = 0; i < salesTotals.length; i++) {
+      salesTotals[i].reset();
+      salesTotals[i].add(totals[i]);
+    }
   }
 
-  public static void returnConvenienceFee(float convenienceFee) {
-    salesTotals[2] -= convenienceFee;
+  // Methods
+  /**
+   * Add the taxes and fees payed for ticket to the totals of its event and of
+   * TicketMiner. It must be called only once per ticket, when the ticket is
+   * saved.
+   * 
+   * @param ticket - Ticket with its fees set.
+   */
+  public static void collectFees(Ticket ticket) {
+    long convenienceFee = ticket.isConvenienceFeePaid() ? ticket.getConvenienceFeePayInCents() : 0;
+
+    ticket.getEvent().addFees(ticket.getTaxesPayInCents(), ticket.getServiceFeePayInCents(), convenienceFee,
+        ticket.getCharityFeePayInCents());
+    addFees(ticket.getTaxesPayInCents(), ticket.getServiceFeePayInCents(), convenienceFee,
+        ticket.getCharityFeePayInCents());
   }
 
-  public static void returnCharityFee(float charityFee) {
-    salesTotals[3] -= charityFee;
+  /**
+   * Take the taxes and fees of ticket out of the TicketMiner totals, used when
+   * they are given back to the customer.
+   * 
+   * @param ticket - Ticket with the fees to be returned.
+   */
+  public static void returnFees(Ticket ticket) {
+    long convenienceFee = ticket.isConvenienceFeePaid() ? ticket.getConvenienceFeePayInCents() : 0;
+
+    addFees(-ticket.getTaxesPayInCents(), -ticket.getServiceFeePayInCents(), -convenienceFee,
+        -ticket.getCharityFeePayInCents());
+  }
+
+  /**
+   * Take the taxes and fees of many tickets out of the TicketMiner totals at
+   * once, e.g., all the tickets of a cancellation batch. Negative amounts add
+   * them back.
+   */
+  public static void returnFees(long taxes, long serviceFee, long convenienceFee, long charityFee) {
+    addFees(-taxes, -serviceFee, -convenienceFee, -charityFee);
+  }
+
+  private static void addFees(long taxes, long serviceFee, long convenienceFee, long charityFee) {
+    salesTotals[0].add(taxes);
+    salesTotals[1].add(serviceFee);
+    salesTotals[2].add(convenienceFee);
+    salesTotals[3].add(charityFee);
   }
 
   /**
@@ -152,42 +314,106 @@ public class Database {
       return;
     }
 
-    events = new HashMap<>();
-    customers = new HashMap<>();
-    ticketsPurchased = new HashMap<>();
-    mapNamesToCustomerID = new HashMap<>();
-    mapNameToEventID = new HashMap<>();
-
     String filename = null;
     final String READ = "About to read ";
+    boolean restored = false;
+    int nChanges;
+
+    // Restore the previous run from its snapshot, csv files are only read if
+    // there is no snapshot or it couldn't be read
+    filename = getNewerFile("", SNAPSHOTFILENAME);
+    if (filename.length() > 0) {
+      clearDatabase();
+      Log.logWrite(Level.FINE, READ + filename + " to restore Events, venues, Customers and Tickets");
+      restored = Snapshot.read(filename);
+      if (!restored) {
+        System.out.println(filename + " couldn't be restored, the database would be populated from csv files.");
+      }
+    }
+    if (!restored) {
+      populateFromCSV();
+    }
+
+    // Redo the changes made after the last snapshot was written, e.g., if the
+    // previous run crashed
+    nChanges = Journal.replay(JOURNALFILENAME);
+    hasBeenPopulate = true;
+
+    // From now on every change is appended to the journal. Write a snapshot if
+    // the journal had changes, was cut, or the data came from csv files so the
+    // next replay starts from the current state
+    Journal.open(JOURNALFILENAME);
+    if (!restored || (nChanges != 0)) {
+      saveDatabase();
+    }
+  }
+
+  /**
+   * Ask for the events and customers csv files and populate the database with
+   * them and with the tickets of the previous run, if any.
+   */
+  private static void populateFromCSV() {
+    String eventsFilename = FileChooser.chooseFile("to populate events");
+    String customersFilename = FileChooser.chooseFile("to read customer information");
+
+    // Tickets would only be read if the software contain a file generated by a
+    // previous run
+    populateFromCSV(eventsFilename, customersFilename, getNewerFile("", TICKETFILENAME));
+  }
+
+  /**
+   * Empty the database and populate it with the csv files given.
+   * 
+   * @param eventsFilename    - String with the events and venues csv file.
+   * @param customersFilename - String with the customers csv file.
+   * @param ticketsFilename   - String with a tickets csv file written by
+   *                          WriteCSV.writeTicketsList(), null or empty if there
+   *                          are no tickets to read.
+   */
+  public static void populateFromCSV(String eventsFilename, String customersFilename, String ticketsFilename) {
+    final String READ = "About to read ";
+
+    clearDatabase();
 
     // Populate Events information
-    filename = FileChooser.chooseFile("to populate events");
-    Log.logWrite(Level.FINE, READ + filename + " to populate Events and venues");
-    ReadCSV.populateDatabase(filename, Event.class.getSimpleName());
+    Log.logWrite(Level.FINE, READ + eventsFilename + " to populate Events and venues");
+    ReadCSV.populateDatabase(eventsFilename, Event.class.getSimpleName());
     if (events.size() == 0) {
       System.out.println("File given don't contain the required minimum type of headers to create events.");
     }
 
     // Populate Customer information
-    filename = FileChooser.chooseFile("to read customer information");
-    Log.logWrite(Level.FINE, READ + filename + " to populate Customers.");
-    ReadCSV.populateDatabase(filename, Customer.class.getSimpleName());
+    Log.logWrite(Level.FINE, READ + customersFilename + " to populate Customers.");
+    ReadCSV.populateDatabase(customersFilename, Customer.class.getSimpleName());
     if (customers.size() == 0) {
       System.out.println("File given don't contain the required minimum type of headers to create customers.");
     }
 
-    // Populate Ticket information, would only read something if the software
-    // contain a file generated by a previous run
-    filename = getNewerFile("", TICKETFILENAME);
-    if (filename.length() > 0) {
-      Log.logWrite(Level.FINE, READ + filename + " to populate Tickets");
-      ReadCSV.populateDatabase(filename, Ticket.class.getName());
+    // Populate Ticket information
+    if ((ticketsFilename != null) && (ticketsFilename.length() > 0)) {
+      Log.logWrite(Level.FINE, READ + ticketsFilename + " to populate Tickets");
+      MappedTicketReader.populateDatabase(ticketsFilename);
     }
-
     hasBeenPopulate = true;
   }
 
+  /**
+   * Make all the database containers empty.
+   */
+  static void clearDatabase() {
+    events = new IDMap<>();
+    customers = new IDMap<>();
+    ticketsPurchased = new TicketStore();
+    customerIndex = new CustomerIndex();
+    mapNameToEventID = new ConcurrentHashMap<>();
+    eventIndex = new EventIndex();
+    eventNameIndex = new EventNameIndex();
+    seatHolds.stop();
+    seatHolds = new SeatHolds();
+    largestEventID = 0;
+    setTotals(0, 0, 0, 0);
+  }
+
   /**
    * Given two filenames, it returns the one that was written the last.
    * 
@@ -216,10 +442,23 @@ public class Database {
    * @param event - Event to be added into the database.
    */
   public static void addEvent(Event event) {
+    listEvent(event);
+    Journal.logEvent(event);
+    Journal.logTotals();
+  }
+
+  /**
+   * Put the event in the maps used to find events without writing the journal.
+   * 
+   * @param event - Event to be listed.
+   */
+  static void listEvent(Event event) {
     int id = event.getEventID();
 
     events.put(id, event); // Add event using the id as key
     mapNameToEventID.put(event.getName(), id); // Map event name with its ID
+    eventIndex.add(event);
+    eventNameIndex.add(id, event.getName());
   }
 
   /**
@@ -228,10 +467,25 @@ public class Database {
    * @param event - Event to be remove from database.
    */
   public static void removeEvent(Event event) {
+    unlistEvent(event);
+    Journal.logRemoveEvent(event.getEventID());
+    Journal.logTotals();
+  }
+
+  /**
+   * Take the event out of the maps used to find events without writing the
+   * journal, so no purchase can find it while it is being cancelled. See
+   * CancellationProcessor.
+   * 
+   * @param event - Event to be unlisted.
+   */
+  static void unlistEvent(Event event) {
     int id = event.getEventID();
 
     events.remove(id);
     mapNameToEventID.remove(event.getName());
+    eventIndex.remove(event);
+    eventNameIndex.remove(id);
   }
 
   /**
@@ -242,37 +496,95 @@ public class Database {
   public static void addCustomers(Customer customer) {
     int id = customer.getCustomerID();
 
-    customers.put(id, customer);
-    // Use first name concatenated with the last name for the key
-    mapNamesToCustomerID.put(customer.getUsername(), id);
+    Customer previous = customers.put(id, customer);
+    if ((previous != null) && (previous != customer)) {
+      customerIndex.remove(previous);
+    }
+    customerIndex.add(customer);
   }
 
   /**
    * Given a ticket we add it into ticketsPurchased with the ticket ID as key and
-   * the ticket itself as value.
+   * the ticket itself as value. If its event was cancelled while the seats were
+   * bought, the purchase is undone instead (see undoPurchase()).
    * 
    * @param ticket - Ticket to be added into the database, event and customer
    *               lists.
+   * @return true if the ticket was saved.
    */
-  public static void addTicket(Ticket ticket) {
+  public static boolean addTicket(Ticket ticket) {
     if (ticket == null) {
-      return;
+      return false;
     }
 
-    ticketsPurchased.put(ticket.getPurchaseID(), ticket);
     Event event = ticket.getEvent();
     Customer customer = ticket.getCustomer();
 
     // Add ticket to event, customer, and database if the purchase was successful.
     // Otherwise, log unsuccessful purchase.
-    if (ticket.getNumberOfSeatsPurchases() > 0) { // If seats were reserve
+    if (ticket.getNumberOfSeatsPurchases() == 0) { // No purchases made
+      Log.logWrite(Level.FINE, "No seats were purchased.");
+      return false;
+    }
+    // A cancellation close the sales of the event before planning its refunds, so
+    // the ticket is either saved before and refunded, or not saved at all
+    if (!event.beginSale()) {
+      undoPurchase(ticket, event, customer);
+      return false;
+    }
+    try {
+      if (events.get(event.getEventID()) != event) { // Removed meanwhile
+        undoPurchase(ticket, event, customer);
+        return false;
+      }
+      // Save ticket on data base first, it moves the ticket into the store before
+      // other threads can see it
+      ticketsPurchased.add(ticket);
+      collectFees(ticket); // Add taxes and fees to the event and TicketMiner totals
       event.addTicket(ticket); // Save ticket for the event
       customer.addTicketPurchased(ticket); // Save ticket for the customer
-      ticketsPurchased.put(ticket.getPurchaseID(), ticket); // Save ticket on data base
-      Log.logWrite(Level.INFO, "Seats reserved:\n" + ticket.getRecord());
-    } else { // No purchases made
-      Log.logWrite(Level.FINE, "No seats were purchased.");
+    } finally {
+      event.endSale();
+    }
+    Journal.logPurchase(ticket, event, customer);
+    Log.logWrite(Level.INFO, () -> "Seats reserved:\n" + ticket.getRecord());
+    return true;
+  }
+
+  /**
+   * Give back to the customer everything payed for a ticket that was not saved,
+   * with the membership savings, and give its seats back to the event.
+   */
+  private static void undoPurchase(Ticket ticket, Event event, Customer customer) {
+    long save = ticket.getDiscountInCents();
+
+    customer.refund(ticket.getTotalCostInCents(), save);
+    Journal.logCustomer(customer);
+    event.addTotalDiscounted(-save);
+    for (int i = 0; i < ticket.getNumberOfSeatsPurchases(); i++) {
+      event.releaseSeats(ticket.getSeatTypeOrdinal(i), 1);
     }
+    System.out.println("Event (event id: " + event.getEventID() + ") was cancelled, "
+        + Money.toString(ticket.getTotalCostInCents()) + " were given back to the customer.");
+    Log.logWrite(Level.WARNING, "Event " + event.getEventID() + " was cancelled before ticket "
+        + ticket.getPurchaseID() + " was saved, the purchase was undone.");
+  }
+
+  /**
+   * Add a ticket read from a previous run into the database, event and customer
+   * lists. Unlike addTicket(), nothing is logged per ticket since restores can
+   * have millions of them.
+   * 
+   * @param ticket - Ticket restored with at least one seat.
+   */
+  public static void restoreTicket(Ticket ticket) {
+    if ((ticket == null) || (ticket.getNumberOfSeatsPurchases() == 0)) {
+      return;
+    }
+
+    ticketsPurchased.add(ticket);
+    ticket.getEvent().addTicket(ticket);
+    ticket.getCustomer().addTicketPurchased(ticket);
   }
 
   /**
@@ -283,20 +595,29 @@ public class Database {
    * @param allFrom - String[] with class names to remove the ticket from them.
    */
   public static void removeTicket(Ticket ticket, String[] allFrom) {
-    int ticketID = ticket.getPurchaseID();
+    long ticketID = ticket.getPurchaseID();
 
     for (String from : allFrom) {
       switch (from) {
         case ("Event"):
-          ticket.getEvent().removeTicket(ticketID);
+          Event event = ticket.getEvent();
+          if (event != null) { // null if the event was cancelled
+            event.removeTicket(ticketID);
+          }
           break;
         case ("Customer"):
           ticket.getCustomer().removeTicket(ticketID);
           break;
         default:
       }
-      ticketsPurchased.remove(ticketID);
     }
+    ticketsPurchased.remove(ticket);
+
+    Journal.logRemoveTicket(ticketID);
+    if (events.containsKey(ticket.getEventID())) {
+      Journal.logEvent(ticket.getEvent());
+    }
+    Journal.logTotals();
   }
 
   /**
@@ -312,6 +633,20 @@ public class Database {
   public static void updateEventNameToIdMap(String oldName, String newName, int id) {
     mapNameToEventID.remove(oldName);
     mapNameToEventID.put(newName, id);
+    eventNameIndex.add(id, newName);
+  }
+
+  /**
+   * Move the event in the event index after its date, time or venue changed.
+   * Events that are not in the database are ignored.
+   * 
+   * @param event - Event that changed.
+   */
+  public static void updateEventIndex(Event event) {
+    EventIndex index = eventIndex;
+    if (index != null) {
+      index.update(event);
+    }
   }
 
   /**
@@ -325,12 +660,35 @@ public class Database {
   }
 
   /**
-   * Save all Event, Customer, and Ticket information into 3 different csv files.
+   * Save all Event, Customer, and Ticket information into a binary snapshot that
+   * is restored by the next populateDatabase() call. Changes keep being made
+   * while the snapshot is written, so only the journal records logged before it
+   * started are dropped once it is written.
+   * 
+   * @return true if the snapshot was written, false otherwise.
+   */
+  public static boolean saveDatabase() {
+    synchronized (saveLock) { // A journal mark is only valid until the next snapshot
+      long mark = Journal.mark();
+
+      if (!Snapshot.write(events.values(), customers.values(), ticketsPurchased.getTickets(), SNAPSHOTFILENAME)) {
+        System.err.println("Database snapshot couldn't be written, exporting csv files instead.");
+        exportDatabase();
+        return false;
+      }
+      Journal.truncate(mark);
+      return true;
+    }
+  }
+
+  /**
+   * Export all Event, Customer, and Ticket information into 3 different csv
+   * files.
    */
-  public static void saveDatabase() {
-    WriteCSV.writeEventList(events, NEWEVENTFILENAME);
-    WriteCSV.writeCustomerList(customers, NEWCUSTOMERFILENAME);
-    WriteCSV.writeTicketsList(ticketsPurchased, TICKETFILENAME);
+  public static void exportDatabase() {
+    WriteCSV.writeEventList(events.values(), NEWEVENTFILENAME);
+    WriteCSV.writeCustomerList(customers.values(), NEWCUSTOMERFILENAME);
+    WriteCSV.writeTicketsList(ticketsPurchased.getTickets(), TICKETFILENAME);
   }
 
   /**
@@ -346,6 +704,7 @@ public class Database {
 
     Log.logWrite(Level.FINE, "Writing new Customer, Event, and ticket lists.");
     saveDatabase();
+    Journal.close();
     Admin.movTicketSummary();
     Log.movLogs();
     STDINScanner.getInstance().close();
@@ -0,0 +1,208 @@
+package ticketmaster;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Dates read and write the date and time of events and tickets. Everywhere else
+ * they are kept as milliseconds since 1970, so an event or a ticket don't carry
+ * its own Calendar or date format.
+ *
+ * Dates are written as "MM/dd/yyyy hh:mm a" in the system time zone by one
+ * DateTimeFormatter shared by every thread. They are read by hand, one
+ * character at the time, since the csv files have thousands of them with the
+ * shape "M/d/yy h:mm a" and splitting them with a regex and a Calendar was most
+ * of the time spent loading tickets.
+ */
+public class Dates {
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy hh:mm a");
+  private static final ZoneId ZONE = ZoneId.systemDefault();
+  // Offset of the time zone if it never changes, e.g., UTC, or null if it have
+  // daylight saving time
+  private static final ZoneOffset FIXEDOFFSET = ZONE.getRules().isFixedOffset()
+      ? ZONE.getRules().getOffset(Instant.EPOCH)
+      : null;
+  private static final int[] DAYSINMONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+  private static final int DATEFIELDS = 3; // month, day, year
+  private static final int TIMEFIELDS = 2; // hour, minute
+
+  /**
+   * Dates is a static class, it can't be instantiated.
+   */
+  private Dates() {
+  }
+
+  // Methods
+  /**
+   * @param millis - long with milliseconds since 1970.
+   * @return String with the format "MM/dd/yyyy hh:mm a", e.g., "09/04/2022 06:00
+   *         PM".
+   */
+  public static String format(long millis) {
+    return FORMATTER.format(Instant.ofEpochMilli(millis).atZone(ZONE));
+  }
+
+  /**
+   * Read a date and time with the format "MM/dd/yyyy hh:mm a", the year can also
+   * be YY and the month, day and hour can have one digit, e.g., "9/4/22 6:00 PM".
+   *
+   * @param input - CharSequence with the date and time.
+   * @return long with the date and time in milliseconds since 1970.
+   * @throws IllegalArgumentException if input don't follow the format.
+   */
+  public static long parse(CharSequence input) {
+    int[] field = new int[DATEFIELDS + TIMEFIELDS];
+
+    readFields(input, field);
+    return toMillis(field[2], field[0], field[1], field[3], field[4], isPM(input));
+  }
+
+  /**
+   * @param millis - long with the date and time in milliseconds since 1970.
+   * @param date   - CharSequence with the format "MM/dd/yyyy" or "M/d/yy".
+   * @return long with millis moved to date at the same time of day.
+   * @throws IllegalArgumentException if date don't follow the format.
+   */
+  public static long withDate(long millis, CharSequence date) {
+    int[] field = new int[DATEFIELDS];
+    LocalDateTime current = toLocal(millis);
+
+    readFields(date, field);
+    return toMillis(field[2], field[0], field[1], current.getHour(), current.getMinute());
+  }
+
+  /**
+   * @param millis - long with the date and time in milliseconds since 1970.
+   * @param time   - CharSequence with the format "hh:mm a".
+   * @return long with millis at time on the same day.
+   * @throws IllegalArgumentException if time don't follow the format.
+   */
+  public static long withTime(long millis, CharSequence time) {
+    int[] field = new int[TIMEFIELDS];
+    LocalDateTime current = toLocal(millis);
+
+    readFields(time, field);
+    return toMillis(current.getYear(), current.getMonthValue(), current.getDayOfMonth(),
+        to24Hour(field[0], isPM(time)), field[1]);
+  }
+
+  /**
+   * Turn the numbers read from a date with the format "MM/dd/yyyy hh:mm a" into
+   * milliseconds since 1970. A year with two digits is taken as 20YY.
+   *
+   * @param year   - int with the year, YYYY or YY.
+   * @param month  - int with the month, starting with January at 1.
+   * @param day    - int with the day of the month.
+   * @param hour   - int with the hour between 1 and 12.
+   * @param minute - int with the minute.
+   * @param pm     - boolean true if the time is PM.
+   * @return long with the date and time in milliseconds since 1970.
+   * @throws IllegalArgumentException if a number is out of range.
+   */
+  public static long toMillis(int year, int month, int day, int hour, int minute, boolean pm) {
+    // The original csv files have year as YY so we make it YYYY
+    if (year < 100) {
+      year += 2000;
+    }
+    return toMillis(year, month, day, to24Hour(hour, pm), minute);
+  }
+
+  private static long toMillis(int year, int month, int day, int hour, int minute) {
+    if ((month < 1) || (month > 12) || (day < 1) || (day > daysInMonth(year, month))) {
+      throw new IllegalArgumentException(month + "/" + day + "/" + year + " is not a valid date.");
+    }
+    if ((hour < 0) || (hour > 23) || (minute < 0) || (minute > 59)) {
+      throw new IllegalArgumentException(hour + ":" + minute + " is not a valid time.");
+    }
+
+    if (FIXEDOFFSET == null) {
+      // When the clock goes back an hour take the second time, as Calendar did
+      return LocalDateTime.of(year, month, day, hour, minute).atZone(ZONE).withLaterOffsetAtOverlap().toInstant()
+          .toEpochMilli();
+    }
+    long seconds = epochDay(year, month, day) * 86400L + hour * 3600L + minute * 60L;
+    return (seconds - FIXEDOFFSET.getTotalSeconds()) * 1000L;
+  }
+
+  private static LocalDateTime toLocal(long millis) {
+    return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+  }
+
+  /**
+   * 12 AM is midnight and 12 PM is noon.
+   */
+  private static int to24Hour(int hour, boolean pm) {
+    if ((hour < 1) || (hour > 12)) {
+      throw new IllegalArgumentException(hour + " is not an hour between 1 and 12.");
+    }
+    return (hour % 12) + (pm ? 12 : 0);
+  }
+
+  /**
+   * Read the numbers of input into field, anything that is not a digit split
+   * them.
+   *
+   * @throws IllegalArgumentException if input don't have exactly field.length
+   *                                  numbers.
+   */
+  private static void readFields(CharSequence input, int[] field) {
+    int nField = 0;
+    boolean inNumber = false;
+    char c;
+
+    for (int i = 0; i < input.length(); i++) {
+      c = input.charAt(i);
+      if ((c >= '0') && (c <= '9')) {
+        if (nField == field.length) {
+          throw new IllegalArgumentException(input + " have too many numbers.");
+        }
+        field[nField] = field[nField] * 10 + (c - '0');
+        if (field[nField] > 9999) {
+          throw new IllegalArgumentException(input + " have a number that is too long.");
+        }
+        inNumber = true;
+      } else if (inNumber) {
+        nField++;
+        inNumber = false;
+      }
+    }
+    if (inNumber) {
+      nField++;
+    }
+    if (nField != field.length) {
+      throw new IllegalArgumentException(input + " don't follow the format MM/dd/yyyy hh:mm a.");
+    }
+  }
+
+  private static boolean isPM(CharSequence input) {
+    for (int i = input.length() - 1; i > 0; i--) {
+      char c = input.charAt(i);
+      if ((c == 'M') || (c == 'm')) {
+        c = input.charAt(i - 1);
+        return (c == 'P') || (c == 'p');
+      }
+    }
+    return false;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    boolean leap = ((year % 4) == 0) && (((year % 100) != 0) || ((year % 400) == 0));
+    return ((month == 2) && leap) ? 29 : DAYSINMONTH[month - 1];
+  }
+
+  /**
+   * @return long with the days from January 1st, 1970 to the date given.
+   */
+  private static long epochDay(int year, int month, int day) {
+    // Count the years from March so February 29th is the last day of the year
+    long y = (month <= 2) ? year - 1 : year;
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+}
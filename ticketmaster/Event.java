@@ -2,13 +2,8 @@ package ticketmaster;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Collection;
-import java.util.GregorianCalendar;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 
 /**
@@ -21,36 +16,40 @@ import java.util.logging.Level;
  * @date September 16th, 2022
  */
 public abstract class Event {
-  private final SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a");
-
   private int eventID;
   private String name;
-  private GregorianCalendar date;
+  private long date; // Date and time in milliseconds since 1970
   private String state;
   private int reservedSeats;
   private boolean fireworksPlanned;
   private int fireworksCost;
-  private LinkedHashMap<String, String[]> seatsInfo; // key = seatType | value[0] = num of seats available, value[1] =
-                                                     // price for each seat
-  private HashMap<Integer, Ticket> ticketsSold; // key = ticketID | value = Ticket that match the id
+  private SeatInventory seatsInfo; // num of seats available and price for each seat type
+  private IDMap<Ticket> ticketsSold; // key = ticketID | value = Ticket that match the id
+  // Seats sold and revenue of the tickets sold per seat type, index is the
+  // SeatTypes ordinal
+  private int[] seatsSold;
+  private long[] seatsRevenue; // In cents
   private Venue venue;
-  private float totalDiscounted;
-  // 0: taxes, 1: service, 2: convenience, 3: charity
-  private float[] salesTotals = new float[] { (float) 0.0, (float) 0.0, (float) 0.0, (float) 0.0 };
+  private long totalDiscounted; // In cents
+  // All in cents, 0: taxes, 1: service, 2: convenience, 3: charity
+  private long[] salesTotals = new long[] { 0, 0, 0, 0 };
+  // Purchases being saved hold the read lock, closing the sales wait for them
+  private final ReentrantReadWriteLock salesLock = new ReentrantReadWriteLock();
+  private volatile boolean salesClosed;
 
   /**
    * Constructor with all parameters.
    * 
    * @param eventID          - int with ID number identifier of the event
    * @param name             - String for name attribute
-   * @param date             - GregorianCalendar for date attribute which contains
-   *                         date and time information of the event
+   * @param date             - long with date and time of the event in
+   *                         milliseconds since 1970
    * @param fireworksPlanned - boolean to see if fireworks are planned during the
    *                         event
    * @param fireworksCost    - int with cost of fireworks if they are planned,
    *                         price should be 0.0 otherwise.
    */
-  protected Event(int eventID, String name, GregorianCalendar date, boolean fireworksPlanned, int fireworksCost) {
+  protected Event(int eventID, String name, long date, boolean fireworksPlanned, int fireworksCost) {
     this.eventID = eventID;
     this.name = name;
     this.date = date;
@@ -59,17 +58,21 @@ public abstract class Event {
     this.state = "Texas";
     this.fireworksPlanned = fireworksPlanned;
     this.fireworksCost = fireworksCost;
-    this.seatsInfo = new LinkedHashMap<>();
-    this.ticketsSold = new HashMap<>();
-    this.totalDiscounted = (float) 0.0;
+    this.seatsInfo = new SeatInventory();
+    this.ticketsSold = new IDMap<>(Runtime.getRuntime().availableProcessors());
+    this.seatsSold = new int[SeatTypes.count()];
+    this.seatsRevenue = new long[SeatTypes.count()];
+    this.totalDiscounted = 0;
   }
 
   /**
    * Constructor with no parameters. Initialize seatsInfo and ticketsSold.
    */
   protected Event() {
-    this.seatsInfo = new LinkedHashMap<>();
-    this.ticketsSold = new HashMap<>();
+    this.seatsInfo = new SeatInventory();
+    this.ticketsSold = new IDMap<>(Runtime.getRuntime().availableProcessors());
+    this.seatsSold = new int[SeatTypes.count()];
+    this.seatsRevenue = new long[SeatTypes.count()];
   }
 
   // Getters
@@ -82,7 +85,11 @@ public abstract class Event {
   }
 
   public String getDate() {
-    return sdf.format(date.getTime());
+    return Dates.format(date);
+  }
+
+  public long getDateInMillis() {
+    return date;
   }
 
   public String getState() {
@@ -101,20 +108,69 @@ public abstract class Event {
     return fireworksCost;
   }
 
-  private String[] getSeatTypeInfo(String type) {
-    if (seatsInfo.containsKey(type))
-      return seatsInfo.get(type);
-    return new String[0];
+  public SeatInventory getSeatInventory() {
+    return seatsInfo;
   }
 
   public float getSeatPrice(String type) {
-    String[] temp = getSeatTypeInfo(type);
-    return temp.length >= 2 ? Float.parseFloat(temp[1]) : (float) -1.0;
+    return seatsInfo.getPrice(SeatTypes.ordinalOf(type));
+  }
+
+  public long getSeatPriceInCents(String type) {
+    return seatsInfo.getPriceInCents(SeatTypes.ordinalOf(type));
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   */
+  public long getSeatPriceInCents(int seatType) {
+    return seatsInfo.getPriceInCents(seatType);
   }
 
   public int getNumberOfSeatsAvailable(String type) {
-    String[] temp = getSeatTypeInfo(type);
-    return temp.length >= 2 ? Integer.parseInt(temp[0]) : -1;
+    return seatsInfo.getSeats(SeatTypes.ordinalOf(type));
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   */
+  public int getNumberOfSeatsAvailable(int seatType) {
+    return seatsInfo.getSeats(seatType);
+  }
+
+  /**
+   * @param type - String with the type of seat, e.g., VIP, Gold, etc.
+   * @return int with the number of seats of type in the tickets sold.
+   */
+  public int getNumberOfSeatsSold(String type) {
+    return getNumberOfSeatsSold(SeatTypes.ordinalOf(type));
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   */
+  public synchronized int getNumberOfSeatsSold(int seatType) {
+    return ((seatType < 0) || (seatType >= seatsSold.length)) ? 0 : seatsSold[seatType];
+  }
+
+  /**
+   * @param type - String with the type of seat, e.g., VIP, Gold, etc.
+   * @return float with the sum of the price of the seats of type in the tickets
+   *         sold.
+   */
+  public float getSeatRevenue(String type) {
+    return Money.toDollars(getSeatRevenueInCents(type));
+  }
+
+  public long getSeatRevenueInCents(String type) {
+    return getSeatRevenueInCents(SeatTypes.ordinalOf(type));
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   */
+  public synchronized long getSeatRevenueInCents(int seatType) {
+    return ((seatType < 0) || (seatType >= seatsRevenue.length)) ? 0 : seatsRevenue[seatType];
   }
 
   public Collection<Ticket> getTickets() {
@@ -126,22 +182,42 @@ public abstract class Event {
   }
 
   public float getTotalDiscounted() {
-    return totalDiscounted;
+    return Money.toDollars(getTotalDiscountedInCents());
   }
 
   public float getTaxes() {
-    return salesTotals[0];
+    return Money.toDollars(getTaxesInCents());
   }
 
   public float getServiceFee() {
-    return salesTotals[1];
+    return Money.toDollars(getServiceFeeInCents());
   }
 
   public float getConvenienceFee() {
-    return salesTotals[2];
+    return Money.toDollars(getConvenienceFeeInCents());
   }
 
   public float getCharityFee() {
+    return Money.toDollars(getCharityFeeInCents());
+  }
+
+  public synchronized long getTotalDiscountedInCents() {
+    return totalDiscounted;
+  }
+
+  public synchronized long getTaxesInCents() {
+    return salesTotals[0];
+  }
+
+  public synchronized long getServiceFeeInCents() {
+    return salesTotals[1];
+  }
+
+  public synchronized long getConvenienceFeeInCents() {
+    return salesTotals[2];
+  }
+
+  public synchronized long getCharityFeeInCents() {
     return salesTotals[3];
   }
 
@@ -150,21 +226,25 @@ public abstract class Event {
     this.name = name;
   }
 
+  /**
+   * @param date - String with the format "MM/dd/yyyy", the time is not changed.
+   */
   public void setDate(String date) {
-    String[] tokens = date.split("/");
-    this.date.set(Calendar.MONTH, Integer.parseInt(tokens[0]));
-    this.date.set(Calendar.DAY_OF_MONTH, Integer.parseInt(tokens[1]));
-    this.date.set(Calendar.YEAR, Integer.parseInt(tokens[2]));
+    this.date = Dates.withDate(this.date, date);
+    Database.updateEventIndex(this);
+  }
+
+  public void setDateInMillis(long millis) {
+    this.date = millis;
+    Database.updateEventIndex(this);
   }
 
+  /**
+   * @param time - String with the format "hh:mm a", the date is not changed.
+   */
   public void setTime(String time) {
-    String[] tokens = time.split("[ :]");
-    int hour = Integer.parseInt(tokens[0]);
-    if (tokens[2].contains("PM") && hour != 12) {
-      hour += 12;
-    }
-    this.date.set(Calendar.HOUR_OF_DAY, hour);
-    this.date.set(Calendar.MINUTE, Integer.parseInt(tokens[1]));
+    this.date = Dates.withTime(this.date, time);
+    Database.updateEventIndex(this);
   }
 
   public void setFireworksPlanned(boolean fireworksPlanned) {
@@ -179,28 +259,21 @@ public abstract class Event {
     this.reservedSeats = reservedSeats;
   }
 
-  public void setSeatInfo(String type, int nSeats, float price) {
-    setSeatPrice(type, price);
+  public void setSeatInfo(String type, int nSeats, long priceInCents) {
+    setSeatPriceInCents(type, priceInCents);
     setNumSeats(type, nSeats);
   }
 
-  public void setTotalDiscounted(float totalDiscounted) {
+  /**
+   * Overwrite the discounts, taxes and fees collected, used when restoring them
+   * from a snapshot or a journal.
+   */
+  public synchronized void setTotalsInCents(long totalDiscounted, long taxes, long serviceFee,
+      long convenienceFee, long charityFee) {
     this.totalDiscounted = totalDiscounted;
-  }
-
-  public void setTaxes(float taxes) {
     salesTotals[0] = taxes;
-  }
-
-  public void setServiceFee(float serviceFee) {
     salesTotals[1] = serviceFee;
-  }
-
-  public void setConvenienceFee(float convenienceFee) {
     salesTotals[2] = convenienceFee;
-  }
-
-  public void setCharityFee(float charityFee) {
     salesTotals[3] = charityFee;
   }
 
@@ -212,9 +285,11 @@ public abstract class Event {
    * @param price - float with a float number representing the seat price.
    */
   public void setSeatPrice(String type, float price) {
-    if (seatsInfo.containsKey(type)) {
-      seatsInfo.get(type)[1] = String.valueOf(price);
-    } else {
+    setSeatPriceInCents(type, Money.toCents(price));
+  }
+
+  public void setSeatPriceInCents(String type, long priceInCents) {
+    if (!seatsInfo.setPriceInCents(SeatTypes.ordinalOf(type), priceInCents)) {
       System.err.println(type + " seat price couldn't be updated because type doesn't exist.");
       Log.logWrite(Level.WARNING, type + " seat price couldn't be updated because type doesn't exist.");
     }
@@ -228,9 +303,7 @@ public abstract class Event {
    * @param nSeats - String with an int number representing the number of seats.
    */
   public void setNumSeats(String type, int nSeats) {
-    if (seatsInfo.containsKey(type)) {
-      seatsInfo.get(type)[0] = String.valueOf(nSeats);
-    } else {
+    if (!seatsInfo.setSeats(SeatTypes.ordinalOf(type), nSeats)) {
       System.out.println(type + " number of seats couldn't be updated because it doesn't exist.");
       Log.logWrite(Level.WARNING, type + " number of seats couldn't be updated because type doesn't exist.");
     }
@@ -238,11 +311,138 @@ public abstract class Event {
 
   public void setVenue(Venue venue) {
     this.venue = venue;
+    Database.updateEventIndex(this);
   }
 
   // Methods
-  public void removeTicket(int ticketID) {
-    ticketsSold.remove(ticketID);
+  /**
+   * Take nSeats of the seat type only if there are enough available. The check
+   * and the update are made atomically so many customers can buy at once.
+   *
+   * @param type   - String with the type of seat, e.g., VIP, Gold, etc.
+   * @param nSeats - int with the number of seats wanted.
+   * @return true if the seats were reserved.
+   */
+  public boolean reserveSeats(String type, int nSeats) {
+    return reserveSeats(SeatTypes.ordinalOf(type), nSeats);
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   * @param nSeats   - int with the number of seats wanted.
+   * @return true if the seats were reserved.
+   */
+  public boolean reserveSeats(int seatType, int nSeats) {
+    if (salesClosed) {
+      return false;
+    }
+    return seatsInfo.takeSeats(seatType, nSeats);
+  }
+
+  /**
+   * Give back seats reserved by reserveSeats() if the purchase couldn't be
+   * completed.
+   *
+   * @param type   - String with the type of seat, e.g., VIP, Gold, etc.
+   * @param nSeats - int with the number of seats to give back.
+   */
+  public void releaseSeats(String type, int nSeats) {
+    releaseSeats(SeatTypes.ordinalOf(type), nSeats);
+  }
+
+  /**
+   * @param seatType - int with the SeatTypes ordinal of the seat type.
+   * @param nSeats   - int with the number of seats to give back.
+   */
+  public void releaseSeats(int seatType, int nSeats) {
+    seatsInfo.releaseSeats(seatType, nSeats);
+  }
+
+  /**
+   * Start saving a purchase of the event. closeSales() wait until endSale() is
+   * called, so a purchase is either saved before the event is closed or not
+   * saved at all.
+   *
+   * @return true if the event is still selling, endSale() must be called then.
+   *         false if its sales were closed.
+   */
+  public boolean beginSale() {
+    salesLock.readLock().lock();
+    if (salesClosed) {
+      salesLock.readLock().unlock();
+      return false;
+    }
+    return true;
+  }
+
+  public void endSale() {
+    salesLock.readLock().unlock();
+  }
+
+  /**
+   * Stop selling seats of the event, e.g., when it is being cancelled. Return
+   * once every purchase that was being saved is saved.
+   */
+  public void closeSales() {
+    salesLock.writeLock().lock();
+    try {
+      salesClosed = true;
+    } finally {
+      salesLock.writeLock().unlock();
+    }
+  }
+
+  public void reopenSales() {
+    salesClosed = false;
+  }
+
+  public synchronized void addTotalDiscounted(long discount) {
+    totalDiscounted += discount;
+  }
+
+  /**
+   * Add the taxes and fees payed for a ticket of this event, all in cents.
+   */
+  public synchronized void addFees(long taxes, long serviceFee, long convenienceFee, long charityFee) {
+    salesTotals[0] += taxes;
+    salesTotals[1] += serviceFee;
+    salesTotals[2] += convenienceFee;
+    salesTotals[3] += charityFee;
+  }
+
+  public void removeTicket(long ticketID) {
+    Ticket ticket = ticketsSold.remove(ticketID);
+    if (ticket != null) {
+      updateSeatsSold(ticket, -1);
+    }
+  }
+
+  /**
+   * Take a seat that was sold back out of the seats sold of the event, called
+   * when a seat is removed from a ticket of this event.
+   * 
+   * @param seat - Seat that was sold back.
+   */
+  public synchronized void removeSeatSold(Seat seat) {
+    updateSeatSold(seat.getSeatTypeOrdinal(), seat.getPriceInCents(), -1);
+  }
+
+  /**
+   * Add (sign = 1) or remove (sign = -1) all the seats of ticket from the seats
+   * sold.
+   */
+  private synchronized void updateSeatsSold(Ticket ticket, int sign) {
+    for (int i = 0; i < ticket.getNumberOfSeatsPurchases(); i++) {
+      updateSeatSold(ticket.getSeatTypeOrdinal(i), ticket.getSeatPriceInCents(i), sign);
+    }
+  }
+
+  private void updateSeatSold(int seatType, long priceInCents, int sign) {
+    // Seat types events don't sell are not counted
+    if (seatType < seatsSold.length) {
+      seatsSold[seatType] += sign;
+      seatsRevenue[seatType] += sign * priceInCents;
+    }
   }
 
   /**
@@ -257,14 +457,29 @@ public abstract class Event {
    * @param nSeats   - int with the number of seats to be added.
    */
   public void makeNSeatsByNum(String seatType, String price, int nSeats) {
-    // Add key if it didn't exist before
-    if (!seatsInfo.containsKey(seatType)) {
-      seatsInfo.put(seatType, new String[] { "0", price });
+    int idx = SeatTypes.ordinalOf(seatType);
+    if (idx < 0) {
+      System.out.println(seatType + " number of seats couldn't be updated because it doesn't exist.");
+      Log.logWrite(Level.WARNING, seatType + " number of seats couldn't be updated because type doesn't exist.");
+      return;
     }
+    makeNSeatsByNum(idx, Money.toCents(price), nSeats);
+  }
 
-    // Set number of available seats
-    setNumSeats(seatType, Integer.parseInt(seatsInfo.get(seatType)[0]) + nSeats); // Get previous number of seats +
-                                                                                  // nSeats
+  /**
+   * Same as makeNSeatsByNum() with the seat type and price already known.
+   * 
+   * @param seatType     - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents - long with the price of each seat in cents.
+   * @param nSeats       - int with the number of seats to be added.
+   */
+  public void makeNSeatsByNum(int seatType, long priceInCents, int nSeats) {
+    // Seat type is made with the price given if it didn't exist before
+    if (!seatsInfo.makeSeats(seatType, priceInCents, nSeats)) {
+      System.out.println("Seat type " + seatType + " number of seats couldn't be updated because it doesn't exist.");
+      Log.logWrite(Level.WARNING,
+          "Seat type " + seatType + " number of seats couldn't be updated because type doesn't exist.");
+    }
   }
 
   /**
@@ -277,20 +492,40 @@ public abstract class Event {
    * @param nSeats   - int with the number of seats to be added.
    */
   public void makeNSeatsByPct(String seatType, String price, int pct) {
+    makeNSeatsByNum(seatType, price, pctOfCapacity(pct));
+  }
+
+  /**
+   * Same as makeNSeatsByPct() with the seat type and price already known.
+   * 
+   * @param seatType     - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents - long with the price of each seat in cents.
+   * @param pct          - int with the percentage of the venue capacity.
+   */
+  public void makeNSeatsByPct(int seatType, long priceInCents, int pct) {
+    makeNSeatsByNum(seatType, priceInCents, pctOfCapacity(pct));
+  }
+
+  private int pctOfCapacity(int pct) {
     float p = pct;
     // Rescale from 0-100 to 0-1
     if (pct > 1)
       p /= 100;
-    makeNSeatsByNum(seatType, price, (int) (p * getVenue().getCapacity()));
+    return (int) (p * getVenue().getCapacity());
   }
 
   /**
-   * Save ticket given into our ticket sold list.
+   * Save ticket given into our ticket sold list and add its seats to the seats
+   * sold. If a ticket with the same ID was saved, its seats are taken out first.
    * 
    * @param ticket - Ticket that was made after purchase.
    */
   public void addTicket(Ticket ticket) {
-    this.ticketsSold.put(ticket.getPurchaseID(), ticket);
+    Ticket previous = this.ticketsSold.put(ticket.getPurchaseID(), ticket);
+    if (previous != null) {
+      updateSeatsSold(previous, -1);
+    }
+    updateSeatsSold(ticket, 1);
   }
 
   /**
@@ -305,17 +540,15 @@ public abstract class Event {
    * I'm assuming that all of the seats on the same category cost the same.
    */
   public void printSeatsOptions() {
-    String price;
-    String nSeats;
     int i = 0;
 
-    for (Map.Entry<String, String[]> entry : seatsInfo.entrySet()) {
-      // Don't print option if there are no more seats available
-      if (entry.getValue()[0].equals("0"))
+    for (int idx = 0; idx < SeatTypes.count(); idx++) {
+      // Don't print option if the seat type wasn't made or there are no more seats
+      // available
+      if (!seatsInfo.exists(idx) || (seatsInfo.getSeats(idx) == 0))
         continue;
-      nSeats = entry.getValue()[0];
-      price = entry.getValue()[1];
-      System.out.printf("%d. (%s): $%s, %s available.%n", ++i, entry.getKey(), price, nSeats);
+      System.out.printf("%d. (%s): $%s, %d available.%n", ++i, SeatTypes.nameOf(idx), seatsInfo.getPriceAsString(idx),
+          seatsInfo.getSeats(idx));
     }
   }
 
@@ -328,19 +561,10 @@ public abstract class Event {
    *         match.
    */
   public String getSeatOptionN(int option) {
-    String[] seatTypes = Database.getSeatTypes();
-
-    if ((option > seatTypes.length) || (option < 1))
+    if ((option > SeatTypes.count()) || (option < 1))
       return "";
 
-    for (String seatType : seatTypes) {
-      if (--option == 0)
-        return seatType;
-    }
-
-    // This point should never be reach
-    System.err.println("Something went wrong in getSeatOptionN()");
-    return "";
+    return SeatTypes.nameOf(option - 1);
   }
 
   /**
@@ -354,8 +578,8 @@ public abstract class Event {
     try {
       // Write header of csv file
       writer.append("Event ID,Event Type,Name,Date,Time,");
-      for (String seatType : Database.getSeatTypes()) {
-        writer.append(seatType + " Price," + seatType + " Num,");
+      for (int i = 0; i < SeatTypes.count(); i++) {
+        writer.append(SeatTypes.getPriceHeader(i) + "," + SeatTypes.getNumHeader(i) + ",");
       }
       writer.append("Reserved Extra Num,Fireworks Planned,Fireworks Cost,");
       Venue.writeCSVHeader(writer);
@@ -384,8 +608,11 @@ public abstract class Event {
       writer.append(temp[0] + ","); // MM/DD/YYY
       writer.append(temp[1] + " " + temp[2] + ","); // hh:mm and AM/PM
       // Print seat prices and number per type
-      for (String key : seatsInfo.keySet()) {
-        writer.append(getSeatPrice(key) + "," + getNumberOfSeatsAvailable(key) + ",");
+      for (int idx = 0; idx < seatsInfo.getNumberOfSeatTypes(); idx++) {
+        if (seatsInfo.exists(idx)) {
+          // Seats held are written as available, holds are not kept between runs
+          writer.append(seatsInfo.getPrice(idx) + "," + Database.getSeatHolds().getSeatsNotSold(this, idx) + ",");
+        }
       }
       writer.append(getHowManyReservedSeats() + ",");
       writer.append((areFireworksPlanned() ? "Yes" : "No") + ",");
@@ -393,7 +620,7 @@ public abstract class Event {
       venue.writeContentToCSV(writer);
       writer.append(",");
       Statistics.writeContentToCSV(writer, this);
-      writer.append("," + totalDiscounted);
+      writer.append("," + Money.toString(getTotalDiscountedInCents()));
       writer.append("\n");
     } catch (IOException e) {
       e.printStackTrace();
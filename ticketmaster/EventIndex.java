@@ -0,0 +1,205 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * EventIndex find events by date range, venue name and event type without
+ * going through every event. Events are kept sorted by date, and there is one
+ * more sorted map per venue name and per event type (Sport, Concert, Special),
+ * so a query like "events at Sun Bowl Stadium next weekend" only read the
+ * events it return.
+ *
+ * The index keep its own copy of the date, venue name and type every event was
+ * indexed with, so the event can be found and moved even after its date was
+ * changed. Database keep it up to date when events are added or removed and
+ * when the date, time or venue of an event that is in the Database change.
+ *
+ * Queries don't lock and can run while events are being indexed, changes are
+ * synchronized since they update more than one map.
+ */
+public class EventIndex {
+  private final ConcurrentSkipListMap<Key, Event> byDate = new ConcurrentSkipListMap<>();
+  // Lower case venue name as the key
+  private final ConcurrentHashMap<String, ConcurrentSkipListMap<Key, Event>> byVenue = new ConcurrentHashMap<>();
+  // Lower case class name, e.g., sport, as the key
+  private final ConcurrentHashMap<String, ConcurrentSkipListMap<Key, Event>> byType = new ConcurrentHashMap<>();
+  private final IDMap<Key> keys = new IDMap<>(); // key = eventID | value = Key the event was indexed with
+
+  /**
+   * Key order the events by date and then by ID, so events at the same time are
+   * all kept. It also point to the venue and type maps the event is in.
+   */
+  private static final class Key implements Comparable<Key> {
+    private final long date;
+    private final int eventID;
+    private final ConcurrentSkipListMap<Key, Event> venueEvents;
+    private final ConcurrentSkipListMap<Key, Event> typeEvents;
+
+    private Key(long date, int eventID, ConcurrentSkipListMap<Key, Event> venueEvents,
+        ConcurrentSkipListMap<Key, Event> typeEvents) {
+      this.date = date;
+      this.eventID = eventID;
+      this.venueEvents = venueEvents;
+      this.typeEvents = typeEvents;
+    }
+
+    /**
+     * @return Key before every event at date.
+     */
+    private static Key first(long date) {
+      return new Key(date, Integer.MIN_VALUE, null, null);
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      int cmp = Long.compare(date, other.date);
+      return (cmp != 0) ? cmp : Integer.compare(eventID, other.eventID);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return (other instanceof Key) && (compareTo((Key) other) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(date) * 31 + eventID;
+    }
+  }
+
+  // Getters
+  public int size() {
+    return byDate.size();
+  }
+
+  /**
+   * Find the events from a date to another in date order, optionally only the
+   * ones at a venue or of a type.
+   *
+   * @param venueName - String with the name of the venue, not case sensitive, or
+   *                  null for every venue.
+   * @param eventType - String with the type of event (Sport, Concert or
+   *                  Special), not case sensitive, or null for every type.
+   * @param from      - long with the first date wanted in milliseconds since
+   *                  1970.
+   * @param to        - long with the date after the last one wanted in
+   *                  milliseconds since 1970.
+   * @param limit     - int with the maximum number of events returned.
+   * @return List with the events found, empty if none match.
+   */
+  public List<Event> find(String venueName, String eventType, long from, long to, int limit) {
+    ArrayList<Event> found = new ArrayList<>();
+    NavigableMap<Key, Event> venueEvents = (venueName == null) ? null : getMap(byVenue, venueName);
+    NavigableMap<Key, Event> typeEvents = (eventType == null) ? null : getMap(byType, eventType);
+    NavigableMap<Key, Event> events;
+
+    if (from >= to) {
+      return found;
+    }
+    if (((venueName != null) && (venueEvents == null)) || ((eventType != null) && (typeEvents == null))) {
+      return found; // Nothing at that venue or of that type
+    }
+
+    // Go through the events of the venue and check their type, since venues have
+    // much fewer events than types
+    if (venueEvents != null) {
+      events = venueEvents;
+    } else if (typeEvents != null) {
+      events = typeEvents;
+    } else {
+      events = byDate;
+    }
+
+    for (Map.Entry<Key, Event> entry : events.subMap(Key.first(from), true, Key.first(to), false).entrySet()) {
+      if (found.size() >= limit) {
+        break;
+      }
+      if ((typeEvents == null) || (entry.getKey().typeEvents == typeEvents)) {
+        found.add(entry.getValue());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Same as find(venueName, eventType, from, to, limit) without a limit.
+   */
+  public List<Event> find(String venueName, String eventType, long from, long to) {
+    return find(venueName, eventType, from, to, Integer.MAX_VALUE);
+  }
+
+  // Methods
+  /**
+   * Index event, if an event with the same ID was indexed it is replaced.
+   *
+   * @param event - Event to be indexed.
+   */
+  public synchronized void add(Event event) {
+    Venue venue = event.getVenue();
+    Key key = new Key(event.getDateInMillis(), event.getEventID(),
+        (venue == null) ? null : getOrMakeMap(byVenue, venue.getName()),
+        getOrMakeMap(byType, event.getClass().getSimpleName()));
+
+    remove(event.getEventID());
+    keys.put(key.eventID, key);
+    byDate.put(key, event);
+    if (key.venueEvents != null) {
+      key.venueEvents.put(key, event);
+    }
+    key.typeEvents.put(key, event);
+  }
+
+  /**
+   * Index event again after its date, time or venue changed. Events that are not
+   * indexed, e.g., an event being made or a copy of an indexed event, are
+   * ignored.
+   *
+   * @param event - Event that changed.
+   */
+  public synchronized void update(Event event) {
+    Key key = keys.get(event.getEventID());
+    if ((key != null) && (byDate.get(key) == event)) {
+      add(event);
+    }
+  }
+
+  /**
+   * @param event - Event to take out of the index.
+   */
+  public synchronized void remove(Event event) {
+    remove(event.getEventID());
+  }
+
+  private void remove(int eventID) {
+    Key key = keys.remove(eventID);
+    if (key == null) {
+      return;
+    }
+    byDate.remove(key);
+    if (key.venueEvents != null) {
+      key.venueEvents.remove(key);
+    }
+    key.typeEvents.remove(key);
+  }
+
+  private static ConcurrentSkipListMap<Key, Event> getOrMakeMap(
+      ConcurrentHashMap<String, ConcurrentSkipListMap<Key, Event>> groups, String group) {
+    ConcurrentSkipListMap<Key, Event> events = groups.get(toKey(group));
+    return (events != null) ? events : groups.computeIfAbsent(toKey(group), k -> new ConcurrentSkipListMap<>());
+  }
+
+  private static NavigableMap<Key, Event> getMap(ConcurrentHashMap<String, ConcurrentSkipListMap<Key, Event>> groups,
+      String group) {
+    return groups.get(toKey(group));
+  }
+
+  private static String toKey(String name) {
+    return name.trim().toLowerCase(Locale.ROOT);
+  }
+}
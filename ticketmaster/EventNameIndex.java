@@ -0,0 +1,387 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * EventNameIndex find events by part of their name, e.g., "UTEP Foot" or "utep
+ * footbal 1", so users don't have to type the exact name of the event.
+ *
+ * Names are split into lower case words (anything that is not a letter or a
+ * digit split them) and every word point to the sorted IDs of the events that
+ * have it. A word of the search match a word of the name if it is the same
+ * word, the start of it, or, for words of 4 letters or more, the same or the
+ * start of it with a typo or two (one edit up to 7 letters, two after that).
+ * The words are kept sorted so the words starting with a prefix are next to
+ * each other, while typos are found by going through the words with letters,
+ * the numbers of the names are never taken as typos.
+ *
+ * Every event found must match all the words searched. They are ranked by:
+ * the exact name first, then by how close their words are (same word, then
+ * start of a word, then typos), then by the shortest name and the ID.
+ *
+ * Searches share a read lock and changes take the write lock, since a change
+ * update the IDs of many words.
+ */
+public class EventNameIndex {
+  // Cost of a word of the search matching a word of the name
+  private static final int SAMEWORD = 0;
+  private static final int PREFIX = 1;
+  private static final int TYPO = 2; // Per edit, plus 1 if it is only the start of the word
+  private static final int NOMATCH = -1;
+  private static final int MINTYPOLENGTH = 4; // Shorter words must match without typos
+  private static final int TWOTYPOLENGTH = 8; // Words this long can have two typos
+
+  private final TreeMap<String, IDSet> words = new TreeMap<>(); // key = word | value = events with the word
+  private final TreeMap<String, IDSet> letterWords = new TreeMap<>(); // The words with a letter, checked for typos
+  private final IDMap<String[]> names = new IDMap<>(); // key = eventID | value = words of the name
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * IDSet keep the IDs of the events that have a word in ascending order.
+   */
+  private static final class IDSet {
+    private int[] ids = new int[1];
+    private int size = 0;
+
+    private void add(int id) {
+      int idx = (size == 0 || ids[size - 1] < id) ? size : Arrays.binarySearch(ids, 0, size, id);
+      if (idx >= 0 && idx < size) {
+        return; // Already in
+      }
+      idx = (idx < 0) ? -(idx + 1) : idx;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, idx, ids, idx + 1, size - idx);
+      ids[idx] = id;
+      size++;
+    }
+
+    private void remove(int id) {
+      int idx = Arrays.binarySearch(ids, 0, size, id);
+      if (idx >= 0) {
+        System.arraycopy(ids, idx + 1, ids, idx, size - idx - 1);
+        size--;
+      }
+    }
+  }
+
+  /**
+   * Match is an event found with the cost of its words.
+   */
+  private static final class Match {
+    private final int eventID;
+    private final int cost;
+    private final String[] name;
+
+    private Match(int eventID, int cost, String[] name) {
+      this.eventID = eventID;
+      this.cost = cost;
+      this.name = name;
+    }
+  }
+
+  // Best match first
+  private static final Comparator<Match> RANK = Comparator.<Match>comparingInt(m -> m.cost)
+      .thenComparingInt(m -> m.name.length)
+      .thenComparingInt(m -> m.eventID);
+
+  // Getters
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Find the events whose name best match text.
+   *
+   * @param text  - String with part of the name of an event, e.g., "UTEP Foot".
+   * @param limit - int with the maximum number of event IDs returned.
+   * @return int[] with the IDs of the events found, best match first, empty if
+   *         none match.
+   */
+  public int[] find(String text, int limit) {
+    String[] search = split(text);
+    PriorityQueue<Match> best = new PriorityQueue<>(RANK.reversed());
+    Match[] found;
+
+    if (search.length == 0 || limit <= 0) {
+      return new int[0];
+    }
+
+    lock.readLock().lock();
+    try {
+      // Words of the names matched by any word of the search and their cost for
+      // every word of the search, NOMATCH if that word don't match it
+      HashMap<String, int[]> costs = new HashMap<>();
+      int driver = 0; // Word of the search with the fewest events, only its events are checked
+      ArrayList<String> driverWords = null; // Words matched by the driver
+      long fewest = Long.MAX_VALUE;
+      int[] lowest = new int[search.length];
+
+      for (int i = 0; i < search.length; i++) {
+        HashMap<String, Integer> match = matchWord(search[i]);
+        long nEvents = 0;
+        if (match.isEmpty()) {
+          return new int[0];
+        }
+        for (Map.Entry<String, Integer> entry : match.entrySet()) {
+          int[] cost = costs.get(entry.getKey());
+          if (cost == null) {
+            cost = new int[search.length];
+            Arrays.fill(cost, NOMATCH);
+            costs.put(entry.getKey(), cost);
+          }
+          cost[i] = entry.getValue();
+          nEvents += words.get(entry.getKey()).size;
+        }
+        if (nEvents < fewest) {
+          fewest = nEvents;
+          driverWords = new ArrayList<>(match.keySet());
+          driver = i;
+        }
+      }
+
+      // An event is checked once, from the first word of its name that match the
+      // driver
+      for (String word : driverWords) {
+        IDSet events = words.get(word);
+        for (int i = 0; i < events.size; i++) {
+          String[] name = names.get(events.ids[i]);
+          int cost = (name == null) ? NOMATCH : cost(search, name, driver, word, costs, lowest);
+          if (cost == NOMATCH) {
+            continue;
+          }
+          Match match = new Match(events.ids[i], cost, name);
+          if (best.size() < limit) {
+            best.add(match);
+          } else if (RANK.compare(match, best.peek()) < 0) {
+            best.poll();
+            best.add(match);
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    found = best.toArray(new Match[0]);
+    Arrays.sort(found, RANK);
+    int[] ids = new int[found.length];
+    for (int i = 0; i < found.length; i++) {
+      ids[i] = found[i].eventID;
+    }
+    return ids;
+  }
+
+  // Methods
+  /**
+   * Index the name of an event, if the event was indexed with another name that
+   * name is replaced.
+   *
+   * @param eventID - int with the ID of the event.
+   * @param name    - String with the name of the event.
+   */
+  public void add(int eventID, String name) {
+    String[] split = split(name);
+
+    lock.writeLock().lock();
+    try {
+      remove(eventID);
+      for (int i = 0; i < split.length; i++) {
+        IDSet events = words.get(split[i]);
+        if (events == null) {
+          events = new IDSet();
+          words.put(split[i], events);
+          if (hasLetter(split[i])) {
+            letterWords.put(split[i], events);
+          }
+        } else {
+          split[i] = words.ceilingKey(split[i]); // Share the String of the word
+        }
+        events.add(eventID);
+      }
+      names.put(eventID, split);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @param eventID - int with the ID of the event to take out of the index.
+   */
+  public void remove(int eventID) {
+    lock.writeLock().lock();
+    try {
+      String[] name = names.remove(eventID);
+      if (name == null) {
+        return;
+      }
+      for (String word : name) {
+        IDSet events = words.get(word);
+        if (events != null) {
+          events.remove(eventID);
+          if (events.size == 0) {
+            words.remove(word);
+            letterWords.remove(word);
+          }
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return HashMap with the words of the names that match search and their
+   *         cost, the same word, the words starting with it, and the words
+   *         with typos.
+   */
+  private HashMap<String, Integer> matchWord(String search) {
+    HashMap<String, Integer> match = new HashMap<>();
+    int maxTypos = (search.length() < MINTYPOLENGTH) ? 0 : (search.length() < TWOTYPOLENGTH) ? 1 : 2;
+
+    for (String word : words.subMap(search, true, search + Character.MAX_VALUE, false).keySet()) {
+      match.put(word, word.length() == search.length() ? SAMEWORD : PREFIX);
+    }
+    if (maxTypos > 0) {
+      int[] previous = new int[search.length() + maxTypos + 1];
+      int[] current = new int[previous.length];
+      for (String word : letterWords.keySet()) {
+        if (word.length() >= search.length() - maxTypos && !match.containsKey(word)) {
+          int cost = typoCost(search, word, maxTypos, previous, current);
+          if (cost >= 0) {
+            match.put(word, cost);
+          }
+        }
+      }
+    }
+    return match;
+  }
+
+  /**
+   * Count the edits (a letter added, removed or changed) from search to the
+   * start of word with the fewest edits.
+   *
+   * @return int with the cost of the typos, or -1 if word need more than
+   *         maxTypos edits.
+   */
+  private static int typoCost(String search, String word, int maxTypos, int[] previous, int[] current) {
+    int m = search.length();
+    int n = Math.min(word.length(), m + maxTypos); // A longer start of word can't be closer
+    int[] row;
+
+    for (int j = 0; j <= n; j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= m; i++) {
+      int rowMin = current[0] = i;
+      char c = search.charAt(i - 1);
+      for (int j = 1; j <= n; j++) {
+        int edit = previous[j - 1] + ((c == word.charAt(j - 1)) ? 0 : 1);
+        edit = Math.min(edit, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = edit;
+        rowMin = Math.min(rowMin, edit);
+      }
+      if (rowMin > maxTypos) {
+        return -1;
+      }
+      row = previous;
+      previous = current;
+      current = row;
+    }
+
+    int typos = Integer.MAX_VALUE;
+    for (int j = 0; j <= n; j++) {
+      typos = Math.min(typos, previous[j]);
+    }
+    if (typos > maxTypos) {
+      return -1;
+    }
+    // Typos in the whole word cost less than typos in its start
+    boolean wholeWord = (word.length() == n) && (previous[n] == typos);
+    return TYPO * typos + (wholeWord ? 0 : 1);
+  }
+
+  /**
+   * @param driver     - int with the word of the search the name was found by.
+   * @param driverWord - String with the word of the driver the name was found
+   *                   by, names with an earlier word matching the driver are
+   *                   skipped since they are checked from that word.
+   * @param lowest     - int[] with a place for every word of the search.
+   * @return int with the cost of name matching search, the lowest cost of every
+   *         word of the search added, NOMATCH if a word of the search don't
+   *         match the name. Only the exact name cost 0.
+   */
+  private static int cost(String[] search, String[] name, int driver, String driverWord,
+      Map<String, int[]> costs, int[] lowest) {
+    int total = 0;
+    boolean foundDriver = false;
+
+    Arrays.fill(lowest, Integer.MAX_VALUE);
+    for (String word : name) {
+      int[] cost = costs.get(word);
+      if (cost == null) {
+        continue;
+      }
+      if (!foundDriver && cost[driver] != NOMATCH) {
+        if (!word.equals(driverWord)) {
+          return NOMATCH;
+        }
+        foundDriver = true;
+      }
+      for (int i = 0; i < search.length; i++) {
+        if (cost[i] != NOMATCH && cost[i] < lowest[i]) {
+          lowest[i] = cost[i];
+        }
+      }
+    }
+    for (int i = 0; i < search.length; i++) {
+      if (lowest[i] == Integer.MAX_VALUE) {
+        return NOMATCH;
+      }
+      total += lowest[i];
+    }
+    // Keep 0 for the exact name
+    return Arrays.equals(search, name) ? 0 : total + 1;
+  }
+
+  /**
+   * @return String[] with the lower case words of text.
+   */
+  private static String[] split(String text) {
+    ArrayList<String> split = new ArrayList<>();
+    int start = -1;
+
+    if (text == null) {
+      return new String[0];
+    }
+    text = text.toLowerCase(Locale.ROOT);
+    for (int i = 0; i <= text.length(); i++) {
+      boolean inWord = (i < text.length()) && Character.isLetterOrDigit(text.charAt(i));
+      if (inWord && start < 0) {
+        start = i;
+      } else if (!inWord && start >= 0) {
+        split.add(text.substring(start, i));
+        start = -1;
+      }
+    }
+    return split.toArray(new String[0]);
+  }
+
+  private static boolean hasLetter(String word) {
+    for (int i = 0; i < word.length(); i++) {
+      if (Character.isLetter(word.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -11,6 +11,10 @@ public class Fees {
   private static final float CONVENIENCEFEE = ((float) 2.5); // Convenience fee is of $2.5
   private static final float SERVICEFEE = ((float) 0.005); // Service fee is of 0.5%
   private static final float CHARITYFEE = ((float) 0.0075); // Charity fee is of 0.75%
+  // Same fees in cents and basis points, used to charge them exactly
+  private static final long CONVENIENCEFEEINCENTS = 250;
+  private static final long SERVICEFEEINBASISPOINTS = 50;
+  private static final long CHARITYFEEINBASISPOINTS = 75;
 
   private Fees() {
   }
@@ -26,4 +30,16 @@ public class Fees {
   public static float getCharityFee() {
     return CHARITYFEE;
   }
+
+  public static long getConvenienceFeeInCents() {
+    return CONVENIENCEFEEINCENTS;
+  }
+
+  public static long getServiceFeeInBasisPoints() {
+    return SERVICEFEEINBASISPOINTS;
+  }
+
+  public static long getCharityFeeInBasisPoints() {
+    return CHARITYFEEINBASISPOINTS;
+  }
 }
@@ -0,0 +1,288 @@
+package ticketmaster;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+
+/**
+ * HeadlessRunner load the Database from the csv files given as arguments, run
+ * the auto purchase files given, cancel the events given, optionally serve
+ * requests over HTTP (see RequestServer) and save the Database without using any
+ * window, so the system can run on servers without a display. The time taken
+ * by every phase is printed at the end.
+ *
+ * Arguments:
+ * --events FILE Events and venues csv file (required).
+ * --customers FILE Customers csv file (required).
+ * --tickets FILE Tickets csv file written by a previous run.
+ * --purchases FILE Auto purchase csv file, it can be given many times.
+ * --cancel ID[,ID...] Events to be cancelled together after the purchases, it
+ * can be given many times.
+ * --serve PORT Serve the HTTP API on localhost:PORT (0 for any free port)
+ * after the purchases and cancellations, until POST /shutdown or the program
+ * is stopped, e.g., with Ctrl-C. The Database is saved after.
+ * --threads N Threads used for auto purchases, refunds and requests, by
+ * default the number of cores.
+ * --save snapshot|csv|none How to save the Database, snapshot by default.
+ * --log LEVEL Lowest level written to the loggers (e.g. INFO, OFF), ALL by
+ * default.
+ * --quiet Don't print the messages of every purchase.
+ */
+public class HeadlessRunner {
+  private String eventsFilename = null;
+  private String customersFilename = null;
+  private String ticketsFilename = null;
+  private ArrayList<String> purchasesFilenames = new ArrayList<>();
+  private ArrayList<int[]> cancellations = new ArrayList<>(); // Event IDs cancelled together
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int port = -1; // No server if it is negative
+  private final CountDownLatch finished = new CountDownLatch(1); // All phases were run
+  private String save = "snapshot";
+  private boolean quiet = false;
+  private ArrayList<String> phases = new ArrayList<>();
+  private ArrayList<Long> phaseNanos = new ArrayList<>();
+
+  private HeadlessRunner() {
+  }
+
+  /**
+   * @param args - String[] with the arguments given to the program.
+   * @return true if args ask for the headless mode.
+   */
+  public static boolean isHeadless(String[] args) {
+    return args.length > 0;
+  }
+
+  /**
+   * Parse args and run load, auto purchases, cancellations, the request server
+   * and save.
+   *
+   * @param args - String[] with the arguments given to the program.
+   * @return int with the exit status, 0 if everything was run.
+   */
+  public static int run(String[] args) {
+    HeadlessRunner runner = new HeadlessRunner();
+
+    if (!runner.parseArguments(args)) {
+      printUsage();
+      return 2;
+    }
+    return runner.runPhases();
+  }
+
+  private static void printUsage() {
+    System.err.println("Usage: java Ticketmaster --events FILE --customers FILE [--tickets FILE]"
+        + " [--purchases FILE]... [--cancel ID[,ID...]]... [--serve PORT] [--threads N] [--save snapshot|csv|none] [--log LEVEL] [--quiet]");
+  }
+
+  /**
+   * @param args - String[] with the arguments given to the program.
+   * @return true if all the arguments were valid and the required ones were
+   *         given.
+   */
+  private boolean parseArguments(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      String option = args[i];
+
+      if (option.equals("--quiet")) {
+        quiet = true;
+        continue;
+      }
+      if (i + 1 == args.length) {
+        System.err.println(option + " is missing its value.");
+        return false;
+      }
+
+      String value = args[++i];
+      switch (option) {
+        case ("--events"):
+          eventsFilename = value;
+          break;
+        case ("--customers"):
+          customersFilename = value;
+          break;
+        case ("--tickets"):
+          ticketsFilename = value;
+          break;
+        case ("--purchases"):
+          purchasesFilenames.add(value);
+          break;
+        case ("--cancel"):
+          String[] ids = value.split(",");
+          int[] eventIDs = new int[ids.length];
+          try {
+            for (int j = 0; j < ids.length; j++) {
+              eventIDs[j] = Integer.parseInt(ids[j].trim());
+            }
+          } catch (NumberFormatException e) {
+            System.err.println(value + " is not a valid list of event IDs.");
+            return false;
+          }
+          cancellations.add(eventIDs);
+          break;
+        case ("--serve"):
+          try {
+            port = Integer.parseInt(value);
+          } catch (NumberFormatException e) {
+            port = -2;
+          }
+          if ((port < 0) || (port > 65535)) {
+            System.err.println(value + " is not a valid port.");
+            return false;
+          }
+          break;
+        case ("--threads"):
+          try {
+            threads = Integer.parseInt(value);
+          } catch (NumberFormatException e) {
+            System.err.println(value + " is not a valid number of threads.");
+            return false;
+          }
+          break;
+        case ("--save"):
+          if (!value.equals("snapshot") && !value.equals("csv") && !value.equals("none")) {
+            System.err.println(value + " is not a valid way to save the database.");
+            return false;
+          }
+          save = value;
+          break;
+        case ("--log"):
+          try {
+            Log.setLevel(Level.parse(value.toUpperCase()));
+          } catch (IllegalArgumentException e) {
+            System.err.println(value + " is not a valid log level.");
+            return false;
+          }
+          break;
+        default:
+          System.err.println(option + " is not a valid option.");
+          return false;
+      }
+    }
+
+    if ((eventsFilename == null) || (customersFilename == null)) {
+      System.err.println("--events and --customers are required.");
+      return false;
+    }
+    return true;
+  }
+
+  private int runPhases() {
+    PrintStream stdout = System.out;
+    int status = 0;
+    long start;
+    long total = System.nanoTime();
+
+    if (quiet) {
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    try {
+      start = System.nanoTime();
+      Database.populateFromCSV(eventsFilename, customersFilename, ticketsFilename);
+      addPhase("Load", start);
+
+      for (String filename : purchasesFilenames) {
+        start = System.nanoTime();
+        AutoPurchaseProcessor.Report report = AutoPurchaseProcessor.process(filename, threads);
+        addPhase("Purchases " + filename, start);
+        if (report == null) {
+          status = 1;
+        } else {
+          stdout.println(filename + ": " + report);
+        }
+      }
+
+      for (int[] eventIDs : cancellations) {
+        start = System.nanoTime();
+        CancellationProcessor.Report report = CancellationProcessor.cancel(eventIDs, threads);
+        addPhase("Cancel events " + eventIDs.length, start);
+        if (!report.isCommitted()) {
+          status = 1;
+        }
+        stdout.println("Cancel " + eventIDs.length + " events: " + report);
+      }
+
+      if (port >= 0) {
+        start = System.nanoTime();
+        if (!serve(stdout)) {
+          status = 1;
+        }
+        addPhase("Serve", start);
+      }
+
+      start = System.nanoTime();
+      if (save.equals("snapshot")) {
+        if (!Database.saveDatabase()) {
+          status = 1;
+        }
+      } else if (save.equals("csv")) {
+        Database.exportDatabase();
+      }
+      addPhase("Save (" + save + ")", start);
+    } finally {
+      System.setOut(stdout);
+      finished.countDown();
+    }
+    addPhase("Total", total);
+
+    System.out.printf("%d events, %d customers, %d tickets%n", Database.getNumberOfEvents(),
+        Database.getNumberOfCustomers(), Database.getNumberOfTickets());
+    for (int i = 0; i < phases.size(); i++) {
+      System.out.printf("%-40s %10.1f ms%n", phases.get(i), phaseNanos.get(i) / 1e6);
+    }
+    Log.logWrite(Level.INFO, "Headless run finished with status " + status);
+    return status;
+  }
+
+  /**
+   * Serve requests until the server is stopped. If the program is stopped while
+   * serving, the server is stopped and the program waits for the Database to be
+   * saved before it ends.
+   *
+   * @param stdout - PrintStream to tell where the server is listening.
+   * @return true if the server could be started.
+   */
+  private boolean serve(PrintStream stdout) {
+    RequestServer server;
+
+    try {
+      server = RequestServer.start(port, threads);
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
+      return false;
+    }
+    stdout.println("Serving on http://localhost:" + server.getPort() + "/ until POST /shutdown or Ctrl-C");
+
+    Thread hook = new Thread(() -> {
+      server.stop();
+      try {
+        finished.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "RequestServerShutdown");
+    Runtime.getRuntime().addShutdownHook(hook);
+    try {
+      server.awaitStop();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      server.stop();
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(hook);
+    } catch (IllegalStateException e) {
+      // The program is being stopped, the hook waits until the phases are done
+    }
+    return true;
+  }
+
+  private void addPhase(String phase, long start) {
+    phases.add(phase);
+    phaseNanos.add(System.nanoTime() - start);
+  }
+}
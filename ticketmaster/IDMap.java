@@ -0,0 +1,331 @@
+package ticketmaster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * IDMap map the IDs of the system (event, customer and purchase IDs) to their
+ * objects. The keys are kept as primitive longs in an open addressing table
+ * with linear probing, so a lookup don't box the ID and an element cost a slot
+ * in two arrays instead of a Map.Entry node plus an Integer or Long.
+ *
+ * The table is split into segments, each with its own StampedLock. put() and
+ * remove() take the write lock of one segment, while get() read the table
+ * without locking and only take the read lock if a write happened at the same
+ * time. Removed keys are shifted back into place, so there are no deleted
+ * markers slowing down the lookups.
+ *
+ * values() return a copy in ascending key order, so the map can be changed
+ * while the copy is used, e.g., removing the tickets of an event while they are
+ * refunded.
+ */
+public class IDMap<V> {
+  private static final long[] EMPTYKEYS = new long[0];
+  private static final Object[] EMPTYVALUES = new Object[0];
+  private static final int MINCAPACITY = 8; // Must be a power of 2
+
+  private final Segment[] segments;
+  private final int segmentMask;
+
+  /**
+   * Segment is a table with its own lock. Key 0 mark a free slot, so the value
+   * of the key 0 is kept aside.
+   */
+  @SuppressWarnings("serial")
+  private static final class Segment extends StampedLock {
+    private long[] keys = EMPTYKEYS;
+    private Object[] values = EMPTYVALUES;
+    private int size = 0; // Number of keys in the table, not counting key 0
+    private Object zeroValue = null;
+
+    /**
+     * Can be called without the lock if the result is validated, so it never
+     * loops forever or go out of bounds while the table is being changed.
+     */
+    private Object find(long key, int hash) {
+      if (key == 0) {
+        return zeroValue;
+      }
+      long[] ks = keys;
+      Object[] vs = values;
+      if (ks.length != vs.length) {
+        return null; // Being resized
+      }
+      int mask = ks.length - 1;
+      int idx = hash & mask;
+      for (int i = 0; i < ks.length; i++) {
+        long k = ks[idx];
+        if (k == key) {
+          return vs[idx];
+        } else if (k == 0) {
+          return null;
+        }
+        idx = (idx + 1) & mask;
+      }
+      return null;
+    }
+
+    private Object put(long key, int hash, Object value) {
+      Object previous;
+
+      if (key == 0) {
+        previous = zeroValue;
+        zeroValue = value;
+        return previous;
+      }
+      if ((size + 1) * 4L > keys.length * 3L) { // Keep the table at most 3/4 full
+        resize(Math.max(MINCAPACITY, keys.length * 2));
+      }
+
+      int mask = keys.length - 1;
+      int idx = hash & mask;
+      while (keys[idx] != 0) {
+        if (keys[idx] == key) {
+          previous = values[idx];
+          values[idx] = value;
+          return previous;
+        }
+        idx = (idx + 1) & mask;
+      }
+      keys[idx] = key;
+      values[idx] = value;
+      size++;
+      return null;
+    }
+
+    private Object remove(long key, int hash) {
+      Object previous;
+
+      if (key == 0) {
+        previous = zeroValue;
+        zeroValue = null;
+        return previous;
+      }
+      if (size == 0) {
+        return null;
+      }
+
+      int mask = keys.length - 1;
+      int idx = hash & mask;
+      while (keys[idx] != key) {
+        if (keys[idx] == 0) {
+          return null;
+        }
+        idx = (idx + 1) & mask;
+      }
+      previous = values[idx];
+
+      // Move back the keys after idx that would not be found once idx is free
+      int free = idx;
+      int next = (idx + 1) & mask;
+      while (keys[next] != 0) {
+        int home = hash(keys[next]) & mask;
+        if (((next - home) & mask) >= ((next - free) & mask)) {
+          keys[free] = keys[next];
+          values[free] = values[next];
+          free = next;
+        }
+        next = (next + 1) & mask;
+      }
+      keys[free] = 0;
+      values[free] = null;
+      size--;
+      return previous;
+    }
+
+    private void resize(int capacity) {
+      long[] oldKeys = keys;
+      Object[] oldValues = values;
+      long[] newKeys = new long[capacity];
+      Object[] newValues = new Object[capacity];
+      int mask = capacity - 1;
+
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != 0) {
+          int idx = hash(oldKeys[i]) & mask;
+          while (newKeys[idx] != 0) {
+            idx = (idx + 1) & mask;
+          }
+          newKeys[idx] = oldKeys[i];
+          newValues[idx] = oldValues[i];
+        }
+      }
+      keys = newKeys;
+      values = newValues;
+    }
+
+    private int count() {
+      return size + ((zeroValue != null) ? 1 : 0);
+    }
+  }
+
+  /**
+   * Constructor with no parameters. Use a single segment, good for maps that are
+   * mostly read or only changed by one thread at the time.
+   */
+  public IDMap() {
+    this(1);
+  }
+
+  /**
+   * @param concurrencyLevel - int with the number of threads expected to change
+   *                         the map at the same time.
+   */
+  public IDMap(int concurrencyLevel) {
+    int nSegments = 1;
+    while (nSegments < concurrencyLevel) {
+      nSegments <<= 1;
+    }
+    segments = new Segment[nSegments];
+    for (int i = 0; i < nSegments; i++) {
+      segments[i] = new Segment();
+    }
+    segmentMask = nSegments - 1;
+  }
+
+  // Getters
+  @SuppressWarnings("unchecked")
+  public V get(long key) {
+    int hash = hash(key);
+    Segment seg = segmentFor(key);
+    long stamp = seg.tryOptimisticRead();
+    Object value = seg.find(key, hash);
+
+    if (!seg.validate(stamp)) {
+      stamp = seg.readLock();
+      try {
+        value = seg.find(key, hash);
+      } finally {
+        seg.unlockRead(stamp);
+      }
+    }
+    return (V) value;
+  }
+
+  public boolean containsKey(long key) {
+    return get(key) != null;
+  }
+
+  public int size() {
+    int total = 0;
+
+    for (Segment seg : segments) {
+      long stamp = seg.tryOptimisticRead();
+      int count = seg.count();
+      if (!seg.validate(stamp)) {
+        stamp = seg.readLock();
+        try {
+          count = seg.count();
+        } finally {
+          seg.unlockRead(stamp);
+        }
+      }
+      total += count;
+    }
+    return total;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return Collection with a copy of the values in ascending key order.
+   */
+  @SuppressWarnings("unchecked")
+  public Collection<V> values() {
+    long[] stamps = new long[segments.length];
+    ArrayList<V> copy;
+
+    // All the segments are locked so the copy is the map at a single moment
+    for (int i = 0; i < segments.length; i++) {
+      stamps[i] = segments[i].readLock();
+    }
+    try {
+      int n = 0;
+      for (Segment seg : segments) {
+        n += seg.count();
+      }
+      long[] sortedKeys = new long[n];
+      n = 0;
+      for (Segment seg : segments) {
+        if (seg.zeroValue != null) {
+          sortedKeys[n++] = 0;
+        }
+        for (long key : seg.keys) {
+          if (key != 0) {
+            sortedKeys[n++] = key;
+          }
+        }
+      }
+      Arrays.sort(sortedKeys);
+
+      copy = new ArrayList<>(n);
+      for (long key : sortedKeys) {
+        copy.add((V) segmentFor(key).find(key, hash(key)));
+      }
+    } finally {
+      for (int i = 0; i < segments.length; i++) {
+        segments[i].unlockRead(stamps[i]);
+      }
+    }
+    return copy;
+  }
+
+  // Methods
+  /**
+   * @param key   - long with the ID.
+   * @param value - V mapped to key, it can't be null.
+   * @return V that was mapped to key before, or null.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(long key, V value) {
+    if (value == null) {
+      throw new NullPointerException("IDMap values can't be null");
+    }
+    Segment seg = segmentFor(key);
+    long stamp = seg.writeLock();
+    try {
+      return (V) seg.put(key, hash(key), value);
+    } finally {
+      seg.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @param key - long with the ID.
+   * @return V that was mapped to key, or null.
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(long key) {
+    Segment seg = segmentFor(key);
+    long stamp = seg.writeLock();
+    try {
+      return (V) seg.remove(key, hash(key));
+    } finally {
+      seg.unlockWrite(stamp);
+    }
+  }
+
+  private Segment segmentFor(long key) {
+    return segments[(int) (mix(key) >>> 32) & segmentMask];
+  }
+
+  /**
+   * @return int with the bits of the key that choose its slot in a segment.
+   */
+  private static int hash(long key) {
+    return (int) mix(key);
+  }
+
+  /**
+   * Spread the bits of key so consecutive IDs, or IDs that only differ on the
+   * high bits like purchase IDs, don't end up next to each other.
+   */
+  private static long mix(long key) {
+    long h = key * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+}
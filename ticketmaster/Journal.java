@@ -0,0 +1,796 @@
+package ticketmaster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Journal is an append only write ahead log of the changes made to the Database
+ * after it was populated. Every change is saved as a record with the new state
+ * of what changed (event, customer, ticket or totals), so replaying a record
+ * more than once gives the same result. A purchase is a single record with its
+ * ticket and only what it changed: the money of the customer, the seats left
+ * and totals of the event, and the TicketMiner totals.
+ *
+ * Records are appended into memory and a background thread writes and fsyncs
+ * them every COMMITINTERVAL milliseconds (group commit), so at most that much
+ * time of changes can be lost on a crash. sync() can be call to wait until
+ * everything appended is on disk. Once the journal is larger than
+ * MAXJOURNALSIZE the Database is compacted into a snapshot on a background
+ * thread and the records already in the snapshot are dropped from the journal.
+ *
+ * Record layout: int length (type + payload), byte type, payload, int CRC32 of
+ * type + payload. Replay stops at the first incomplete or corrupted record and
+ * cut the file there, so the records appended after it can be replayed.
+ * An empty journal starts with a VERSION record with the Snapshot.VERSION used
+ * by the records after it, journals without it were written with version 1.
+ */
+public class Journal {
+  private static final long COMMITINTERVAL = 5; // milliseconds
+  private static final long MAXJOURNALSIZE = 64L << 20; // 64 MiB
+  private static final byte EVENT = 1;
+  private static final byte CUSTOMER = 2;
+  private static final byte TICKET = 3;
+  private static final byte REMOVETICKET = 4;
+  private static final byte REMOVEEVENT = 5;
+  private static final byte TOTALS = 6;
+  private static final byte VERSION = 7;
+  private static final byte PURCHASE = 8;
+  private static final String[] FROMALL = { Event.class.getSimpleName(), Customer.class.getSimpleName() };
+
+  private static Path path = null;
+  private static FileChannel channel = null;
+  private static ScheduledExecutorService flusher;
+  private static ExecutorService compactor;
+  private static Batch pending = new Batch();
+  private static Batch spare = new Batch();
+  private static final Batch record = new Batch();
+  private static final DataOutputStream recordOut = new DataOutputStream(record);
+  private static final CRC32 crc = new CRC32();
+  private static final Object flushLock = new Object();
+  private static long journalSize = 0;
+  private static boolean compacting = false;
+
+  private Journal() {
+  }
+
+  // Getters
+  public static synchronized boolean isOpen() {
+    return channel != null;
+  }
+
+  // Methods
+  /**
+   * Open filename to append records at its end and start the thread that commit
+   * them.
+   *
+   * @param filename - String with the journal file name.
+   */
+  public static synchronized void open(String filename) {
+    if (channel != null) {
+      return;
+    }
+
+    try {
+      path = Paths.get(filename);
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+      journalSize = channel.size();
+      if (journalSize == 0) {
+        logVersion();
+      }
+    } catch (IOException e) {
+      System.err.println("Journal " + filename + " couldn't be open, changes would only be saved at exit.");
+      Log.logWrite(Level.WARNING, e.toString());
+      channel = null;
+      return;
+    }
+
+    flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "JournalFlusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(Journal::flushQuietly, COMMITINTERVAL, COMMITINTERVAL, TimeUnit.MILLISECONDS);
+    compactor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "JournalCompactor");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Commit every record appended and close the journal.
+   */
+  public static void close() {
+    ScheduledExecutorService toStop;
+    ExecutorService compactorToStop;
+
+    synchronized (Journal.class) {
+      toStop = flusher;
+      compactorToStop = compactor;
+      flusher = null;
+      compactor = null;
+    }
+    if (toStop == null) {
+      return;
+    }
+
+    // A compaction that started must end before the file is closed
+    compactorToStop.shutdown();
+    try {
+      compactorToStop.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    toStop.shutdown();
+    sync();
+    synchronized (flushLock) {
+      synchronized (Journal.class) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+        channel = null;
+      }
+    }
+  }
+
+  /**
+   * Block until every record appended before this call is on disk.
+   */
+  public static void sync() {
+    try {
+      flush();
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, "Journal couldn't be written: " + e.toString());
+    }
+  }
+
+  /**
+   * Mark the end of the records appended so far, called before the Database
+   * state is copied into a snapshot. Every change logged before the mark is in
+   * the snapshot, changes logged after it may not be.
+   *
+   * @return long with the journal position of the mark, -1 if the journal is
+   *         closed.
+   */
+  static long mark() {
+    synchronized (flushLock) {
+      synchronized (Journal.class) {
+        if (channel == null) {
+          return -1;
+        }
+        try {
+          return channel.size() + pending.size();
+        } catch (IOException e) {
+          System.err.println(e.toString());
+          Log.logWrite(Level.WARNING, "Journal size couldn't be read: " + e.toString());
+          return -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Discard the records before mark, called once the snapshot taken after
+   * mark() is on disk. The records after mark are copied behind a VERSION
+   * record into a new file that then replace the journal, so the journal is
+   * whole if the program stop in the middle. Records are still appended while
+   * the copy is made, they are written once it is done.
+   *
+   * @param mark - long returned by mark() before the snapshot was taken.
+   */
+  static void truncate(long mark) {
+    synchronized (flushLock) {
+      Path tempPath;
+      byte[] version;
+
+      synchronized (Journal.class) {
+        if ((channel == null) || (mark < 0)) {
+          return;
+        }
+        tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        version = versionRecord();
+      }
+
+      try {
+        flush(); // The records before mark may still be pending
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+          ByteBuffer buffer = ByteBuffer.wrap(version);
+          while (buffer.hasRemaining()) {
+            out.write(buffer);
+          }
+          long position = mark;
+          long end = in.size();
+          while (position < end) {
+            position += in.transferTo(position, end - position, out);
+          }
+          out.force(true);
+        }
+
+        synchronized (Journal.class) {
+          Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+          channel.close();
+          channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+          journalSize = channel.size() + pending.size();
+        }
+      } catch (IOException e) {
+        // The old journal is kept whole, its records are replayed again over the
+        // snapshot giving the same state
+        System.err.println(e.toString());
+        Log.logWrite(Level.WARNING, "Journal couldn't be compacted: " + e.toString());
+        try {
+          Files.deleteIfExists(tempPath);
+        } catch (IOException ignored) {
+          // Overwritten by the next compaction
+        }
+      }
+    }
+  }
+
+  // Records
+  public static void logEvent(Event event) {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(EVENT);
+        Snapshot.writeEvent(recordOut, event, null);
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  public static void logCustomer(Customer customer) {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(CUSTOMER);
+        Snapshot.writeCustomer(recordOut, customer);
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  public static void logTicket(Ticket ticket) {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(TICKET);
+        Snapshot.writeTicket(recordOut, ticket, null);
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  public static void logRemoveTicket(long ticketID) {
+    logID(REMOVETICKET, ticketID);
+  }
+
+  public static void logRemoveEvent(int eventID) {
+    logID(REMOVEEVENT, eventID);
+  }
+
+  public static void logTotals() {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(TOTALS);
+        writeTotals();
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Log a ticket saved by Database.addTicket() with what its purchase changed,
+   * in place of a TICKET, CUSTOMER, EVENT and TOTALS record each. Only the seat
+   * types of the ticket are written for the event.
+   *
+   * @param ticket   - Ticket saved.
+   * @param event    - Event of the ticket.
+   * @param customer - Customer that payed for it.
+   */
+  public static void logPurchase(Ticket ticket, Event event, Customer customer) {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(PURCHASE);
+        recordOut.writeInt(customer.getCustomerID());
+        recordOut.writeLong(customer.getMoneyAvailableInCents());
+        recordOut.writeLong(customer.getTotalSaveInCents());
+
+        int nSeats = ticket.getNumberOfSeatsPurchases();
+        int[] seatTypes = new int[nSeats];
+        int nTypes = 0;
+        for (int i = 0; i < nSeats; i++) {
+          int seatType = ticket.getSeatTypeOrdinal(i);
+          int j = 0;
+          while ((j < nTypes) && (seatTypes[j] != seatType)) {
+            j++;
+          }
+          if (j == nTypes) {
+            seatTypes[nTypes++] = seatType;
+          }
+        }
+        recordOut.writeInt(event.getEventID());
+        recordOut.writeByte(nTypes);
+        for (int j = 0; j < nTypes; j++) {
+          Snapshot.writeName(recordOut, SeatTypes.nameOf(seatTypes[j]), null);
+          recordOut.writeInt(event.getNumberOfSeatsAvailable(seatTypes[j]));
+        }
+        recordOut.writeLong(event.getTotalDiscountedInCents());
+        recordOut.writeLong(event.getTaxesInCents());
+        recordOut.writeLong(event.getServiceFeeInCents());
+        recordOut.writeLong(event.getConvenienceFeeInCents());
+        recordOut.writeLong(event.getCharityFeeInCents());
+
+        writeTotals();
+        Snapshot.writeTicket(recordOut, ticket, null);
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Write the largest event ID and the TicketMiner totals, must be call holding
+   * the Journal lock.
+   */
+  private static void writeTotals() throws IOException {
+    recordOut.writeInt(Database.getLargestEventID());
+    for (long total : Database.getTotalsInCents()) {
+      recordOut.writeLong(total);
+    }
+  }
+
+  /**
+   * Append the VERSION record, must be call holding the Journal lock on an empty
+   * journal.
+   */
+  private static void logVersion() {
+    try {
+      startRecord(VERSION);
+      recordOut.writeInt(Snapshot.VERSION);
+      endRecord();
+    } catch (IOException e) {
+      record.reset();
+    }
+  }
+
+  /**
+   * Make a VERSION record without appending it, must be call holding the
+   * Journal lock.
+   *
+   * @return byte[] with the whole record.
+   */
+  private static byte[] versionRecord() {
+    try {
+      startRecord(VERSION);
+      recordOut.writeInt(Snapshot.VERSION);
+      sealRecord();
+      return record.toByteArray();
+    } catch (IOException e) {
+      return new byte[0]; // Can't happen writing into memory
+    } finally {
+      record.reset();
+    }
+  }
+
+  private static void logID(byte type, long id) {
+    if (!isOpen()) {
+      return;
+    }
+    synchronized (Journal.class) {
+      try {
+        startRecord(type);
+        recordOut.writeLong(id);
+        endRecord();
+      } catch (IOException e) {
+        record.reset();
+      }
+    }
+    compactIfNeeded();
+  }
+
+  /**
+   * Start a new record leaving space for its length.
+   */
+  private static void startRecord(byte type) throws IOException {
+    record.reset();
+    recordOut.writeInt(0); // Length is known once the payload is written
+    recordOut.writeByte(type);
+  }
+
+  /**
+   * Write the length and CRC32 of the record and move it to the pending batch.
+   */
+  private static void endRecord() throws IOException {
+    sealRecord();
+    record.writeTo(pending);
+    journalSize += record.size();
+    record.reset();
+  }
+
+  /**
+   * Write the length and CRC32 of the record.
+   */
+  private static void sealRecord() throws IOException {
+    int length = record.size() - Integer.BYTES;
+
+    crc.reset();
+    crc.update(record.array(), Integer.BYTES, length);
+    recordOut.writeInt((int) crc.getValue());
+    record.putInt(0, length);
+  }
+
+  /**
+   * Start writing the Database into a snapshot on the compactor thread if the
+   * journal grew larger than MAXJOURNALSIZE, so the change that made it grow
+   * don't wait for it. Must be call without holding the Journal lock.
+   */
+  private static void compactIfNeeded() {
+    ExecutorService executor;
+
+    synchronized (Journal.class) {
+      if (compacting || (journalSize < MAXJOURNALSIZE) || (compactor == null)) {
+        return;
+      }
+      compacting = true;
+      executor = compactor;
+    }
+
+    try {
+      executor.execute(Journal::compact);
+    } catch (RejectedExecutionException e) { // Closed meanwhile
+      synchronized (Journal.class) {
+        compacting = false;
+      }
+    }
+  }
+
+  private static void compact() {
+    try {
+      Log.logWrite(Level.FINE, "Journal reach " + journalSize + " bytes, compacting it into a snapshot.");
+      Database.saveDatabase();
+    } catch (RuntimeException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, "Journal couldn't be compacted: " + e.toString());
+    } finally {
+      synchronized (Journal.class) {
+        compacting = false;
+      }
+    }
+  }
+
+  /**
+   * Write every pending record into the file and fsync it. Records appended
+   * while a batch is being written go into the other batch and are written by
+   * the next flush.
+   *
+   * @throws IOException if the journal couldn't be written.
+   */
+  private static void flush() throws IOException {
+    synchronized (flushLock) {
+      Batch batch;
+      FileChannel out;
+
+      synchronized (Journal.class) {
+        if ((channel == null) || (pending.size() == 0)) {
+          return;
+        }
+        batch = pending;
+        pending = spare;
+        spare = batch;
+        out = channel;
+      }
+
+      ByteBuffer buffer = ByteBuffer.wrap(batch.array(), 0, batch.size());
+      while (buffer.hasRemaining()) {
+        out.write(buffer);
+      }
+      out.force(false);
+      batch.reset();
+    }
+  }
+
+  private static void flushQuietly() {
+    sync();
+  }
+
+  /**
+   * Apply every valid record of filename to the Database. The journal must be
+   * closed while replaying so the changes are not logged again. An incomplete or
+   * corrupted record and everything after it are cut from the file, otherwise
+   * the records appended by open() would be after it and never replayed.
+   *
+   * @param filename - String with the journal file name.
+   * @return int with the number of records applied, -1 if none was applied but
+   *         the file was cut.
+   */
+  public static int replay(String filename) {
+    Path path = Paths.get(filename);
+    int nRecords = 0;
+    int version = 1; // Until a VERSION record is read
+    int validEnd = 0; // End of the last valid record
+    boolean torn = false;
+
+    if (!Files.exists(path)) {
+      return 0;
+    }
+
+    try {
+      ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+      CRC32 checksum = new CRC32();
+
+      while (in.hasRemaining()) {
+        if (in.remaining() < Integer.BYTES) {
+          break; // Incomplete record, the program stopped while writing it
+        }
+        int length = in.getInt();
+        if ((length <= 0) || (in.remaining() < length + Integer.BYTES)) {
+          break; // Incomplete record, the program stopped while writing it
+        }
+
+        checksum.reset();
+        checksum.update(in.array(), in.position(), length);
+        if ((int) checksum.getValue() != in.getInt(in.position() + length)) {
+          break; // Corrupted record
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(in.array(), in.position() + 1, length - 1).slice();
+        byte type = in.get(in.position());
+        in.position(in.position() + length + Integer.BYTES);
+        validEnd = in.position();
+
+        try {
+          if (type == VERSION) {
+            version = payload.getInt();
+            continue;
+          }
+          apply(type, payload, version);
+          nRecords++;
+        } catch (RuntimeException e) {
+          Log.logWrite(Level.WARNING, "Journal record couldn't be replayed: " + e.toString());
+        }
+      }
+      if (validEnd < in.limit()) {
+        torn = true;
+        cut(path, validEnd);
+      }
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, "Journal " + filename + " couldn't be read: " + e.toString());
+    }
+
+    if (nRecords > 0) {
+      Log.logWrite(Level.FINE, nRecords + " changes replayed from " + filename);
+    }
+    return ((nRecords == 0) && torn) ? -1 : nRecords;
+  }
+
+  /**
+   * Drop everything after the first size bytes of the journal.
+   */
+  private static void cut(Path path, long size) throws IOException {
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      Log.logWrite(Level.WARNING, "Journal " + path + " had an incomplete or corrupted record, "
+          + (file.size() - size) + " bytes were cut after the last valid record.");
+      file.truncate(size);
+      file.force(true);
+    }
+  }
+
+  /**
+   * Apply a single record to the Database.
+   *
+   * @param type    - byte with the record type.
+   * @param payload - ByteBuffer with the record content.
+   * @param version - int with the Snapshot.VERSION the record was written with.
+   */
+  private static void apply(byte type, ByteBuffer payload, int version) {
+    switch (type) {
+      case (EVENT):
+        replaceEvent(Snapshot.readEvent(payload, null, version));
+        break;
+      case (CUSTOMER):
+        Customer customer = Snapshot.readCustomer(payload, version);
+        Customer current = Database.getCustomer(customer.getCustomerID());
+        if (current == null) {
+          Database.addCustomers(customer);
+        } else {
+          current.setMoneyAvailableInCents(customer.getMoneyAvailableInCents());
+          current.setTotalSaveInCents(customer.getTotalSaveInCents());
+        }
+        break;
+      case (TICKET):
+        replaceTicket(payload, version);
+        break;
+      case (PURCHASE):
+        replayPurchase(payload, version);
+        break;
+      case (REMOVETICKET):
+        Ticket removed = Database.getTicketPurchased(version < 3 ? payload.getInt() : payload.getLong());
+        if (removed != null) {
+          Database.removeTicket(removed, FROMALL);
+        }
+        break;
+      case (REMOVEEVENT):
+        Event event = Database.getEvent(version < 3 ? payload.getInt() : (int) payload.getLong());
+        if (event != null) {
+          Database.removeEvent(event);
+        }
+        break;
+      case (TOTALS):
+        readTotals(payload, version);
+        break;
+      default:
+        throw new IllegalStateException("Unknown journal record type " + type);
+    }
+  }
+
+  private static void readTotals(ByteBuffer payload, int version) {
+    Database.setLargestEventID(payload.getInt());
+    if (version < 2) {
+      Database.setTotals(Money.toCents(payload.getFloat()), Money.toCents(payload.getFloat()),
+          Money.toCents(payload.getFloat()), Money.toCents(payload.getFloat()));
+    } else {
+      Database.setTotals(payload.getLong(), payload.getLong(), payload.getLong(), payload.getLong());
+    }
+  }
+
+  /**
+   * Read a ticket and put it in place of the ticket with the same purchase ID,
+   * if any. Tickets of a nonexistent event or customer are skipped.
+   */
+  private static void replaceTicket(ByteBuffer payload, int version) {
+    Ticket ticket = Snapshot.readTicket(payload, null, version);
+
+    if (ticket == null) { // Event or customer removed
+      Log.logWrite(Level.WARNING, "Journal ticket record of a nonexistent event or customer skipped.");
+      return;
+    }
+    Ticket previous = Database.getTicketPurchased(ticket.getPurchaseID());
+    if (previous != null) {
+      Database.removeTicket(previous, FROMALL);
+    }
+    Database.restoreTicket(ticket);
+  }
+
+  /**
+   * Apply a PURCHASE record written by logPurchase(). The customer or event that
+   * don't exist anymore are skipped.
+   */
+  private static void replayPurchase(ByteBuffer payload, int version) {
+    Customer customer = Database.getCustomer(payload.getInt());
+    long moneyAvailable = payload.getLong();
+    long totalSave = payload.getLong();
+    if (customer != null) {
+      customer.setMoneyAvailableInCents(moneyAvailable);
+      customer.setTotalSaveInCents(totalSave);
+    }
+
+    Event event = Database.getEvent(payload.getInt());
+    int nTypes = payload.get();
+    for (int j = 0; j < nTypes; j++) {
+      String seatType = Snapshot.readName(payload, null);
+      int nSeats = payload.getInt();
+      if (event != null) {
+        event.setNumSeats(seatType, nSeats);
+      }
+    }
+    long totalDiscounted = payload.getLong();
+    long taxes = payload.getLong();
+    long serviceFee = payload.getLong();
+    long convenienceFee = payload.getLong();
+    long charityFee = payload.getLong();
+    if (event != null) {
+      event.setTotalsInCents(totalDiscounted, taxes, serviceFee, convenienceFee, charityFee);
+    }
+
+    readTotals(payload, version);
+    replaceTicket(payload, version);
+  }
+
+  /**
+   * Copy the state of event into the event with the same ID, or add it to the
+   * Database if it is a new event. The event object in the Database is kept
+   * since its tickets point to it.
+   *
+   * @param event - Event read from the journal.
+   */
+  private static void replaceEvent(Event event) {
+    Event current = Database.getEvent(event.getEventID());
+
+    if (current == null) {
+      Database.addEvent(event);
+      return;
+    }
+
+    if (!current.getName().equals(event.getName())) {
+      Database.updateEventNameToIdMap(current.getName(), event.getName(), current.getEventID());
+      current.setName(event.getName());
+    }
+    current.setDateInMillis(event.getDateInMillis());
+    current.setFireworksPlanned(event.areFireworksPlanned());
+    current.setFireworksCost(event.getFireworksCost());
+    current.setHowManyReservedSeats(event.getHowManyReservedSeats());
+    current.setTotalsInCents(event.getTotalDiscountedInCents(), event.getTaxesInCents(),
+        event.getServiceFeeInCents(), event.getConvenienceFeeInCents(), event.getCharityFeeInCents());
+
+    for (String seatType : Database.getSeatTypes()) {
+      int nSeats = event.getNumberOfSeatsAvailable(seatType);
+      if (nSeats < 0) {
+        continue;
+      }
+      if (current.getNumberOfSeatsAvailable(seatType) < 0) {
+        current.makeNSeatsByNum(seatType, Money.toString(event.getSeatPriceInCents(seatType)), nSeats);
+      } else {
+        current.setSeatInfo(seatType, nSeats, event.getSeatPriceInCents(seatType));
+      }
+    }
+  }
+
+  /**
+   * ByteArrayOutputStream that give access to its array so batches and records
+   * can be written without copying them.
+   */
+  private static class Batch extends ByteArrayOutputStream {
+    private Batch() {
+      super(1 << 12);
+    }
+
+    private byte[] array() {
+      return buf;
+    }
+
+    private void putInt(int index, int value) {
+      buf[index] = (byte) (value >>> 24);
+      buf[index + 1] = (byte) (value >>> 16);
+      buf[index + 2] = (byte) (value >>> 8);
+      buf[index + 3] = (byte) value;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package ticketmaster;
+
+/**
+ * LatencyHistogram count latencies in nanoseconds in buckets that grow with the
+ * latency, so percentiles like p50 or p99 can be read from millions of
+ * latencies without keeping them. Every power of two is split in SUBBUCKETS
+ * buckets, so a percentile is at most about 3% above the latency it stands for,
+ * from nanoseconds to years in 15 KB.
+ *
+ * A histogram is not thread safe, every thread record in its own histogram and
+ * they are added together with add() once the threads are done.
+ */
+public class LatencyHistogram {
+  private static final int SUBBITS = 5;
+  private static final int SUBBUCKETS = 1 << SUBBITS; // Buckets per power of two
+  private static final int NBUCKETS = (64 - SUBBITS + 1) * SUBBUCKETS;
+
+  private final long[] counts = new long[NBUCKETS];
+  private long count = 0;
+  private long total = 0; // Nanoseconds
+  private long max = 0;
+
+  // Getters
+  public long getCount() {
+    return count;
+  }
+
+  public long getMaxNanos() {
+    return max;
+  }
+
+  public double getMeanNanos() {
+    return (count == 0) ? 0.0 : (double) total / count;
+  }
+
+  /**
+   * @param percentile - double between 0 and 100, e.g., 99 for p99.
+   * @return long with the latency in nanoseconds that percentile of the
+   *         latencies are at or below, the top of its bucket and never above the
+   *         maximum, 0 if nothing was recorded.
+   */
+  public long getPercentileNanos(double percentile) {
+    long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+    long seen = 0;
+
+    if (count == 0) {
+      return 0;
+    }
+    rank = Math.max(rank, 1);
+    for (int i = 0; i < NBUCKETS; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highest(i), max);
+      }
+    }
+    return max;
+  }
+
+  // Methods
+  /**
+   * @param nanos - long with a latency in nanoseconds, negative latencies are
+   *              taken as 0.
+   */
+  public void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    counts[bucket(nanos)]++;
+    count++;
+    total += nanos;
+    max = Math.max(max, nanos);
+  }
+
+  /**
+   * Add the latencies recorded by other to this histogram.
+   *
+   * @param other - LatencyHistogram to be added, it is not changed.
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < NBUCKETS; i++) {
+      counts[i] += other.counts[i];
+    }
+    count += other.count;
+    total += other.total;
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @return String with the count, mean, p50, p90, p99, p99.9 and maximum in
+   *         milliseconds.
+   */
+  @Override
+  public String toString() {
+    return String.format("n=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f ms", count,
+        getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(90) / 1e6,
+        getPercentileNanos(99) / 1e6, getPercentileNanos(99.9) / 1e6, max / 1e6);
+  }
+
+  /**
+   * Values below SUBBUCKETS have a bucket each, after that the bucket is the
+   * power of two of the value and its next SUBBITS bits.
+   */
+  private static int bucket(long nanos) {
+    int power = 63 - Long.numberOfLeadingZeros(nanos);
+
+    if (power < SUBBITS) {
+      return (int) nanos;
+    }
+    int sub = (int) (nanos >>> (power - SUBBITS)) & (SUBBUCKETS - 1);
+    return (power - SUBBITS + 1) * SUBBUCKETS + sub;
+  }
+
+  /**
+   * @return long with the highest value that fall in bucket i.
+   */
+  private static long highest(int i) {
+    int group = i >>> SUBBITS;
+    int sub = i & (SUBBUCKETS - 1);
+
+    if (group == 0) {
+      return sub;
+    }
+    int shift = group - 1;
+    long lowest = ((long) (SUBBUCKETS + sub)) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -1,13 +1,23 @@
 package ticketmaster;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.logging.FileHandler;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.logging.LogRecord;
 import java.util.logging.SimpleFormatter;
 
 /**
@@ -15,67 +25,308 @@ import java.util.logging.SimpleFormatter;
  * customization to loggers files, write the log information to all files that
  * are of that level and above if they exist, and to move the loggers files into
  * a folder to by the end of the program execution to keep them on record.
- * 
+ *
+ * logWrite() don't write anything, it only put the message into a ring buffer
+ * without taking any lock. A single background thread take the messages in
+ * batches, format them like SimpleFormatter and write them to the "LEVELLogger"
+ * files, flushing once per batch. If the ring buffer is full, messages below
+ * WARNING are dropped (and the number dropped is logged later) while WARNING
+ * and above wait until there is room.
+ *
  * @author Robert J Alvarez
  * @date October 4th, 2022
  */
 public class Log {
-  private static HashMap<Level, Logger> loggers = new HashMap<>();
+  private static final int CAPACITY = 1 << 14; // Must be a power of 2
+  private static final int MASK = CAPACITY - 1;
+  private static final int MAXBATCH = 1024;
+  private static final long IDLEPARK = 1_000_000; // nanoseconds
   // All possible levels: ALL, CONFIG, FINE, FINER, FINEST, INFO, OFF, SEVERE,
   // WARNING
+  private static volatile Level minLevel = Level.ALL;
+
+  // Ring buffer, slot i is free for position p when sequences[i] == p and has a
+  // message for position p when sequences[i] == p + 1
+  private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+  private static final Level[] levels = new Level[CAPACITY];
+  private static final String[] messages = new String[CAPACITY];
+  private static final long[] times = new long[CAPACITY];
+  private static final AtomicLong tail = new AtomicLong(); // Next position to be claimed
+  private static long head = 0; // Next position to be written, only used by the writer
+  private static final AtomicLong dropped = new AtomicLong();
+
+  // Only used by the writer thread
+  private static final LinkedHashMap<Level, Writer> files = new LinkedHashMap<>();
+  private static final SimpleFormatter formatter = new SimpleFormatter();
+  private static long droppedReported = 0;
+
+  private static Thread writer = null;
+  private static volatile boolean closed = false;
+
+  static {
+    for (int i = 0; i < CAPACITY; i++) {
+      sequences.set(i, i);
+    }
+  }
 
   private Log() {
   }
 
+  // Getters
+  public static Level getLevel() {
+    return minLevel;
+  }
+
+  /**
+   * @param level - Level of a message.
+   * @return true if messages of level would be written.
+   */
+  public static boolean isLoggable(Level level) {
+    Level min = minLevel;
+    return (min != Level.OFF) && (level.intValue() >= min.intValue());
+  }
+
+  public static long getDroppedMessages() {
+    return dropped.get();
+  }
+
+  // Setters
+  /**
+   * Messages below level are ignored before they are made, Level.OFF ignore all
+   * of them.
+   *
+   * @param level - Level with the lowest level to be written.
+   */
+  public static void setLevel(Level level) {
+    minLevel = level;
+  }
+
   // methods
   /**
-   * We customize our logger to write to FILENAME getting at least the level
-   * options given by level and up. We also set logger to not output anything to
-   * System.out.
-   * 
-   * @param logger
-   * @param level
-   * @param filename
+   * Queue str to be written into the loggers of level and below.
+   *
+   * @param level - Level of the message.
+   * @param str   - String with the message.
+   */
+  public static void logWrite(Level level, String str) {
+    if (!isLoggable(level) || closed) {
+      return;
+    }
+    startWriter();
+
+    long time = System.currentTimeMillis();
+    while (!offer(level, str, time)) {
+      if ((level.intValue() < Level.WARNING.intValue()) || closed) {
+        dropped.incrementAndGet();
+        return;
+      }
+      // Important messages wait for the writer to make room
+      LockSupport.parkNanos(IDLEPARK / 10);
+    }
+  }
+
+  /**
+   * Same as logWrite(Level, String) but the message is only made if the level is
+   * loggable, so messages that are expensive to build cost nothing when they are
+   * not written.
+   *
+   * @param level   - Level of the message.
+   * @param message - Supplier that make the message.
+   */
+  public static void logWrite(Level level, Supplier<String> message) {
+    if (isLoggable(level) && !closed) {
+      logWrite(level, message.get());
+    }
+  }
+
+  /**
+   * Put a message into the ring buffer.
+   *
+   * @return true if the message was put, false if the ring buffer is full.
+   */
+  private static boolean offer(Level level, String str, long time) {
+    long pos;
+    int idx;
+
+    while (true) {
+      pos = tail.get();
+      idx = (int) (pos & MASK);
+      long diff = sequences.get(idx) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+      } else if (diff < 0) {
+        return false; // The writer haven't taken the message that was here
+      }
+      // Another thread claimed pos, try with the next one
+    }
+
+    levels[idx] = level;
+    messages[idx] = str;
+    times[idx] = time;
+    sequences.set(idx, pos + 1); // Publish the message to the writer
+    return true;
+  }
+
+  private static synchronized void startWriter() {
+    if ((writer != null) || closed) {
+      return;
+    }
+    writer = new Thread(Log::writeLoop, "LogWriter");
+    writer.setDaemon(true);
+    writer.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(Log::close, "LogWriterShutdown"));
+  }
+
+  /**
+   * Body of the writer thread. Write batches until the log is closed and
+   * everything queued was written.
+   */
+  private static void writeLoop() {
+    while (true) {
+      boolean stop = closed; // Read before draining so nothing queued is missed
+      int nWritten = writeBatch();
+      if (nWritten == 0) {
+        if (stop) {
+          break;
+        }
+        LockSupport.parkNanos(IDLEPARK);
+      }
+    }
+    closeFiles();
+  }
+
+  /**
+   * Write up to MAXBATCH messages and flush the files once.
+   *
+   * @return int with the number of messages written.
+   */
+  private static int writeBatch() {
+    int nWritten = 0;
+
+    while (nWritten < MAXBATCH) {
+      int idx = (int) (head & MASK);
+      if (sequences.get(idx) != head + 1) {
+        break; // Nothing else have been published
+      }
+      Level level = levels[idx];
+      String str = messages[idx];
+      long time = times[idx];
+      messages[idx] = null;
+      sequences.set(idx, head + CAPACITY); // Free the slot for the next lap
+      head++;
+
+      write(level, str, time);
+      nWritten++;
+    }
+
+    long nDropped = dropped.get();
+    if (nDropped != droppedReported) {
+      write(Level.WARNING, (nDropped - droppedReported) + " log messages were dropped because the log was full.",
+          System.currentTimeMillis());
+      droppedReported = nDropped;
+      nWritten++;
+    }
+
+    if (nWritten > 0) {
+      for (Writer file : files.values()) {
+        if (file == null) {
+          continue;
+        }
+        try {
+          file.flush();
+        } catch (IOException e) {
+          System.err.println(e.toString());
+        }
+      }
+    }
+    return nWritten;
+  }
+
+  /**
+   * Write the message into all the loggers that support the level pass or
+   * higher. The logger of level is made the first time a message of that level
+   * is written.
    */
-  private static void customLogger(Logger logger, Level level, String filename) {
+  private static void write(Level level, String str, long time) {
+    if (!files.containsKey(level)) {
+      openFile(level);
+    }
+
+    LogRecord rec = new LogRecord(level, str);
+    rec.setInstant(Instant.ofEpochMilli(time));
+    rec.setSourceClassName(Log.class.getName());
+    rec.setSourceMethodName("logWrite");
+    String formatted = formatter.format(rec);
+
+    for (Map.Entry<Level, Writer> entry : files.entrySet()) {
+      if ((entry.getValue() != null) && (level.intValue() >= entry.getKey().intValue())) {
+        try {
+          entry.getValue().write(formatted);
+        } catch (IOException e) {
+          System.err.println(e.toString());
+        }
+      }
+    }
+  }
+
+  private static void openFile(Level level) {
+    String filename = level.toString() + "Logger";
+    Writer file = null;
+
     try {
-      FileHandler fh = new FileHandler(filename);
-      fh.setFormatter(new SimpleFormatter());
-      fh.setLevel(level);
-      logger.addHandler(fh);
-      logger.setLevel(level);
-      logger.setUseParentHandlers(false); // Don't print to System.out
-    } catch (SecurityException | IOException e) {
+      file = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8));
+    } catch (IOException | SecurityException e) {
       System.err.println("Error setting configurations for logger file " + filename);
       System.err.println(e.toString());
       e.printStackTrace();
     }
+    files.put(level, file); // null is kept so the file is not tried again
+  }
+
+  private static void closeFiles() {
+    for (Writer file : files.values()) {
+      if (file == null) {
+        continue;
+      }
+      try {
+        file.close();
+      } catch (IOException e) {
+        System.err.println(e.toString());
+      }
+    }
   }
 
   /**
-   * 
-   * 
-   * @param level
-   * @param str
+   * Stop accepting messages, wait until all the queued messages are written and
+   * close the logger files.
    */
-  public static synchronized void logWrite(Level level, String str) {
-    if (!loggers.containsKey(level)) {
-      Logger logger = Logger.getLogger(level.toString() + "Logger");
-      customLogger(logger, level, logger.getName());
-      loggers.put(level, logger);
-    }
+  public static void close() {
+    Thread toJoin;
 
-    // Write information to all the loggers that support the level pass or higher
-    for (Logger log : loggers.values()) {
-      log.log(level, str);
+    synchronized (Log.class) {
+      closed = true;
+      toJoin = writer;
+    }
+    if ((toJoin == null) || (toJoin == Thread.currentThread())) {
+      return;
+    }
+    LockSupport.unpark(toJoin);
+    try {
+      toJoin.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
   /**
-   * 
+   * Close the loggers and move their files into the Loggers folder.
    */
   public static void movLogs() {
     File logDir = new File("./Loggers");
+
+    close();
     try {
       if (!logDir.exists()) { // If directory doesn't exist, we make it
         logDir.mkdirs();
@@ -87,7 +338,7 @@ public class Log {
 
       // Move all the Loggers created from current directory to Loggers directory
       String filename;
-      for (Level level : loggers.keySet()) {
+      for (Level level : files.keySet()) {
         filename = level.toString() + "Logger";
         if (!new File(filename).renameTo(new File("./Loggers/" + filename))) {
           System.out.println("File: " + filename + " couldn't be move to Loggers.");
@@ -0,0 +1,466 @@
+package ticketmaster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * MappedTicketReader restore the tickets written by WriteCSV.writeTicketsList()
+ * on a previous run. The file is memory mapped and split into chunks that start
+ * and end on line boundaries, every chunk is parse in parallel into Ticket
+ * objects, and then the chunks are merge into the Database in file order.
+ *
+ * Only the csv shape written by Ticket.writeContentToCSV() is supported, i.e.,
+ * ASCII fields without quotes. Any other csv file should be read by ReadCSV.
+ */
+public class MappedTicketReader {
+  private static final int MINCHUNKSIZE = 1 << 20; // 1 MiB
+  private static final int MAXCHUNKSIZE = 1 << 28; // 256 MiB, a single map can't be larger than 2 GiB
+  private static final int NFEES = 4; // 0: taxes, 1: service, 2: convenience, 3: charity
+
+  private final String[] seatTypes = Database.getSeatTypes();
+  // Column index of every field needed to make a ticket
+  private int purchaseIDIdx;
+  private int eventIDIdx;
+  private int customerIDIdx;
+  private int purchaseTimeIdx;
+  private int[] feeIdx;
+  private int subtotalIdx;
+  private int[] seatTypeIdx;
+  private int[] seatPriceIdx;
+  private int nColumns;
+
+  private MappedTicketReader() {
+  }
+
+  /**
+   * Read filename and add all its tickets into the database, event and customer
+   * lists.
+   *
+   * @param filename - String with the csv file written by
+   *                 WriteCSV.writeTicketsList().
+   * @return int with the number of tickets restored, or -1 if the file couldn't
+   *         be read.
+   */
+  public static int populateDatabase(String filename) {
+    MappedTicketReader reader = new MappedTicketReader();
+
+    try {
+      String[] header;
+      try (CSVTokenizer tokenizer = CSVTokenizer.open(filename)) {
+        header = tokenizer.readHeader();
+      }
+      if ((header == null) || !reader.setColumns(header)) {
+        System.out.println(filename + " don't contain the required headers to restore tickets.");
+        return -1;
+      }
+      return reader.restore(filename);
+    } catch (IOException | NullPointerException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
+    }
+    return -1;
+  }
+
+  /**
+   * Map every column needed to its index in header.
+   *
+   * @param header - String[] with the column names of the file.
+   * @return true if all the columns needed exist, false otherwise.
+   */
+  private boolean setColumns(String[] header) {
+    List<String> columns = Arrays.asList(header);
+    String[] feeHeaders = { "Taxes pay", "Service Fee", "Convenience Fee", "Charity Fee" };
+    int maxSeats = Ticket.getMaxNumberOfSeats();
+    boolean goodHeaders;
+
+    nColumns = header.length;
+    purchaseIDIdx = columns.indexOf("Purchase ID");
+    eventIDIdx = columns.indexOf(ReadCSV.EVENTIDHEADER);
+    customerIDIdx = columns.indexOf("Customer ID");
+    purchaseTimeIdx = columns.indexOf("Purchase Time");
+    subtotalIdx = columns.indexOf("Subtotal");
+    goodHeaders = (purchaseIDIdx >= 0) && (eventIDIdx >= 0) && (customerIDIdx >= 0) && (purchaseTimeIdx >= 0)
+        && (subtotalIdx >= 0);
+
+    feeIdx = new int[NFEES];
+    for (int i = 0; i < NFEES; i++) {
+      feeIdx[i] = columns.indexOf(feeHeaders[i]);
+      goodHeaders = goodHeaders && (feeIdx[i] >= 0);
+    }
+
+    seatTypeIdx = new int[maxSeats];
+    seatPriceIdx = new int[maxSeats];
+    for (int i = 0; i < maxSeats; i++) {
+      seatTypeIdx[i] = columns.indexOf("Seat Type " + (i + 1));
+      seatPriceIdx[i] = columns.indexOf("Price " + (i + 1));
+    }
+
+    return goodHeaders;
+  }
+
+  /**
+   * Split the file into chunks, parse them in parallel and merge the tickets made
+   * into the database.
+   *
+   * @param filename - String with the csv file name.
+   * @return int with the number of tickets restored.
+   * @throws IOException if the file couldn't be mapped.
+   */
+  private int restore(String filename) throws IOException {
+    int nTickets = 0;
+    int nRejected = 0;
+
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      List<Chunk> chunks = makeChunks(channel);
+
+      // Parse every chunk on its own thread, collect() keep the chunks in file order
+      List<Chunk> parsed = chunks.parallelStream().map(chunk -> parseChunk(channel, chunk))
+          .collect(Collectors.toList());
+
+      // Merge into the database in file order, the fees are added here since they
+      // update the event and database totals
+      for (Chunk chunk : parsed) {
+        for (int i = 0; i < chunk.tickets.size(); i++) {
+          Ticket ticket = chunk.tickets.get(i);
+          ticket.setFees(chunk.fees[i * NFEES], chunk.fees[i * NFEES + 1], chunk.fees[i * NFEES + 2],
+              chunk.fees[i * NFEES + 3]);
+          if (ticket.getNumberOfSeatsPurchases() > 0) {
+            Database.collectFees(ticket);
+          }
+          Database.restoreTicket(ticket);
+        }
+        nTickets += chunk.tickets.size();
+        nRejected += chunk.nRejected;
+      }
+    }
+
+    Log.logWrite(Level.FINE, nTickets + " tickets restored from " + filename + ", " + nRejected + " lines rejected.");
+    return nTickets;
+  }
+
+  /**
+   * Split the data section of the file (everything after the header) into
+   * chunks that start at the beginning of a line and end after a new line
+   * character or at the end of the file.
+   *
+   * @param channel - FileChannel of the file to split.
+   * @return List<Chunk> with the chunks in file order.
+   * @throws IOException if the file couldn't be read.
+   */
+  private static List<Chunk> makeChunks(FileChannel channel) throws IOException {
+    List<Chunk> chunks = new ArrayList<>();
+    long size = channel.size();
+    long start = nextLineStart(channel, 0);
+    long end;
+    long chunkSize = (size - start) / (Runtime.getRuntime().availableProcessors() * 4L);
+
+    chunkSize = Math.min(Math.max(chunkSize, MINCHUNKSIZE), MAXCHUNKSIZE);
+
+    while (start < size) {
+      end = (start + chunkSize < size) ? nextLineStart(channel, start + chunkSize) : size;
+      chunks.add(new Chunk(start, end));
+      start = end;
+    }
+    return chunks;
+  }
+
+  /**
+   * @param channel  - FileChannel of the file to read.
+   * @param position - long with the position to start looking from.
+   * @return long with the position after the first new line character found at
+   *         or after position, or the size of the file if there is none.
+   * @throws IOException if the file couldn't be read.
+   */
+  private static long nextLineStart(FileChannel channel, long position) throws IOException {
+    ByteBuffer window = ByteBuffer.allocate(4096);
+    int nRead;
+
+    while ((nRead = channel.read(window, position)) > 0) {
+      for (int i = 0; i < nRead; i++) {
+        if (window.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += nRead;
+      window.clear();
+    }
+    return channel.size();
+  }
+
+  /**
+   * Map the chunk and make a Ticket for every line in it. Tickets are not added
+   * to the database here since the database is not thread safe.
+   *
+   * @param channel - FileChannel of the file being read.
+   * @param chunk   - Chunk with the range of the file to parse.
+   * @return Chunk given with its tickets and fees filled.
+   */
+  private Chunk parseChunk(FileChannel channel, Chunk chunk) {
+    MappedByteBuffer buffer;
+    int[] fieldStarts = new int[nColumns];
+    int[] fieldEnds = new int[nColumns];
+    int length = (int) (chunk.end - chunk.start);
+    int lineStart = 0;
+    int nFields;
+    int pos;
+    byte b;
+
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, length);
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      return chunk;
+    }
+
+    chunk.tickets = new ArrayList<>();
+    chunk.fees = new long[NFEES * 1024];
+
+    while (lineStart < length) {
+      // Find where every field of the line starts and ends
+      nFields = 0;
+      pos = lineStart;
+      fieldStarts[0] = pos;
+      while (pos < length) {
+        b = buffer.get(pos);
+        if ((b == ',') || (b == '\n') || (b == '\r')) {
+          if (nFields < nColumns) {
+            fieldEnds[nFields] = pos;
+          }
+          nFields++;
+          if (b != ',') {
+            break;
+          }
+          if (nFields < nColumns) {
+            fieldStarts[nFields] = pos + 1;
+          }
+        }
+        pos++;
+      }
+      if (pos == length) { // Last line without a new line character
+        if (nFields < nColumns) {
+          fieldEnds[nFields] = pos;
+        }
+        nFields++;
+      }
+
+      if (pos > lineStart) { // Skip blank lines
+        try {
+          addTicket(chunk, buffer, fieldStarts, fieldEnds, Math.min(nFields, nColumns));
+        } catch (RuntimeException e) {
+          chunk.nRejected++;
+          Log.logWrite(Level.WARNING, "Ticket line couldn't be restored: " + e.toString());
+        }
+      }
+
+      // Move to the next line
+      while ((pos < length) && ((buffer.get(pos) == '\n') || (buffer.get(pos) == '\r'))) {
+        pos++;
+      }
+      lineStart = pos;
+    }
+    return chunk;
+  }
+
+  /**
+   * Make a ticket with the fields of a line and save it with its fees in chunk.
+   *
+   * @param chunk       - Chunk to save the ticket into.
+   * @param buffer      - ByteBuffer with the chunk content.
+   * @param fieldStarts - int[] with the position where every field start.
+   * @param fieldEnds   - int[] with the position where every field end.
+   * @param nFields     - int with the number of fields in the line.
+   */
+  private void addTicket(Chunk chunk, ByteBuffer buffer, int[] fieldStarts, int[] fieldEnds, int nFields) {
+    int eventID = parseInt(buffer, fieldStarts[eventIDIdx], fieldEnds[eventIDIdx]);
+    int customerID = parseInt(buffer, fieldStarts[customerIDIdx], fieldEnds[customerIDIdx]);
+    Event event = Database.getEvent(eventID);
+    Customer customer = Database.getCustomer(customerID);
+    int nTickets = chunk.tickets.size();
+
+    if ((event == null) || (customer == null)) {
+      throw new IllegalArgumentException("event " + eventID + " or customer " + customerID + " doesn't exist.");
+    }
+
+    Ticket ticket = new Ticket(event, event.getVenue(), customer);
+    ticket.setPurchaseID(parseLong(buffer, fieldStarts[purchaseIDIdx], fieldEnds[purchaseIDIdx]));
+    ticket.setPurchaseTimeInMillis(parseTime(buffer, fieldStarts[purchaseTimeIdx], fieldEnds[purchaseTimeIdx]));
+    ticket.setSubtotal(parseCents(buffer, fieldStarts[subtotalIdx], fieldEnds[subtotalIdx]));
+
+    for (int i = 0; i < seatTypeIdx.length; i++) {
+      int typeIdx = seatTypeIdx[i];
+      if ((typeIdx < 0) || (typeIdx >= nFields) || (fieldStarts[typeIdx] == fieldEnds[typeIdx])) {
+        break;
+      }
+      ticket.addPurchase(parseSeatType(buffer, fieldStarts[typeIdx], fieldEnds[typeIdx]),
+          parseCents(buffer, fieldStarts[seatPriceIdx[i]], fieldEnds[seatPriceIdx[i]]));
+    }
+
+    // Fees are applied once the ticket is merge into the database
+    if ((nTickets + 1) * NFEES > chunk.fees.length) {
+      chunk.fees = Arrays.copyOf(chunk.fees, chunk.fees.length * 2);
+    }
+    for (int i = 0; i < NFEES; i++) {
+      chunk.fees[nTickets * NFEES + i] = parseCents(buffer, fieldStarts[feeIdx[i]], fieldEnds[feeIdx[i]]);
+    }
+    chunk.tickets.add(ticket);
+  }
+
+  /**
+   * @return int in base 10 read from buffer between start and end.
+   */
+  private static int parseInt(ByteBuffer buffer, int start, int end) {
+    return Math.toIntExact(parseLong(buffer, start, end));
+  }
+
+  private static long parseLong(ByteBuffer buffer, int start, int end) {
+    boolean negative = (start < end) && (buffer.get(start) == '-');
+    long num = 0;
+    int digit;
+
+    if (negative) {
+      start++;
+    }
+    if (start == end) {
+      throw new NumberFormatException("Empty number field.");
+    }
+    for (int i = start; i < end; i++) {
+      digit = buffer.get(i) - '0';
+      if ((digit < 0) || (digit > 9)) {
+        throw new NumberFormatException("Invalid digit in number field.");
+      }
+      num = num * 10 + digit;
+    }
+    return negative ? -num : num;
+  }
+
+  /**
+   * Read an amount in dollars written with up to 2 decimals (e.g., 26.10 or
+   * -1.0) straight into cents. Older files written with Float.toString() may
+   * have more decimals or use scientific notation, those are left to
+   * Money.toCents() to be rounded to the nearest cent.
+   *
+   * @return long with the amount in cents read from buffer between start and end.
+   */
+  private static long parseCents(ByteBuffer buffer, int start, int end) {
+    boolean negative = (start < end) && (buffer.get(start) == '-');
+    long cents = 0;
+    int decimals = -1; // Number of digits after the point, -1 before the point
+
+    if (start == end) {
+      throw new NumberFormatException("Empty amount");
+    }
+
+    for (int i = negative ? start + 1 : start; i < end; i++) {
+      byte b = buffer.get(i);
+      if ((b == '.') && (decimals < 0)) {
+        decimals = 0;
+      } else if ((b >= '0') && (b <= '9') && (decimals < 2)) {
+        cents = cents * 10 + (b - '0');
+        if (decimals >= 0) {
+          decimals++;
+        }
+      } else {
+        return Money.toCents(asString(buffer, start, end));
+      }
+    }
+    for (int i = Math.max(decimals, 0); i < 2; i++) {
+      cents *= 10;
+    }
+    return negative ? -cents : cents;
+  }
+
+  private static String asString(ByteBuffer buffer, int start, int end) {
+    char[] chars = new char[end - start];
+    for (int i = start; i < end; i++) {
+      chars[i - start] = (char) buffer.get(i);
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Compare the bytes between start and end against the seat types in the
+   * database so the same String instance is shared by all the seats.
+   *
+   * @return String with the seat type read.
+   */
+  private String parseSeatType(ByteBuffer buffer, int start, int end) {
+    for (String seatType : seatTypes) {
+      if (seatType.length() == end - start) {
+        int i = 0;
+        while ((i < seatType.length()) && (seatType.charAt(i) == buffer.get(start + i))) {
+          i++;
+        }
+        if (i == seatType.length()) {
+          return seatType;
+        }
+      }
+    }
+    return asString(buffer, start, end);
+  }
+
+  /**
+   * Read a date with the format "MM/dd/yyyy hh:mm a" following the same rules as
+   * Dates.parse() but straight from the bytes of the file.
+   *
+   * @return long with the date read in milliseconds since 1970.
+   */
+  private static long parseTime(ByteBuffer buffer, int start, int end) {
+    int[] token = new int[5]; // month, day, year, hour, minute
+    int nToken = 0;
+    boolean inNumber = false;
+    boolean pm = false;
+    byte b;
+
+    for (int i = start; i < end; i++) {
+      b = buffer.get(i);
+      if ((b >= '0') && (b <= '9')) {
+        if (nToken == token.length) {
+          throw new IllegalArgumentException("Purchase time have too many numbers.");
+        }
+        token[nToken] = token[nToken] * 10 + (b - '0');
+        inNumber = true;
+      } else {
+        if (inNumber) {
+          nToken++;
+          inNumber = false;
+        }
+        if ((b == 'P') && (i + 1 < end) && (buffer.get(i + 1) == 'M')) {
+          pm = true;
+        }
+      }
+    }
+    if (inNumber) {
+      nToken++;
+    }
+    if (nToken != token.length) {
+      throw new IllegalArgumentException("Purchase time don't follow the format MM/dd/yyyy hh:mm a.");
+    }
+
+    return Dates.toMillis(token[2], token[0], token[1], token[3], token[4], pm);
+  }
+
+  /**
+   * Range of the file parse by one thread with the tickets made from it.
+   */
+  private static class Chunk {
+    private final long start;
+    private final long end;
+    private ArrayList<Ticket> tickets = new ArrayList<>();
+    private long[] fees = new long[0]; // NFEES fees per ticket in the same order as tickets
+    private int nRejected = 0;
+
+    private Chunk(long start, long end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+}
@@ -169,7 +169,7 @@ public class Modifier {
     } else if (nModification == 3) {
       event.setTime(update);
     } else if (nModification >= 3 && nModification <= 4 + Database.getSeatTypes().length) {
-      event.setSeatPrice(Database.getSeatTypes()[nModification - 3], Float.parseFloat(update));
+      event.setSeatPriceInCents(Database.getSeatTypes()[nModification - 3], Money.toCents(update));
     } else {
       System.out.println("Modify switch statement in Database to handle all modifications.");
     }
@@ -0,0 +1,151 @@
+package ticketmaster;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money keep all the money amounts of the system as a long with the number of
+ * cents, so adding thousands of taxes and fees give the exact same total no
+ * matter the order they are added and no cent is lost along the way. Floats
+ * are only used to show amounts or to read them from old files.
+ *
+ * The methods only work on primitive longs, so nothing is allocated when they
+ * are used on the purchase path. Rates are given in basis points (1/100 of a
+ * percent), e.g., 8.25% is 825, and results are rounded half up to the nearest
+ * cent.
+ */
+public class Money {
+  public static final long CENTSPERDOLLAR = 100;
+  public static final long BASISPOINTS = 10000; // Basis points in 100%
+  private static final long NOTPLAIN = Long.MIN_VALUE;
+  private static final int MAXPLAINDIGITS = 17; // Can't overflow a long in cents
+
+  private Money() {
+  }
+
+  // Methods
+  /**
+   * Convert an amount in dollars into cents rounding to the nearest cent.
+   *
+   * @param dollars - String containing a number in float/double format.
+   * @return long with the amount in cents.
+   * @throws NumberFormatException if dollars is not a number.
+   */
+  public static long toCents(String dollars) {
+    long cents = parsePlainCents(dollars);
+    if (cents != NOTPLAIN) {
+      return cents;
+    }
+    return new BigDecimal(dollars.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  /**
+   * Read amounts like the ones in the csv files, e.g., 26.10, -3 or 0.5, without
+   * making a BigDecimal. Anything else, like more than 2 decimals or exponents,
+   * is left to toCents().
+   *
+   * @return long with the amount in cents or NOTPLAIN.
+   */
+  private static long parsePlainCents(String dollars) {
+    int i = 0;
+    int end = dollars.length();
+    boolean negative = false;
+    long whole = 0;
+    long cents = 0;
+    int nDecimals = 0;
+    int nDigits = 0;
+
+    if ((end > 0) && (dollars.charAt(0) == '-')) {
+      negative = true;
+      i++;
+    }
+    for (; (i < end) && (dollars.charAt(i) >= '0') && (dollars.charAt(i) <= '9'); i++) {
+      whole = whole * 10 + (dollars.charAt(i) - '0');
+      nDigits++;
+    }
+    if ((i < end) && (dollars.charAt(i) == '.')) {
+      for (i++; (i < end) && (dollars.charAt(i) >= '0') && (dollars.charAt(i) <= '9'); i++) {
+        if (++nDecimals > 2) {
+          return NOTPLAIN;
+        }
+        cents = cents * 10 + (dollars.charAt(i) - '0');
+        nDigits++;
+      }
+    }
+    if ((i != end) || (nDigits == 0) || (nDigits > MAXPLAINDIGITS)) {
+      return NOTPLAIN;
+    }
+    cents = whole * CENTSPERDOLLAR + ((nDecimals == 1) ? cents * 10 : cents);
+    return negative ? -cents : cents;
+  }
+
+  /**
+   * Float.toString() give the shortest decimal that read back as the same float,
+   * so an amount that was written with 2 decimals is converted without error.
+   *
+   * @param dollars - float with an amount in dollars.
+   * @return long with the amount in cents.
+   */
+  public static long toCents(float dollars) {
+    return toCents(Float.toString(dollars));
+  }
+
+  public static float toDollars(long cents) {
+    return (float) (cents / (double) CENTSPERDOLLAR);
+  }
+
+  /**
+   * @param cents - long with an amount in cents.
+   * @return String with the amount in the format dollars.cents, e.g., -26.05.
+   */
+  public static String toString(long cents) {
+    StringBuilder bld = new StringBuilder(12);
+    long abs = Math.abs(cents);
+
+    if (cents < 0) {
+      bld.append('-');
+    }
+    bld.append(abs / CENTSPERDOLLAR).append('.');
+    if (abs % CENTSPERDOLLAR < 10) {
+      bld.append('0');
+    }
+    return bld.append(abs % CENTSPERDOLLAR).toString();
+  }
+
+  /**
+   * Convert a percentage into basis points, e.g., 8.25 into 825.
+   *
+   * @param percentage - float with the percentage.
+   * @return long with the percentage in basis points.
+   */
+  public static long toBasisPoints(float percentage) {
+    return toCents(percentage); // Both move the point two places
+  }
+
+  /**
+   * @param cents       - long with an amount in cents.
+   * @param basisPoints - long with the rate in basis points.
+   * @return long with the rate applied to cents, rounded to the nearest cent.
+   */
+  public static long applyRate(long cents, long basisPoints) {
+    return divide(cents * basisPoints, BASISPOINTS);
+  }
+
+  /**
+   * Divide an amount rounding half up (away from zero for negative amounts) to
+   * the nearest cent.
+   *
+   * @param cents   - long with an amount in cents.
+   * @param divisor - long greater than 0.
+   * @return long with cents / divisor in cents.
+   */
+  public static long divide(long cents, long divisor) {
+    long quotient = cents / divisor;
+    long remainder = cents % divisor;
+
+    if (Math.abs(remainder) * 2 >= divisor) {
+      quotient += Long.signum(cents);
+    }
+    return quotient;
+  }
+}
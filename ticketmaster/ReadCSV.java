@@ -1,10 +1,7 @@
 package ticketmaster;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.LinkedHashMap;
+import java.io.IOException;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.logging.Level;
 
 /**
@@ -16,6 +13,13 @@ import java.util.logging.Level;
  */
 public class ReadCSV {
   public static final String EVENTIDHEADER = "Event ID";
+  // Columns read from every row, their indexes are looked up once per file
+  private static final String[] CUSTOMERCOLUMNS = { "ID", "Money Available", "TicketMiner Membership",
+      "First Name", "Last Name", "Username", "Password" };
+  private static final String[] PURCHASECOLUMNS = { "First", "Last", EVENTIDHEADER, "Ticket Quantity",
+      "Ticket Type" };
+  private static final int FIRSTSEATCOLUMN = 9; // Seat Type 1, Price 1, Seat Type 2...
+  private static final String[] TICKETCOLUMNS = makeTicketColumns();
 
   private ReadCSV() {
     // This constructor is empty, class is use only to read files given the database
@@ -31,65 +35,57 @@ public class ReadCSV {
    *                       be read.
    */
   public static void populateDatabase(String filename, String whatToPopulate) {
-    Scanner fileScnr = prepareFileToBeRead(filename);
+    CSVTokenizer tokenizer = prepareFileToBeRead(filename);
     int populateOption;
 
-    // Check that fileScnr was successfully open
-    if (fileScnr == null) {
+    // Check that the file was successfully open
+    if (tokenizer == null) {
       return;
     }
 
-    populateOption = getWhatToPopulate(whatToPopulate);
-    if (populateOption < 0) {
-      System.out.println(whatToPopulate + " is not a valid option on what to populate in ReadCSV.populateDatabase().");
-      return;
-    }
-
-    LinkedHashMap<String, String> lineInfo = new LinkedHashMap<>();
-    String[] entries;
-    int i;
-
-    // Read header and use what is read as keys
-    entries = (fileScnr.nextLine()).split(",");
-    for (String columnName : entries)
-      lineInfo.put(columnName, "");
-
-    // Check that the file provided have all the header needed
-    if (!checkHeaders(lineInfo, populateOption)) {
-      return;
-    }
+    try (CSVTokenizer fileTokenizer = tokenizer) {
+      populateOption = getWhatToPopulate(whatToPopulate);
+      if (populateOption < 0) {
+        System.out.println(whatToPopulate + " is not a valid option on what to populate in ReadCSV.populateDatabase().");
+        return;
+      }
 
-    // Read the rest of the file provided to make events and venues
-    while (fileScnr.hasNextLine()) {
-      entries = (fileScnr.nextLine()).split(",");
+      // Read header, the column names are map to their index only once
+      if (fileTokenizer.readHeader() == null) {
+        return;
+      }
+      CSVRow lineInfo = fileTokenizer.getRow();
 
-      // Save line information read
-      i = 0;
-      for (String key : lineInfo.keySet()) {
-        // Map key to entries[i++] if i < entries.length otherwise to ""
-        lineInfo.put(key, (i < entries.length ? entries[i++] : ""));
+      // Check that the file provided have all the header needed
+      if (!checkHeaders(lineInfo, populateOption)) {
+        return;
       }
+      int[] columns = getColumns(lineInfo, populateOption);
 
-      // Save event and venue information
-      switch (populateOption) {
-        case (0):
-          addEvent(lineInfo);
-          break;
-        case (1):
-          addCustomer(lineInfo);
-          break;
-        case (2):
-          addTicket(lineInfo);
-          break;
-        case (3):
-          addPurchase(lineInfo);
-          break;
-        default:
-          System.err
-              .println(populateOption + " is not accounted for on the switch statement in ReadCSV.populateDatabase().");
+      // Read the rest of the file, every line overwrite lineInfo
+      while (fileTokenizer.nextRow()) {
+        switch (populateOption) {
+          case (0):
+            addEvent(lineInfo);
+            break;
+          case (1):
+            addCustomer(lineInfo, columns);
+            break;
+          case (2):
+            addTicket(lineInfo, columns);
+            break;
+          case (3):
+            addPurchase(lineInfo, columns);
+            break;
+          default:
+            System.err
+                .println(populateOption + " is not accounted for on the switch statement in ReadCSV.populateDatabase().");
+        }
       }
+    } catch (IOException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
     }
-    fileScnr.close();
   }
 
   private static int getWhatToPopulate(String whatToPopulate) {
@@ -147,36 +143,93 @@ public class ReadCSV {
     return goodHeaders;
   }
 
+  /**
+   * Look up the index of every column read from the rows of the file, so rows
+   * are read by index instead of by header name.
+   *
+   * @param row            - CSVRow with the header read.
+   * @param populateOption - int given by getWhatToPopulate().
+   * @return int[] with the index of every column, -1 for the missing ones, in
+   *         the order of CUSTOMERCOLUMNS, TICKETCOLUMNS or PURCHASECOLUMNS.
+   *         null for events, they are read by Admin by header name.
+   */
+  private static int[] getColumns(CSVRow row, int populateOption) {
+    String[] names;
+
+    switch (populateOption) {
+      case (1):
+        names = CUSTOMERCOLUMNS;
+        break;
+      case (2):
+        names = TICKETCOLUMNS;
+        break;
+      case (3):
+        names = PURCHASECOLUMNS;
+        break;
+      default:
+        return null;
+    }
+
+    int[] columns = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      columns[i] = row.getColumnIndex(names[i]);
+    }
+    return columns;
+  }
+
+  /**
+   * @return String[] with the ticket columns, the seat columns of every seat a
+   *         ticket can have start at FIRSTSEATCOLUMN.
+   */
+  private static String[] makeTicketColumns() {
+    String[] columns = new String[FIRSTSEATCOLUMN + 2 * Ticket.getMaxNumberOfSeats()];
+    String[] fixed = { "Purchase ID", EVENTIDHEADER, "Customer ID", "Purchase Time", "Taxes pay", "Service Fee",
+        "Convenience Fee", "Charity Fee", "Subtotal" };
+
+    System.arraycopy(fixed, 0, columns, 0, FIRSTSEATCOLUMN);
+    for (int i = 1; i <= Ticket.getMaxNumberOfSeats(); i++) {
+      columns[FIRSTSEATCOLUMN + 2 * (i - 1)] = "Seat Type " + i;
+      columns[FIRSTSEATCOLUMN + 2 * (i - 1) + 1] = "Price " + i;
+    }
+    return columns;
+  }
+
   /**
    * 
    * 
-   * @param entries - Map<String,String> with the header of the column names as
-   *                keys and the line information just read as values
+   * @param row     - CSVRow with the line just read.
+   * @param columns - int[] with the index of every column of CUSTOMERCOLUMNS.
    */
-  private static void addCustomer(Map<String, String> entries) {
-    int id = Integer.parseInt(entries.get("ID"));
-    float moneyAvailable = Float.parseFloat(entries.get("Money Available"));
-    boolean hasMembership = entries.get("TicketMiner Membership").equalsIgnoreCase("TRUE");
-    Customer customer = new Customer(id, entries.get("First Name"), entries.get("Last Name"), moneyAvailable,
-        hasMembership, entries.get("Username"), entries.get("Password"));
+  private static void addCustomer(CSVRow row, int[] columns) {
+    int id = row.getInt(columns[0]);
+    long moneyAvailable = Money.toCents(row.get(columns[1]));
+    boolean hasMembership = row.get(columns[2]).equalsIgnoreCase("TRUE");
+    Customer customer = new Customer(id, row.get(columns[3]), row.get(columns[4]), moneyAvailable,
+        hasMembership, row.get(columns[5]), row.get(columns[6]));
     Database.addCustomers(customer);
   }
 
   /**
    * 
    * 
-   * @param entries
+   * @param row     - CSVRow with the line just read.
+   * @param columns - int[] with the index of every column of PURCHASECOLUMNS.
    */
-  private static void addPurchase(Map<String, String> entries) {
-    Customer customer = Database.getCustomer(entries.get("First") + entries.get("Last"));
-    int eventID = Integer.parseInt(entries.get(EVENTIDHEADER));
+  private static void addPurchase(CSVRow row, int[] columns) {
+    Customer customer = Database.getCustomer(row.getChars(columns[0]), row.getChars(columns[1]));
+    int eventID = row.getInt(columns[2]);
     Event event = Database.getEvent(eventID);
-    int nSeats = Integer.parseInt(entries.get("Ticket Quantity"));
+    int nSeats = row.getInt(columns[3]);
+    if (nSeats < 1) {
+      Log.logWrite(Level.FINE, "Auto purchase of " + nSeats + " seats rejected for " + row.get(columns[0]) + " "
+          + row.get(columns[1]) + ".");
+      return;
+    }
     try {
-      Ticket ticket = customer.buySeats(event, entries.get("Ticket Type"), nSeats);
+      Ticket ticket = customer.buySeats(event, row.get(columns[4]), nSeats);
       Database.addTicket(ticket);
     } catch (NullPointerException e) {
-      System.out.println(entries.get("First") + entries.get("Last"));
+      System.out.println(row.get(columns[0]) + row.get(columns[1]));
       System.err.println(e.toString());
     }
   }
@@ -204,33 +257,30 @@ public class ReadCSV {
   /**
    * 
    * 
-   * @param entries - Map<String,String> with the header of the column names as
-   *                keys and the line information just read as values
-   * @return
+   * @param row     - CSVRow with the line just read.
+   * @param columns - int[] with the index of every column of TICKETCOLUMNS.
    */
-  private static void addTicket(Map<String, String> entries) {
-    int id = Integer.parseInt(entries.get("Purchase ID"));
-    Event event = Database.getEvent(Integer.parseInt(entries.get(EVENTIDHEADER)));
-    Customer customer = Database.getCustomer(Integer.parseInt(entries.get("Customer ID")));
+  private static void addTicket(CSVRow row, int[] columns) {
+    long id = Long.parseLong(row.get(columns[0]));
+    Event event = Database.getEvent(row.getInt(columns[1]));
+    Customer customer = Database.getCustomer(row.getInt(columns[2]));
     Ticket ticket = new Ticket(event, event.getVenue(), customer);
     String seatType;
-    float seatPrice;
+    long seatPrice;
 
     ticket.setPurchaseID(id);
-    ticket.setPurchaseTime(Admin.getCalendar(entries.get("Purchase Time")));
-    ticket.setTaxesPay(Float.parseFloat(entries.get("Taxes pay")));
-    ticket.setServiceFeePay(Float.parseFloat(entries.get("Service Fee")));
-    ticket.setConvenienceFee(Float.parseFloat(entries.get("Convenience Fee")));
-    ticket.setCharityFeePay(Float.parseFloat(entries.get("Charity Fee")));
-    ticket.setSubtotal(Float.parseFloat(entries.get("Subtotal")));
+    ticket.setPurchaseTimeInMillis(Dates.parse(row.get(columns[3])));
+    ticket.setFees(Money.toCents(row.get(columns[4])), Money.toCents(row.get(columns[5])),
+        Money.toCents(row.get(columns[6])), Money.toCents(row.get(columns[7])));
+    ticket.setSubtotal(Money.toCents(row.get(columns[8])));
 
-    for (int i = 1; i <= Ticket.getMaxNumberOfSeats(); i++) {
-      seatType = entries.get("Seat Type " + i);
+    for (int i = FIRSTSEATCOLUMN; i < columns.length; i += 2) {
+      seatType = row.get(columns[i]);
       if (seatType.length() == 0) {
         break;
       }
-      seatPrice = Float.parseFloat(entries.get("Price " + i));
-      ticket.addPurchase(new Seat(seatType, seatPrice));
+      seatPrice = Money.toCents(row.get(columns[i + 1]));
+      ticket.addPurchase(seatType, seatPrice);
     }
 
     Database.addTicket(ticket);
@@ -241,19 +291,19 @@ public class ReadCSV {
    * message and return null.
    * 
    * @param filename - String with the csv file name
-   * @return Scanner containing the file opened to be read if successful or null
-   *         otherwise
+   * @return CSVTokenizer containing the file opened to be read if successful or
+   *         null otherwise
    */
-  private static Scanner prepareFileToBeRead(String filename) {
-    Scanner fileScnr = null;
+  private static CSVTokenizer prepareFileToBeRead(String filename) {
+    CSVTokenizer tokenizer = null;
 
     try {
-      fileScnr = new Scanner(new File(filename));
-    } catch (FileNotFoundException | NullPointerException e) {
+      tokenizer = CSVTokenizer.open(filename);
+    } catch (IOException | NullPointerException e) {
       System.err.println(e.toString());
       Log.logWrite(Level.WARNING, e.toString());
     }
-    return fileScnr;
+    return tokenizer;
   }
 
   /**
@@ -266,20 +316,19 @@ public class ReadCSV {
    *                entries.
    */
   public static void makeSeats(Map<String, String> entries, Event event) {
-    String tempPrice;
     int tempSeats;
 
-    // Set number of available seat with their respective prices
-    for (String seatType : Database.getSeatTypes()) {
-      tempPrice = entries.get(seatType.concat(" Price"));
-      if (entries.containsKey(seatType.concat(" Pct"))) {
-        tempSeats = Integer.parseInt(entries.get(seatType.concat(" Pct")));
-        event.makeNSeatsByPct(seatType, tempPrice, tempSeats);
-      } else if (entries.containsKey(seatType.concat(" Num"))) {
-        tempSeats = Integer.parseInt(entries.get(seatType.concat(" Num")));
-        event.makeNSeatsByNum(seatType, tempPrice, tempSeats);
+    // Set number of available seat with their respective prices, the column names
+    // of every seat type are made only once by SeatTypes
+    for (int i = 0; i < SeatTypes.count(); i++) {
+      if (entries.containsKey(SeatTypes.getPctHeader(i))) {
+        tempSeats = Integer.parseInt(entries.get(SeatTypes.getPctHeader(i)));
+        event.makeNSeatsByPct(i, Money.toCents(entries.get(SeatTypes.getPriceHeader(i))), tempSeats);
+      } else if (entries.containsKey(SeatTypes.getNumHeader(i))) {
+        tempSeats = Integer.parseInt(entries.get(SeatTypes.getNumHeader(i)));
+        event.makeNSeatsByNum(i, Money.toCents(entries.get(SeatTypes.getPriceHeader(i))), tempSeats);
       } else {
-        System.err.println("csv file don't contain number nor percentage of " + seatType + " seat type.");
+        System.err.println("csv file don't contain number nor percentage of " + SeatTypes.nameOf(i) + " seat type.");
       }
     }
 
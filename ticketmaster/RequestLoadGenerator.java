@@ -0,0 +1,320 @@
+package ticketmaster;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * RequestLoadGenerator send requests to a RequestServer from many threads at
+ * the same time and report the requests per second and the latency
+ * percentiles of every kind of request.
+ *
+ * Every thread send a request, wait for the answer and send the next one, so
+ * --threads is the number of users using the server at the same time. Requests
+ * are picked at random with the weights of --mix. Sells are for tickets bought
+ * by the same thread, a buy is sent instead when the thread don't have any.
+ *
+ * Usage: java ticketmaster.RequestLoadGenerator --url http://localhost:PORT
+ * --customers FILE [--threads N] [--requests N] [--mix
+ * events=30,event=20,statistics=10,fees=5,buy=30,sell=5]
+ */
+public class RequestLoadGenerator {
+  private static final String[] KINDS = { "events", "event", "statistics", "fees", "buy", "sell" };
+  private static final Pattern EVENTID = Pattern.compile("\"eventID\":(\\d+)");
+  private static final Pattern TICKETID = Pattern.compile("\"ticketID\":(\\d+)");
+
+  private String url = null;
+  private String customersFilename = null;
+  private int threads = 8;
+  private long nRequests = 10000;
+  private final int[] weights = { 30, 20, 10, 5, 30, 5 };
+  private final ArrayList<String[]> customers = new ArrayList<>(); // Username and password
+  private final ArrayList<Integer> eventIDs = new ArrayList<>();
+  // HTTP/1.1 since the server don't speak HTTP/2, the upgrade asked by default
+  // would be sent with every request
+  private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+  private final AtomicLong nSent = new AtomicLong();
+
+  /**
+   * Worker is a thread sending requests with its own histograms and tickets.
+   */
+  private final class Worker extends Thread {
+    private final LatencyHistogram[] latencies = new LatencyHistogram[KINDS.length];
+    private final long[][] statuses = new long[KINDS.length][6]; // 1xx to 5xx, and failed to send
+    private final ArrayList<String[]> tickets = new ArrayList<>(); // Ticket ID, username and password
+
+    private Worker(int n) {
+      super("LoadGenerator-" + n);
+      for (int i = 0; i < KINDS.length; i++) {
+        latencies[i] = new LatencyHistogram();
+      }
+    }
+
+    @Override
+    public void run() {
+      while (nSent.getAndIncrement() < nRequests) {
+        int kind = pickKind();
+        if ((kind == 5) && tickets.isEmpty()) {
+          kind = 4; // Nothing to sell yet
+        }
+        long start = System.nanoTime();
+        int status;
+        try {
+          status = sendRequest(kind);
+        } catch (IOException e) {
+          status = 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        latencies[kind].record(System.nanoTime() - start);
+        statuses[kind][(status == 0) ? 5 : Math.min(Math.max(status / 100, 1), 5) - 1]++;
+      }
+    }
+
+    /**
+     * @return int with the HTTP status of the answer.
+     */
+    private int sendRequest(int kind) throws IOException, InterruptedException {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      int eventID = eventIDs.get(random.nextInt(eventIDs.size()));
+      HttpResponse<String> response;
+
+      switch (KINDS[kind]) {
+        case ("events"):
+          response = get("/events?limit=20&q=" + encode(random.nextBoolean() ? "utep" : "concert"));
+          break;
+        case ("event"):
+          response = get("/events/" + eventID);
+          break;
+        case ("statistics"):
+          response = get("/events/" + eventID + "/statistics");
+          break;
+        case ("fees"):
+          response = get("/fees");
+          break;
+        case ("buy"):
+          String[] customer = customers.get(random.nextInt(customers.size()));
+          response = send("POST", "/tickets", "username=" + encode(customer[0]) + "&password=" + encode(customer[1])
+              + "&event=" + eventID + "&seatType=" + encode(SeatTypes.nameOf(random.nextInt(SeatTypes.count())))
+              + "&seats=" + (1 + random.nextInt(Ticket.getMaxNumberOfSeats())));
+          Matcher matcher = TICKETID.matcher(response.body());
+          if ((response.statusCode() == 201) && matcher.find()) {
+            tickets.add(new String[] { matcher.group(1), customer[0], customer[1] });
+          }
+          break;
+        default: // sell
+          String[] ticket = tickets.remove(random.nextInt(tickets.size()));
+          response = send("DELETE", "/tickets/" + ticket[0],
+              "username=" + encode(ticket[1]) + "&password=" + encode(ticket[2]));
+      }
+      return response.statusCode();
+    }
+  }
+
+  private RequestLoadGenerator() {
+  }
+
+  /**
+   * @param args - String[] with the options, see the class comment.
+   */
+  public static void main(String[] args) {
+    RequestLoadGenerator generator = new RequestLoadGenerator();
+
+    if (!generator.parseArguments(args)) {
+      System.err.println("Usage: java ticketmaster.RequestLoadGenerator --url http://localhost:PORT --customers FILE"
+          + " [--threads N] [--requests N] [--mix events=30,event=20,statistics=10,fees=5,buy=30,sell=5]");
+      System.exit(2);
+    }
+    try {
+      generator.readCustomers();
+      generator.readEvents();
+    } catch (IOException | InterruptedException e) {
+      System.err.println(e.toString());
+      System.exit(1);
+    }
+    if (generator.customers.isEmpty() || generator.eventIDs.isEmpty()) {
+      System.err.println("There are no customers or events to send requests for.");
+      System.exit(1);
+    }
+    generator.run();
+  }
+
+  private boolean parseArguments(String[] args) {
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String value = args[i + 1];
+      try {
+        switch (args[i]) {
+          case ("--url"):
+            url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+            break;
+          case ("--customers"):
+            customersFilename = value;
+            break;
+          case ("--threads"):
+            threads = Integer.parseInt(value);
+            break;
+          case ("--requests"):
+            nRequests = Long.parseLong(value);
+            break;
+          case ("--mix"):
+            if (!parseMix(value)) {
+              return false;
+            }
+            break;
+          default:
+            System.err.println(args[i] + " is not a valid option.");
+            return false;
+        }
+      } catch (NumberFormatException e) {
+        System.err.println(value + " is not a valid number for " + args[i] + ".");
+        return false;
+      }
+    }
+    return (args.length % 2 == 0) && (url != null) && (customersFilename != null) && (threads > 0);
+  }
+
+  /**
+   * @param mix - String with kind=weight separated by commas, kinds not given
+   *            get 0.
+   * @return true if every kind given exist.
+   */
+  private boolean parseMix(String mix) {
+    int total = 0;
+
+    Arrays.fill(weights, 0);
+    for (String part : mix.split(",")) {
+      String[] kindWeight = part.split("=");
+      int kind = Arrays.asList(KINDS).indexOf(kindWeight[0].trim());
+      if ((kind < 0) || (kindWeight.length != 2)) {
+        System.err.println(part + " is not a valid request weight.");
+        return false;
+      }
+      weights[kind] = Integer.parseInt(kindWeight[1].trim());
+      total += weights[kind];
+    }
+    return total > 0;
+  }
+
+  private void readCustomers() throws IOException {
+    try (CSVTokenizer tokenizer = CSVTokenizer.open(customersFilename)) {
+      if (tokenizer.readHeader() == null) {
+        throw new IOException(customersFilename + " is empty.");
+      }
+      CSVRow row = tokenizer.getRow();
+      int username = row.getColumnIndex("Username");
+      int password = row.getColumnIndex("Password");
+      if ((username < 0) || (password < 0)) {
+        throw new IOException(customersFilename + " don't have the Username and Password columns.");
+      }
+      while (tokenizer.nextRow()) {
+        customers.add(new String[] { row.get(username), row.get(password) });
+      }
+    }
+  }
+
+  private void readEvents() throws IOException, InterruptedException {
+    HttpResponse<String> response = get("/events?limit=1000");
+    Matcher matcher = EVENTID.matcher(response.body());
+
+    if (response.statusCode() != 200) {
+      throw new IOException("GET /events answered " + response.statusCode() + ": " + response.body());
+    }
+    while (matcher.find()) {
+      eventIDs.add(Integer.parseInt(matcher.group(1)));
+    }
+  }
+
+  /**
+   * Start the workers, wait for them and print the report.
+   */
+  private void run() {
+    Worker[] workers = new Worker[threads];
+    long start = System.nanoTime();
+    long elapsed;
+
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Worker(i);
+      workers[i].start();
+    }
+    for (Worker worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    elapsed = System.nanoTime() - start;
+
+    LatencyHistogram all = new LatencyHistogram();
+    Map<String, String> lines = new LinkedHashMap<>();
+    for (int kind = 0; kind < KINDS.length; kind++) {
+      LatencyHistogram latencies = new LatencyHistogram();
+      long[] statuses = new long[6];
+      for (Worker worker : workers) {
+        latencies.add(worker.latencies[kind]);
+        for (int i = 0; i < statuses.length; i++) {
+          statuses[i] += worker.statuses[kind][i];
+        }
+      }
+      all.add(latencies);
+      if (latencies.getCount() > 0) {
+        lines.put(KINDS[kind], String.format("%s 2xx=%d 4xx=%d 5xx=%d failed=%d", latencies, statuses[1],
+            statuses[3], statuses[4], statuses[5]));
+      }
+    }
+
+    System.out.printf("%d requests in %.1f ms with %d threads, %.0f requests/sec%n", all.getCount(), elapsed / 1e6,
+        threads, all.getCount() * 1e9 / elapsed);
+    System.out.printf("%-11s %s%n", "all", all);
+    for (Map.Entry<String, String> line : lines.entrySet()) {
+      System.out.printf("%-11s %s%n", line.getKey(), line.getValue());
+    }
+  }
+
+  private int pickKind() {
+    int total = 0;
+    int pick;
+
+    for (int weight : weights) {
+      total += weight;
+    }
+    pick = ThreadLocalRandom.current().nextInt(total);
+    for (int i = 0; i < weights.length; i++) {
+      pick -= weights[i];
+      if (pick < 0) {
+        return i;
+      }
+    }
+    return weights.length - 1;
+  }
+
+  private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+    return client.send(HttpRequest.newBuilder(URI.create(url + path)).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> send(String method, String path, String form)
+      throws IOException, InterruptedException {
+    return client.send(HttpRequest.newBuilder(URI.create(url + path))
+        .header("Content-Type", "application/x-www-form-urlencoded")
+        .method(method, HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private static String encode(String text) {
+    return URLEncoder.encode(text, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,483 @@
+package ticketmaster;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * RequestServer let many users use the Database at the same time through a
+ * local HTTP API that answer in JSON. It only listen on the loopback address.
+ *
+ * GET /events?q=&venue=&type=&from=&to=&limit= Events by part of their name (q)
+ * or by venue, type and dates (M/d/yyyy or M/d/yyyy h:mm AM).
+ * GET /events/{id} Event with its seats and fees.
+ * GET /events/{id}/statistics Seats sold, revenue and profits of the event.
+ * GET /fees Taxes and fees collected by TicketMiner.
+ * POST /tickets username, password, event, seatType, seats: buy seats.
+ * GET /tickets/{id}?username=&password= Ticket of the customer.
+ * DELETE /tickets/{id}?username=&password= Sell all the seats of the ticket.
+ * POST /shutdown Stop the server.
+ *
+ * Parameters can be in the query or, for POST and DELETE, in a form body.
+ * Errors answer {"error": "..."} with the HTTP status.
+ *
+ * Every request is handled on a thread of a fixed pool. Purchases and sells
+ * only change their customer and event, as in AutoPurchaseProcessor, so
+ * requests don't wait for each other.
+ */
+public class RequestServer {
+  private static final String JSON = "application/json; charset=utf-8";
+  private static final int DEFAULTLIMIT = 50;
+  private static final int MAXLIMIT = 1000;
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final CountDownLatch stopped = new CountDownLatch(1);
+
+  /**
+   * HttpError is a request that can't be answered, with the HTTP status to
+   * answer.
+   */
+  private static final class HttpError extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final int status;
+
+    private HttpError(int status, String message) {
+      super(message);
+      this.status = status;
+    }
+  }
+
+  /**
+   * Route answer a request with a JSON body, or throw HttpError.
+   */
+  private interface Route {
+    String handle(Request request) throws IOException;
+  }
+
+  /**
+   * Request is the method, path and parameters of an exchange.
+   */
+  private static final class Request {
+    private final String method;
+    private final String[] path; // Parts after the context, e.g., {"12", "statistics"}
+    private final Map<String, String> params;
+    private int status = 200;
+
+    private Request(HttpExchange exchange, String context) throws IOException {
+      String rest = exchange.getRequestURI().getPath().substring(context.length());
+
+      if (!rest.isEmpty() && (rest.charAt(0) != '/')) {
+        throw new HttpError(404, "Unknown path.");
+      }
+      this.method = exchange.getRequestMethod();
+      this.path = rest.isEmpty() || rest.equals("/") ? new String[0] : rest.substring(1).split("/");
+      this.params = new HashMap<>();
+      parseParams(exchange.getRequestURI().getRawQuery(), params);
+      if (!method.equals("GET")) {
+        try (InputStream in = exchange.getRequestBody()) {
+          parseParams(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+      }
+    }
+
+    private String get(String name) {
+      String value = params.get(name);
+      if ((value == null) || value.isEmpty()) {
+        throw new HttpError(400, "Missing parameter " + name + ".");
+      }
+      return value;
+    }
+
+    private String get(String name, String defaultValue) {
+      String value = params.get(name);
+      return ((value == null) || value.isEmpty()) ? defaultValue : value;
+    }
+
+    private int getInt(String name, int defaultValue) {
+      String value = params.get(name);
+      return ((value == null) || value.isEmpty()) ? defaultValue : toInt(name, value);
+    }
+
+    private void require(String expected) {
+      if (!method.equals(expected)) {
+        throw new HttpError(405, method + " is not allowed here.");
+      }
+    }
+  }
+
+  private RequestServer(int port, int threads) throws IOException {
+    // Without TCP_NODELAY the server wait for the ACK of the headers before
+    // sending the body on kept alive connections, about 40 ms per request. It
+    // is read once, when the first server is made.
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    executor = Executors.newFixedThreadPool(Math.max(threads, 1), new RequestThreads());
+    server.setExecutor(executor);
+    route("/events", this::events);
+    route("/fees", this::fees);
+    route("/tickets", this::tickets);
+    route("/shutdown", this::shutdown);
+  }
+
+  /**
+   * Name the threads of the server and make them daemons so they don't keep the
+   * program running.
+   */
+  private static final class RequestThreads implements ThreadFactory {
+    private final AtomicInteger nThreads = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "RequestServer-" + nThreads.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * Start a server on the loopback address.
+   *
+   * @param port    - int with the port to listen to, 0 for any free port.
+   * @param threads - int with the number of threads that handle requests.
+   * @return RequestServer started.
+   * @throws IOException if the port can't be used.
+   */
+  public static RequestServer start(int port, int threads) throws IOException {
+    RequestServer requestServer = new RequestServer(port, threads);
+    requestServer.server.start();
+    Log.logWrite(Level.INFO, "Request server listening on port " + requestServer.getPort());
+    return requestServer;
+  }
+
+  // Getters
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  // Methods
+  /**
+   * Block until the server is stopped, by stop() or POST /shutdown.
+   */
+  public void awaitStop() throws InterruptedException {
+    stopped.await();
+  }
+
+  /**
+   * Stop accepting requests, wait up to a second for the requests being handled
+   * and stop the threads.
+   */
+  public synchronized void stop() {
+    if (stopped.getCount() == 0) {
+      return;
+    }
+    server.stop(1);
+    executor.shutdown();
+    stopped.countDown();
+    Log.logWrite(Level.INFO, "Request server stopped");
+  }
+
+  private void route(String context, Route route) {
+    server.createContext(context, exchange -> {
+      String body;
+      int status;
+
+      try {
+        Request request = new Request(exchange, context);
+        body = route.handle(request);
+        status = request.status;
+      } catch (HttpError e) {
+        status = e.status;
+        body = "{\"error\":" + quote(e.getMessage()) + "}";
+      } catch (RuntimeException e) {
+        System.err.println(e.toString());
+        Log.logWrite(Level.WARNING, e.toString());
+        status = 500;
+        body = "{\"error\":" + quote(e.toString()) + "}";
+      }
+
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", JSON);
+      exchange.sendResponseHeaders(status, bytes.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    });
+  }
+
+  // Routes
+  private String events(Request request) {
+    request.require("GET");
+    if (request.path.length == 0) {
+      return findEvents(request);
+    }
+
+    Event event = Database.getEvent(toInt("event ID", request.path[0]));
+    if (event == null) {
+      throw new HttpError(404, "Event " + request.path[0] + " don't exist.");
+    }
+    if (request.path.length == 1) {
+      return toJson(event, new StringBuilder(), true).toString();
+    }
+    if ((request.path.length == 2) && request.path[1].equals("statistics")) {
+      return statistics(event);
+    }
+    throw new HttpError(404, "Unknown path.");
+  }
+
+  private String findEvents(Request request) {
+    int limit = Math.min(Math.max(request.getInt("limit", DEFAULTLIMIT), 0), MAXLIMIT);
+    String text = request.get("q", null);
+    List<Event> events;
+
+    if (text != null) {
+      events = Database.searchEvents(text, limit);
+    } else {
+      long from = toMillis("from", request.get("from", null), Long.MIN_VALUE);
+      long to = toMillis("to", request.get("to", null), Long.MAX_VALUE);
+      events = Database.findEvents(request.get("venue", null), request.get("type", null), from, to, limit);
+    }
+
+    StringBuilder json = new StringBuilder("[");
+    for (Event event : events) {
+      if (json.length() > 1) {
+        json.append(',');
+      }
+      toJson(event, json, false);
+    }
+    return json.append(']').toString();
+  }
+
+  private String statistics(Event event) {
+    Statistics.Summary summary = Statistics.summarize(event);
+    StringBuilder json = new StringBuilder("{\"eventID\":").append(event.getEventID());
+
+    json.append(",\"capacity\":").append(event.getVenue().getCapacity());
+    json.append(",\"totalSeatsSold\":").append(summary.getTotalSeatsSold());
+    json.append(",\"seatTypes\":[");
+    for (int i = 0; i < SeatTypes.count(); i++) {
+      json.append(i == 0 ? "{" : ",{");
+      json.append("\"type\":").append(quote(SeatTypes.nameOf(i)));
+      json.append(",\"seatsSold\":").append(summary.getSeatsSold(i));
+      json.append(",\"revenue\":").append(Money.toString(summary.getSeatRevenueInCents(i))).append('}');
+    }
+    json.append("],\"totalRevenue\":").append(Money.toString(summary.getTotalRevenueInCents()));
+    json.append(",\"expectedProfit\":").append(Money.toString(summary.getExpectedProfitInCents()));
+    json.append(",\"actualProfit\":").append(Money.toString(summary.getActualProfitInCents()));
+    return json.append('}').toString();
+  }
+
+  private String fees(Request request) {
+    long[] totals = Database.getTotalsInCents();
+
+    request.require("GET");
+    return "{\"taxes\":" + Money.toString(totals[0]) + ",\"serviceFees\":" + Money.toString(totals[1])
+        + ",\"convenienceFees\":" + Money.toString(totals[2]) + ",\"charityFees\":" + Money.toString(totals[3])
+        + "}";
+  }
+
+  private String tickets(Request request) {
+    if (request.path.length == 0) {
+      request.require("POST");
+      return buy(request);
+    }
+    if (request.path.length != 1) {
+      throw new HttpError(404, "Unknown path.");
+    }
+
+    Customer customer = login(request);
+    long ticketID = toLong("ticket ID", request.path[0]);
+    Ticket ticket = Database.getTicketPurchased(ticketID);
+    if ((ticket == null) || (ticket.getCustomerID() != customer.getCustomerID())) {
+      throw new HttpError(404, "Ticket " + ticketID + " don't exist.");
+    }
+    if (request.method.equals("GET")) {
+      return toJson(ticket);
+    }
+    request.require("DELETE");
+
+    // Two requests can't sell the same ticket
+    synchronized (ticket) {
+      if (Database.getTicketPurchased(ticketID) != ticket) {
+        throw new HttpError(404, "Ticket " + ticketID + " was already sold.");
+      }
+      long subtotal = ticket.getSubtotalInCents();
+      if (!User.sellAllSeats(ticket)) {
+        throw new HttpError(409, "The event of ticket " + ticketID + " was cancelled.");
+      }
+      return "{\"ticketID\":" + ticketID + ",\"returned\":" + Money.toString(subtotal) + ",\"moneyAvailable\":"
+          + Money.toString(customer.getMoneyAvailableInCents()) + "}";
+    }
+  }
+
+  private String buy(Request request) {
+    Customer customer = login(request);
+    Event event = Database.getEvent(toInt("event", request.get("event")));
+    String seatType = request.get("seatType");
+    int nSeats = toInt("seats", request.get("seats"));
+    Ticket ticket;
+
+    if (event == null) {
+      throw new HttpError(404, "Event " + request.get("event") + " don't exist.");
+    }
+    if (SeatTypes.ordinalOf(seatType) < 0) {
+      throw new HttpError(400, seatType + " is not a seat type.");
+    }
+    if ((nSeats < 1) || (nSeats > Ticket.getMaxNumberOfSeats())) {
+      throw new HttpError(400, "seats must be between 1 and " + Ticket.getMaxNumberOfSeats() + ".");
+    }
+
+    ticket = customer.buySeats(event, seatType, nSeats);
+    if (ticket == null) {
+      throw new HttpError(409, "The seats couldn't be bought, there are not enough " + seatType
+          + " seats or the customer don't have enough money.");
+    }
+    if (!Database.addTicket(ticket)) {
+      throw new HttpError(409, "The event was cancelled, the seats were given back to the customer.");
+    }
+    request.status = 201;
+    return toJson(ticket);
+  }
+
+  private String shutdown(Request request) {
+    request.require("POST");
+    // Answer before the server is stopped
+    new Thread(this::stop, "RequestServerStop").start();
+    return "{\"stopping\":true}";
+  }
+
+  private static Customer login(Request request) {
+    Customer customer = Database.getCustomer(request.get("username"));
+
+    if ((customer == null) || !customer.checkPassword(request.get("password"))) {
+      throw new HttpError(401, "Wrong username or password.");
+    }
+    return customer;
+  }
+
+  // JSON
+  private static StringBuilder toJson(Event event, StringBuilder json, boolean withFees) {
+    json.append("{\"eventID\":").append(event.getEventID());
+    json.append(",\"name\":").append(quote(event.getName()));
+    json.append(",\"type\":").append(quote(event.getClass().getSimpleName()));
+    json.append(",\"date\":").append(quote(event.getDate()));
+    json.append(",\"venue\":").append(quote(event.getVenue().getName()));
+    json.append(",\"seats\":[");
+    boolean first = true;
+    for (int i = 0; i < SeatTypes.count(); i++) {
+      int available = event.getNumberOfSeatsAvailable(i);
+      if (available < 0) {
+        continue; // The event don't have the seat type
+      }
+      json.append(first ? "{" : ",{");
+      json.append("\"type\":").append(quote(SeatTypes.nameOf(i)));
+      json.append(",\"available\":").append(available);
+      json.append(",\"price\":").append(Money.toString(event.getSeatPriceInCents(i))).append('}');
+      first = false;
+    }
+    json.append(']');
+    if (withFees) {
+      json.append(",\"fees\":{\"taxes\":").append(Money.toString(event.getTaxesInCents()));
+      json.append(",\"serviceFees\":").append(Money.toString(event.getServiceFeeInCents()));
+      json.append(",\"convenienceFees\":").append(Money.toString(event.getConvenienceFeeInCents()));
+      json.append(",\"charityFees\":").append(Money.toString(event.getCharityFeeInCents())).append('}');
+    }
+    return json.append('}');
+  }
+
+  private static String toJson(Ticket ticket) {
+    StringBuilder json = new StringBuilder("{\"ticketID\":").append(ticket.getPurchaseID());
+
+    json.append(",\"eventID\":").append(ticket.getEventID());
+    json.append(",\"purchaseTime\":").append(quote(ticket.getPurchaseTime()));
+    json.append(",\"seats\":[");
+    List<Seat> seats = ticket.getSeatsPurchased();
+    for (int i = 0; i < seats.size(); i++) {
+      json.append(i == 0 ? "{" : ",{");
+      json.append("\"type\":").append(quote(seats.get(i).getSeatType()));
+      json.append(",\"price\":").append(Money.toString(seats.get(i).getPriceInCents())).append('}');
+    }
+    json.append("],\"subtotal\":").append(Money.toString(ticket.getSubtotalInCents()));
+    json.append(",\"totalCost\":").append(Money.toString(ticket.getTotalCostInCents()));
+    return json.append('}').toString();
+  }
+
+  private static String quote(String text) {
+    StringBuilder json = new StringBuilder("\"");
+
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if ((c == '"') || (c == '\\')) {
+        json.append('\\').append(c);
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    return json.append('"').toString();
+  }
+
+  // Parameters
+  private static void parseParams(String encoded, Map<String, String> params) {
+    if ((encoded == null) || encoded.isEmpty()) {
+      return;
+    }
+    for (String pair : encoded.split("&")) {
+      int idx = pair.indexOf('=');
+      String name = (idx < 0) ? pair : pair.substring(0, idx);
+      String value = (idx < 0) ? "" : pair.substring(idx + 1);
+      try {
+        params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+      } catch (IllegalArgumentException e) {
+        throw new HttpError(400, "Bad parameter " + pair + ".");
+      }
+    }
+  }
+
+  private static int toInt(String name, String value) {
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new HttpError(400, name + " must be a number.");
+    }
+  }
+
+  private static long toLong(String name, String value) {
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new HttpError(400, name + " must be a number.");
+    }
+  }
+
+  /**
+   * @return long with the date in milliseconds since 1970, a date without time
+   *         is taken at 12:00 AM, or defaultMillis if there is no date.
+   */
+  private static long toMillis(String name, String date, long defaultMillis) {
+    if (date == null) {
+      return defaultMillis;
+    }
+    try {
+      return Dates.parse(date.indexOf(':') < 0 ? date.trim() + " 12:00 AM" : date);
+    } catch (IllegalArgumentException e) {
+      throw new HttpError(400, name + " must be a date like 9/4/2022 or 9/4/2022 7:00 PM.");
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package ticketmaster;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
 import java.util.logging.Level;
 
@@ -19,6 +21,7 @@ public class STDINScanner {
   private static STDINScanner obj;
 
   private static final String EXITWORD = "EXIT";
+  private static final int MAXMATCHES = 10; // Events printed when a name match more than one
   private static boolean endOfFileEnter = false;
   private Scanner scnr;
 
@@ -71,6 +74,32 @@ public class STDINScanner {
     return num;
   }
 
+  /**
+   * Same as readNextInt() but for numbers that may not fit in an int, like
+   * ticket IDs.
+   * 
+   * @return long given by the user from System.in or -1 if the exit word was
+   *         given.
+   */
+  public long readNextLong() {
+    String input = "";
+    long num;
+
+    try {
+      input = nextLine();
+      if (input.equals(EXITWORD)) {
+        setEndOfFileEnter(true);
+        num = -1;
+      } else {
+        num = Long.parseLong(input);
+      }
+    } catch (NumberFormatException e) {
+      System.err.println(e.toString());
+      num = readNextLong();
+    }
+    return num;
+  }
+
   /**
    * Read a line from System.in and convert the value to float. If an error occur,
    * another option is given to the user to give a right input.
@@ -248,9 +277,13 @@ public class STDINScanner {
   /**
    * We gave the option to access an event by ID number or by the name and return
    * the ID number of the event wanted. If a non valid ID is given, we let the
-   * user know that input doesn't match an event and return a non valid ID. If a
-   * non valid name is given, we let the user know that the input doesn't
-   * match an event and return 0 so the menu would get printed.
+   * user know that input doesn't match an event and return a non valid ID. If
+   * the name is not exact we look for events with a name like it, if one of
+   * them has the same name in other case we return its ID, otherwise we print
+   * them and return 0 so the user can enter one of their IDs. A name that is
+   * only like the input is never taken, the event may be cancelled or modified
+   * next. If nothing match, we let the user know that the input doesn't match
+   * an event and return 0 so the menu would get printed.
    * 
    * @param reason - String explaining why the user would like to input an event
    *               ID #.
@@ -259,6 +292,7 @@ public class STDINScanner {
    */
   public int askForEvent(String reason) {
     Event event = null;
+    List<Event> matches = Collections.emptyList();
     String temp;
     int inputID = 0;
 
@@ -278,15 +312,28 @@ public class STDINScanner {
       try {
         inputID = Integer.parseInt(temp);
       } catch (NumberFormatException e) {
-        Log.logWrite(Level.FINE, "User enter {}, which doesn't match an event ID or name." + inputID);
-        System.out.println("Enter a valid event ID or name.");
+        // Look for events with a name like the input
+        matches = Database.searchEvents(temp, MAXMATCHES + 1);
+        event = sameNameIgnoreCase(temp, matches);
+        if (event != null) {
+          inputID = event.getEventID();
+          System.out.println("Using event " + event.getName() + " (ID " + inputID + ").");
+        } else if (!matches.isEmpty()) {
+          printMatches(temp, matches);
+        } else {
+          Log.logWrite(Level.FINE, "User enter " + temp + ", which doesn't match an event ID or name.");
+          System.out.println("Enter a valid event ID or name.");
+        }
       }
     } else {
       inputID = event.getEventID();
     }
 
     if (inputID == 0) {
-      Database.printAllEvents();
+      // If the name matched several events only those were printed
+      if (matches.isEmpty()) {
+        Database.printAllEvents();
+      }
     } else if (inputID == -1) {
       Log.logWrite(Level.FINE, "User enter " + inputID + ", so we are exiting the system.");
       System.out.println("Thank you for coming, hope to see you back soon:)");
@@ -298,6 +345,44 @@ public class STDINScanner {
     return inputID;
   }
 
+  /**
+   * @param input   - String with the name input.
+   * @param matches - List with the events found.
+   * @return Event with the same name as input in other case, null if there is
+   *         none or there are several of them.
+   */
+  private static Event sameNameIgnoreCase(String input, List<Event> matches) {
+    Event found = null;
+
+    for (Event event : matches) {
+      if (event.getName().equalsIgnoreCase(input)) {
+        if (found != null) {
+          return null;
+        }
+        found = event;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Print the events that match the name input so the user can enter one of
+   * their IDs, at most MAXMATCHES of them.
+   * 
+   * @param input   - String with the name input.
+   * @param matches - List with the events found, best match first.
+   */
+  private void printMatches(String input, List<Event> matches) {
+    Log.logWrite(Level.FINE, "User enter " + input + ", which match " + matches.size() + " events.");
+    System.out.println("Events with a name like " + input + ":");
+    for (int i = 0; i < Math.min(matches.size(), MAXMATCHES); i++) {
+      System.out.println("\tID " + matches.get(i).getEventID() + ": " + matches.get(i).getName());
+    }
+    if (matches.size() > MAXMATCHES) {
+      System.out.println("\t...");
+    }
+  }
+
   /**
    * Close scanner from System.in and set the synchronize object to null
    */
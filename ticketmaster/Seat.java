@@ -8,18 +8,41 @@ package ticketmaster;
  * @date September 16th, 2022
  */
 public class Seat {
-  private String seatType;
-  private float price;
+  private byte seatType; // SeatTypes ordinal
+  private long priceInCents;
+  private long discountInCents; // Member discount taken off the price
 
   /**
    * Constructor with all parameters. Initialize all attributes.
    * 
    * @param seatType
-   * @param price
+   * @param priceInCents - long with the price payed for the seat in cents.
    */
-  public Seat(String seatType, float price) {
-    this.seatType = seatType;
-    this.price = price;
+  public Seat(String seatType, long priceInCents) {
+    this(SeatTypes.intern(seatType), priceInCents);
+  }
+
+  /**
+   * Constructor with the seat type already known.
+   * 
+   * @param seatType     - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents - long with the price payed for the seat in cents.
+   */
+  public Seat(int seatType, long priceInCents) {
+    this(seatType, priceInCents, 0);
+  }
+
+  /**
+   * Constructor of a seat sold with the member discount.
+   * 
+   * @param seatType        - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents    - long with the price payed for the seat in cents.
+   * @param discountInCents - long with the discount taken off the seat in cents.
+   */
+  public Seat(int seatType, long priceInCents, long discountInCents) {
+    this.seatType = (byte) seatType;
+    this.priceInCents = priceInCents;
+    this.discountInCents = discountInCents;
   }
 
   /**
@@ -30,25 +53,37 @@ public class Seat {
 
   // Getters
   public String getSeatType() {
+    return SeatTypes.nameOf(seatType);
+  }
+
+  public int getSeatTypeOrdinal() {
     return seatType;
   }
 
   public float getPrice() {
-    return price;
+    return Money.toDollars(priceInCents);
+  }
+
+  public long getPriceInCents() {
+    return priceInCents;
+  }
+
+  public long getDiscountInCents() {
+    return discountInCents;
   }
 
   // Setters
   public void setSeatType(String seatType) {
-    this.seatType = seatType;
+    this.seatType = SeatTypes.intern(seatType);
   }
 
-  public void setPrice(float price) {
-    this.price = price;
+  public void setPriceInCents(long priceInCents) {
+    this.priceInCents = priceInCents;
   }
 
   // Methods
   @Override
   public String toString() {
-    return getSeatType() + ": $" + getPrice();
+    return getSeatType() + ": $" + Money.toString(priceInCents);
   }
 }
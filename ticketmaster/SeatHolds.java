@@ -0,0 +1,365 @@
+package ticketmaster;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * SeatHolds keep seats of an event for a customer for a short time, e.g., while
+ * the customer is paying, without selling them yet. A hold take the seats from
+ * the event right away, so no one else can buy them, and is then either
+ * confirmed into a Ticket, released, or it expire and the seats are given back
+ * to the event.
+ *
+ * Expirations are driven by a timer wheel: a circular array of WHEELSIZE slots
+ * of TICKMILLIS each, where every slot is a linked list of the holds that
+ * expire in it. Placing, confirming and releasing a hold only link or unlink it
+ * from its slot, and every tick only read the holds of one slot, so millions of
+ * holds expire without ever being sorted or scanned. Holds that expire after a
+ * whole turn of the wheel keep the number of turns left and are skipped until
+ * it is 0. A hold never expire before its time, but it can expire up to a tick
+ * after it.
+ *
+ * The wheel is moved by a daemon thread started with the first hold, or by
+ * calling expire(). Changes are synchronized, none of them take longer than
+ * linking a hold except expire(), which give back the seats of every hold that
+ * expired. Paying for a hold is done without the lock.
+ *
+ * Seats held are still counted as not sold when the event is saved, so holds
+ * don't need to be journaled and seats held when the program stops are not
+ * lost.
+ */
+public class SeatHolds {
+  private static final long TICKMILLIS = 100;
+  private static final int WHEELBITS = 12; // 4096 slots, a turn is 409.6 seconds
+  private static final int WHEELSIZE = 1 << WHEELBITS;
+  private static final int WHEELMASK = WHEELSIZE - 1;
+  // Hold states
+  private static final byte HELD = 0;
+  private static final byte CONFIRMING = 1; // Being payed, out of the wheel
+  private static final byte CONFIRMED = 2;
+  private static final byte RELEASED = 3;
+  private static final byte EXPIRED = 4;
+
+  private final Hold[] wheel = new Hold[WHEELSIZE]; // First hold of every slot
+  private long tick; // Last tick the wheel was moved to
+  private long nextHoldID = 1;
+  private final IDMap<Hold> holds = new IDMap<>(); // key = holdID | value = Hold not confirmed or released yet
+  private final IDMap<int[]> heldSeats = new IDMap<>(); // key = eventID | value = seats held per SeatTypes ordinal
+  private ScheduledExecutorService ticker = null;
+
+  /**
+   * Hold is a group of seats of a seat type kept for a customer until expiresAt.
+   */
+  public static final class Hold {
+    private final long holdID;
+    private final Customer customer;
+    private final Event event;
+    private final int seatType;
+    private final int nSeats;
+    private final long expiresAt; // Milliseconds since 1970
+    private byte state = HELD;
+    // Place in the wheel
+    private int turns;
+    private int slot;
+    private Hold previous;
+    private Hold next;
+
+    private Hold(long holdID, Customer customer, Event event, int seatType, int nSeats, long expiresAt) {
+      this.holdID = holdID;
+      this.customer = customer;
+      this.event = event;
+      this.seatType = seatType;
+      this.nSeats = nSeats;
+      this.expiresAt = expiresAt;
+    }
+
+    // Getters
+    public long getHoldID() {
+      return holdID;
+    }
+
+    public Customer getCustomer() {
+      return customer;
+    }
+
+    public Event getEvent() {
+      return event;
+    }
+
+    public String getSeatType() {
+      return SeatTypes.nameOf(seatType);
+    }
+
+    public int getNumberOfSeats() {
+      return nSeats;
+    }
+
+    public long getExpiresAtInMillis() {
+      return expiresAt;
+    }
+  }
+
+  /**
+   * Constructor with no parameters. The wheel start at the current time.
+   */
+  public SeatHolds() {
+    tick = System.currentTimeMillis() / TICKMILLIS;
+  }
+
+  // Getters
+  /**
+   * @return int with the number of holds that are not confirmed, released or
+   *         expired.
+   */
+  public synchronized int size() {
+    return holds.size();
+  }
+
+  /**
+   * @param holdID - long with the ID of the hold.
+   * @return Hold with that ID, null if it was confirmed, released or expired.
+   */
+  public synchronized Hold getHold(long holdID) {
+    return holds.get(holdID);
+  }
+
+  /**
+   * @param event    - Event with the seats.
+   * @param seatType - int with the SeatTypes ordinal of the seats.
+   * @return int with the seats available of the seat type plus the seats held,
+   *         the seats that are not sold, or -1 if the event don't have the seat
+   *         type.
+   */
+  public synchronized int getSeatsNotSold(Event event, int seatType) {
+    int available = event.getNumberOfSeatsAvailable(seatType);
+    int[] held = heldSeats.get(event.getEventID());
+
+    return ((available < 0) || (held == null)) ? available : available + held[seatType];
+  }
+
+  // Methods
+  /**
+   * Take nSeats from the event and keep them for the customer for ttlMillis.
+   *
+   * @param customer  - Customer the seats are kept for.
+   * @param event     - Event with the seats.
+   * @param seatType  - String with the type of seat, e.g., VIP.
+   * @param nSeats    - int with the number of seats, at most the seats a ticket
+   *                  can have.
+   * @param ttlMillis - long with the milliseconds the seats are kept.
+   * @return Hold with the seats, or null if the event don't have that many seats
+   *         of the seat type.
+   */
+  public Hold hold(Customer customer, Event event, String seatType, int nSeats, long ttlMillis) {
+    start();
+    return hold(customer, event, seatType, nSeats, ttlMillis, System.currentTimeMillis());
+  }
+
+  /**
+   * Same as hold(customer, event, seatType, nSeats, ttlMillis) at nowMillis, used
+   * to move the wheel without waiting.
+   */
+  synchronized Hold hold(Customer customer, Event event, String seatType, int nSeats, long ttlMillis,
+      long nowMillis) {
+    int type = SeatTypes.ordinalOf(seatType);
+    Hold hold;
+
+    if ((nSeats < 1) || (nSeats > Ticket.getMaxNumberOfSeats()) || !event.reserveSeats(type, nSeats)) {
+      return null;
+    }
+    hold = new Hold(nextHoldID++, customer, event, type, nSeats, nowMillis + ttlMillis);
+    holds.put(hold.holdID, hold);
+    addHeldSeats(hold, hold.nSeats);
+    link(hold);
+    return hold;
+  }
+
+  /**
+   * Charge the customer of the hold for its seats and save the Ticket in the
+   * Database. If the customer can't pay the seats are still kept until the hold
+   * expire, so the payment can be tried again.
+   *
+   * @param holdID - long with the ID of the hold.
+   * @return Ticket with the seats, or null if the hold don't exist anymore, its
+   *         event was removed, or the customer couldn't pay.
+   */
+  public Ticket confirm(long holdID) {
+    Hold hold;
+    Ticket ticket = null;
+
+    synchronized (this) {
+      hold = holds.get(holdID);
+      if ((hold == null) || (hold.state != HELD)) {
+        return null;
+      }
+      hold.state = CONFIRMING;
+      unlink(hold);
+    }
+
+    // The event may have been cancelled while the seats were held
+    if (Database.getEvent(hold.event.getEventID()) == hold.event) {
+      try {
+        ticket = hold.customer.buyReservedSeats(hold.event, hold.seatType, hold.nSeats);
+      } catch (RuntimeException e) {
+        System.err.println(e.toString());
+        Log.logWrite(Level.WARNING, e.toString());
+      }
+    }
+
+    synchronized (this) {
+      if (ticket == null) {
+        hold.state = HELD;
+        link(hold);
+        return null;
+      }
+      hold.state = CONFIRMED;
+      holds.remove(holdID);
+      // Not counted as held anymore before the ticket is saved with its event
+      addHeldSeats(hold, -hold.nSeats);
+    }
+    // Given back with its seats if the event was cancelled while it was paid
+    return Database.addTicket(ticket) ? ticket : null;
+  }
+
+  /**
+   * Give back the seats of a hold to its event.
+   *
+   * @param holdID - long with the ID of the hold.
+   * @return true if the hold existed and was not being confirmed.
+   */
+  public synchronized boolean release(long holdID) {
+    Hold hold = holds.get(holdID);
+
+    if ((hold == null) || (hold.state != HELD)) {
+      return false;
+    }
+    unlink(hold);
+    giveBack(hold, RELEASED);
+    return true;
+  }
+
+  /**
+   * Move the wheel to nowMillis and give back the seats of every hold that
+   * expired.
+   *
+   * @param nowMillis - long with the current time in milliseconds since 1970.
+   * @return int with the number of holds that expired.
+   */
+  public synchronized int expire(long nowMillis) {
+    long target = nowMillis / TICKMILLIS;
+    int nExpired = 0;
+
+    while (tick < target) {
+      tick++;
+      int slot = (int) (tick & WHEELMASK);
+      Hold hold = wheel[slot];
+      while (hold != null) {
+        Hold next = hold.next;
+        if (hold.turns > 0) {
+          hold.turns--;
+        } else {
+          unlink(hold);
+          giveBack(hold, EXPIRED);
+          nExpired++;
+        }
+        hold = next;
+      }
+    }
+    return nExpired;
+  }
+
+  /**
+   * Start the thread that move the wheel every tick, if it wasn't started.
+   */
+  public synchronized void start() {
+    if (ticker != null) {
+      return;
+    }
+    ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "SeatHoldsTicker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleWithFixedDelay(this::expireQuietly, TICKMILLIS, TICKMILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stop the thread that move the wheel, holds are kept.
+   */
+  public synchronized void stop() {
+    if (ticker != null) {
+      ticker.shutdown();
+      ticker = null;
+    }
+  }
+
+  private void expireQuietly() {
+    try {
+      int nExpired = expire(System.currentTimeMillis());
+      if (nExpired > 0) {
+        Log.logWrite(Level.FINE, () -> nExpired + " seat holds expired.");
+      }
+    } catch (RuntimeException e) {
+      // Keep the ticker running
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, e.toString());
+    }
+  }
+
+  private void giveBack(Hold hold, byte state) {
+    hold.state = state;
+    holds.remove(hold.holdID);
+    addHeldSeats(hold, -hold.nSeats);
+    hold.event.releaseSeats(hold.seatType, hold.nSeats);
+  }
+
+  private void addHeldSeats(Hold hold, int nSeats) {
+    int eventID = hold.event.getEventID();
+    int[] held = heldSeats.get(eventID);
+
+    if (held == null) {
+      held = new int[SeatTypes.count()];
+      heldSeats.put(eventID, held);
+    }
+    held[hold.seatType] += nSeats;
+    for (int n : held) {
+      if (n != 0) {
+        return;
+      }
+    }
+    heldSeats.remove(eventID);
+  }
+
+  /**
+   * Put hold in the slot of the tick it expire in, or the next tick if that
+   * tick already passed.
+   */
+  private void link(Hold hold) {
+    long expiresTick = (hold.expiresAt + TICKMILLIS - 1) / TICKMILLIS; // First tick at or after expiresAt
+    long ticksLeft = Math.max(expiresTick - tick, 1);
+
+    hold.turns = (int) ((ticksLeft - 1) >>> WHEELBITS);
+    hold.slot = (int) ((tick + ticksLeft) & WHEELMASK);
+    hold.previous = null;
+    hold.next = wheel[hold.slot];
+    if (hold.next != null) {
+      hold.next.previous = hold;
+    }
+    wheel[hold.slot] = hold;
+  }
+
+  private void unlink(Hold hold) {
+    if (hold.previous != null) {
+      hold.previous.next = hold.next;
+    } else {
+      wheel[hold.slot] = hold.next;
+    }
+    if (hold.next != null) {
+      hold.next.previous = hold.previous;
+    }
+    hold.previous = null;
+    hold.next = null;
+  }
+}
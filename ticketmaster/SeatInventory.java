@@ -0,0 +1,156 @@
+package ticketmaster;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * SeatInventory keep the number of seats available and the price of each seat
+ * type of an event in primitive arrays indexed by the SeatTypes ordinal of the
+ * seat type. Prices are saved in cents so they are not
+ * rounded every time they are read or written.
+ *
+ * A seat type doesn't exist for an event until it is made with makeSeats(),
+ * the getters return -1 for seat types that don't exist.
+ *
+ * Seat counts are atomic so takeSeats() can be call by many buyers at the same
+ * time without selling more seats than available. Seat types are only made
+ * while the event is being loaded or when a seat is given back, so making them
+ * is synchronized but reading if they exist is not.
+ */
+public class SeatInventory {
+  private final boolean[] exist;
+  private final AtomicIntegerArray seats;
+  private final long[] pricesInCents;
+
+  /**
+   * Constructor with no parameters. Make room for every seat type events can
+   * sell without making any of them.
+   */
+  public SeatInventory() {
+    int nTypes = SeatTypes.count();
+    this.exist = new boolean[nTypes];
+    this.seats = new AtomicIntegerArray(nTypes);
+    this.pricesInCents = new long[nTypes];
+  }
+
+  // Getters
+  public int getNumberOfSeatTypes() {
+    return exist.length;
+  }
+
+  public boolean exists(int idx) {
+    return (idx >= 0) && (idx < exist.length) && exist[idx];
+  }
+
+  public int getSeats(int idx) {
+    return exists(idx) ? seats.get(idx) : -1;
+  }
+
+  public long getPriceInCents(int idx) {
+    return exists(idx) ? pricesInCents[idx] : -100;
+  }
+
+  public float getPrice(int idx) {
+    return exists(idx) ? Money.toDollars(pricesInCents[idx]) : (float) -1.0;
+  }
+
+  /**
+   * @param idx - int with the index of the seat type.
+   * @return String with the price of the seat type in the format dollars.cents,
+   *         e.g., 26.10.
+   */
+  public String getPriceAsString(int idx) {
+    return Money.toString(getPriceInCents(idx));
+  }
+
+  // Setters
+  /**
+   * Overwrite the number of seats of a seat type that exist.
+   *
+   * @param idx    - int with the index of the seat type.
+   * @param nSeats - int with the number of seats available.
+   * @return true if the seat type exist and it was updated.
+   */
+  public boolean setSeats(int idx, int nSeats) {
+    if (!exists(idx)) {
+      return false;
+    }
+    seats.set(idx, nSeats);
+    return true;
+  }
+
+  /**
+   * Overwrite the price of a seat type that exist.
+   *
+   * @param idx          - int with the index of the seat type.
+   * @param priceInCents - long with the price of each seat in cents.
+   * @return true if the seat type exist and it was updated.
+   */
+  public boolean setPriceInCents(int idx, long priceInCents) {
+    if (!exists(idx)) {
+      return false;
+    }
+    pricesInCents[idx] = priceInCents;
+    return true;
+  }
+
+  // Methods
+  /**
+   * Add nSeats to the seat type. If the seat type didn't exist it is made with
+   * the price given and 0 seats before adding them, otherwise the price is not
+   * changed.
+   *
+   * @param idx          - int with the index of the seat type.
+   * @param priceInCents - long with the price of each seat in cents.
+   * @param nSeats       - int with the number of seats to be added.
+   * @return true if idx is a valid seat type index.
+   */
+  public synchronized boolean makeSeats(int idx, long priceInCents, int nSeats) {
+    if ((idx < 0) || (idx >= exist.length)) {
+      return false;
+    }
+    if (!exist[idx]) {
+      seats.set(idx, 0);
+      pricesInCents[idx] = priceInCents;
+      exist[idx] = true;
+    }
+    seats.addAndGet(idx, nSeats);
+    return true;
+  }
+
+  /**
+   * Take nSeats from the seat type only if there are enough available.
+   *
+   * @param idx    - int with the index of the seat type.
+   * @param nSeats - int with the number of seats wanted, at least 1.
+   * @return true if the seats were taken.
+   */
+  public boolean takeSeats(int idx, int nSeats) {
+    int available;
+
+    if (!exists(idx) || (nSeats < 1)) {
+      return false;
+    }
+    do {
+      available = seats.get(idx);
+      if (available < nSeats) {
+        return false;
+      }
+    } while (!seats.compareAndSet(idx, available, available - nSeats));
+    return true;
+  }
+
+  /**
+   * Give back nSeats taken by takeSeats() to a seat type that exist.
+   *
+   * @param idx    - int with the index of the seat type.
+   * @param nSeats - int with the number of seats to give back, at least 1.
+   * @return true if the seat type exist and the seats were given back.
+   */
+  public boolean releaseSeats(int idx, int nSeats) {
+    if (!exists(idx) || (nSeats < 1)) {
+      return false;
+    }
+    seats.addAndGet(idx, nSeats);
+    return true;
+  }
+}
@@ -0,0 +1,131 @@
+package ticketmaster;
+
+import java.util.Arrays;
+
+/**
+ * SeatTypes give every seat type a small ordinal so seats, tickets, event
+ * inventories and statistics keep a byte or index instead of a String. The
+ * ordinals of the seat types of Database.getSeatTypes() are their index there,
+ * so they keep the same descending importance. Seat types that are not in that
+ * list, e.g., read from an old ticket file, are given the next ordinal free the
+ * first time they are seen, but events don't sell them.
+ *
+ * The names of the csv columns of every seat type are made once here, so
+ * reading a row don't build them again.
+ */
+public class SeatTypes {
+  private static final String[] SEATTYPES = Database.getSeatTypes();
+  private static final String[] PRICEHEADERS = makeHeaders(" Price");
+  private static final String[] PCTHEADERS = makeHeaders(" Pct");
+  private static final String[] NUMHEADERS = makeHeaders(" Num");
+
+  // Every seat type with an ordinal, starting with SEATTYPES
+  private static volatile String[] names = SEATTYPES.clone();
+
+  /**
+   * SeatTypes is a static class, it can't be instantiated.
+   */
+  private SeatTypes() {
+  }
+
+  // Getters
+  /**
+   * @return int with the number of seat types events can sell, ordinals from 0
+   *         to count() - 1.
+   */
+  public static int count() {
+    return SEATTYPES.length;
+  }
+
+  /**
+   * @param seatType - String with the type of seat, e.g., VIP, Gold, etc.
+   * @return int with the ordinal of the seat type, -1 if events don't sell it.
+   */
+  public static int ordinalOf(String seatType) {
+    for (int i = 0; i < SEATTYPES.length; i++) {
+      if (SEATTYPES[i].equals(seatType)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param ordinal - int given by ordinalOf() or intern().
+   * @return String with the name of the seat type.
+   */
+  public static String nameOf(int ordinal) {
+    return names[ordinal];
+  }
+
+  /**
+   * @return String with the csv column of the price of the seat type, e.g., "VIP
+   *         Price".
+   */
+  public static String getPriceHeader(int ordinal) {
+    return PRICEHEADERS[ordinal];
+  }
+
+  /**
+   * @return String with the csv column of the percentage of the venue capacity
+   *         for the seat type, e.g., "VIP Pct".
+   */
+  public static String getPctHeader(int ordinal) {
+    return PCTHEADERS[ordinal];
+  }
+
+  /**
+   * @return String with the csv column of the number of seats of the seat type,
+   *         e.g., "VIP Num".
+   */
+  public static String getNumHeader(int ordinal) {
+    return NUMHEADERS[ordinal];
+  }
+
+  // Methods
+  /**
+   * @param seatType - String with any seat type.
+   * @return byte with the ordinal of seatType, seat types that events don't sell
+   *         are given the next ordinal free.
+   */
+  public static byte intern(String seatType) {
+    int idx = ordinalOf(seatType);
+    if (idx >= 0) {
+      return (byte) idx;
+    }
+
+    String[] current = names;
+    for (int i = SEATTYPES.length; i < current.length; i++) {
+      if (current[i].equals(seatType)) {
+        return (byte) i;
+      }
+    }
+    return add(seatType);
+  }
+
+  private static synchronized byte add(String seatType) {
+    String[] current = names;
+
+    for (int i = 0; i < current.length; i++) {
+      if (current[i].equals(seatType)) {
+        return (byte) i;
+      }
+    }
+    if (current.length > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("There are too many seat types to add " + seatType);
+    }
+    current = Arrays.copyOf(current, current.length + 1);
+    current[current.length - 1] = seatType;
+    names = current;
+    return (byte) (current.length - 1);
+  }
+
+  private static String[] makeHeaders(String suffix) {
+    String[] headers = new String[SEATTYPES.length];
+
+    for (int i = 0; i < SEATTYPES.length; i++) {
+      headers[i] = SEATTYPES[i] + suffix;
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,513 @@
+package ticketmaster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Snapshot save and restore all events, customers and tickets of the Database
+ * in a compact binary file so a new run don't have to parse csv files.
+ *
+ * File layout (all numbers are big endian):
+ * - Header: int MAGIC, int VERSION, int largest event ID, and long taxes,
+ * service, convenience and charity totals.
+ * - Three sections (events, customers, tickets): int n, then n records. Every
+ * record is an int with its length followed by its fixed width fields, so
+ * fields added by newer versions are skipped by older readers.
+ * - String table: int n, then n strings (int length + UTF-8 bytes) with the
+ * event, venue and seat type names. Records use the string index.
+ * - Trailer: long with the position of the string table.
+ *
+ * The string table is written after the records since names can change while
+ * the records are written, it then has every name the records use.
+ *
+ * Money amounts are long cents since version 2, version 1 files with float
+ * dollars are still read and rounded to the nearest cent. Purchase IDs are
+ * long since version 3. Before version 4 the string table went right after
+ * the header and there was no trailer. Seats have the member discount taken
+ * off them since version 5, older seats get it from the event seat price (see
+ * Ticket.addPurchase()).
+ */
+public class Snapshot {
+  private static final int MAGIC = 0x544D534E; // "TMSN"
+  static final int VERSION = 5;
+  private static final String[] EVENTTYPES = { "Sport", "Concert", "Special" };
+  private static final String[] VENUETYPES = { "Stadium", "Arena", "Auditorium", "OpenAir" };
+
+  private Snapshot() {
+    // This constructor is empty, class is use only to read and write snapshots
+  }
+
+  /**
+   * Write a snapshot with all the events, customers and tickets given. The file
+   * is written under a temporary name and then renamed, so a crash never leave
+   * a half written snapshot. The previous snapshot is kept as "prev" +
+   * filename.
+   *
+   * @param events    - Collection with all the events.
+   * @param customers - Collection with all the customers.
+   * @param tickets   - Collection with all the tickets sold.
+   * @param filename  - String with the name of the snapshot file.
+   * @return true if the snapshot was written, false otherwise.
+   */
+  public static boolean write(Collection<Event> events, Collection<Customer> customers, Collection<Ticket> tickets,
+      String filename) {
+    Path path = Paths.get(filename);
+    Path tempPath = Paths.get(filename + ".tmp");
+    StringTable strings = new StringTable();
+    ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+    DataOutputStream record = new DataOutputStream(recordBytes);
+
+    try (FileOutputStream file = new FileOutputStream(tempPath.toFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(Database.getLargestEventID());
+      for (long total : Database.getTotalsInCents()) {
+        out.writeLong(total);
+      }
+
+      out.writeInt(events.size());
+      for (Event event : events) {
+        recordBytes.reset();
+        writeEvent(record, event, strings);
+        writeRecord(out, recordBytes);
+      }
+
+      out.writeInt(customers.size());
+      for (Customer customer : customers) {
+        recordBytes.reset();
+        writeCustomer(record, customer);
+        writeRecord(out, recordBytes);
+      }
+
+      out.writeInt(tickets.size());
+      for (Ticket ticket : tickets) {
+        recordBytes.reset();
+        writeTicket(record, ticket, strings);
+        writeRecord(out, recordBytes);
+      }
+
+      out.flush();
+      long stringsPosition = file.getChannel().position();
+      out.writeInt(strings.size());
+      for (String str : strings.getStrings()) {
+        writeString(out, str);
+      }
+      out.writeLong(stringsPosition);
+      out.flush();
+      file.getFD().sync(); // The journal records in it are dropped once it is renamed
+    } catch (IOException e) {
+      e.printStackTrace(); // Writing the file was unsuccessful
+      return false;
+    }
+
+    try {
+      if (Files.exists(path)) {
+        Files.move(path, Paths.get(WriteCSV.previousOf(filename)), StandardCopyOption.REPLACE_EXISTING);
+      }
+      Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Read a snapshot made by write() and add all its events, customers and
+   * tickets into the Database. The Database must be empty before calling this
+   * method.
+   *
+   * @param filename - String with the name of the snapshot file.
+   * @return true if the whole snapshot was read, false otherwise.
+   */
+  public static boolean read(String filename) {
+    try (FileInputStream file = new FileInputStream(filename);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+      if (in.readInt() != MAGIC) {
+        System.err.println(filename + " is not a database snapshot.");
+        return false;
+      }
+      int version = in.readInt();
+      if (version > VERSION) {
+        System.err.println(filename + " was written by a newer version (" + version + ") of the software.");
+        return false;
+      }
+      Database.setLargestEventID(in.readInt());
+      Database.setTotals(readMoney(in, version), readMoney(in, version), readMoney(in, version),
+          readMoney(in, version));
+
+      String[] strings = (version < 4) ? readStrings(in) : readStrings(file.getChannel());
+
+      byte[] bytes = new byte[256];
+      int n;
+
+      n = in.readInt();
+      for (int i = 0; i < n; i++) {
+        bytes = readRecord(in, bytes);
+        Database.addEvent(readEvent(ByteBuffer.wrap(bytes), strings, version));
+      }
+
+      n = in.readInt();
+      for (int i = 0; i < n; i++) {
+        bytes = readRecord(in, bytes);
+        Database.addCustomers(readCustomer(ByteBuffer.wrap(bytes), version));
+      }
+
+      n = in.readInt();
+      int nOrphans = 0;
+      for (int i = 0; i < n; i++) {
+        bytes = readRecord(in, bytes);
+        Ticket ticket = readTicket(ByteBuffer.wrap(bytes), strings, version);
+        if (ticket == null) {
+          nOrphans++;
+        } else {
+          Database.restoreTicket(ticket);
+        }
+      }
+      if (nOrphans > 0) {
+        final int skipped = nOrphans;
+        Log.logWrite(Level.WARNING, () -> "Snapshot " + filename + " had " + skipped
+            + " tickets of nonexistent events or customers, they were skipped.");
+      }
+    } catch (IOException | RuntimeException e) {
+      System.err.println(e.toString());
+      Log.logWrite(Level.WARNING, "Snapshot " + filename + " couldn't be read: " + e.toString());
+      return false;
+    }
+    return true;
+  }
+
+  // Records, strings are written inline when no string table is given
+  static void writeEvent(DataOutputStream out, Event event, StringTable strings) throws IOException {
+    Venue venue = event.getVenue();
+    String[] seatTypes = Database.getSeatTypes();
+
+    out.writeInt(event.getEventID());
+    out.writeByte(typeIndex(EVENTTYPES, event.getClass().getSimpleName()));
+    writeName(out, event.getName(), strings);
+    out.writeLong(event.getDateInMillis());
+    out.writeBoolean(event.areFireworksPlanned());
+    out.writeInt(event.getFireworksCost());
+    out.writeInt(event.getHowManyReservedSeats());
+    out.writeLong(event.getTotalDiscountedInCents());
+    out.writeLong(event.getTaxesInCents());
+    out.writeLong(event.getServiceFeeInCents());
+    out.writeLong(event.getConvenienceFeeInCents());
+    out.writeLong(event.getCharityFeeInCents());
+
+    out.writeByte(typeIndex(VENUETYPES, venue.getClass().getSimpleName()));
+    writeName(out, venue.getName(), strings);
+    out.writeInt(venue.getNumSeatsUnavailable());
+    out.writeInt(venue.getCapacity());
+    out.writeInt(venue.getCost());
+
+    // Number of seats is -1 for seat types that the event doesn't have
+    out.writeByte(seatTypes.length);
+    for (String seatType : seatTypes) {
+      writeName(out, seatType, strings);
+      // Seats held are saved as available, holds are not kept between runs
+      out.writeInt(Database.getSeatHolds().getSeatsNotSold(event, SeatTypes.ordinalOf(seatType)));
+      out.writeLong(event.getSeatPriceInCents(seatType));
+    }
+  }
+
+  static Event readEvent(ByteBuffer in, String[] strings, int version) {
+    int eventID = in.getInt();
+    int type = in.get();
+    String name = readName(in, strings);
+    long date = in.getLong();
+    boolean fireworksPlanned = in.get() != 0;
+    int fireworksCost = in.getInt();
+    Event event;
+
+    switch (type) {
+      case (0):
+        event = new Sport(eventID, name, date, fireworksPlanned, fireworksCost);
+        break;
+      case (1):
+        event = new Concert(eventID, name, date, fireworksPlanned, fireworksCost);
+        break;
+      case (2):
+        event = new Special(eventID, name, date, fireworksPlanned, fireworksCost);
+        break;
+      default:
+        throw new IllegalStateException("Unknown event type " + type + " for event " + eventID);
+    }
+    event.setHowManyReservedSeats(in.getInt());
+    event.setTotalsInCents(readMoney(in, version), readMoney(in, version), readMoney(in, version),
+        readMoney(in, version), readMoney(in, version));
+
+    int venueType = in.get();
+    String venueName = readName(in, strings);
+    int numSeatsUnavailable = in.getInt();
+    int capacity = in.getInt();
+    int cost = in.getInt();
+    switch (venueType) {
+      case (0):
+        event.setVenue(new Stadium(venueName, numSeatsUnavailable, capacity, cost));
+        break;
+      case (1):
+        event.setVenue(new Arena(venueName, numSeatsUnavailable, capacity, cost));
+        break;
+      case (2):
+        event.setVenue(new Auditorium(venueName, numSeatsUnavailable, capacity, cost));
+        break;
+      case (3):
+        event.setVenue(new OpenAir(venueName, numSeatsUnavailable, capacity, cost));
+        break;
+      default:
+        throw new IllegalStateException("Unknown venue type " + venueType + " for event " + eventID);
+    }
+
+    int nSeatTypes = in.get();
+    for (int i = 0; i < nSeatTypes; i++) {
+      String seatType = readName(in, strings);
+      int nSeats = in.getInt();
+      long price = readMoney(in, version);
+      if (nSeats >= 0) {
+        event.makeNSeatsByNum(seatType, Money.toString(price), nSeats);
+      }
+    }
+    return event;
+  }
+
+  static void writeCustomer(DataOutputStream out, Customer customer) throws IOException {
+    out.writeInt(customer.getCustomerID());
+    out.writeLong(customer.getMoneyAvailableInCents());
+    out.writeLong(customer.getTotalSaveInCents());
+    out.writeBoolean(customer.hasTicketMinerMembership());
+    writeString(out, customer.getFirstName());
+    writeString(out, customer.getLastName());
+    writeString(out, customer.getUsername());
+    writeString(out, customer.getPassword());
+  }
+
+  static Customer readCustomer(ByteBuffer in, int version) {
+    int customerID = in.getInt();
+    long moneyAvailable = readMoney(in, version);
+    long totalSave = readMoney(in, version);
+    boolean membership = in.get() != 0;
+    String firstName = readString(in);
+    String lastName = readString(in);
+    String username = readString(in);
+    String password = readString(in);
+    Customer customer = new Customer(customerID, firstName, lastName, moneyAvailable, membership, username,
+        password);
+    customer.setTotalSaveInCents(totalSave);
+    return customer;
+  }
+
+  static void writeTicket(DataOutputStream out, Ticket ticket, StringTable strings) throws IOException {
+    out.writeLong(ticket.getPurchaseID());
+    out.writeInt(ticket.getEventID());
+    out.writeInt(ticket.getCustomerID());
+    out.writeLong(ticket.getPurchaseTimeInMillis());
+    out.writeLong(ticket.getTaxesPayInCents());
+    out.writeLong(ticket.getServiceFeePayInCents());
+    out.writeLong(ticket.getConvenienceFeePayInCents());
+    out.writeLong(ticket.getCharityFeePayInCents());
+    out.writeLong(ticket.getSubtotalInCents());
+    out.writeByte(ticket.getNumberOfSeatsPurchases());
+    for (int i = 0; i < ticket.getNumberOfSeatsPurchases(); i++) {
+      writeName(out, ticket.getSeatType(i), strings);
+      out.writeLong(ticket.getSeatPriceInCents(i));
+      out.writeLong(ticket.getSeatDiscountInCents(i));
+    }
+  }
+
+  /**
+   * Read a ticket written by writeTicket().
+   *
+   * @return Ticket read, or null if its event or customer don't exist. The rest
+   *         of the record is not read then.
+   */
+  static Ticket readTicket(ByteBuffer in, String[] strings, int version) {
+    long purchaseID = version < 3 ? in.getInt() : in.getLong();
+    int eventID = in.getInt();
+    int customerID = in.getInt();
+    Event event = Database.getEvent(eventID);
+    Customer customer = Database.getCustomer(customerID);
+
+    if ((event == null) || (customer == null)) {
+      Log.logWrite(Level.FINE, () -> "Ticket " + purchaseID + " belongs to a nonexistent event or customer.");
+      return null;
+    }
+
+    Ticket ticket = new Ticket(event, event.getVenue(), customer);
+    ticket.setPurchaseID(purchaseID);
+    ticket.setPurchaseTimeInMillis(in.getLong());
+    // Event and database totals were saved on their own, so the fees must not be
+    // added to them again
+    ticket.setFees(readMoney(in, version), readMoney(in, version), readMoney(in, version),
+        readMoney(in, version));
+    ticket.setSubtotal(readMoney(in, version));
+
+    int nSeats = in.get();
+    for (int i = 0; i < nSeats; i++) {
+      int seatType = SeatTypes.intern(readName(in, strings));
+      long price = readMoney(in, version);
+      if (version < 5) {
+        ticket.addPurchase(seatType, price);
+      } else {
+        ticket.addPurchase(seatType, price, in.getLong());
+      }
+    }
+    return ticket;
+  }
+
+  // Helpers
+  /**
+   * @return long with an amount in cents, version 1 saved it as float dollars.
+   */
+  private static long readMoney(ByteBuffer in, int version) {
+    return version < 2 ? Money.toCents(in.getFloat()) : in.getLong();
+  }
+
+  private static long readMoney(DataInputStream in, int version) throws IOException {
+    return version < 2 ? Money.toCents(in.readFloat()) : in.readLong();
+  }
+
+  private static int typeIndex(String[] types, String type) {
+    for (int i = 0; i < types.length; i++) {
+      if (types[i].equals(type)) {
+        return i;
+      }
+    }
+    throw new IllegalStateException(type + " can't be written into a snapshot.");
+  }
+
+  private static void writeRecord(DataOutputStream out, ByteArrayOutputStream record) throws IOException {
+    out.writeInt(record.size());
+    record.writeTo(out);
+  }
+
+  /**
+   * Read the next record into bytes, bytes is replace by a larger array if the
+   * record doesn't fit.
+   *
+   * @return byte[] with the record at the beginning of the array.
+   */
+  private static byte[] readRecord(DataInputStream in, byte[] bytes) throws IOException {
+    int length = in.readInt();
+    if (length > bytes.length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+    }
+    in.readFully(bytes, 0, length);
+    return bytes;
+  }
+
+  static void writeName(DataOutputStream out, String name, StringTable strings) throws IOException {
+    if (strings == null) {
+      writeString(out, name);
+    } else {
+      out.writeInt(strings.indexOf(name));
+    }
+  }
+
+  static String readName(ByteBuffer in, String[] strings) {
+    return (strings == null) ? readString(in) : strings[in.getInt()];
+  }
+
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String[] readStrings(DataInputStream in) throws IOException {
+    String[] strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(in);
+    }
+    return strings;
+  }
+
+  /**
+   * Read the string table at the end of the file, the position of file is not
+   * changed so the records can still be read from where they start.
+   */
+  private static String[] readStrings(FileChannel file) throws IOException {
+    long end = file.size() - Long.BYTES;
+    ByteBuffer position = ByteBuffer.allocate(Long.BYTES);
+    readFully(file, position, end);
+    long start = position.getLong(0);
+    if ((start < 0) || (start > end)) {
+      throw new IOException("String table position " + start + " is out of the file.");
+    }
+
+    ByteBuffer in = ByteBuffer.allocate((int) (end - start));
+    readFully(file, in, start);
+    in.flip();
+    String[] strings = new String[in.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(in);
+    }
+    return strings;
+  }
+
+  private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (file.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Snapshot ends before its string table.");
+      }
+    }
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    String str = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return str;
+  }
+
+  /**
+   * Map every distinct string to the index it has on the string table.
+   */
+  static class StringTable {
+    private final HashMap<String, Integer> indexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    private int indexOf(String str) {
+      Integer idx = indexes.get(str);
+      if (idx == null) {
+        idx = strings.size();
+        indexes.put(str, idx);
+        strings.add(str);
+      }
+      return idx;
+    }
+
+    private int size() {
+      return strings.size();
+    }
+
+    private List<String> getStrings() {
+      return strings;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package ticketmaster;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SnowflakeIDGenerator make 64 bit IDs ordered by the time they were made:
+ *
+ * [0][41 bits milliseconds since EPOCH][6 bits node][6 bits slot][10 bits
+ * sequence]
+ *
+ * The node tells apart programs running at the same time (system property
+ * ticketmaster.node, 0 by default). Every thread use the slot given by its
+ * thread ID, and each slot keep the last ID it gave in its own cache line, so
+ * threads don't wait on each other and nothing is allocated. Two threads only
+ * share a slot if their IDs are 64 apart, and then they take turns with a CAS
+ * so the IDs are still unique.
+ *
+ * If a slot give more than 1024 IDs in the same millisecond, or the clock goes
+ * back, the IDs keep growing from the last one given as if the time had moved
+ * forward.
+ */
+public class SnowflakeIDGenerator implements TicketIDGenerator {
+  public static final long EPOCH = 1640995200000L; // January 1st, 2022 UTC
+  private static final int SEQUENCEBITS = 10;
+  private static final int SLOTBITS = 6;
+  private static final int NODEBITS = 6;
+  private static final int SLOTSHIFT = SEQUENCEBITS;
+  private static final int NODESHIFT = SLOTSHIFT + SLOTBITS;
+  private static final int TIMESHIFT = NODESHIFT + NODEBITS;
+  private static final long SEQUENCEMASK = (1L << SEQUENCEBITS) - 1;
+  private static final int NSLOTS = 1 << SLOTBITS;
+  private static final int PADDING = 8; // longs per 64 byte cache line
+
+  private final long node;
+  private final AtomicLongArray lastIDs = new AtomicLongArray(NSLOTS * PADDING);
+
+  /**
+   * Constructor with no parameters. Use the node given by the system property
+   * ticketmaster.node, or 0.
+   */
+  public SnowflakeIDGenerator() {
+    this(Integer.getInteger("ticketmaster.node", 0));
+  }
+
+  /**
+   * @param node - int between 0 and 63 different for every program that make
+   *             tickets at the same time.
+   */
+  public SnowflakeIDGenerator(int node) {
+    if ((node < 0) || (node >= (1 << NODEBITS))) {
+      throw new IllegalArgumentException("Node " + node + " is not between 0 and " + ((1 << NODEBITS) - 1));
+    }
+    this.node = node;
+  }
+
+  // Getters
+  /**
+   * @param id - long made by a SnowflakeIDGenerator.
+   * @return long with the time the ID was made in milliseconds since 1970.
+   */
+  public static long getTimeInMillis(long id) {
+    return (id >>> TIMESHIFT) + EPOCH;
+  }
+
+  /**
+   * @param millis - long with a time in milliseconds since 1970.
+   * @return long with an ID lower than every ID made at millis or later, useful
+   *         to look for the tickets bought in a time range.
+   */
+  public static long getFirstIDAt(long millis) {
+    return Math.max(millis - EPOCH, 0) << TIMESHIFT;
+  }
+
+  // Methods
+  @Override
+  public long nextID() {
+    int slot = (int) (Thread.currentThread().getId() & (NSLOTS - 1));
+    int idx = slot * PADDING;
+    long now = System.currentTimeMillis() - EPOCH;
+    long prefix = (node << NODESHIFT) | ((long) slot << SLOTSHIFT);
+    long last;
+    long next;
+
+    do {
+      last = lastIDs.get(idx);
+      long lastTime = last >>> TIMESHIFT;
+      if (now > lastTime) {
+        next = (now << TIMESHIFT) | prefix;
+      } else if ((last & SEQUENCEMASK) < SEQUENCEMASK) {
+        next = last + 1;
+      } else {
+        next = ((lastTime + 1) << TIMESHIFT) | prefix;
+      }
+    } while (!lastIDs.compareAndSet(idx, last, next));
+    return next;
+  }
+}
@@ -1,7 +1,5 @@
 package ticketmaster;
 
-import java.util.GregorianCalendar;
-
 /**
  * Special is a class that extends the Event class containing, event id, name,
  * date, time, prices, seats, availability, venue and tickets sold.
@@ -16,9 +14,9 @@ public class Special extends Event {
    * 
    * @param eventID - int with event id
    * @param name    - String for event name
-   * @param date    - GregorianCalendar for event date and time
+   * @param date    - long with event date and time in milliseconds since 1970
    */
-  public Special(int eventID, String name, GregorianCalendar date, boolean fireworksPlanned, int fireworksCost) {
+  public Special(int eventID, String name, long date, boolean fireworksPlanned, int fireworksCost) {
     super(eventID, name, date, fireworksPlanned, fireworksCost);
   }
 
@@ -2,8 +2,6 @@ package ticketmaster;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * Statistics class allow administrators to calculate the number of seats sold,
@@ -13,22 +11,93 @@ import java.util.Map;
  * @date September 24th, 2022
  */
 public class Statistics {
-  // key = seatType | value[0] = # of sold seats, value[1] = total revenue
-  private static LinkedHashMap<String, String[]> seatsSold;
-  private static float totalRevenue;
-  private static float expectedProfit;
+  // Index is the SeatTypes ordinal
+  private static int[] seatsSold;
+  // All in cents
+  private static long[] seatsRevenue;
+  private static long totalRevenue;
+  private static long expectedProfit;
   private static int totalSeatsSold;
 
   private Statistics() {
   }
 
+  /**
+   * Summary is the statistics of an event calculated once. Unlike the getters of
+   * Statistics, which are shared by every caller, a Summary belong to the caller
+   * so events can be summarized on many threads at the same time.
+   */
+  public static final class Summary {
+    private final int[] seatsSold = new int[SeatTypes.count()]; // Index is the SeatTypes ordinal
+    private final long[] seatsRevenue = new long[SeatTypes.count()]; // In cents
+    private long totalRevenue = 0;
+    private long expectedProfit = 0; // Price of every seat, sold or not
+    private int totalSeatsSold = 0;
+    private final long cost;
+
+    private Summary(Event event) {
+      cost = event.getVenue().getCost() * Money.CENTSPERDOLLAR;
+      for (int i = 0; i < seatsSold.length; i++) {
+        // Multiply the number of seats available by their price to get the expected
+        // profit from selling all of them.
+        int nSeats = event.getNumberOfSeatsAvailable(i);
+        if (nSeats > 0) {
+          expectedProfit += nSeats * event.getSeatPriceInCents(i);
+        }
+
+        // Get the number of seats sold and the money collected from them
+        seatsSold[i] = event.getNumberOfSeatsSold(i);
+        seatsRevenue[i] = event.getSeatRevenueInCents(i);
+        totalSeatsSold += seatsSold[i];
+        totalRevenue += seatsRevenue[i];
+      }
+
+      // Expected profit contain the total price from all of the seats (sold and
+      // unsold).
+      expectedProfit += totalRevenue;
+    }
+
+    // Getters
+    public int getTotalSeatsSold() {
+      return totalSeatsSold;
+    }
+
+    public int getSeatsSold(int seatType) {
+      return seatsSold[seatType];
+    }
+
+    public long getSeatRevenueInCents(int seatType) {
+      return seatsRevenue[seatType];
+    }
+
+    public long getTotalRevenueInCents() {
+      return totalRevenue;
+    }
+
+    /**
+     * @return long with the profit if every seat is sold, the cost of the venue
+     *         taken out, in cents.
+     */
+    public long getExpectedProfitInCents() {
+      return expectedProfit - cost;
+    }
+
+    /**
+     * @return long with the profit of the seats sold, the cost of the venue taken
+     *         out, in cents.
+     */
+    public long getActualProfitInCents() {
+      return totalRevenue - cost;
+    }
+  }
+
   // Getters
   public static float getTotalRevenue() {
-    return totalRevenue;
+    return Money.toDollars(totalRevenue);
   }
 
   public static float getExpectedProfit() {
-    return expectedProfit;
+    return Money.toDollars(expectedProfit);
   }
 
   public static int getTotalSeatsSold() {
@@ -36,9 +105,18 @@ public class Statistics {
   }
 
   // Methods
+  /**
+   * @param event - Event to be summarized.
+   * @return Summary with the seats sold, revenue and profits of the event.
+   */
+  public static Summary summarize(Event event) {
+    return new Summary(event);
+  }
+
   /**
    * Calculate number of seats sold, total revue, expect profit from an event by
-   * providing one.
+   * providing one. The event keeps the seats sold and revenue per seat type up
+   * to date, so only the seat types are iterated.
    */
   private static void calculateStatistics(Event event) {
     // Make sure that there is an event before starting a calculation.
@@ -47,51 +125,12 @@ public class Statistics {
       return;
     }
 
-    String seatType;
-    int nSeats;
-    float seatRevenue;
-
-    seatsSold = new LinkedHashMap<>();
-
-    // Get the type of seats that could have been sold for the event and calculate
-    // expected profit from the unsold seats
-    expectedProfit = (float) 0.0;
-    for (String setKey : Database.getSeatTypes()) {
-      // First entry if for the number of seats, second entry for the total profit
-      seatsSold.put(setKey, new String[] { "0", "0.0" });
-      // Multiply the number of seats available by their price to get the expected
-      // profit from selling all of them.
-      expectedProfit += event.getNumberOfSeatsAvailable(setKey) * event.getSeatPrice(setKey);
-    }
-
-    totalRevenue = (float) 0.0;
-    totalSeatsSold = 0;
-    // Iterate over the tickets sold and update seatsSold information (# of seats
-    // sold and revenue).
-    for (Ticket ticket : event.getTickets()) {
-      for (Seat seat : ticket.getSeatsPurchased()) {
-        // Get seat type that was purchased.
-        seatType = seat.getSeatType();
-        // Get number of seats that had been sold.
-        nSeats = Integer.parseInt(seatsSold.get(seatType)[0]);
-        // Get total amount of money collected from selling curring tickets.
-        seatRevenue = Float.parseFloat(seatsSold.get(seatType)[1]);
-
-        // Increase the number of seat and save it
-        seatsSold.get(seatType)[0] = String.valueOf(nSeats + 1);
-        // Increase the total money earn by selling the seats and save it
-        seatsSold.get(seatType)[1] = String.valueOf(seatRevenue + seat.getPrice());
-
-        // Update total amount of money collected from selling seats
-        totalRevenue += seatRevenue;
-        // Increase count of total number of seats sold
-        totalSeatsSold++;
-      }
-    }
-
-    // Expected profit contain the total price from all of the seats (sold and
-    // unsold).
-    expectedProfit += totalRevenue;
+    Summary summary = summarize(event);
+    seatsSold = summary.seatsSold;
+    seatsRevenue = summary.seatsRevenue;
+    expectedProfit = summary.expectedProfit;
+    totalRevenue = summary.totalRevenue;
+    totalSeatsSold = summary.totalSeatsSold;
   }
 
   /**
@@ -106,23 +145,23 @@ public class Statistics {
 
     calculateStatistics(event);
 
-    float cost = event.getVenue().getCost();
+    long cost = event.getVenue().getCost() * Money.CENTSPERDOLLAR;
     // Print event information
     event.printEventInfo();
     System.out.println("Event capacity: " + event.getVenue().getCapacity());
     // Print number of seats sold information
     System.out.println("Total Seats sold: " + totalSeatsSold);
-    for (Map.Entry<String, String[]> entry : seatsSold.entrySet()) {
-      System.out.printf("Total %s Seats Sold: %s%n", entry.getKey(), entry.getValue()[0]);
+    for (int i = 0; i < seatsSold.length; i++) {
+      System.out.printf("Total %s Seats Sold: %d%n", SeatTypes.nameOf(i), seatsSold[i]);
     }
     // Print total revenue per seat type
-    for (Map.Entry<String, String[]> entry : seatsSold.entrySet()) {
-      System.out.printf("Total revenue for %s tickets: $%s%n", entry.getKey(), entry.getValue()[1]);
+    for (int i = 0; i < seatsRevenue.length; i++) {
+      System.out.printf("Total revenue for %s tickets: $%s%n", SeatTypes.nameOf(i), Money.toString(seatsRevenue[i]));
     }
-    System.out.printf("Total revenue for all tickets: $%.2f%n", totalRevenue);
+    System.out.printf("Total revenue for all tickets: $%s%n", Money.toString(totalRevenue));
     // Print expected profit and actual profit
-    System.out.printf("Expected profit (Sell Out): $%.2f%n", expectedProfit - cost);
-    System.out.printf("Actual profit: $%.2f%n", totalRevenue - cost);
+    System.out.printf("Expected profit (Sell Out): $%s%n", Money.toString(expectedProfit - cost));
+    System.out.printf("Actual profit: $%s%n", Money.toString(totalRevenue - cost));
   }
 
   /**
@@ -163,15 +202,15 @@ public class Statistics {
     calculateStatistics(event);
 
     try {
-      float cost = event.getVenue().getCost();
+      long cost = event.getVenue().getCost() * Money.CENTSPERDOLLAR;
       // Print number of seats and revenue information
       writer.append(totalSeatsSold + ",");
-      for (String[] seatInfo : seatsSold.values()) {
-        writer.append(seatInfo[0] + "," + seatInfo[1] + ",");
+      for (int i = 0; i < seatsSold.length; i++) {
+        writer.append(seatsSold[i] + "," + Money.toString(seatsRevenue[i]) + ",");
       }
-      writer.append(totalRevenue + ",");
-      writer.append((expectedProfit - cost) + ",");
-      writer.append((totalRevenue - cost) + "");
+      writer.append(Money.toString(totalRevenue) + ",");
+      writer.append(Money.toString(expectedProfit - cost) + ",");
+      writer.append(Money.toString(totalRevenue - cost));
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -11,6 +11,13 @@ import java.util.HashMap;
  */
 public class Tax {
   private static HashMap<String, Float> taxInfo;
+  private static HashMap<String, Long> taxInBasisPoints;
+
+  // Filled once when the class is loaded, so purchases on many threads never see
+  // the maps half made
+  static {
+    populateTaxInfo();
+  }
 
   private Tax() {
   }
@@ -22,6 +29,10 @@ public class Tax {
   private static void populateTaxInfo() {
     taxInfo = new HashMap<>();
     taxInfo.put("Texas", (float) 8.25);
+    taxInBasisPoints = new HashMap<>();
+    for (String state : taxInfo.keySet()) {
+      taxInBasisPoints.put(state, Money.toBasisPoints(taxInfo.get(state)));
+    }
   }
 
   /**
@@ -33,10 +44,15 @@ public class Tax {
    * @return float with the state tax percentage.
    */
   public static float getTaxPercentage(Event event) {
-    if (taxInfo == null) {
-      populateTaxInfo();
-    }
-
     return taxInfo.get(event.getState());
   }
+
+  /**
+   * @param event - Event with the state attribute.
+   * @return long with the state tax percentage in basis points, e.g., 825 for
+   *         8.25%.
+   */
+  public static long getTaxInBasisPoints(Event event) {
+    return taxInBasisPoints.get(event.getState());
+  }
 }
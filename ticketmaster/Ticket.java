@@ -2,48 +2,50 @@ package ticketmaster;
 
 import java.io.FileWriter;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.GregorianCalendar;
 import java.util.List;
 
 /**
  * Ticket class save information about multiple transactions from a single
  * customer for multiple seats for different events, if wanted.
+ *
+ * A Ticket is a view of a row of a TicketStore, it don't keep any information
+ * itself. Many Ticket objects can be views of the same row.
  * 
  * @author Robert J Alvarez
  * @date September 18th, 2022
  */
 public class Ticket {
-  private final SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy hh:mm a");
+  private static TicketIDGenerator idGenerator = new SnowflakeIDGenerator();
 
-  private int purchaseID;
-  private Event event;
-  private Venue venue;
-  private ArrayList<Seat> seatsPurchased;
-  private Customer customer;
-  private GregorianCalendar purchaseTime;
-  private float[] salesTotals = new float[] { (float) 0.0, (float) 0.0, (float) -1.0, (float) 0.0 }; // 0: taxes, 1:
-                                                                                                     // service, 2:
-                                                                                                     // convenience, 3:
-                                                                                                     // charity
-  private float subtotal;
+  // Convenience fee until it is payed
+  static final long NOTPAID = -100;
   private static final int MAXNUMBEROFSEATS = 6;
 
+  // Row with the information of the ticket, in a chunk of its own until the
+  // ticket is saved into a TicketStore
+  private TicketStore.Chunk chunk;
+  private int row;
+  // Event of a ticket not saved yet, so its purchase still find it if the event
+  // is cancelled meanwhile. Saved tickets look it up in the Database
+  private Event event;
+
   /**
-   * Constructor that initialize seatsPurchased, save customer, and generate
-   * purchase id for the ticket.
+   * Constructor that save event and customer. The ticket is kept on its own
+   * until it is added to the database.
    * 
-   * @param event    -
-   * @param venue    -
-   * @param customer -
+   * @param event    - Event of the seats purchased.
+   * @param venue    - Venue of the event, the ticket always use the venue of
+   *                 its event.
+   * @param customer - Customer that purchased the seats.
    */
   public Ticket(Event event, Venue venue, Customer customer) {
+    this.chunk = TicketStore.Chunk.newTicket();
+    this.row = 0;
     this.event = event;
-    this.venue = venue;
-    this.seatsPurchased = new ArrayList<>();
-    this.customer = customer;
-    this.subtotal = (float) 0.0;
+    chunk.eventIDs[row] = (event == null) ? 0 : event.getEventID();
+    chunk.customerIDs[row] = (customer == null) ? 0 : customer.getCustomerID();
+    chunk.fees[TicketStore.CONVENIENCEFEE] = NOTPAID;
   }
 
   /**
@@ -54,49 +56,158 @@ public class Ticket {
     this(null, null, null);
   }
 
+  /**
+   * Constructor of a view of a row of a TicketStore.
+   */
+  Ticket(TicketStore.Chunk chunk, int row) {
+    this.chunk = chunk;
+    this.row = row;
+  }
+
   // Getters
-  public int getPurchaseID() {
-    return purchaseID;
+  public long getPurchaseID() {
+    return chunk.purchaseIDs[row];
+  }
+
+  public int getEventID() {
+    return chunk.eventIDs[row];
   }
 
   public Event getEvent() {
-    return event;
+    Event draftEvent = event;
+    return (draftEvent != null) ? draftEvent : Database.getEvent(getEventID());
   }
 
   public Venue getVenue() {
-    return venue;
+    Event event = getEvent();
+    return (event == null) ? null : event.getVenue();
   }
 
+  /**
+   * @return List with a copy of the seats purchased, seats are added and removed
+   *         with addPurchase() and removeSeat().
+   */
   public List<Seat> getSeatsPurchased() {
-    return seatsPurchased;
+    int nSeats = getNumberOfSeatsPurchases();
+    ArrayList<Seat> seats = new ArrayList<>(nSeats);
+
+    for (int i = 0; i < nSeats; i++) {
+      seats.add(new Seat(getSeatTypeOrdinal(i), getSeatPriceInCents(i), getSeatDiscountInCents(i)));
+    }
+    return seats;
+  }
+
+  /**
+   * @param i - int with the index of the seat, less than
+   *          getNumberOfSeatsPurchases().
+   * @return String with the seat type of the seat i.
+   */
+  public String getSeatType(int i) {
+    return SeatTypes.nameOf(getSeatTypeOrdinal(i));
+  }
+
+  /**
+   * @param i - int with the index of the seat, less than
+   *          getNumberOfSeatsPurchases().
+   * @return int with the SeatTypes ordinal of the seat i.
+   */
+  public int getSeatTypeOrdinal(int i) {
+    return chunk.seatTypes[row * TicketStore.MAXSEATS + i];
+  }
+
+  /**
+   * @param i - int with the index of the seat, less than
+   *          getNumberOfSeatsPurchases().
+   * @return long with the price payed for the seat i in cents.
+   */
+  public long getSeatPriceInCents(int i) {
+    return chunk.seatPrices[row * TicketStore.MAXSEATS + i];
+  }
+
+  /**
+   * @param i - int with the index of the seat, less than
+   *          getNumberOfSeatsPurchases().
+   * @return long with the member discount taken off the seat i in cents.
+   */
+  public long getSeatDiscountInCents(int i) {
+    return chunk.seatDiscounts[row * TicketStore.MAXSEATS + i];
+  }
+
+  /**
+   * @return long with the member discount taken off all the seats in cents, what
+   *         the customer saved with the ticket.
+   */
+  public long getDiscountInCents() {
+    long discount = 0;
+
+    for (int i = 0; i < getNumberOfSeatsPurchases(); i++) {
+      discount += getSeatDiscountInCents(i);
+    }
+    return discount;
+  }
+
+  public int getCustomerID() {
+    return chunk.customerIDs[row];
   }
 
   public Customer getCustomer() {
-    return customer;
+    return Database.getCustomer(getCustomerID());
   }
 
   public String getPurchaseTime() {
-    return sdf.format(purchaseTime.getTime());
+    return Dates.format(getPurchaseTimeInMillis());
+  }
+
+  public long getPurchaseTimeInMillis() {
+    return chunk.purchaseTimes[row];
   }
 
   public float getTaxesPay() {
-    return salesTotals[0];
+    return Money.toDollars(getTaxesPayInCents());
   }
 
   public float getServiceFeePay() {
-    return salesTotals[1];
+    return Money.toDollars(getServiceFeePayInCents());
   }
 
   public float getConvenienceFeePay() {
-    return salesTotals[2];
+    return Money.toDollars(getConvenienceFeePayInCents());
   }
 
   public float getCharityFeePay() {
-    return salesTotals[3];
+    return Money.toDollars(getCharityFeePayInCents());
   }
 
   public float getSubtotal() {
-    return subtotal;
+    return Money.toDollars(getSubtotalInCents());
+  }
+
+  public long getTaxesPayInCents() {
+    return getFee(TicketStore.TAXES);
+  }
+
+  public long getServiceFeePayInCents() {
+    return getFee(TicketStore.SERVICEFEE);
+  }
+
+  /**
+   * @return long with the convenience fee payed in cents, or -100 if it haven't
+   *         been payed.
+   */
+  public long getConvenienceFeePayInCents() {
+    return getFee(TicketStore.CONVENIENCEFEE);
+  }
+
+  public long getCharityFeePayInCents() {
+    return getFee(TicketStore.CHARITYFEE);
+  }
+
+  public long getSubtotalInCents() {
+    return getFee(TicketStore.SUBTOTAL);
+  }
+
+  public boolean isConvenienceFeePaid() {
+    return getConvenienceFeePayInCents() != NOTPAID;
   }
 
   public static int getMaxNumberOfSeats() {
@@ -104,131 +215,199 @@ public class Ticket {
   }
 
   public float getTotalCost() {
-    float fees = (float) 0.0;
-    for (float cost : salesTotals) {
-      fees += cost;
+    return Money.toDollars(getTotalCostInCents());
+  }
+
+  /**
+   * @return long with the taxes, fees and subtotal payed in cents, a convenience
+   *         fee that haven't been payed is not added.
+   */
+  public long getTotalCostInCents() {
+    long total = 0;
+    for (int i = 0; i < TicketStore.NFEES; i++) {
+      if ((i != TicketStore.CONVENIENCEFEE) || isConvenienceFeePaid()) {
+        total += getFee(i);
+      }
     }
-    return fees + subtotal;
+    return total;
+  }
+
+  private long getFee(int fee) {
+    return chunk.fees[row * TicketStore.NFEES + fee];
+  }
+
+  TicketStore.Chunk getChunk() {
+    return chunk;
+  }
+
+  int getRow() {
+    return row;
+  }
+
+  /**
+   * @return true if both tickets are views of the same row.
+   */
+  boolean isSameRow(Ticket other) {
+    return (chunk == other.chunk) && (row == other.row);
   }
 
   // Setters
   public void setPurchaseID() {
-    this.purchaseID = generatePurchaseID();
+    chunk.purchaseIDs[row] = generatePurchaseID();
   }
 
-  public void setPurchaseID(int purchaseID) {
-    this.purchaseID = purchaseID;
+  public void setPurchaseID(long purchaseID) {
+    chunk.purchaseIDs[row] = purchaseID;
   }
 
-  public void setEvent(Event event) {
-    this.event = event;
+  /**
+   * Change how the purchase ID of new tickets is made. IDs of tickets read from
+   * files are kept as they were.
+   * 
+   * @param generator - TicketIDGenerator used by setPurchaseID().
+   */
+  public static void setIDGenerator(TicketIDGenerator generator) {
+    idGenerator = generator;
   }
 
-  public void setVenue(Venue venue) {
-    this.venue = venue;
+  public void setEvent(Event event) {
+    if (chunk.store == null) {
+      this.event = event;
+    }
+    chunk.eventIDs[row] = event.getEventID();
   }
 
   public void setCustomer(Customer customer) {
-    this.customer = customer;
-  }
-
-  public void setPurchaseTime(GregorianCalendar purchaseTime) {
-    this.purchaseTime = purchaseTime;
+    chunk.customerIDs[row] = customer.getCustomerID();
   }
 
   public void setPurchaseTime() {
-    purchaseTime = new GregorianCalendar();
+    setPurchaseTimeInMillis(System.currentTimeMillis());
   }
 
-  public void setTaxesPay(float taxes) {
-    salesTotals[0] = taxes;
-    event.setTaxes(event.getTaxes() + taxes);
-    Database.addTaxesCollected(taxes);
+  public void setPurchaseTimeInMillis(long purchaseTime) {
+    chunk.purchaseTimes[row] = purchaseTime;
   }
 
-  public void setServiceFeePay(float serviceFee) {
-    salesTotals[1] = serviceFee;
-    event.setServiceFee(event.getServiceFee() + serviceFee);
-    Database.addServiceFee(serviceFee);
+  public void setSubtotal(long subtotal) {
+    setFee(TicketStore.SUBTOTAL, subtotal);
   }
 
-  public void setConvenienceFee(float convenienceFee) {
-    salesTotals[2] = convenienceFee;
-    event.setConvenienceFee(event.getConvenienceFee() + convenienceFee);
-    Database.addConvenienceFee(convenienceFee);
+  /**
+   * Set the fees payed for the ticket. Like all the other fee methods, the event
+   * and database totals are not changed, Database.collectFees() add them once
+   * the ticket is saved.
+   * 
+   * @param taxes          - long with the taxes payed in cents.
+   * @param serviceFee     - long with the service fee payed in cents.
+   * @param convenienceFee - long with the convenience fee payed in cents, or
+   *                       -100 if it haven't been payed.
+   * @param charityFee     - long with the charity fee payed in cents.
+   */
+  public void setFees(long taxes, long serviceFee, long convenienceFee, long charityFee) {
+    setFee(TicketStore.TAXES, taxes);
+    setFee(TicketStore.SERVICEFEE, serviceFee);
+    setFee(TicketStore.CONVENIENCEFEE, convenienceFee);
+    setFee(TicketStore.CHARITYFEE, charityFee);
   }
 
-  public void setCharityFeePay(float charityFee) {
-    salesTotals[3] = charityFee;
-    event.setCharityFee(event.getCharityFee() + charityFee);
-    Database.addCharityFee(charityFee);
+  public void setConvenienceFee(long convenienceFee) {
+    setFee(TicketStore.CONVENIENCEFEE, convenienceFee);
   }
 
-  public void setSubtotal(float subtotal) {
-    this.subtotal = subtotal;
+  private void setFee(int fee, long cents) {
+    chunk.fees[row * TicketStore.NFEES + fee] = cents;
   }
 
-  // Methods
-  public void addTaxesCollected(float taxes) {
-    salesTotals[0] += taxes;
-    event.setTaxes(event.getTaxes() + taxes);
-    Database.addTaxesCollected(taxes);
+  /**
+   * Make the ticket a view of a row of a TicketStore, called once the row was
+   * copied there.
+   */
+  void moveTo(TicketStore.Chunk chunk, int row) {
+    this.chunk = chunk;
+    this.row = row;
+    this.event = null;
   }
 
-  public void addServiceFee(float serviceFee) {
-    salesTotals[1] += serviceFee;
-    event.setServiceFee(event.getServiceFee() + serviceFee);
-    Database.addServiceFee(serviceFee);
+  // Methods
+  public void addTaxesCollected(long taxes) {
+    setFee(TicketStore.TAXES, getTaxesPayInCents() + taxes);
   }
 
-  public void addCharityFee(float charityFee) {
-    salesTotals[3] += charityFee;
-    event.setCharityFee(event.getCharityFee() + charityFee);
-    Database.addCharityFee(charityFee);
+  public void addServiceFee(long serviceFee) {
+    setFee(TicketStore.SERVICEFEE, getServiceFeePayInCents() + serviceFee);
   }
 
-  public void addToSubtotal(float cost) {
-    subtotal += cost;
+  public void addCharityFee(long charityFee) {
+    setFee(TicketStore.CHARITYFEE, getCharityFeePayInCents() + charityFee);
   }
 
-  public void returnTaxes(float taxes) {
-    salesTotals[0] -= taxes;
-    event.setTaxes(event.getTaxes() - taxes);
-    Database.returnTaxes(taxes);
+  public void addToSubtotal(long cost) {
+    setFee(TicketStore.SUBTOTAL, getSubtotalInCents() + cost);
   }
 
-  public void returnServiceFee(float serviceFee) {
-    salesTotals[1] += serviceFee;
-    event.setServiceFee(event.getServiceFee() - serviceFee);
-    Database.returnServiceFee(serviceFee);
+  public void addPurchase(Seat purchase) {
+    chunk.addSeat(row, purchase.getSeatTypeOrdinal(), purchase.getPriceInCents(), purchase.getDiscountInCents());
   }
 
-  public void returnConvenienceFee() {
-    event.setConvenienceFee(event.getConvenienceFee() - salesTotals[2]);
-    Database.returnConvenienceFee(salesTotals[2]);
-    salesTotals[2] = ((float) -1.0);
+  /**
+   * Same as addPurchase(int, long) with the name of the seat type.
+   * 
+   * @param seatType     - String with the seat type.
+   * @param priceInCents - long with the price payed for the seat in cents.
+   */
+  public void addPurchase(String seatType, long priceInCents) {
+    addPurchase(SeatTypes.intern(seatType), priceInCents);
   }
 
-  public void returnCharityFee(float charityFee) {
-    salesTotals[3] += charityFee;
-    event.setCharityFee(event.getCharityFee() - charityFee);
-    Database.returnCharityFee(charityFee);
+  /**
+   * Add a seat read from a file that don't keep the member discount, e.g., a csv
+   * file. The discount is the one payForSeats() take off the seat price of the
+   * event if priceInCents is that price with the discount, 0 otherwise.
+   * 
+   * @param seatType     - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents - long with the price payed for the seat in cents.
+   */
+  public void addPurchase(int seatType, long priceInCents) {
+    Event event = getEvent();
+    long discount = 0;
+
+    if (event != null) {
+      long eventPrice = event.getSeatPriceInCents(seatType);
+      long memberDiscount = Money.divide(eventPrice, 10);
+      if ((memberDiscount > 0) && (priceInCents == eventPrice - memberDiscount)) {
+        discount = memberDiscount;
+      }
+    }
+    chunk.addSeat(row, seatType, priceInCents, discount);
   }
 
-  public void addPurchase(Seat purchase) {
-    seatsPurchased.add(purchase);
+  /**
+   * Same as addPurchase(int, long) with the member discount already known.
+   * 
+   * @param seatType        - int with the SeatTypes ordinal of the seat type.
+   * @param priceInCents    - long with the price payed for the seat in cents.
+   * @param discountInCents - long with the discount taken off the seat in cents.
+   */
+  public void addPurchase(int seatType, long priceInCents, long discountInCents) {
+    chunk.addSeat(row, seatType, priceInCents, discountInCents);
   }
 
+  /**
+   * Remove a seat of the same type and price as seat.
+   * 
+   * @param seat - Seat to be removed.
+   */
   public void removeSeat(Seat seat) {
-    seatsPurchased.remove(seat);
+    chunk.removeSeat(row, seat.getSeatTypeOrdinal(), seat.getPriceInCents());
   }
 
   public int getNumberOfSeatsPurchases() {
-    return seatsPurchased.size();
+    return chunk.seatCounts[row];
   }
 
-  private int generatePurchaseID() {
-    return this.hashCode();
+  private long generatePurchaseID() {
+    return idGenerator.nextID();
   }
 
   /**
@@ -237,14 +416,16 @@ public class Ticket {
    */
   public String getRecord() {
     StringBuilder bld = new StringBuilder();
+    Event event = getEvent();
+    Venue venue = event.getVenue();
 
     bld.append(
         "Event: " + event.getName() + " | Venue: " + venue.getName() + " | Customer: " + getCustomer().getUsername() +
-            " | Ticket ID:" + getPurchaseID() + " | Total cost: " + getTotalCost() + " | Purchase time: "
+            " | Ticket ID:" + getPurchaseID() + " | Total cost: " + Money.toString(getTotalCostInCents()) + " | Purchase time: "
             + getPurchaseTime() + "\n");
 
-    for (Seat seat : getSeatsPurchased()) {
-      bld.append("\t" + "Seat type: " + seat.getSeatType() + " | Seat price: " + seat.getPrice() + "\n");
+    for (int i = 0; i < getNumberOfSeatsPurchases(); i++) {
+      bld.append("\t" + "Seat type: " + getSeatType(i) + " | Seat price: " + Money.toString(getSeatPriceInCents(i)) + "\n");
     }
 
     return bld.toString();
@@ -255,11 +436,12 @@ public class Ticket {
    */
   public String getSummary() {
     StringBuilder bld = new StringBuilder();
+    Event event = getEvent();
 
     bld.append("Confirmation Number: " + getPurchaseID() + " | Event type: " + event.getClass().getSimpleName()
         + " | Event Name: " + event.getName() +
         " | Event Date: " + event.getDate() + " | Number of seats: " + getNumberOfSeatsPurchases() + " | Total price: "
-        + getTotalCost() + "\n");
+        + Money.toString(getTotalCostInCents()) + "\n");
 
     return bld.toString();
   }
@@ -296,19 +478,19 @@ public class Ticket {
   public void writeContentToCSV(FileWriter writer) {
     try {
       writer.append(getPurchaseID() + ",");
-      writer.append(getEvent().getEventID() + ",");
-      writer.append(getCustomer().getCustomerID() + ",");
+      writer.append(getEventID() + ",");
+      writer.append(getCustomerID() + ",");
       writer.append(getPurchaseTime() + ",");
-      writer.append(getTaxesPay() + ",");
-      writer.append(getServiceFeePay() + ",");
-      writer.append(getConvenienceFeePay() + ",");
-      writer.append(getCharityFeePay() + ",");
-      writer.append(getSubtotal() + ",");
-      writer.append(getTotalCost() + ",");
+      writer.append(Money.toString(getTaxesPayInCents()) + ",");
+      writer.append(Money.toString(getServiceFeePayInCents()) + ",");
+      writer.append(Money.toString(getConvenienceFeePayInCents()) + ",");
+      writer.append(Money.toString(getCharityFeePayInCents()) + ",");
+      writer.append(Money.toString(getSubtotalInCents()) + ",");
+      writer.append(Money.toString(getTotalCostInCents()) + ",");
       int i = 0;
-      for (Seat seat : getSeatsPurchased()) {
-        writer.append(seat.getSeatType() + ",");
-        writer.append(seat.getPrice() + ((i++ == getMaxNumberOfSeats() - 1) ? "\n" : ","));
+      while (i < getNumberOfSeatsPurchases()) {
+        writer.append(getSeatType(i) + ",");
+        writer.append(Money.toString(getSeatPriceInCents(i)) + ((i++ == getMaxNumberOfSeats() - 1) ? "\n" : ","));
       }
       while (i < getMaxNumberOfSeats() - 1) {
         writer.append(",,,");
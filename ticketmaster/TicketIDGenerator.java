@@ -0,0 +1,14 @@
+package ticketmaster;
+
+/**
+ * TicketIDGenerator give the purchase ID of every new ticket. Implementations
+ * must be safe to call from many threads at once and never give the same ID
+ * twice. Ticket.setIDGenerator() choose the one used, SnowflakeIDGenerator by
+ * default.
+ */
+public interface TicketIDGenerator {
+  /**
+   * @return long with a purchase ID that was never given before, greater than 0.
+   */
+  long nextID();
+}
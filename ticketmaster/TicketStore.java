@@ -0,0 +1,342 @@
+package ticketmaster;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TicketStore keep the tickets saved in the database as columns of primitive
+ * arrays instead of one object graph per ticket: purchase ID, event ID,
+ * customer ID, purchase time, taxes and fees, and the seat type and price of
+ * every seat with the member discount taken off it. A Ticket is only a view of a row, so a ticket cost the row plus a
+ * small object, and scans over all the tickets (e.g., fees or seats sold per
+ * event) read a few arrays in order instead of following references.
+ *
+ * Rows are grouped in chunks that are never moved once made, so a Ticket can
+ * keep pointing to its chunk and threads adding tickets never copy the rows of
+ * each other. A new Ticket use a chunk of a single row until it is added here.
+ * Rows are claimed with an atomic counter and published by setting their state
+ * last, so scans only see complete rows. Removed rows are kept (tickets that
+ * were removed can still be read) and are dropped the next time the database
+ * is restored.
+ *
+ * Seat types are kept as their byte SeatTypes ordinal.
+ */
+public class TicketStore {
+  private static final int CHUNKBITS = 14; // 16384 rows per chunk
+  private static final int CHUNKSIZE = 1 << CHUNKBITS;
+  private static final int CHUNKMASK = CHUNKSIZE - 1;
+  static final int MAXSEATS = Ticket.getMaxNumberOfSeats();
+  // Index of every amount in the fee columns, all in cents
+  static final int TAXES = 0;
+  static final int SERVICEFEE = 1;
+  static final int CONVENIENCEFEE = 2;
+  static final int CHARITYFEE = 3;
+  static final int SUBTOTAL = 4;
+  static final int NFEES = 5;
+  // Row states, rows that were claimed but not filled yet are 0
+  private static final byte LIVE = 1;
+  private static final byte REMOVED = 2;
+  private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+  private volatile Chunk[] chunks = new Chunk[0];
+  private final AtomicInteger nRows = new AtomicInteger();
+  // Tickets that haven't been removed by purchase ID
+  private final IDMap<Ticket> index = new IDMap<>(Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Chunk hold the columns of CHUNKSIZE rows, or a single row for a ticket that
+   * haven't been saved.
+   */
+  static final class Chunk {
+    final TicketStore store; // null for the chunk of a new ticket
+    final long[] purchaseIDs;
+    final int[] eventIDs;
+    final int[] customerIDs;
+    final long[] purchaseTimes; // Milliseconds since 1970
+    final long[] fees; // NFEES per row
+    final byte[] seatCounts;
+    final byte[] seatTypes; // MAXSEATS per row
+    final long[] seatPrices; // MAXSEATS per row, in cents
+    final long[] seatDiscounts; // MAXSEATS per row, member discount taken off every seat in cents
+    final byte[] states;
+
+    private Chunk(TicketStore store, int nRows) {
+      this.store = store;
+      purchaseIDs = new long[nRows];
+      eventIDs = new int[nRows];
+      customerIDs = new int[nRows];
+      purchaseTimes = new long[nRows];
+      fees = new long[nRows * NFEES];
+      seatCounts = new byte[nRows];
+      seatTypes = new byte[nRows * MAXSEATS];
+      seatPrices = new long[nRows * MAXSEATS];
+      seatDiscounts = new long[nRows * MAXSEATS];
+      states = new byte[nRows];
+    }
+
+    /**
+     * @return Chunk with a single row for a ticket that is being made.
+     */
+    static Chunk newTicket() {
+      return new Chunk(null, 1);
+    }
+
+    void addSeat(int row, int seatType, long priceInCents, long discountInCents) {
+      int nSeats = seatCounts[row];
+      if (nSeats == MAXSEATS) {
+        throw new IllegalStateException("A ticket can't have more than " + MAXSEATS + " seats.");
+      }
+      seatTypes[row * MAXSEATS + nSeats] = (byte) seatType;
+      seatPrices[row * MAXSEATS + nSeats] = priceInCents;
+      seatDiscounts[row * MAXSEATS + nSeats] = discountInCents;
+      seatCounts[row]++;
+    }
+
+    /**
+     * Remove the first seat of the row with the same type and price, the seats
+     * after it are moved one place down.
+     *
+     * @return true if a seat was removed.
+     */
+    boolean removeSeat(int row, int seatType, long priceInCents) {
+      int first = row * MAXSEATS;
+      int last = first + seatCounts[row];
+
+      for (int i = first; i < last; i++) {
+        if ((seatTypes[i] == seatType) && (seatPrices[i] == priceInCents)) {
+          System.arraycopy(seatTypes, i + 1, seatTypes, i, last - i - 1);
+          System.arraycopy(seatPrices, i + 1, seatPrices, i, last - i - 1);
+          System.arraycopy(seatDiscounts, i + 1, seatDiscounts, i, last - i - 1);
+          seatCounts[row]--;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void copyRow(int row, Chunk from, int fromRow) {
+      purchaseIDs[row] = from.purchaseIDs[fromRow];
+      eventIDs[row] = from.eventIDs[fromRow];
+      customerIDs[row] = from.customerIDs[fromRow];
+      purchaseTimes[row] = from.purchaseTimes[fromRow];
+      System.arraycopy(from.fees, fromRow * NFEES, fees, row * NFEES, NFEES);
+      seatCounts[row] = from.seatCounts[fromRow];
+      System.arraycopy(from.seatTypes, fromRow * MAXSEATS, seatTypes, row * MAXSEATS, MAXSEATS);
+      System.arraycopy(from.seatPrices, fromRow * MAXSEATS, seatPrices, row * MAXSEATS, MAXSEATS);
+      System.arraycopy(from.seatDiscounts, fromRow * MAXSEATS, seatDiscounts, row * MAXSEATS, MAXSEATS);
+    }
+
+    private boolean isLive(int row) {
+      return (byte) STATES.getAcquire(states, row) == LIVE;
+    }
+  }
+
+  // Getters
+  public Ticket get(long purchaseID) {
+    return index.get(purchaseID);
+  }
+
+  /**
+   * @return int with the number of tickets that haven't been removed.
+   */
+  public int size() {
+    return index.size();
+  }
+
+  /**
+   * @return Collection with the tickets that haven't been removed in the order
+   *         they were added.
+   */
+  public Collection<Ticket> getTickets() {
+    return getTickets(Long.MIN_VALUE, Long.MAX_VALUE, false);
+  }
+
+  /**
+   * @param fromID - long with the lowest purchase ID wanted.
+   * @param toID   - long with the purchase ID after the last one wanted.
+   * @return Collection with a copy of the tickets with fromID <= purchase ID <
+   *         toID in ID order.
+   */
+  public Collection<Ticket> getTickets(long fromID, long toID) {
+    return getTickets(fromID, toID, true);
+  }
+
+  private Collection<Ticket> getTickets(long fromID, long toID, boolean sorted) {
+    ArrayList<Ticket> tickets = new ArrayList<>();
+    int n = nRows.get();
+    Chunk[] cs = chunks;
+
+    for (int c = 0; (c < cs.length) && (c << CHUNKBITS < n); c++) {
+      Chunk chunk = cs[c];
+      int nInChunk = Math.min(CHUNKSIZE, n - (c << CHUNKBITS));
+      if (chunk == null) {
+        continue;
+      }
+      for (int row = 0; row < nInChunk; row++) {
+        // The state is read first so the rest of the row is complete
+        if (chunk.isLive(row) && (chunk.purchaseIDs[row] >= fromID) && (chunk.purchaseIDs[row] < toID)) {
+          tickets.add(new Ticket(chunk, row));
+        }
+      }
+    }
+    if (sorted) {
+      tickets.sort(Comparator.comparingLong(Ticket::getPurchaseID));
+    }
+    return tickets;
+  }
+
+  /**
+   * Add the taxes, fees and subtotals payed for the tickets of an event reading
+   * only the fee columns.
+   *
+   * @param eventID - int with the ID of the event.
+   * @return long[] with the taxes, service, convenience and charity fees, and
+   *         subtotal of the tickets of the event, all in cents. Convenience fees
+   *         that haven't been payed are not added.
+   */
+  public long[] sumFees(int eventID) {
+    long[] totals = new long[NFEES];
+    int n = nRows.get();
+    Chunk[] cs = chunks;
+
+    for (int c = 0; (c < cs.length) && (c << CHUNKBITS < n); c++) {
+      Chunk chunk = cs[c];
+      int nInChunk = Math.min(CHUNKSIZE, n - (c << CHUNKBITS));
+      if (chunk == null) {
+        continue;
+      }
+      for (int row = 0; row < nInChunk; row++) {
+        if (chunk.isLive(row) && (chunk.eventIDs[row] == eventID)) {
+          int first = row * NFEES;
+          for (int i = 0; i < NFEES; i++) {
+            long amount = chunk.fees[first + i];
+            if ((i != CONVENIENCEFEE) || (amount != Ticket.NOTPAID)) {
+              totals[i] += amount;
+            }
+          }
+        }
+      }
+    }
+    return totals;
+  }
+
+  /**
+   * Count the seats sold and their revenue per seat type for the tickets of an
+   * event reading only the seat columns.
+   *
+   * @param eventID    - int with the ID of the event.
+   * @param seatsSold  - int[] indexed by SeatTypes ordinal to add the number of
+   *                   seats sold to.
+   * @param revenue    - long[] indexed by SeatTypes ordinal to add the price of
+   *                   the seats sold to, in cents.
+   */
+  public void sumSeats(int eventID, int[] seatsSold, long[] revenue) {
+    int n = nRows.get();
+    Chunk[] cs = chunks;
+
+    for (int c = 0; (c < cs.length) && (c << CHUNKBITS < n); c++) {
+      Chunk chunk = cs[c];
+      int nInChunk = Math.min(CHUNKSIZE, n - (c << CHUNKBITS));
+      if (chunk == null) {
+        continue;
+      }
+      for (int row = 0; row < nInChunk; row++) {
+        if (chunk.isLive(row) && (chunk.eventIDs[row] == eventID)) {
+          int first = row * MAXSEATS;
+          for (int i = first; i < first + chunk.seatCounts[row]; i++) {
+            int type = chunk.seatTypes[i];
+            if (type < seatsSold.length) {
+              seatsSold[type]++;
+              revenue[type] += chunk.seatPrices[i];
+            }
+          }
+        }
+      }
+    }
+  }
+
+  // Methods
+  /**
+   * Copy the ticket into a row of the store and make the ticket a view of that
+   * row. A ticket saved before with the same purchase ID is removed.
+   *
+   * @param ticket - Ticket to be added.
+   */
+  public void add(Ticket ticket) {
+    Chunk from = ticket.getChunk();
+
+    if (from.store != this) {
+      int row = nRows.getAndIncrement();
+      Chunk chunk = getChunk(row >>> CHUNKBITS);
+      int idx = row & CHUNKMASK;
+      chunk.copyRow(idx, from, ticket.getRow());
+      STATES.setRelease(chunk.states, idx, LIVE);
+      ticket.moveTo(chunk, idx);
+    } else {
+      STATES.setRelease(from.states, ticket.getRow(), LIVE);
+    }
+
+    Ticket previous = index.put(ticket.getPurchaseID(), ticket);
+    if ((previous != null) && !previous.isSameRow(ticket)) {
+      markRemoved(previous);
+    }
+  }
+
+  /**
+   * Remove the ticket, its row can still be read through the ticket. The row is
+   * taken with a compare and set, so if a ticket is sold and refunded by a
+   * cancellation at once only one of them remove it.
+   *
+   * @param ticket - Ticket to be removed.
+   * @return true if this call removed the ticket, false if it was removed
+   *         before.
+   */
+  public boolean remove(Ticket ticket) {
+    Chunk chunk = ticket.getChunk();
+
+    if (chunk.store != this) { // Never saved here, only its ID can be removed
+      return index.remove(ticket.getPurchaseID()) != null;
+    }
+    if (!STATES.compareAndSet(chunk.states, ticket.getRow(), LIVE, REMOVED)) {
+      return false;
+    }
+    index.remove(ticket.getPurchaseID());
+    return true;
+  }
+
+  private void markRemoved(Ticket ticket) {
+    if (ticket.getChunk().store == this) {
+      STATES.setRelease(ticket.getChunk().states, ticket.getRow(), REMOVED);
+    }
+  }
+
+  /**
+   * @param c - int with the number of the chunk.
+   * @return Chunk c, made if it doesn't exist.
+   */
+  private Chunk getChunk(int c) {
+    Chunk[] cs = chunks;
+    if ((c < cs.length) && (cs[c] != null)) {
+      return cs[c];
+    }
+    return addChunk(c);
+  }
+
+  private synchronized Chunk addChunk(int c) {
+    Chunk[] cs = chunks;
+
+    if (c >= cs.length) {
+      cs = Arrays.copyOf(cs, Math.max(c + 1, cs.length * 2));
+    }
+    if (cs[c] == null) {
+      cs[c] = new Chunk(this, CHUNKSIZE);
+    }
+    chunks = cs;
+    return cs[c];
+  }
+}
@@ -0,0 +1,532 @@
+package ticketmaster;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * TrafficGenerator load the events and customers csv files and make a stream
+ * of purchases, sells and event cancellations of any length against the
+ * Database in this same program, without files or HTTP in between, and report
+ * the operations per second, the latency percentiles of every kind of
+ * operation and how much heap the tickets take, to know what hardware a
+ * number of customers needs.
+ *
+ * Traffic is not spread evenly, like in real sales:
+ * - Hot events: --hot-events events get --hot-share percent of the purchases.
+ * - On-sale bursts: --bursts times in the run an event goes on sale and get
+ * --burst-share percent of the purchases for the next --burst-length
+ * operations.
+ * - Customers: a few customers buy most of the tickets, the customer of a
+ * purchase follow a Zipf distribution with exponent --zipf (0 for every
+ * customer the same).
+ *
+ * Every thread make an operation, wait for it and make the next one. Purchases
+ * are made with Customer.buySeats() and Database.addTicket(), sells with
+ * User.sellAllSeats() for tickets bought by the same thread, and --cancels
+ * events are cancelled with the CancellationProcessor at even points of the
+ * run. A purchase look up its event by ID, so events cancelled are not bought
+ * anymore.
+ *
+ * Arguments:
+ * --events FILE Events and venues csv file (required).
+ * --customers FILE Customers csv file (required).
+ * --operations N Purchases and sells to make, 100000 by default.
+ * --threads N Threads making operations, by default the number of cores.
+ * --mix buy=85,sell=15 Weights of purchases and sells.
+ * --cancels N Events cancelled during the run, 2 by default.
+ * --hot-events N, --hot-share PCT 5 events with 50% of purchases by default.
+ * --bursts N, --burst-length N, --burst-share PCT 4 bursts of 2000 operations
+ * with 80% of purchases by default.
+ * --zipf S Zipf exponent of the customers, 1.0 by default.
+ * --money AMOUNT Money given to every customer before the run, so long runs
+ * are not stopped by customers without money.
+ * --seed N Seed of the traffic, the same seed make the same events hot and
+ * the same customers active.
+ * --log LEVEL Lowest level written to the loggers (e.g. INFO, OFF).
+ */
+public class TrafficGenerator {
+  private static final String[] KINDS = { "buy", "sell", "cancel" };
+  private static final int BUY = 0;
+  private static final int SELL = 1;
+  private static final int CANCEL = 2;
+
+  private String eventsFilename = null;
+  private String customersFilename = null;
+  private long nOperations = 100000;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private final int[] weights = { 85, 15 }; // buy and sell
+  private int nCancels = 2;
+  private int nHotEvents = 5;
+  private int hotShare = 50;
+  private int nBursts = 4;
+  private long burstLength = 2000;
+  private int burstShare = 80;
+  private double zipf = 1.0;
+  private long money = -1; // In cents, customers keep their money if it is negative
+  private long seed = 42;
+
+  private int[] eventIDs; // Shuffled, the first nHotEvents are the hot ones
+  private AtomicIntegerArray cancelled; // 1 if eventIDs[i] was cancelled
+  private Customer[] customers; // Shuffled, the first is the most active one
+  private double[] customerCDF; // Chance that the customer is at or before an index
+  private long[] burstStarts; // First operation of every burst
+  private int[] burstEvents; // Index in eventIDs of the event of every burst
+  private long[] cancelAt; // Operation after which an event is cancelled
+  private final AtomicLong nStarted = new AtomicLong();
+
+  /**
+   * Worker is a thread making operations with its own histograms and tickets.
+   */
+  private final class Worker extends Thread {
+    private final SplittableRandom random;
+    private final LatencyHistogram[] latencies = new LatencyHistogram[KINDS.length];
+    private final long[] failed = new long[KINDS.length];
+    private long nEventGone = 0; // Purchases for an event that was cancelled
+    private final ArrayList<Ticket> tickets = new ArrayList<>();
+
+    private Worker(int n) {
+      super("TrafficGenerator-" + n);
+      random = new SplittableRandom(seed + 1 + n);
+      for (int i = 0; i < KINDS.length; i++) {
+        latencies[i] = new LatencyHistogram();
+      }
+    }
+
+    @Override
+    public void run() {
+      long operation;
+
+      while ((operation = nStarted.getAndIncrement()) < nOperations) {
+        int cancel = Arrays.binarySearch(cancelAt, operation);
+        if (cancel >= 0) {
+          timed(CANCEL, () -> cancel());
+        }
+        int kind = (random.nextInt(weights[BUY] + weights[SELL]) < weights[BUY]) ? BUY : SELL;
+        if ((kind == SELL) && tickets.isEmpty()) {
+          kind = BUY; // Nothing to sell yet
+        }
+        if (kind == BUY) {
+          int event = pickEvent(operation);
+          timed(BUY, () -> buy(event));
+        } else {
+          Ticket ticket = tickets.remove(random.nextInt(tickets.size()));
+          timed(SELL, () -> sell(ticket));
+        }
+      }
+    }
+
+    private void timed(int kind, Operation operation) {
+      long start = System.nanoTime();
+      boolean done;
+
+      try {
+        done = operation.run();
+      } catch (RuntimeException e) {
+        System.err.println(e.toString());
+        Log.logWrite(Level.WARNING, e.toString());
+        done = false;
+      }
+      latencies[kind].record(System.nanoTime() - start);
+      if (!done) {
+        failed[kind]++;
+      }
+    }
+
+    private boolean buy(int event) {
+      Event found = Database.getEvent(eventIDs[event]);
+      Customer customer = pickCustomer();
+      Ticket ticket;
+
+      if (found == null) {
+        nEventGone++;
+        return false;
+      }
+      ticket = customer.buySeats(found, SeatTypes.nameOf(random.nextInt(SeatTypes.count())),
+          1 + random.nextInt(Ticket.getMaxNumberOfSeats()));
+      if (ticket == null) {
+        return false;
+      }
+      if (!Database.addTicket(ticket)) { // Cancelled while it was bought
+        return false;
+      }
+      tickets.add(ticket);
+      return true;
+    }
+
+    private boolean sell(Ticket ticket) {
+      // The ticket is gone if its event was cancelled
+      synchronized (ticket) {
+        if (Database.getTicketPurchased(ticket.getPurchaseID()) != ticket) {
+          return false;
+        }
+        return User.sellAllSeats(ticket);
+      }
+    }
+
+    /**
+     * Cancel a random event that was not cancelled yet.
+     */
+    private boolean cancel() {
+      int start = random.nextInt(eventIDs.length);
+
+      for (int i = 0; i < eventIDs.length; i++) {
+        int event = (start + i) % eventIDs.length;
+        if (cancelled.compareAndSet(event, 0, 1)) {
+          return CancellationProcessor.cancel(new int[] { eventIDs[event] }, threads).isCommitted();
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return int with the index in eventIDs of the event bought for in
+     *         operation.
+     */
+    private int pickEvent(long operation) {
+      int burst = Arrays.binarySearch(burstStarts, operation);
+
+      if (burst < 0) {
+        burst = -burst - 2; // Burst that started before operation
+      }
+      if ((burst >= 0) && (operation < burstStarts[burst] + burstLength)
+          && (random.nextInt(100) < burstShare)) {
+        return burstEvents[burst];
+      }
+      if ((nHotEvents > 0) && (random.nextInt(100) < hotShare)) {
+        return random.nextInt(nHotEvents);
+      }
+      return random.nextInt(eventIDs.length);
+    }
+
+    private Customer pickCustomer() {
+      int i = Arrays.binarySearch(customerCDF, random.nextDouble());
+
+      return customers[Math.min((i < 0) ? -i - 1 : i, customers.length - 1)];
+    }
+  }
+
+  /**
+   * Operation is a buy, sell or cancel made by a Worker.
+   */
+  private interface Operation {
+    /**
+     * @return true if the operation was made.
+     */
+    boolean run();
+  }
+
+  private TrafficGenerator() {
+  }
+
+  /**
+   * @param args - String[] with the options, see the class comment.
+   */
+  public static void main(String[] args) {
+    TrafficGenerator generator = new TrafficGenerator();
+
+    if (!generator.parseArguments(args)) {
+      System.err.println("Usage: java ticketmaster.TrafficGenerator --events FILE --customers FILE [--operations N]"
+          + " [--threads N] [--mix buy=85,sell=15] [--cancels N] [--hot-events N] [--hot-share PCT] [--bursts N]"
+          + " [--burst-length N] [--burst-share PCT] [--zipf S] [--money AMOUNT] [--seed N] [--log LEVEL]");
+      System.exit(2);
+    }
+    System.exit(generator.run());
+  }
+
+  private boolean parseArguments(String[] args) {
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      String value = args[i + 1];
+      try {
+        switch (args[i]) {
+          case ("--events"):
+            eventsFilename = value;
+            break;
+          case ("--customers"):
+            customersFilename = value;
+            break;
+          case ("--operations"):
+            nOperations = Long.parseLong(value);
+            break;
+          case ("--threads"):
+            threads = Integer.parseInt(value);
+            break;
+          case ("--mix"):
+            if (!parseMix(value)) {
+              return false;
+            }
+            break;
+          case ("--cancels"):
+            nCancels = Integer.parseInt(value);
+            break;
+          case ("--hot-events"):
+            nHotEvents = Integer.parseInt(value);
+            break;
+          case ("--hot-share"):
+            hotShare = Integer.parseInt(value);
+            break;
+          case ("--bursts"):
+            nBursts = Integer.parseInt(value);
+            break;
+          case ("--burst-length"):
+            burstLength = Long.parseLong(value);
+            break;
+          case ("--burst-share"):
+            burstShare = Integer.parseInt(value);
+            break;
+          case ("--zipf"):
+            zipf = Double.parseDouble(value);
+            break;
+          case ("--money"):
+            money = Money.toCents(value);
+            break;
+          case ("--seed"):
+            seed = Long.parseLong(value);
+            break;
+          case ("--log"):
+            Log.setLevel(Level.parse(value.toUpperCase()));
+            break;
+          default:
+            System.err.println(args[i] + " is not a valid option.");
+            return false;
+        }
+      } catch (IllegalArgumentException | ArithmeticException e) { // Also NumberFormatException
+        System.err.println(value + " is not a valid value for " + args[i] + ".");
+        return false;
+      }
+    }
+    return (args.length % 2 == 0) && (eventsFilename != null) && (customersFilename != null) && (threads > 0)
+        && (nOperations >= 0) && (nCancels >= 0) && (nHotEvents >= 0) && (nBursts >= 0) && (burstLength >= 0)
+        && (zipf >= 0) && isPercent(hotShare) && isPercent(burstShare);
+  }
+
+  private static boolean isPercent(int percent) {
+    return (percent >= 0) && (percent <= 100);
+  }
+
+  /**
+   * @param mix - String with kind=weight separated by commas, kinds not given
+   *            get 0.
+   * @return true if every kind given exist and buys have weight.
+   */
+  private boolean parseMix(String mix) {
+    Arrays.fill(weights, 0);
+    for (String part : mix.split(",")) {
+      String[] kindWeight = part.split("=");
+      int kind = Arrays.asList(KINDS).indexOf(kindWeight[0].trim());
+      if ((kind < 0) || (kind == CANCEL) || (kindWeight.length != 2)) {
+        System.err.println(part + " is not a valid operation weight, cancels are given with --cancels.");
+        return false;
+      }
+      weights[kind] = Integer.parseInt(kindWeight[1].trim());
+    }
+    return (weights[BUY] > 0) && (weights[SELL] >= 0);
+  }
+
+  /**
+   * Load the Database, make the traffic and print the report.
+   *
+   * @return int with the exit status, 0 if the traffic was made.
+   */
+  private int run() {
+    PrintStream stdout = System.out;
+    long start = System.nanoTime();
+    long loadNanos;
+
+    // Purchases print messages for people, they are not part of the traffic
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      Database.populateFromCSV(eventsFilename, customersFilename, null);
+    } finally {
+      System.setOut(stdout);
+    }
+    loadNanos = System.nanoTime() - start;
+
+    ArrayList<Integer> ids = new ArrayList<>();
+    for (int id = 1; id <= Database.getLargestEventID(); id++) {
+      if (Database.getEvent(id) != null) {
+        ids.add(id);
+      }
+    }
+    if (ids.isEmpty() || (Database.getNumberOfCustomers() == 0)) {
+      System.err.println("There are no events or customers to make traffic for.");
+      return 1;
+    }
+    plan(ids);
+    stdout.printf("Loaded %d events and %d customers in %.1f ms%n", eventIDs.length, customers.length,
+        loadNanos / 1e6);
+
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      makeTraffic(stdout);
+    } finally {
+      System.setOut(stdout);
+    }
+    return 0;
+  }
+
+  /**
+   * Pick the hot events, the bursts, the cancellations and the order of the
+   * customers from the seed.
+   */
+  private void plan(ArrayList<Integer> ids) {
+    Random random = new Random(seed);
+    ArrayList<Customer> all = new ArrayList<>();
+
+    Collections.shuffle(ids, random);
+    nCancels = Math.min(nCancels, ids.size());
+    nHotEvents = Math.min(nHotEvents, ids.size());
+    cancelled = new AtomicIntegerArray(ids.size());
+    eventIDs = new int[ids.size()];
+    for (int i = 0; i < eventIDs.length; i++) {
+      eventIDs[i] = ids.get(i);
+    }
+
+    burstStarts = new long[nBursts];
+    burstEvents = new int[nBursts];
+    for (int i = 0; i < nBursts; i++) {
+      burstStarts[i] = nOperations * i / nBursts;
+      burstEvents[i] = random.nextInt(eventIDs.length);
+    }
+    cancelAt = new long[nCancels];
+    for (int i = 0; i < nCancels; i++) {
+      cancelAt[i] = nOperations * (i + 1) / (nCancels + 1);
+    }
+
+    // Customers are looked up by ID until every customer read was found
+    for (int id = 0; all.size() < Database.getNumberOfCustomers(); id++) {
+      Customer customer = Database.getCustomer(id);
+      if (customer != null) {
+        all.add(customer);
+        if (money >= 0) {
+          customer.setMoneyAvailableInCents(money);
+        }
+      }
+    }
+    Collections.shuffle(all, random);
+    customers = all.toArray(new Customer[0]);
+    customerCDF = new double[customers.length];
+    double total = 0.0;
+    for (int i = 0; i < customers.length; i++) {
+      total += 1.0 / Math.pow(i + 1, zipf);
+      customerCDF[i] = total;
+    }
+    for (int i = 0; i < customers.length; i++) {
+      customerCDF[i] /= total;
+    }
+  }
+
+  /**
+   * Start the workers, wait for them and print the report.
+   */
+  private void makeTraffic(PrintStream stdout) {
+    Worker[] workers = new Worker[threads];
+    long ticketsBefore = Database.getNumberOfTickets();
+    long heapBefore = usedHeapAfterGC();
+    long[] gcBefore = gcCountAndMillis();
+    long start;
+    long elapsed;
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      pool.resetPeakUsage();
+    }
+    start = System.nanoTime();
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Worker(i);
+      workers[i].start();
+    }
+    for (Worker worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    elapsed = System.nanoTime() - start;
+    long[] gc = gcCountAndMillis();
+    long heapPeak = peakHeap();
+    long heapAfter = usedHeapAfterGC();
+    long tickets = Database.getNumberOfTickets();
+
+    LatencyHistogram all = new LatencyHistogram();
+    LatencyHistogram[] latencies = new LatencyHistogram[KINDS.length];
+    long[] failed = new long[KINDS.length];
+    long nEventGone = 0;
+    for (int kind = 0; kind < KINDS.length; kind++) {
+      latencies[kind] = new LatencyHistogram();
+      for (Worker worker : workers) {
+        latencies[kind].add(worker.latencies[kind]);
+        failed[kind] += worker.failed[kind];
+      }
+      all.add(latencies[kind]);
+    }
+    for (Worker worker : workers) {
+      nEventGone += worker.nEventGone;
+    }
+
+    stdout.printf("%d operations in %.1f ms with %d threads, %.0f operations/sec%n", all.getCount(), elapsed / 1e6,
+        threads, all.getCount() * 1e9 / elapsed);
+    stdout.printf("%-7s %s%n", "all", all);
+    stdout.printf("%-7s %s, made=%d declined=%d (event cancelled=%d)%n", "buy", latencies[BUY],
+        latencies[BUY].getCount() - failed[BUY], failed[BUY], nEventGone);
+    stdout.printf("%-7s %s, made=%d gone=%d%n", "sell", latencies[SELL], latencies[SELL].getCount() - failed[SELL],
+        failed[SELL]);
+    stdout.printf("%-7s %s, made=%d failed=%d%n", "cancel", latencies[CANCEL],
+        latencies[CANCEL].getCount() - failed[CANCEL], failed[CANCEL]);
+    stdout.printf("heap: %.1f MB before, %.1f MB peak, %.1f MB after for %d tickets (%d before), %s%n",
+        heapBefore / 1048576.0, heapPeak / 1048576.0, heapAfter / 1048576.0, tickets, ticketsBefore,
+        (tickets > ticketsBefore) ? ((heapAfter - heapBefore) / (tickets - ticketsBefore)) + " bytes per ticket"
+            : "no new tickets");
+    stdout.printf("gc: %d collections, %d ms%n", gc[0] - gcBefore[0], gc[1] - gcBefore[1]);
+  }
+
+  /**
+   * @return long with the bytes of heap used after a full collection, what the
+   *         Database keep.
+   */
+  private static long usedHeapAfterGC() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /**
+   * @return long with the sum of the peaks of every heap pool since they were
+   *         reset, the pools can peak at different times so it is the most the
+   *         heap could have used.
+   */
+  private static long peakHeap() {
+    long peak = 0;
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+
+  /**
+   * @return long[] with the collections made and the milliseconds they took.
+   */
+  private static long[] gcCountAndMillis() {
+    long[] gc = new long[2];
+
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gc[0] += Math.max(collector.getCollectionCount(), 0);
+      gc[1] += Math.max(collector.getCollectionTime(), 0);
+    }
+    return gc;
+  }
+}
@@ -91,7 +91,7 @@ public class User {
 
       // Ask for ticket ID to continue with purchase or cancel it
       System.out.println("Enter ticket ID to continue with the sell options or enter a invalid ticket ID to cancel.");
-      ticket = Database.getTicketPurchased(scnr.readNextInt());
+      ticket = Database.getTicketPurchased(scnr.readNextLong());
 
       // If no valid ticket ID was given, cancel purchase
       if (ticket == null) {
@@ -124,16 +124,34 @@ public class User {
    * from the database.
    * 
    * @param ticket
+   * @return true if the seats were sold, false if the event of the ticket was
+   *         cancelled, the cancellation give the money back instead, or the
+   *         ticket was already sold.
    */
-  public static void sellAllSeats(Ticket ticket) {
-    List<Seat> seats = ticket.getSeatsPurchased();
+  public static boolean sellAllSeats(Ticket ticket) {
+    Event event = ticket.getEvent();
 
-    for (int i = seats.size() - 1; i >= 0; i--) {
-      sellSeat(ticket, seats.get(i));
+    // A cancellation can't plan the refund of the ticket while it is sold
+    if ((event == null) || !event.beginSale()) {
+      return false;
     }
+    try {
+      // Take the ticket out of the database before giving any money back, so it
+      // is sold only once
+      if (!Database.getTicketStore().remove(ticket)) {
+        return false;
+      }
+      List<Seat> seats = ticket.getSeatsPurchased();
+      for (int i = seats.size() - 1; i >= 0; i--) {
+        sellSeat(ticket, event, seats.get(i));
+      }
 
-    // Remove the ticket from database, event, and customer list
-    Database.removeTicket(ticket, new String[] { Event.class.getSimpleName(), Customer.class.getSimpleName() });
+      // Remove the ticket from database, event, and customer list
+      Database.removeTicket(ticket, new String[] { Event.class.getSimpleName(), Customer.class.getSimpleName() });
+    } finally {
+      event.endSale();
+    }
+    return true;
   }
 
   /**
@@ -145,24 +163,46 @@ public class User {
    * @param atIdx
    */
   private static void sellSeat(Ticket ticket, Seat seat) {
-    float cost = seat.getPrice();
     Event event = ticket.getEvent();
+
+    if ((event == null) || !event.beginSale()) { // Event cancelled
+      return;
+    }
+    try {
+      // Sold or refunded meanwhile
+      if (Database.getTicketPurchased(ticket.getPurchaseID()) != null) {
+        sellSeat(ticket, event, seat);
+      }
+    } finally {
+      event.endSale();
+    }
+  }
+
+  /**
+   * Same as sellSeat(ticket, seat) with the event of the ticket already found,
+   * so it is still sold if the event is cancelled in the middle.
+   */
+  private static void sellSeat(Ticket ticket, Event event, Seat seat) {
+    long cost = seat.getPriceInCents();
     Customer customer = ticket.getCustomer();
 
-    // Update subtotal
-    ticket.setSubtotal(ticket.getSubtotal() - cost);
+    // Update subtotal and give the seat price back to the customer
+    ticket.setSubtotal(ticket.getSubtotalInCents() - cost);
+    customer.depositMoney(cost);
     // Make a seat base on the type, price would be ignore if a seat of the same
     // type already exist
-    event.makeNSeatsByNum(seat.getSeatType(), String.valueOf(cost), 1);
-    if (customer.hasTicketMinerMembership()) {
-      float discount = cost / ((float) 9.0);
+    event.makeNSeatsByNum(seat.getSeatTypeOrdinal(), cost, 1);
+    if (seat.getDiscountInCents() != 0) { // Seat bought with the member discount
       // Update total discount given
-      event.setTotalDiscounted(event.getTotalDiscounted() - discount);
+      event.addTotalDiscounted(-seat.getDiscountInCents());
       // Update total customer saving
-      customer.setTotalSave(customer.getTotalSave() - discount);
+      customer.addTotalSave(-seat.getDiscountInCents());
     }
-    // Remove seat from the ticket
+    // Remove seat from the ticket and from the seats sold by the event
     ticket.removeSeat(seat);
+    event.removeSeatSold(seat);
+    Journal.logTicket(ticket);
+    Journal.logEvent(event);
   }
 
   /**
@@ -4,7 +4,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
+import java.util.Collection;
 import java.io.FileWriter;
 
 /**
@@ -22,18 +22,18 @@ public class WriteCSV {
   /**
    * Write a csv file that save all the customers information.
    * 
-   * @param customers - HashMap with all the possible customers.
+   * @param customers - Collection with all the possible customers.
    * @param filename  - String with name of file to be created and write
    *                  information into.
    */
-  public static void writeCustomerList(Map<Integer, Customer> customers, String filename) {
-    changeFilename(filename, "prev" + filename);
+  public static void writeCustomerList(Collection<Customer> customers, String filename) {
+    changeFilename(filename, previousOf(filename));
 
     // Write to file
     try (FileWriter writer = new FileWriter(filename)) {
       // Write header
       Customer.writeCSVHeader(writer);
-      for (Customer customer : customers.values()) {
+      for (Customer customer : customers) {
         customer.writeContentToCSV(writer);
       }
       writer.flush();
@@ -47,17 +47,17 @@ public class WriteCSV {
   /**
    * Write a csv file that save all the events information.
    * 
-   * @param events   - HashMap with all the events listed
+   * @param events   - Collection with all the events listed
    * @param filename - String with name of file to be created and write
    *                 information into.
    */
-  public static void writeEventList(Map<Integer, Event> events, String filename) {
-    changeFilename(filename, "prev" + filename);
+  public static void writeEventList(Collection<Event> events, String filename) {
+    changeFilename(filename, previousOf(filename));
     // Write to file
     try (FileWriter writer = new FileWriter(filename)) {
       Event.writeCSVHeader(writer);
       // Fill all columns for the header by using one event at the time
-      for (Event event : events.values()) {
+      for (Event event : events) {
         event.writeContentToCSV(writer);
       }
       writer.flush();
@@ -70,16 +70,16 @@ public class WriteCSV {
   /**
    * Write a csv file that save all the tickets information.
    * 
-   * @param tickets  - HashMap with all the tickets sell
+   * @param tickets  - Collection with all the tickets sell
    * @param filename - String with name of file to be created and write
    *                 information into.
    */
-  public static void writeTicketsList(Map<Integer, Ticket> tickets, String filename) {
-    changeFilename(filename, "prev" + filename);
+  public static void writeTicketsList(Collection<Ticket> tickets, String filename) {
+    changeFilename(filename, previousOf(filename));
     // Write to file
     try (FileWriter writer = new FileWriter(filename)) {
       Ticket.writeCSVHeader(writer);
-      for (Ticket ticket : tickets.values()) {
+      for (Ticket ticket : tickets) {
         ticket.writeContentToCSV(writer);
       }
       writer.flush();
@@ -89,6 +89,16 @@ public class WriteCSV {
     }
   }
 
+  /**
+   * @param filename - String with the name of a file, it can have folders.
+   * @return String with the same file with "prev" before its name, in the same
+   *         folder.
+   */
+  static String previousOf(String filename) {
+    Path path = Paths.get(filename);
+    return path.resolveSibling("prev" + path.getFileName()).toString();
+  }
+
   /**
    * First string contain the name of the previous filename to be rename as
    * newFilename, if it exist. If newFilename exist before calling this function,
@@ -115,7 +125,7 @@ public class WriteCSV {
     try {
       Path path = Paths.get(prevFilename);
       if (Files.exists(path)) {
-        Files.move(path, path.resolveSibling(newFilename));
+        Files.move(path, Paths.get(newFilename));
       }
     } catch (IOException e) {
       e.printStackTrace();